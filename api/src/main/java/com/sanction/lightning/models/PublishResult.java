@@ -0,0 +1,62 @@
+package com.sanction.lightning.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+public class PublishResult {
+  private final String facebook;
+  private final Long twitter;
+
+  /**
+   * Constructs a new PublishResult from the given parameters.
+   *
+   * @param facebook The information returned by Facebook about the post,
+   *                 or {@code null} if publishing to Facebook failed.
+   * @param twitter The ID of the post on Twitter, or {@code null} if publishing to Twitter failed.
+   */
+  @JsonCreator
+  public PublishResult(@JsonProperty("facebook") String facebook,
+                       @JsonProperty("twitter") Long twitter) {
+    this.facebook = facebook;
+    this.twitter = twitter;
+  }
+
+  public String getFacebook() {
+    return facebook;
+  }
+
+  public Long getTwitter() {
+    return twitter;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof PublishResult)) {
+      return false;
+    }
+
+    PublishResult other = (PublishResult) obj;
+    return Objects.equals(this.facebook, other.facebook)
+        && Objects.equals(this.twitter, other.twitter);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.facebook, this.twitter);
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", "PublishResult [", "]")
+        .add(String.format("facebook=%s", facebook))
+        .add(String.format("twitter=%s", twitter))
+        .toString();
+  }
+}
@@ -0,0 +1,63 @@
+package com.sanction.lightning.models.facebook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+public class FacebookPage<T> {
+  private final List<T> data;
+  private final String after;
+
+  /**
+   * Constructs a new FacebookPage from the given parameters.
+   *
+   * @param data The items contained in this page.
+   * @param after The Graph API cursor that points to the next page,
+   *              or {@code null} if this is the last page.
+   */
+  @JsonCreator
+  public FacebookPage(@JsonProperty("data") List<T> data,
+                      @JsonProperty("after") String after) {
+    this.data = data;
+    this.after = after;
+  }
+
+  public List<T> getData() {
+    return data;
+  }
+
+  public String getAfter() {
+    return after;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof FacebookPage)) {
+      return false;
+    }
+
+    FacebookPage<?> other = (FacebookPage<?>) obj;
+    return Objects.equals(this.data, other.data)
+        && Objects.equals(this.after, other.after);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.data, this.after);
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", "FacebookPage [", "]")
+        .add(String.format("data=%s", data))
+        .add(String.format("after=%s", after))
+        .toString();
+  }
+}
@@ -0,0 +1,71 @@
+package com.sanction.lightning.models.facebook;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+public class FacebookProfile {
+  private final FacebookUser user;
+  private final FacebookPage<FacebookPhoto> photos;
+  private final FacebookPage<FacebookVideo> videos;
+
+  /**
+   * Constructs a new FacebookProfile from the given parameters.
+   *
+   * @param user The user's information.
+   * @param photos The first page of the user's photos.
+   * @param videos The first page of the user's videos.
+   */
+  @JsonCreator
+  public FacebookProfile(@JsonProperty("user") FacebookUser user,
+                         @JsonProperty("photos") FacebookPage<FacebookPhoto> photos,
+                         @JsonProperty("videos") FacebookPage<FacebookVideo> videos) {
+    this.user = user;
+    this.photos = photos;
+    this.videos = videos;
+  }
+
+  public FacebookUser getUser() {
+    return user;
+  }
+
+  public FacebookPage<FacebookPhoto> getPhotos() {
+    return photos;
+  }
+
+  public FacebookPage<FacebookVideo> getVideos() {
+    return videos;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof FacebookProfile)) {
+      return false;
+    }
+
+    FacebookProfile other = (FacebookProfile) obj;
+    return Objects.equals(this.user, other.user)
+        && Objects.equals(this.photos, other.photos)
+        && Objects.equals(this.videos, other.videos);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.user, this.photos, this.videos);
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", "FacebookProfile [", "]")
+        .add(String.format("user=%s", user))
+        .add(String.format("photos=%s", photos))
+        .add(String.format("videos=%s", videos))
+        .toString();
+  }
+}
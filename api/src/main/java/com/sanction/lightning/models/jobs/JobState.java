@@ -0,0 +1,17 @@
+package com.sanction.lightning.models.jobs;
+
+public enum JobState {
+  QUEUED,
+  RUNNING,
+  SUCCEEDED,
+  FAILED;
+
+  /**
+   * Determines if a job in this state has finished running.
+   *
+   * @return True if the job has succeeded or failed, false otherwise.
+   */
+  public boolean isDone() {
+    return this == SUCCEEDED || this == FAILED;
+  }
+}
@@ -0,0 +1,72 @@
+package com.sanction.lightning.models.jobs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+public class JobStatus {
+  private final String id;
+  private final JobState state;
+  private final String result;
+
+  /**
+   * Constructs a new JobStatus from the given parameters.
+   *
+   * @param id The ID of the job.
+   * @param state The current state of the job.
+   * @param result The information returned by the social network if the job succeeded,
+   *               or the reason it failed. {@code null} while the job is still running.
+   */
+  @JsonCreator
+  public JobStatus(@JsonProperty("id") String id,
+                   @JsonProperty("state") JobState state,
+                   @JsonProperty("result") String result) {
+    this.id = id;
+    this.state = state;
+    this.result = result;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public JobState getState() {
+    return state;
+  }
+
+  public String getResult() {
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof JobStatus)) {
+      return false;
+    }
+
+    JobStatus other = (JobStatus) obj;
+    return Objects.equals(this.id, other.id)
+        && Objects.equals(this.state, other.state)
+        && Objects.equals(this.result, other.result);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.id, this.state, this.result);
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", "JobStatus [", "]")
+        .add(String.format("id=%s", id))
+        .add(String.format("state=%s", state))
+        .add(String.format("result=%s", result))
+        .toString();
+  }
+}
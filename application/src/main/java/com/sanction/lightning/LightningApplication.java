@@ -1,7 +1,22 @@
 package com.sanction.lightning;
 
+import com.sanction.lightning.authentication.ApprovedKeyStore;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.concurrent.BoundedExecutor;
+import com.sanction.lightning.concurrent.VirtualThreadServerFactory;
+import com.sanction.lightning.concurrent.VirtualThreads;
+import com.sanction.lightning.config.AuthenticationConfiguration;
+import com.sanction.lightning.config.ExecutorConfiguration;
+import com.sanction.lightning.config.RateLimitConfiguration;
+import com.sanction.lightning.config.ThunderConfiguration;
+import com.sanction.lightning.config.TracingConfiguration;
+import com.sanction.lightning.config.UpstreamsConfiguration;
 import com.sanction.lightning.facebook.FacebookModule;
+import com.sanction.lightning.metrics.EndpointTimingFeature;
+import com.sanction.lightning.ratelimit.RateLimitFeature;
+import com.sanction.lightning.resilience.CircuitBreakerHealthCheck;
+import com.sanction.lightning.tracing.TraceparentInterceptor;
+import com.sanction.lightning.tracing.TracingListener;
 import com.sanction.lightning.twitter.TwitterModule;
 import com.sanctionco.thunder.ThunderClient;
 
@@ -10,10 +25,30 @@ import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.AuthValueFactoryProvider;
 import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
 import io.dropwizard.forms.MultiPartBundle;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import okhttp3.OkHttpClient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
 
 public class LightningApplication extends Application<LightningConfiguration> {
+  private static final Logger LOG = LoggerFactory.getLogger(LightningApplication.class);
 
   public static void main(String[] args) throws Exception {
     new LightningApplication().run(args);
@@ -22,34 +57,179 @@ public class LightningApplication extends Application<LightningConfiguration> {
   @Override
   public void initialize(Bootstrap<LightningConfiguration> bootstrap) {
     bootstrap.addBundle(new MultiPartBundle());
+
+    // Read the server configuration as a factory that can run Jetty on virtual threads
+    VirtualThreadServerFactory.register(bootstrap.getObjectMapper());
   }
 
   @Override
   public void run(LightningConfiguration config, Environment env) {
+    // twitter4j uses HttpURLConnection, which keeps connections alive in a JVM-wide cache. Its
+    // size is read from a system property when the first connection is opened, so it is set
+    // before anything connects. A value given on the command line is left alone.
+    if (System.getProperty("http.maxConnections") == null) {
+      System.setProperty("http.maxConnections",
+          String.valueOf(config.getTwitterConfiguration().getMaxKeepAliveConnections()));
+    }
+
     // Set up Thunder client
-    ThunderClient thunderClient = ThunderClient.builder()
-        .endpoint(config.getThunderConfiguration().getEndpoint())
-        .authentication(
-            config.getThunderConfiguration().getUserKey(),
-            config.getThunderConfiguration().getUserSecret())
+    ThunderClient thunderClient = buildThunderClient(config.getThunderConfiguration());
+
+    // Request threads follow the provider executor onto virtual threads. The server is built
+    // after this method returns, so the setting still takes effect.
+    if (config.getServerFactory() instanceof VirtualThreadServerFactory) {
+      ((VirtualThreadServerFactory) config.getServerFactory()).setVirtualThreads(
+          config.getProviderExecutorConfiguration().isVirtualThreads(),
+          config.getProviderExecutorConfiguration().getMaxVirtualThreads());
+    }
+
+    // Bounded executor for blocking Facebook and Twitter calls
+    Executor providerExecutor = buildProviderExecutor(
+        config.getProviderExecutorConfiguration(), config.getUpstreamsConfiguration(), env);
+
+    // Bounded executor for copying request bodies to disk
+    Executor mediaExecutor = env.lifecycle().executorService("media-%d")
+        .minThreads(config.getMediaConfiguration().getCopyThreads())
+        .maxThreads(config.getMediaConfiguration().getCopyThreads())
+        .workQueue(new ArrayBlockingQueue<>(config.getMediaConfiguration().getCopyQueueSize()))
         .build();
 
     LightningComponent component = DaggerLightningComponent.builder()
         .facebookModule(new FacebookModule(config.getFacebookConfiguration()))
-        .lightningModule(new LightningModule(thunderClient, config, env.metrics()))
+        .lightningModule(new LightningModule(
+            thunderClient, config, env.metrics(), providerExecutor, mediaExecutor,
+            env.getObjectMapper()))
         .twitterModule(new TwitterModule(config.getTwitterConfiguration()))
         .build();
 
     // Authentication
     env.jersey().register(new AuthDynamicFeature(new BasicCredentialAuthFilter.Builder<Key>()
-        .setAuthenticator(component.getLightningAuthenticator())
+        .setAuthenticator(component.getAuthenticator())
         .setRealm("LIGHTNING - AUTHENTICATION")
         .buildAuthFilter()));
 
     env.jersey().register(new AuthValueFactoryProvider.Binder<>(Key.class));
 
+    // Reload approved keys from a file when it changes, if one is configured
+    AuthenticationConfiguration authConfig = config.getAuthenticationConfiguration();
+    if (authConfig.getApprovedKeysFile() != null) {
+      env.lifecycle().manage(new ApprovedKeyStore(
+          Paths.get(authConfig.getApprovedKeysFile()),
+          component.getLightningAuthenticator()));
+    }
+
+    // Latency timers and response counters for every endpoint
+    env.jersey().register(new EndpointTimingFeature(component.getInstrumentation()));
+
+    // Trace requests, continuing the caller's trace if it sent a traceparent header
+    TracingConfiguration tracingConfig = config.getTracingConfiguration();
+    if (tracingConfig.isEnabled()) {
+      env.jersey().register(new TracingListener(component.getTracer()));
+      env.lifecycle().manage(component.getTracer());
+    }
+
+    // Per-application rate limits, checked after authentication
+    RateLimitConfiguration rateLimitConfig = config.getRateLimitConfiguration();
+    if (rateLimitConfig.isEnabled()) {
+      env.jersey().register(new RateLimitFeature(
+          rateLimitConfig.getDefaultLimit(),
+          rateLimitConfig.isPerEndpoint(),
+          env.metrics()));
+    }
+
+    // Report an open circuit breaker for any upstream as unhealthy
+    env.healthChecks().register("thunder",
+        new CircuitBreakerHealthCheck(component.getThunderCircuitBreaker()));
+    env.healthChecks().register("facebook",
+        new CircuitBreakerHealthCheck(component.getFacebookCircuitBreaker()));
+    env.healthChecks().register("twitter",
+        new CircuitBreakerHealthCheck(component.getTwitterCircuitBreaker()));
+
     // Resources
     env.jersey().register(component.getFacebookResource());
     env.jersey().register(component.getTwitterResource());
+    env.jersey().register(component.getPublishResource());
+    env.jersey().register(component.getJobsResource());
+
+    // Background publish jobs
+    env.lifecycle().manage(component.getPublishJobQueue());
+  }
+
+  /**
+   * Builds the Thunder client the same way as {@link ThunderClient#builder()}, except that each
+   * request carries the span that was current when it was made as a {@code traceparent} header.
+   * The builder does not accept an HTTP client of our own, so the client is built here.
+   */
+  private ThunderClient buildThunderClient(ThunderConfiguration thunderConfig) {
+    String endpoint = thunderConfig.getEndpoint().endsWith("/")
+        ? thunderConfig.getEndpoint()
+        : thunderConfig.getEndpoint() + "/";
+    String authorization = "Basic " + Base64.getEncoder().encodeToString(
+        (thunderConfig.getUserKey() + ":" + thunderConfig.getUserSecret())
+            .getBytes(StandardCharsets.UTF_8));
+
+    OkHttpClient client = new OkHttpClient.Builder()
+        .addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+            .header("Authorization", authorization)
+            .build()))
+        .build();
+
+    // Thunder calls are asynchronous, so the header is added where the call is made
+    return new Retrofit.Builder()
+        .baseUrl(endpoint)
+        .addConverterFactory(ScalarsConverterFactory.create())
+        .addConverterFactory(JacksonConverterFactory.create())
+        .callFactory(TraceparentInterceptor.callFactory(client))
+        .build()
+        .create(ThunderClient.class);
+  }
+
+  private Executor buildProviderExecutor(ExecutorConfiguration executorConfig,
+                                         UpstreamsConfiguration upstreamsConfig,
+                                         Environment env) {
+    if (executorConfig.isVirtualThreads()) {
+      Optional<ExecutorService> virtualExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+      if (virtualExecutor.isPresent()) {
+        checkProviderLimits(upstreamsConfig, executorConfig.getMaxVirtualThreads());
+
+        LOG.info("Running provider calls on virtual threads.");
+        env.lifecycle().manage(
+            new ExecutorServiceManager(virtualExecutor.get(), Duration.seconds(5), "provider"));
+
+        return new BoundedExecutor(virtualExecutor.get(), executorConfig.getMaxVirtualThreads());
+      }
+
+      LOG.warn("Virtual threads were requested but are not supported by this JDK ({}). "
+          + "Falling back to a platform thread pool.", Runtime.version());
+    }
+
+    checkProviderLimits(upstreamsConfig, executorConfig.getThreads());
+
+    return env.lifecycle().executorService("provider-%d")
+        .minThreads(executorConfig.getThreads())
+        .maxThreads(executorConfig.getThreads())
+        .workQueue(new ArrayBlockingQueue<>(executorConfig.getQueueSize()))
+        .build();
+  }
+
+  /**
+   * Checks that the Facebook and Twitter concurrency limits split the provider executor between
+   * them. If they add up to more than the executor can run at once, a slow provider can hold
+   * every thread and calls to the other provider wait in the queue behind it.
+   *
+   * @param upstreamsConfig The configuration of each upstream.
+   * @param threads The number of calls the provider executor can run at once.
+   * @throws IllegalStateException If the limits add up to more than {@code threads}.
+   */
+  static void checkProviderLimits(UpstreamsConfiguration upstreamsConfig, int threads) {
+    int facebookCalls = upstreamsConfig.getFacebook().getMaxConcurrentCalls();
+    int twitterCalls = upstreamsConfig.getTwitter().getMaxConcurrentCalls();
+
+    if (facebookCalls + twitterCalls > threads) {
+      throw new IllegalStateException(String.format(
+          "The max-concurrent-calls of Facebook (%d) and Twitter (%d) add up to more than the "
+              + "%d threads of the provider executor.", facebookCalls, twitterCalls, threads));
+    }
   }
 }
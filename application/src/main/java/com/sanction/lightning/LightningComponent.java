@@ -1,13 +1,24 @@
 package com.sanction.lightning;
 
+import com.sanction.lightning.authentication.Key;
 import com.sanction.lightning.authentication.LightningAuthenticator;
 import com.sanction.lightning.facebook.FacebookModule;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.resilience.CircuitBreaker;
 import com.sanction.lightning.resources.FacebookResource;
+import com.sanction.lightning.resources.JobsResource;
+import com.sanction.lightning.resources.PublishResource;
 import com.sanction.lightning.resources.TwitterResource;
+import com.sanction.lightning.tracing.Tracer;
 import com.sanction.lightning.twitter.TwitterModule;
 
 import dagger.Component;
 
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 @Singleton
@@ -21,5 +32,26 @@ public interface LightningComponent {
 
   TwitterResource getTwitterResource();
 
+  PublishResource getPublishResource();
+
+  JobsResource getJobsResource();
+
+  PublishJobQueue getPublishJobQueue();
+
   LightningAuthenticator getLightningAuthenticator();
+
+  Authenticator<BasicCredentials, Key> getAuthenticator();
+
+  Instrumentation getInstrumentation();
+
+  Tracer getTracer();
+
+  @Named("thunder")
+  CircuitBreaker getThunderCircuitBreaker();
+
+  @Named("facebook")
+  CircuitBreaker getFacebookCircuitBreaker();
+
+  @Named("twitter")
+  CircuitBreaker getTwitterCircuitBreaker();
 }
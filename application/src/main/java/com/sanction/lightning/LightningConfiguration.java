@@ -2,7 +2,16 @@ package com.sanction.lightning;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.config.AuthenticationConfiguration;
+import com.sanction.lightning.config.ExecutorConfiguration;
+import com.sanction.lightning.config.InstrumentationConfiguration;
+import com.sanction.lightning.config.JobsConfiguration;
+import com.sanction.lightning.config.MediaConfiguration;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+import com.sanction.lightning.config.RateLimitConfiguration;
 import com.sanction.lightning.config.ThunderConfiguration;
+import com.sanction.lightning.config.TracingConfiguration;
+import com.sanction.lightning.config.UpstreamsConfiguration;
 import com.sanction.lightning.facebook.FacebookConfiguration;
 import com.sanction.lightning.twitter.TwitterConfiguration;
 
@@ -49,4 +58,88 @@ public class LightningConfiguration extends Configuration {
   public List<Key> getApprovedKeys() {
     return approvedKeys;
   }
+
+  @NotNull
+  @Valid
+  @JsonProperty("authentication")
+  private final AuthenticationConfiguration authenticationConfiguration
+      = new AuthenticationConfiguration();
+
+  AuthenticationConfiguration getAuthenticationConfiguration() {
+    return authenticationConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("rate-limit")
+  private final RateLimitConfiguration rateLimitConfiguration = new RateLimitConfiguration();
+
+  RateLimitConfiguration getRateLimitConfiguration() {
+    return rateLimitConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("profile-cache")
+  private final ProfileCacheConfiguration profileCacheConfiguration
+      = new ProfileCacheConfiguration();
+
+  ProfileCacheConfiguration getProfileCacheConfiguration() {
+    return profileCacheConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("instrumentation")
+  private final InstrumentationConfiguration instrumentationConfiguration
+      = new InstrumentationConfiguration();
+
+  InstrumentationConfiguration getInstrumentationConfiguration() {
+    return instrumentationConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("tracing")
+  private final TracingConfiguration tracingConfiguration = new TracingConfiguration();
+
+  TracingConfiguration getTracingConfiguration() {
+    return tracingConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("upstreams")
+  private final UpstreamsConfiguration upstreamsConfiguration = new UpstreamsConfiguration();
+
+  UpstreamsConfiguration getUpstreamsConfiguration() {
+    return upstreamsConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("provider-executor")
+  private final ExecutorConfiguration providerExecutorConfiguration = new ExecutorConfiguration();
+
+  ExecutorConfiguration getProviderExecutorConfiguration() {
+    return providerExecutorConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("media")
+  private final MediaConfiguration mediaConfiguration = new MediaConfiguration();
+
+  MediaConfiguration getMediaConfiguration() {
+    return mediaConfiguration;
+  }
+
+  @NotNull
+  @Valid
+  @JsonProperty("jobs")
+  private final JobsConfiguration jobsConfiguration = new JobsConfiguration();
+
+  JobsConfiguration getJobsConfiguration() {
+    return jobsConfiguration;
+  }
 }
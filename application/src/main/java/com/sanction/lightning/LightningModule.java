@@ -1,12 +1,53 @@
 package com.sanction.lightning;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.caffeine.MetricsStatsCounter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanction.lightning.authentication.CachingKeyAuthenticator;
+import com.sanction.lightning.authentication.Key;
 import com.sanction.lightning.authentication.LightningAuthenticator;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.BoundedExecutor;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.concurrent.SingleFlight;
+import com.sanction.lightning.config.AuthenticationConfiguration;
+import com.sanction.lightning.config.InstrumentationConfiguration;
+import com.sanction.lightning.config.JobsConfiguration;
+import com.sanction.lightning.config.MediaConfiguration;
+import com.sanction.lightning.config.TracingConfiguration;
+import com.sanction.lightning.config.UpstreamConfiguration;
+import com.sanction.lightning.config.UserCacheConfiguration;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.media.MediaUploadFactory;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.models.facebook.FacebookUser;
+import com.sanction.lightning.models.twitter.TwitterUser;
+import com.sanction.lightning.resilience.CircuitBreaker;
+import com.sanction.lightning.resilience.ReadPolicy;
+import com.sanction.lightning.thunder.CachingThunderClient;
+import com.sanction.lightning.thunder.CaffeineUserCache;
+import com.sanction.lightning.thunder.CircuitBreakingThunderClient;
+import com.sanction.lightning.thunder.CoalescingThunderClient;
+import com.sanction.lightning.thunder.InstrumentedThunderClient;
+import com.sanction.lightning.thunder.TracingThunderClient;
+import com.sanction.lightning.tracing.FileSpanExporter;
+import com.sanction.lightning.tracing.LogSpanExporter;
+import com.sanction.lightning.tracing.SpanExporter;
+import com.sanction.lightning.tracing.Tracer;
 import com.sanctionco.thunder.ThunderClient;
 
 import dagger.Module;
 import dagger.Provides;
 
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 @Module
@@ -14,6 +55,9 @@ public class LightningModule {
   private final MetricRegistry metrics;
   private final ThunderClient thunderClient;
   private final LightningConfiguration config;
+  private final Executor providerExecutor;
+  private final Executor mediaExecutor;
+  private final ObjectMapper mapper;
 
   /**
    * Instantiates a new LightningModule object with the specified parameters.
@@ -21,18 +65,52 @@ public class LightningModule {
    * @param thunderClient Client for connecting to thunder.
    * @param config Configuration class for Lightning.
    * @param metrics Metrics class for resource classes.
+   * @param providerExecutor The executor to run blocking Facebook and Twitter calls on.
+   * @param mediaExecutor The executor to copy request bodies to disk on.
+   * @param mapper The ObjectMapper used to serialize responses.
    */
   public LightningModule(ThunderClient thunderClient, LightningConfiguration config,
-                         MetricRegistry metrics) {
+                         MetricRegistry metrics, Executor providerExecutor,
+                         Executor mediaExecutor, ObjectMapper mapper) {
     this.metrics = metrics;
     this.thunderClient = thunderClient;
     this.config = config;
+    this.providerExecutor = providerExecutor;
+    this.mediaExecutor = mediaExecutor;
+    this.mapper = mapper;
   }
 
+  /**
+   * Provides the ThunderClient used by the resources. Requests to Thunder are limited in number
+   * and guarded by a circuit breaker, and concurrent lookups of the same user share a single
+   * request. If the user cache is enabled, Thunder user lookups are served from the cache until
+   * they expire or are updated, even while the breaker is open. Every request is timed and traced
+   * as the resources see it, including the ones answered from the cache.
+   *
+   * @param circuitBreaker The circuit breaker for Thunder.
+   * @param instrumentation The instrumentation to time Thunder requests with.
+   * @return The ThunderClient to use for Thunder requests.
+   */
   @Singleton
   @Provides
-  ThunderClient provideThunderClient() {
-    return thunderClient;
+  ThunderClient provideThunderClient(@Named("thunder") CircuitBreaker circuitBreaker,
+                                     Instrumentation instrumentation) {
+    UserCacheConfiguration cacheConfig
+        = config.getThunderConfiguration().getUserCacheConfiguration();
+    UpstreamConfiguration upstreamConfig = config.getUpstreamsConfiguration().getThunder();
+    ThunderClient guardedClient = new CoalescingThunderClient(
+        new CircuitBreakingThunderClient(thunderClient, circuitBreaker,
+            readPolicy("thunder", upstreamConfig), upstreamConfig.getMaxConcurrentCalls()),
+        new SingleFlight<>("thunder-user", metrics));
+
+    ThunderClient client = cacheConfig.isEnabled()
+        ? new CachingThunderClient(guardedClient, new CaffeineUserCache(
+            cacheConfig.getMaximumSize(),
+            cacheConfig.getTtl().toJavaDuration(),
+            metrics))
+        : guardedClient;
+
+    return new InstrumentedThunderClient(new TracingThunderClient(client), instrumentation);
   }
 
   @Singleton
@@ -41,9 +119,206 @@ public class LightningModule {
     return metrics;
   }
 
+  @Singleton
+  @Provides
+  Instrumentation provideInstrumentation() {
+    InstrumentationConfiguration instrumentationConfig = config.getInstrumentationConfiguration();
+
+    return new Instrumentation(metrics,
+        instrumentationConfig.getHistogramWindow().toJavaDuration(),
+        instrumentationConfig.getHistogramMaxSamples());
+  }
+
+  /**
+   * Provides the Tracer that traces requests, exporting spans to the application log or to a
+   * file. Spans are discarded if tracing is disabled.
+   *
+   * @return The Tracer to trace requests with.
+   */
+  @Singleton
+  @Provides
+  Tracer provideTracer() {
+    TracingConfiguration tracingConfig = config.getTracingConfiguration();
+
+    if (!tracingConfig.isEnabled()) {
+      return new Tracer(span -> { }, 0.0);
+    }
+
+    SpanExporter exporter;
+
+    switch (tracingConfig.getExporter()) {
+      case FILE:
+        try {
+          exporter = new FileSpanExporter(Paths.get(tracingConfig.getFile()), mapper);
+        } catch (IOException e) {
+          throw new IllegalStateException("Unable to open the span file.", e);
+        }
+        break;
+
+      case LOG:
+      default:
+        exporter = new LogSpanExporter(mapper);
+        break;
+    }
+
+    return new Tracer(exporter, tracingConfig.getSampleRate());
+  }
+
+  @Singleton
+  @Provides
+  ObjectMapper provideObjectMapper() {
+    return mapper;
+  }
+
+  /**
+   * Provides the executor that copies request bodies to disk, for background publishes and for
+   * publishes to every network. The copies run on their own pool, so they take neither provider
+   * threads nor a provider's circuit breaker permits.
+   *
+   * @return The executor to copy request bodies on.
+   */
+  @Singleton
+  @Provides
+  @Named("media")
+  ProviderExecutor provideMediaExecutor() {
+    return new ProviderExecutor(mediaExecutor, CircuitBreaker.disabled("media"));
+  }
+
+  @Singleton
+  @Provides
+  @Named("facebook")
+  ProviderExecutor provideFacebookExecutor(@Named("facebook") CircuitBreaker circuitBreaker) {
+    return upstreamExecutor("facebook", config.getUpstreamsConfiguration().getFacebook(),
+        circuitBreaker);
+  }
+
+  @Singleton
+  @Provides
+  @Named("twitter")
+  ProviderExecutor provideTwitterExecutor(@Named("twitter") CircuitBreaker circuitBreaker) {
+    return upstreamExecutor("twitter", config.getUpstreamsConfiguration().getTwitter(),
+        circuitBreaker);
+  }
+
+  @Singleton
+  @Provides
+  @Named("thunder")
+  CircuitBreaker provideThunderCircuitBreaker() {
+    return circuitBreaker("thunder", config.getUpstreamsConfiguration().getThunder());
+  }
+
+  @Singleton
+  @Provides
+  @Named("facebook")
+  CircuitBreaker provideFacebookCircuitBreaker() {
+    return circuitBreaker("facebook", config.getUpstreamsConfiguration().getFacebook());
+  }
+
+  @Singleton
+  @Provides
+  @Named("twitter")
+  CircuitBreaker provideTwitterCircuitBreaker() {
+    return circuitBreaker("twitter", config.getUpstreamsConfiguration().getTwitter());
+  }
+
+  @Singleton
+  @Provides
+  ProfileCache<FacebookUser> provideFacebookProfileCache() {
+    return new ProfileCache<>("facebook", config.getProfileCacheConfiguration(), mapper, metrics);
+  }
+
+  @Singleton
+  @Provides
+  ProfileCache<TwitterUser> provideTwitterProfileCache() {
+    return new ProfileCache<>("twitter", config.getProfileCacheConfiguration(), mapper, metrics);
+  }
+
+  @Singleton
+  @Provides
+  MediaUploadFactory provideMediaUploadFactory() {
+    MediaConfiguration mediaConfig = config.getMediaConfiguration();
+
+    return new MediaUploadFactory(
+        Paths.get(mediaConfig.getSpillDirectory()),
+        mediaConfig.getPublishRetries());
+  }
+
+  @Singleton
+  @Provides
+  PublishJobQueue providePublishJobQueue(FacebookServiceFactory facebookServiceFactory,
+                                         @Named("facebook") ProviderExecutor facebookExecutor) {
+    JobsConfiguration jobsConfig = config.getJobsConfiguration();
+
+    return new PublishJobQueue(
+        Paths.get(jobsConfig.getDirectory()),
+        jobsConfig.getWorkers(),
+        jobsConfig.getQueueSize(),
+        jobsConfig.getMaxFinishedJobs(),
+        jobsConfig.getFinishedJobTtl().toJavaDuration(),
+        facebookServiceFactory,
+        facebookExecutor,
+        mapper);
+  }
+
   @Singleton
   @Provides
   LightningAuthenticator provideLightningAuthenticator() {
     return new LightningAuthenticator(config);
   }
+
+  /**
+   * Provides the Authenticator used to check the credentials on every request. If the
+   * authentication cache is enabled, results are cached by credentials until they expire or the
+   * approved keys are reloaded.
+   *
+   * @param lightningAuthenticator The authenticator that checks credentials against the keys.
+   * @return The Authenticator to register with the auth filter.
+   */
+  @Singleton
+  @Provides
+  Authenticator<BasicCredentials, Key> provideAuthenticator(
+      LightningAuthenticator lightningAuthenticator) {
+    AuthenticationConfiguration authConfig = config.getAuthenticationConfiguration();
+
+    if (!authConfig.isCacheEnabled()) {
+      return lightningAuthenticator;
+    }
+
+    String cacheName = MetricRegistry.name(LightningAuthenticator.class, "cache");
+    CachingKeyAuthenticator cachingAuthenticator = new CachingKeyAuthenticator(
+        lightningAuthenticator,
+        Caffeine.from(authConfig.getCachePolicy())
+            .recordStats(() -> new MetricsStatsCounter(metrics, cacheName))
+            .build());
+
+    metrics.gauge(MetricRegistry.name(cacheName, "hit-rate"),
+        () -> () -> cachingAuthenticator.stats().hitRate());
+
+    // Results cached before a reload may no longer be correct
+    lightningAuthenticator.addReloadListener(cachingAuthenticator::invalidateAll);
+
+    return cachingAuthenticator;
+  }
+
+  /**
+   * Builds the executor for calls to one provider. Each provider may only have a limited number
+   * of calls running or waiting at once, and the limits are checked at startup to add up to no
+   * more than the provider thread pool, so each provider's calls always have threads of their own.
+   */
+  private ProviderExecutor upstreamExecutor(String name, UpstreamConfiguration upstreamConfig,
+                                            CircuitBreaker circuitBreaker) {
+    return new ProviderExecutor(
+        new BoundedExecutor(providerExecutor, upstreamConfig.getMaxConcurrentCalls()),
+        circuitBreaker,
+        readPolicy(name, upstreamConfig));
+  }
+
+  private CircuitBreaker circuitBreaker(String name, UpstreamConfiguration upstreamConfig) {
+    return new CircuitBreaker(name, upstreamConfig.getCircuitBreakerConfiguration(), metrics);
+  }
+
+  private ReadPolicy readPolicy(String name, UpstreamConfiguration upstreamConfig) {
+    return new ReadPolicy(name, upstreamConfig.getRetryConfiguration(),
+        upstreamConfig.getHedgeConfiguration(), metrics);
+  }
 }
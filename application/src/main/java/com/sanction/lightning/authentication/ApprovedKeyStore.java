@@ -0,0 +1,152 @@
+package com.sanction.lightning.authentication;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.lifecycle.Managed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the approved keys from a YAML file and reloads them into a {@link LightningAuthenticator}
+ * whenever the file changes, so that applications can be added or removed without a restart.
+ * The file holds a list of keys in the same format as {@code approved-keys} in the configuration.
+ * If a changed file cannot be read, the keys that were loaded last are kept.
+ */
+public class ApprovedKeyStore implements Managed {
+  private static final Logger LOG = LoggerFactory.getLogger(ApprovedKeyStore.class);
+  private static final TypeReference<List<Key>> KEY_LIST = new TypeReference<List<Key>>() {};
+
+  // Editors often write a file in several steps, so wait for changes to settle before reading
+  private static final long SETTLE_MILLIS = 200;
+
+  private final Path file;
+  private final LightningAuthenticator authenticator;
+  private final ObjectMapper mapper = Jackson.newObjectMapper(new YAMLFactory());
+
+  private WatchService watchService;
+  private Thread watcher;
+
+  /**
+   * Constructs a new ApprovedKeyStore.
+   *
+   * @param file The file to read the approved keys from.
+   * @param authenticator The authenticator to load the approved keys into.
+   */
+  public ApprovedKeyStore(Path file, LightningAuthenticator authenticator) {
+    this.file = file.toAbsolutePath();
+    this.authenticator = authenticator;
+  }
+
+  /**
+   * Loads the keys from the file, then starts watching the file for changes.
+   *
+   * @throws IOException If the file could not be read or watched.
+   */
+  @Override
+  public void start() throws IOException {
+    authenticator.reload(read());
+
+    // Watch the directory, since the file may be replaced rather than modified in place
+    watchService = file.getFileSystem().newWatchService();
+    file.getParent().register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+
+    watcher = new Thread(this::watch, "approved-keys-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (watchService != null) {
+      watchService.close();
+      watcher.join();
+    }
+  }
+
+  /**
+   * Reads the file and loads its keys into the authenticator.
+   *
+   * @return {@code true} if the keys were reloaded, or {@code false} if the file was unreadable
+   *     and the current keys were kept.
+   */
+  public boolean reload() {
+    try {
+      authenticator.reload(read());
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Unable to reload approved keys from {}. Keeping the current keys.", file, e);
+      return false;
+    }
+  }
+
+  private List<Key> read() throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      List<Key> keys = mapper.readValue(in, KEY_LIST);
+
+      if (keys == null) {
+        throw new IOException("The approved keys file " + file + " is empty.");
+      }
+
+      return keys;
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        boolean changed = pollEvents(key);
+
+        // Collect the rest of the events from this change before reading the file
+        WatchKey next;
+        while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          changed |= pollEvents(next);
+        }
+
+        if (changed) {
+          reload();
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      LOG.debug("Stopped watching {}.", file);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean pollEvents(WatchKey key) {
+    boolean changed = false;
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      // An overflow means events were lost, so the file may have changed
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+          || file.getFileName().equals(event.context())) {
+        changed = true;
+      }
+    }
+
+    if (!key.reset()) {
+      LOG.warn("Can no longer watch {}. Approved keys will not be reloaded.", file.getParent());
+    }
+
+    return changed;
+  }
+}
@@ -0,0 +1,65 @@
+package com.sanction.lightning.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link Authenticator} that caches the keys that credentials were approved as, and forgets
+ * them all when the approved keys are reloaded. Rejected credentials are never cached.
+ *
+ * <p>Every call to {@link #invalidateAll} bumps a generation before clearing the cache. A lookup
+ * only caches its result if the generation did not change while it was in flight, so a lookup
+ * that raced with a reload can never put a revoked key back in the cache.
+ */
+public class CachingKeyAuthenticator implements Authenticator<BasicCredentials, Key> {
+  private final Authenticator<BasicCredentials, Key> delegate;
+  private final Cache<BasicCredentials, Key> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  public CachingKeyAuthenticator(Authenticator<BasicCredentials, Key> delegate,
+                                 Cache<BasicCredentials, Key> cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public Optional<Key> authenticate(BasicCredentials credentials) throws AuthenticationException {
+    Key cached = cache.getIfPresent(credentials);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+
+    long started = generation.get();
+    Optional<Key> key = delegate.authenticate(credentials);
+
+    if (key.isPresent() && generation.get() == started) {
+      cache.put(credentials, key.get());
+
+      // The keys may have been reloaded between the check and the put
+      if (generation.get() != started) {
+        cache.invalidate(credentials);
+      }
+    }
+
+    return key;
+  }
+
+  /**
+   * Forgets every cached result, including those of lookups that are still in flight.
+   */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
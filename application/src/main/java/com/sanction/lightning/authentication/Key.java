@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
+import com.sanction.lightning.ratelimit.RateLimit;
 
 import java.security.Principal;
 
@@ -13,12 +14,27 @@ public class Key implements Principal {
 
   private final String name;
   private final String secret;
+  private final RateLimit rateLimit;
 
+  public Key(String name, String secret) {
+    this(name, secret, null);
+  }
+
+  /**
+   * Constructs a new Key.
+   *
+   * @param name The name of the application.
+   * @param secret The secret the application authenticates with.
+   * @param rateLimit The rate the application may make requests at, or {@code null} to use the
+   *     default limit.
+   */
   @JsonCreator
   public Key(@JsonProperty("application") String name,
-             @JsonProperty("secret") String secret) {
+             @JsonProperty("secret") String secret,
+             @JsonProperty("rate-limit") RateLimit rateLimit) {
     this.name = checkNotNull(name);
     this.secret = checkNotNull(secret);
+    this.rateLimit = rateLimit;
   }
 
   public String getName() {
@@ -29,6 +45,10 @@ public class Key implements Principal {
     return secret;
   }
 
+  public RateLimit getRateLimit() {
+    return rateLimit;
+  }
+
   @Override
   public boolean equals(Object key) {
     if (this == key) {
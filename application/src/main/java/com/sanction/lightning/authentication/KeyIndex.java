@@ -0,0 +1,102 @@
+package com.sanction.lightning.authentication;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * An immutable index of approved keys by application name. Looking up a key takes the same time
+ * no matter how many keys are approved, and checking its secret takes time that depends only on
+ * the length of the secret presented, not on how much of it matched.
+ */
+public final class KeyIndex {
+  // Compared against when the application is unknown, so that unknown names take as long
+  private static final Entry UNKNOWN = new Entry(new Key("", "unknown-application-secret"));
+
+  private final ImmutableMap<String, Entry> entries;
+
+  private KeyIndex(ImmutableMap<String, Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Builds an index of the given keys.
+   *
+   * @param keys The approved keys.
+   * @return The new index.
+   * @throws IllegalArgumentException If two keys have the same application name.
+   */
+  public static KeyIndex of(Collection<Key> keys) {
+    ImmutableMap.Builder<String, Entry> builder =
+        ImmutableMap.builderWithExpectedSize(keys.size());
+
+    for (Key key : keys) {
+      builder.put(key.getName(), new Entry(key));
+    }
+
+    return new KeyIndex(builder.buildOrThrow());
+  }
+
+  /**
+   * Finds the approved key with the given application name and secret.
+   *
+   * @param name The application name presented.
+   * @param secret The secret presented.
+   * @return The approved key, or empty if there is no such application or the secret is wrong.
+   */
+  public Optional<Key> find(String name, String secret) {
+    Entry entry = entries.get(name);
+    boolean known = entry != null;
+
+    if (!known) {
+      entry = UNKNOWN;
+    }
+
+    // Always compare, so the time taken does not reveal whether the application exists
+    boolean matches = secretEquals(entry.secret, secret);
+
+    return known && matches ? entry.result : Optional.empty();
+  }
+
+  /**
+   * Returns the number of approved keys.
+   *
+   * @return The number of keys in the index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Compares two secrets without stopping at the first difference.
+   */
+  static boolean secretEquals(String expected, String actual) {
+    int expectedLength = expected.length();
+    int actualLength = actual.length();
+
+    if (expectedLength == 0) {
+      return actualLength == 0;
+    }
+
+    int difference = expectedLength ^ actualLength;
+    for (int i = 0; i < actualLength; i++) {
+      difference |= expected.charAt(i % expectedLength) ^ actual.charAt(i);
+    }
+
+    return difference == 0;
+  }
+
+  /**
+   * An approved key along with the result to return when it matches, built once up front.
+   */
+  private static final class Entry {
+    private final String secret;
+    private final Optional<Key> result;
+
+    Entry(Key key) {
+      this.secret = key.getSecret();
+      this.result = Optional.of(key);
+    }
+  }
+}
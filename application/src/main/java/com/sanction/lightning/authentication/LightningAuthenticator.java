@@ -6,27 +6,53 @@ import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class LightningAuthenticator implements Authenticator<BasicCredentials, Key> {
+  private static final Logger LOG = LoggerFactory.getLogger(LightningAuthenticator.class);
+
+  private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
 
-  private final List<Key> allKeys;
+  private volatile KeyIndex keys;
 
   public LightningAuthenticator(LightningConfiguration config) {
-    this.allKeys = config.getApprovedKeys();
+    this.keys = KeyIndex.of(config.getApprovedKeys());
   }
 
   @Override
   public Optional<Key> authenticate(BasicCredentials credentials) throws AuthenticationException {
-    // Construct a key from incoming credentials
-    Key key = new Key(credentials.getUsername(), credentials.getPassword());
+    // Look up the approved key by name and check the secret
+    return keys.find(credentials.getUsername(), credentials.getPassword());
+  }
 
-    // Check if that key exists in the list of approved keys
-    if (!allKeys.contains(key)) {
-      return Optional.empty();
-    }
+  /**
+   * Replaces the approved keys. Requests that are already being authenticated finish against
+   * the keys they started with, and every request after this returns is checked against the
+   * new keys. Listeners added with {@link #addReloadListener} are run once the keys are swapped.
+   *
+   * @param approvedKeys The new set of approved keys.
+   * @throws IllegalArgumentException If two keys have the same application name.
+   */
+  public void reload(Collection<Key> approvedKeys) {
+    this.keys = KeyIndex.of(approvedKeys);
+
+    LOG.info("Reloaded {} approved keys.", approvedKeys.size());
+    reloadListeners.forEach(Runnable::run);
+  }
 
-    return Optional.of(key);
+  /**
+   * Adds a listener to run every time the approved keys are reloaded, such as to clear a cache
+   * of authentication results.
+   *
+   * @param listener The listener to run.
+   */
+  public void addReloadListener(Runnable listener) {
+    reloadListeners.add(listener);
   }
 }
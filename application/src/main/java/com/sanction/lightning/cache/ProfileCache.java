@@ -0,0 +1,239 @@
+package com.sanction.lightning.cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hashing;
+import com.sanction.lightning.concurrent.SingleFlight;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of profiles read from a provider, keyed by the access token they were read with, so
+ * that a user who connects a different account is never served the old account's profile.
+ *
+ * <p>A profile is served from the cache without calling the provider until its TTL passes. For
+ * a while after that it is still served, but the first request to see it stale starts a refresh
+ * in the background (stale-while-revalidate). Every entry carries an {@link EntityTag} computed
+ * from the JSON it is serialized as, so that clients can revalidate with {@code If-None-Match}.
+ * Concurrent misses for the same access token share a single read from the provider.
+ *
+ * @param <T> The type of the profile.
+ */
+public class ProfileCache<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(ProfileCache.class);
+
+  private final boolean enabled;
+  private final long ttlNanos;
+  private final ObjectMapper mapper;
+  private final LongSupplier clock;
+  private final Cache<String, Entry<T>> cache;
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+  private final SingleFlight<String, Entry<T>> loads;
+
+  private final Meter hits;
+  private final Meter staleHits;
+  private final Meter misses;
+  private final Meter refreshFailures;
+
+  /**
+   * Constructs a new ProfileCache.
+   *
+   * @param name The name of the profile type, used in metric names.
+   * @param config The size and expiration settings.
+   * @param mapper The mapper that profiles are serialized with, used to compute entity tags.
+   * @param metrics The metrics registry to report hits and misses to.
+   */
+  public ProfileCache(String name, ProfileCacheConfiguration config, ObjectMapper mapper,
+                      MetricRegistry metrics) {
+    this(name, config.isEnabled(), config.getMaximumSize(), config.getTtl().toJavaDuration(),
+        config.getStaleWhileRevalidate().toJavaDuration(), mapper, metrics, System::nanoTime);
+  }
+
+  ProfileCache(String name, boolean enabled, long maximumSize, Duration ttl,
+               Duration staleWhileRevalidate, ObjectMapper mapper, MetricRegistry metrics,
+               LongSupplier clock) {
+    this.enabled = enabled;
+    this.ttlNanos = ttl.toNanos();
+    this.mapper = mapper;
+    this.clock = clock;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl.plus(staleWhileRevalidate))
+        .ticker(clock::getAsLong)
+        .build();
+    this.loads = new SingleFlight<>(name + "-profile", metrics);
+
+    this.hits = metrics.meter(MetricRegistry.name(ProfileCache.class, name, "hits"));
+    this.staleHits = metrics.meter(MetricRegistry.name(ProfileCache.class, name, "stale-hits"));
+    this.misses = metrics.meter(MetricRegistry.name(ProfileCache.class, name, "misses"));
+    this.refreshFailures = metrics.meter(
+        MetricRegistry.name(ProfileCache.class, name, "refresh-failures"));
+  }
+
+  /**
+   * Retrieves the profile for an access token, reading it from the provider if it is not cached.
+   *
+   * @param accessToken The access token the profile is read with, or {@code null} to skip the
+   *     cache.
+   * @param loader Reads the profile from the provider. It completes with {@code null} if the
+   *     provider rejected the access token.
+   * @return A future that completes with the cached or loaded profile, or with {@code null} if
+   *     the provider rejected the access token.
+   */
+  public CompletableFuture<Entry<T>> get(String accessToken,
+                                         Supplier<CompletableFuture<T>> loader) {
+    if (accessToken == null) {
+      return load(loader);
+    }
+
+    if (!enabled) {
+      return loads.execute(accessToken, () -> load(loader));
+    }
+
+    Entry<T> entry = cache.getIfPresent(accessToken);
+
+    if (entry == null) {
+      misses.mark();
+
+      return loads.execute(accessToken, () -> load(loader).thenApply(loaded -> {
+        if (loaded != null) {
+          cache.put(accessToken, loaded);
+        }
+
+        return loaded;
+      }));
+    }
+
+    if (clock.getAsLong() - entry.loadedAt < ttlNanos) {
+      hits.mark();
+    } else {
+      staleHits.mark();
+      refresh(accessToken, loader);
+    }
+
+    return CompletableFuture.completedFuture(entry);
+  }
+
+  /**
+   * Removes the cached profile for an access token.
+   *
+   * @param accessToken The access token to remove the profile for.
+   */
+  public void invalidate(String accessToken) {
+    cache.invalidate(accessToken);
+  }
+
+  /**
+   * Reloads a stale profile in the background, unless a reload is already running. If the
+   * reload fails the stale profile is kept, and if the access token was rejected it is removed.
+   */
+  private void refresh(String accessToken, Supplier<CompletableFuture<T>> loader) {
+    if (!refreshing.add(accessToken)) {
+      return;
+    }
+
+    load(loader).whenComplete((loaded, throwable) -> {
+      if (throwable != null) {
+        refreshFailures.mark();
+        LOG.warn("Unable to refresh a cached profile, serving the stale profile.", throwable);
+      } else if (loaded == null) {
+        cache.invalidate(accessToken);
+      } else {
+        cache.put(accessToken, loaded);
+      }
+
+      refreshing.remove(accessToken);
+    });
+  }
+
+  private CompletableFuture<Entry<T>> load(Supplier<CompletableFuture<T>> loader) {
+    CompletableFuture<T> future;
+
+    try {
+      future = loader.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    return future.thenApply(profile -> profile != null
+        ? new Entry<>(profile, entityTag(profile), clock.getAsLong())
+        : null);
+  }
+
+  private EntityTag entityTag(T profile) {
+    try {
+      return new EntityTag(Hashing.murmur3_128()
+          .hashBytes(mapper.writeValueAsBytes(profile))
+          .toString());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialize a profile.", e);
+    }
+  }
+
+  /**
+   * A profile along with the entity tag of its JSON representation.
+   *
+   * @param <T> The type of the profile.
+   */
+  public static final class Entry<T> {
+    private final T profile;
+    private final EntityTag entityTag;
+    private final long loadedAt;
+
+    Entry(T profile, EntityTag entityTag, long loadedAt) {
+      this.profile = profile;
+      this.entityTag = entityTag;
+      this.loadedAt = loadedAt;
+    }
+
+    public T getProfile() {
+      return profile;
+    }
+
+    public EntityTag getEntityTag() {
+      return entityTag;
+    }
+
+    /**
+     * Determines whether an {@code If-None-Match} header matches this profile, meaning the
+     * client already has it.
+     *
+     * @param ifNoneMatch The value of the header, or {@code null} if it was not sent.
+     * @return {@code true} if the client's copy is current.
+     */
+    public boolean matches(String ifNoneMatch) {
+      if (ifNoneMatch == null) {
+        return false;
+      }
+
+      for (String tag : ifNoneMatch.split(",")) {
+        String value = tag.trim();
+
+        // Weak comparison, as If-None-Match calls for
+        if (value.startsWith("W/")) {
+          value = value.substring(2);
+        }
+
+        if (value.equals("*") || value.equals("\"" + entityTag.getValue() + "\"")) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.sanction.lightning.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An {@link Executor} that limits the number of tasks that may be running or waiting on an
+ * unbounded delegate executor at once. Tasks submitted beyond the limit are rejected with a
+ * {@link RejectedExecutionException} rather than queued.
+ */
+public class BoundedExecutor implements Executor {
+  private final Executor delegate;
+  private final Semaphore permits;
+
+  public BoundedExecutor(Executor delegate, int maxConcurrency) {
+    this.delegate = delegate;
+    this.permits = new Semaphore(maxConcurrency);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (!permits.tryAcquire()) {
+      throw new RejectedExecutionException("Too many concurrent tasks.");
+    }
+
+    try {
+      delegate.execute(() -> {
+        try {
+          command.run();
+        } finally {
+          permits.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.sanction.lightning.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+/**
+ * A Jetty {@link ThreadPool} that runs every task on an {@link ExecutorService}, such as one that
+ * starts a new virtual thread for each task. Jetty 9.4's own {@code ExecutorThreadPool} can only
+ * wrap a {@code ThreadPoolExecutor}. At most {@code maxThreads} tasks run at once, counting
+ * Jetty's acceptors and selectors; tasks beyond the limit are rejected, as they are when a
+ * {@code QueuedThreadPool} is full. The limit can be changed while the pool is running. No
+ * threads are kept idle, so the minimum number of threads is only reported back.
+ */
+class ExecutorServiceThreadPool extends ContainerLifeCycle
+    implements ThreadPool.SizedThreadPool, TryExecutor {
+  private final ExecutorService executorService;
+  private final Permits permits;
+
+  private volatile int minThreads;
+  private volatile int maxThreads;
+
+  ExecutorServiceThreadPool(ExecutorService executorService, int maxThreads) {
+    this.executorService = executorService;
+    this.permits = new Permits(maxThreads);
+    this.maxThreads = maxThreads;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (!tryExecute(task)) {
+      throw new RejectedExecutionException("Too many concurrent tasks.");
+    }
+  }
+
+  @Override
+  public boolean tryExecute(Runnable task) {
+    if (!permits.tryAcquire()) {
+      return false;
+    }
+
+    try {
+      executorService.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          permits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+      // Keep waiting until the pool is stopped
+    }
+  }
+
+  @Override
+  public int getThreads() {
+    return maxThreads - permits.availablePermits();
+  }
+
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  @Override
+  public boolean isLowOnThreads() {
+    return permits.availablePermits() <= 0;
+  }
+
+  @Override
+  public int getMinThreads() {
+    return minThreads;
+  }
+
+  @Override
+  public int getMaxThreads() {
+    return maxThreads;
+  }
+
+  @Override
+  public void setMinThreads(int threads) {
+    minThreads = threads;
+  }
+
+  /**
+   * Changes how many tasks may run at once. Lowering the limit does not stop running tasks, but
+   * no new task starts until fewer than {@code threads} are running.
+   *
+   * @param threads The new maximum number of tasks to run at once.
+   */
+  @Override
+  public synchronized void setMaxThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The maximum number of threads must be positive.");
+    }
+
+    if (threads > maxThreads) {
+      permits.release(threads - maxThreads);
+    } else {
+      permits.reducePermits(maxThreads - threads);
+    }
+
+    maxThreads = threads;
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+
+    // Jetty stops its connectors and handlers first, so only stragglers are interrupted
+    executorService.shutdown();
+    if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * A semaphore whose number of permits can be lowered while permits are held.
+   */
+  private static class Permits extends Semaphore {
+
+    Permits(int permits) {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.sanction.lightning.concurrent;
+
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.exception.TransientUpstreamException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.resilience.CircuitBreaker;
+import com.sanction.lightning.resilience.ReadPolicy;
+import com.sanction.lightning.tracing.Span;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking calls to social media providers (Facebook, Twitter) on a dedicated, bounded
+ * executor so that request threads are never parked waiting on provider I/O. Each provider has
+ * its own concurrency limit and circuit breaker. The limits split the shared thread pool between
+ * the providers, so a slow or failing provider runs out of its own share of the threads and
+ * starts rejecting its own calls, while the other provider's calls keep running. Only calls that
+ * fail with a {@link TransientUpstreamException} count against the circuit breaker. Calls, and
+ * the code that continues from them, run under the span that was current when they were
+ * submitted, so they are traced as part of the request.
+ */
+public class ProviderExecutor {
+  private final Executor executor;
+  private final CircuitBreaker circuitBreaker;
+  private final ReadPolicy readPolicy;
+
+  public ProviderExecutor(Executor executor) {
+    this(executor, CircuitBreaker.disabled("provider"));
+  }
+
+  public ProviderExecutor(Executor executor, CircuitBreaker circuitBreaker) {
+    this(executor, circuitBreaker, ReadPolicy.disabled("provider"));
+  }
+
+  /**
+   * Constructs a new ProviderExecutor that guards calls with a circuit breaker, and retries and
+   * hedges reads.
+   *
+   * @param executor The executor to run calls on.
+   * @param circuitBreaker The circuit breaker to record the outcome of each call in.
+   * @param readPolicy The policy to retry and hedge reads with.
+   */
+  public ProviderExecutor(Executor executor, CircuitBreaker circuitBreaker,
+                          ReadPolicy readPolicy) {
+    this.executor = executor;
+    this.circuitBreaker = circuitBreaker;
+    this.readPolicy = readPolicy;
+  }
+
+  /**
+   * Runs the given blocking call on the provider executor, under the caller's current span.
+   *
+   * @param supplier The call to make.
+   * @param <T> The type of the result of the call.
+   * @return A future that completes with the result of the call. If the executor is saturated,
+   *     the future completes exceptionally with a {@link RejectedExecutionException}, and if the
+   *     circuit breaker is open, with a {@link CircuitOpenException}.
+   */
+  public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+    return submit(supplier, true);
+  }
+
+  /**
+   * Runs the given upload on the provider executor, under the caller's current span. An upload
+   * takes as long as its media takes to send, so unlike {@link #supply}, a slow upload is not
+   * counted as a slow call by the circuit breaker. Only its errors are.
+   *
+   * @param supplier The upload to make.
+   * @param <T> The type of the result of the upload.
+   * @return A future that completes with the result of the upload, or exceptionally in the same
+   *     cases as {@link #supply}.
+   */
+  public <T> CompletableFuture<T> upload(Supplier<T> supplier) {
+    return submit(supplier, false);
+  }
+
+  /**
+   * Runs the given idempotent read on the provider executor. Attempts that fail with a
+   * {@link TransientUpstreamException} are retried, and slow attempts may be hedged, so the read
+   * may be made more than once.
+   *
+   * @param supplier The read to make.
+   * @param <T> The type of the result of the read.
+   * @return A future that completes with the result of the read.
+   */
+  public <T> CompletableFuture<T> read(Supplier<T> supplier) {
+    // Retries and hedges are submitted from other threads, so each attempt takes the span along
+    Span span = Span.current();
+
+    return readPolicy.execute(() -> span.wrap(() -> supply(supplier)).get(),
+        throwable -> throwable instanceof TransientUpstreamException);
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> supplier, boolean timed) {
+    try {
+      circuitBreaker.acquire();
+    } catch (CircuitOpenException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    try {
+      return CompletableFuture.supplyAsync(() -> call(supplier, timed),
+          Span.current().propagate(executor));
+    } catch (RejectedExecutionException e) {
+      circuitBreaker.onIgnored();
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private <T> T call(Supplier<T> supplier, boolean timed) {
+    long start = System.nanoTime();
+
+    try {
+      T result = supplier.get();
+      circuitBreaker.onSuccess(timed ? System.nanoTime() - start : 0);
+
+      return result;
+    } catch (UpstreamThrottledException e) {
+      // The call was never made, so it says nothing about the provider's health
+      circuitBreaker.onIgnored();
+      throw e;
+    } catch (TransientUpstreamException | Error e) {
+      circuitBreaker.onFailure();
+      throw e;
+    } catch (RuntimeException e) {
+      // Services report network errors, timeouts and server errors as transient. Anything else
+      // is an error in the caller's own request, such as a missing permission or a deleted
+      // object. The provider answered, so a few users with bad requests cannot open the breaker
+      // for everyone.
+      circuitBreaker.onSuccess(timed ? System.nanoTime() - start : 0);
+      throw e;
+    }
+  }
+}
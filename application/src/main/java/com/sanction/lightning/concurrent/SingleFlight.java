@@ -0,0 +1,72 @@
+package com.sanction.lightning.concurrent;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical asynchronous calls into one. While a call for a key is in
+ * flight, further calls for the same key wait for its result instead of being made again. Once
+ * it completes, the next call for the key is made as normal, so results are never reused after
+ * the fact.
+ *
+ * @param <K> The type of the keys that identify identical calls.
+ * @param <V> The type of the result of a call.
+ */
+public class SingleFlight<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final Meter coalesced;
+
+  /**
+   * Constructs a new SingleFlight.
+   *
+   * @param name The name of the calls, used in metric names.
+   * @param metrics The metrics registry to report coalesced calls to.
+   */
+  public SingleFlight(String name, MetricRegistry metrics) {
+    this.coalesced = metrics.meter(MetricRegistry.name(SingleFlight.class, name, "coalesced"));
+  }
+
+  /**
+   * Makes the call for a key, or joins the call for the key that is already in flight.
+   *
+   * @param key The key that identifies the call.
+   * @param call Makes the call. It is not invoked if a call for the key is in flight.
+   * @return A future that completes with the result of the call. Each caller gets its own copy,
+   *     so cancelling or completing it does not affect the other callers.
+   */
+  public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+    if (existing != null) {
+      coalesced.mark();
+      return existing.copy();
+    }
+
+    CompletableFuture<V> result;
+
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+
+    result.whenComplete((value, throwable) -> {
+      // Remove first, so that callers that see the result complete start a new call
+      inFlight.remove(key, flight);
+
+      if (throwable != null) {
+        flight.completeExceptionally(throwable);
+      } else {
+        flight.complete(value);
+      }
+    });
+
+    return flight.copy();
+  }
+}
@@ -0,0 +1,79 @@
+package com.sanction.lightning.concurrent;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.server.ServerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The default Dropwizard server, which can also run Jetty, and so every request, on virtual
+ * threads. Lightning reads the {@code server} section of its configuration as this type, so that
+ * the {@code provider-executor.virtual-threads} setting covers request threads as well as
+ * provider calls. Until virtual threads are turned on, it builds the same server as
+ * {@link DefaultServerFactory}. On virtual threads, the number of Jetty tasks that run at once is
+ * capped by {@code provider-executor.max-virtual-threads} rather than {@code server.maxThreads}.
+ */
+@JsonTypeName("default")
+public class VirtualThreadServerFactory extends DefaultServerFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadServerFactory.class);
+
+  private boolean virtualThreads;
+  private int maxVirtualThreads;
+
+  /**
+   * Makes the given ObjectMapper read server configurations of type {@code default}, or without
+   * a type, as a VirtualThreadServerFactory.
+   *
+   * @param mapper The ObjectMapper that reads the configuration.
+   */
+  public static void register(ObjectMapper mapper) {
+    mapper.addMixIn(ServerFactory.class, ServerFactoryMixIn.class);
+    mapper.registerSubtypes(VirtualThreadServerFactory.class);
+  }
+
+  /**
+   * Sets whether Jetty runs on virtual threads. If the running JDK does not support them, Jetty's
+   * usual thread pool is used instead.
+   *
+   * @param virtualThreads True to start a virtual thread for each of Jetty's tasks.
+   * @param maxVirtualThreads The maximum number of Jetty tasks to run on virtual threads at once.
+   */
+  @JsonIgnore
+  public void setVirtualThreads(boolean virtualThreads, int maxVirtualThreads) {
+    this.virtualThreads = virtualThreads;
+    this.maxVirtualThreads = maxVirtualThreads;
+  }
+
+  @Override
+  protected ThreadPool createThreadPool(MetricRegistry metricRegistry) {
+    if (virtualThreads) {
+      Optional<ExecutorService> virtualExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+      if (virtualExecutor.isPresent()) {
+        LOG.info("Handling requests on virtual threads.");
+        return new ExecutorServiceThreadPool(virtualExecutor.get(), maxVirtualThreads);
+      }
+
+      LOG.warn("Virtual threads were requested but are not supported by this JDK ({}). "
+          + "Falling back to Jetty's thread pool.", Runtime.version());
+    }
+
+    return super.createThreadPool(metricRegistry);
+  }
+
+  @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type",
+      defaultImpl = VirtualThreadServerFactory.class)
+  private interface ServerFactoryMixIn {
+  }
+}
@@ -0,0 +1,30 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.NotNull;
+
+public class AuthenticationConfiguration {
+
+  @JsonProperty("cache-enabled")
+  private boolean cacheEnabled = true;
+
+  @NotNull
+  @JsonProperty("cache-policy")
+  private String cachePolicy = "maximumSize=10000, expireAfterWrite=10m";
+
+  @JsonProperty("approved-keys-file")
+  private String approvedKeysFile = null;
+
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  public String getCachePolicy() {
+    return cachePolicy;
+  }
+
+  public String getApprovedKeysFile() {
+    return approvedKeysFile;
+  }
+}
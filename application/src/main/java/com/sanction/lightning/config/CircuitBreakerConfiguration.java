@@ -0,0 +1,68 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class CircuitBreakerConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = true;
+
+  @Min(1)
+  @JsonProperty("window-size")
+  private int windowSize = 50;
+
+  @Min(1)
+  @JsonProperty("minimum-calls")
+  private int minimumCalls = 20;
+
+  @Min(1)
+  @Max(100)
+  @JsonProperty("failure-rate-threshold")
+  private double failureRateThreshold = 50;
+
+  @NotNull
+  @JsonProperty("slow-call-duration")
+  private Duration slowCallDuration = Duration.seconds(10);
+
+  @NotNull
+  @JsonProperty("open-duration")
+  private Duration openDuration = Duration.seconds(30);
+
+  @Min(1)
+  @JsonProperty("half-open-calls")
+  private int halfOpenCalls = 5;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public Duration getSlowCallDuration() {
+    return slowCallDuration;
+  }
+
+  public Duration getOpenDuration() {
+    return openDuration;
+  }
+
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+}
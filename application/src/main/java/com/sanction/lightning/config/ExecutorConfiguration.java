@@ -0,0 +1,39 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class ExecutorConfiguration {
+
+  @Min(1)
+  @JsonProperty("threads")
+  private int threads = 32;
+
+  @Min(1)
+  @JsonProperty("queue-size")
+  private int queueSize = 512;
+
+  @JsonProperty("virtual-threads")
+  private boolean virtualThreads = false;
+
+  @Min(1)
+  @JsonProperty("max-virtual-threads")
+  private int maxVirtualThreads = 10_000;
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public int getMaxVirtualThreads() {
+    return maxVirtualThreads;
+  }
+}
@@ -0,0 +1,36 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class HedgeConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = false;
+
+  @Min(50)
+  @Max(100)
+  @JsonProperty("delay-percentile")
+  private double delayPercentile = 95;
+
+  @NotNull
+  @JsonProperty("min-delay")
+  private Duration minDelay = Duration.milliseconds(20);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getDelayPercentile() {
+    return delayPercentile;
+  }
+
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+}
@@ -0,0 +1,27 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class InstrumentationConfiguration {
+
+  @NotNull
+  @JsonProperty("histogram-window")
+  private Duration histogramWindow = Duration.minutes(1);
+
+  @Min(1)
+  @JsonProperty("histogram-max-samples")
+  private int histogramMaxSamples = 4096;
+
+  public Duration getHistogramWindow() {
+    return histogramWindow;
+  }
+
+  public int getHistogramMaxSamples() {
+    return histogramMaxSamples;
+  }
+}
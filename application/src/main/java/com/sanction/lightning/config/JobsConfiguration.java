@@ -0,0 +1,51 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class JobsConfiguration {
+
+  @NotNull
+  @JsonProperty("directory")
+  private String directory = "var/jobs";
+
+  @Min(1)
+  @JsonProperty("workers")
+  private int workers = 4;
+
+  @Min(1)
+  @JsonProperty("queue-size")
+  private int queueSize = 256;
+
+  @Min(1)
+  @JsonProperty("max-finished-jobs")
+  private long maxFinishedJobs = 10_000;
+
+  @NotNull
+  @JsonProperty("finished-job-ttl")
+  private Duration finishedJobTtl = Duration.hours(1);
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public long getMaxFinishedJobs() {
+    return maxFinishedJobs;
+  }
+
+  public Duration getFinishedJobTtl() {
+    return finishedJobTtl;
+  }
+}
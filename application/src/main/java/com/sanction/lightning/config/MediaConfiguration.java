@@ -0,0 +1,44 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class MediaConfiguration {
+
+  @NotNull
+  @JsonProperty("spill-directory")
+  private String spillDirectory = System.getProperty("java.io.tmpdir");
+
+  // Publishing is not idempotent. A failed upload is only retried if it failed before all of the
+  // media was sent, but a provider that received every byte may still have published it.
+  @Min(0)
+  @JsonProperty("publish-retries")
+  private int publishRetries = 0;
+
+  // Copying request bodies to disk runs on its own pool, so it never takes provider threads
+  @Min(1)
+  @JsonProperty("copy-threads")
+  private int copyThreads = 8;
+
+  @Min(1)
+  @JsonProperty("copy-queue-size")
+  private int copyQueueSize = 64;
+
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  public int getPublishRetries() {
+    return publishRetries;
+  }
+
+  public int getCopyThreads() {
+    return copyThreads;
+  }
+
+  public int getCopyQueueSize() {
+    return copyQueueSize;
+  }
+}
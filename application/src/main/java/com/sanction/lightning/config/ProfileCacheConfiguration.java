@@ -0,0 +1,42 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ProfileCacheConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = true;
+
+  @Min(1)
+  @JsonProperty("maximum-size")
+  private long maximumSize = 10_000;
+
+  @NotNull
+  @JsonProperty("ttl")
+  private Duration ttl = Duration.minutes(5);
+
+  @NotNull
+  @JsonProperty("stale-while-revalidate")
+  private Duration staleWhileRevalidate = Duration.hours(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  public Duration getStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+}
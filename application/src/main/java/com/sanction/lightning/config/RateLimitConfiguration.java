@@ -0,0 +1,28 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sanction.lightning.ratelimit.RateLimit;
+
+public class RateLimitConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = true;
+
+  @JsonProperty("per-endpoint")
+  private boolean perEndpoint = false;
+
+  @JsonProperty("default-limit")
+  private RateLimit defaultLimit = null;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public boolean isPerEndpoint() {
+    return perEndpoint;
+  }
+
+  public RateLimit getDefaultLimit() {
+    return defaultLimit;
+  }
+}
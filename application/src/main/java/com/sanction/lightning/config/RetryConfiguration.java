@@ -0,0 +1,60 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class RetryConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = true;
+
+  @Min(1)
+  @JsonProperty("max-attempts")
+  private int maxAttempts = 3;
+
+  @NotNull
+  @JsonProperty("initial-backoff")
+  private Duration initialBackoff = Duration.milliseconds(50);
+
+  @NotNull
+  @JsonProperty("max-backoff")
+  private Duration maxBackoff = Duration.seconds(1);
+
+  @Min(0)
+  @Max(1)
+  @JsonProperty("budget-ratio")
+  private double budgetRatio = 0.1;
+
+  @Min(1)
+  @JsonProperty("budget-capacity")
+  private int budgetCapacity = 10;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public Duration getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public Duration getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public double getBudgetRatio() {
+    return budgetRatio;
+  }
+
+  public int getBudgetCapacity() {
+    return budgetCapacity;
+  }
+}
@@ -2,6 +2,8 @@ package com.sanction.lightning.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import javax.validation.Valid;
+
 import org.hibernate.validator.constraints.NotEmpty;
 
 public class ThunderConfiguration {
@@ -18,6 +20,10 @@ public class ThunderConfiguration {
   @JsonProperty("user-secret")
   private final String userSecret = null;
 
+  @Valid
+  @JsonProperty("user-cache")
+  private final UserCacheConfiguration userCacheConfiguration = new UserCacheConfiguration();
+
   public String getEndpoint() {
     return endpoint;
   }
@@ -29,4 +35,8 @@ public class ThunderConfiguration {
   public String getUserSecret() {
     return userSecret;
   }
+
+  public UserCacheConfiguration getUserCacheConfiguration() {
+    return userCacheConfiguration;
+  }
 }
@@ -0,0 +1,47 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class TracingConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = false;
+
+  @NotNull
+  @JsonProperty("exporter")
+  private Exporter exporter = Exporter.LOG;
+
+  @NotNull
+  @JsonProperty("file")
+  private String file = "spans.json";
+
+  @Min(0)
+  @Max(1)
+  @JsonProperty("sample-rate")
+  private double sampleRate = 1.0;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public Exporter getExporter() {
+    return exporter;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  public enum Exporter {
+    LOG,
+    FILE
+  }
+}
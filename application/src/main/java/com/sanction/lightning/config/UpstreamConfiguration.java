@@ -0,0 +1,54 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class UpstreamConfiguration {
+
+  @Min(1)
+  @JsonProperty("max-concurrent-calls")
+  private int maxConcurrentCalls;
+
+  @NotNull
+  @Valid
+  @JsonProperty("circuit-breaker")
+  private CircuitBreakerConfiguration circuitBreakerConfiguration
+      = new CircuitBreakerConfiguration();
+
+  @NotNull
+  @Valid
+  @JsonProperty("retry")
+  private RetryConfiguration retryConfiguration = new RetryConfiguration();
+
+  @NotNull
+  @Valid
+  @JsonProperty("hedge")
+  private HedgeConfiguration hedgeConfiguration = new HedgeConfiguration();
+
+  public UpstreamConfiguration() {
+    this(128);
+  }
+
+  public UpstreamConfiguration(int maxConcurrentCalls) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public CircuitBreakerConfiguration getCircuitBreakerConfiguration() {
+    return circuitBreakerConfiguration;
+  }
+
+  public RetryConfiguration getRetryConfiguration() {
+    return retryConfiguration;
+  }
+
+  public HedgeConfiguration getHedgeConfiguration() {
+    return hedgeConfiguration;
+  }
+}
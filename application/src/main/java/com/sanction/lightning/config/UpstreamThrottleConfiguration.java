@@ -0,0 +1,61 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class UpstreamThrottleConfiguration {
+
+  @JsonProperty("enabled")
+  private boolean enabled = true;
+
+  @Min(0)
+  @Max(100)
+  @JsonProperty("delay-threshold")
+  private double delayThreshold = 75;
+
+  @Min(0)
+  @Max(100)
+  @JsonProperty("shed-threshold")
+  private double shedThreshold = 95;
+
+  @NotNull
+  @JsonProperty("max-delay")
+  private Duration maxDelay = Duration.seconds(1);
+
+  @NotNull
+  @JsonProperty("usage-ttl")
+  private Duration usageTtl = Duration.minutes(1);
+
+  @NotNull
+  @JsonProperty("rejection-cooldown")
+  private Duration rejectionCooldown = Duration.minutes(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getDelayThreshold() {
+    return delayThreshold;
+  }
+
+  public double getShedThreshold() {
+    return shedThreshold;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  public Duration getUsageTtl() {
+    return usageTtl;
+  }
+
+  public Duration getRejectionCooldown() {
+    return rejectionCooldown;
+  }
+}
@@ -0,0 +1,36 @@
+package com.sanction.lightning.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class UpstreamsConfiguration {
+
+  @NotNull
+  @Valid
+  @JsonProperty("thunder")
+  private UpstreamConfiguration thunder = new UpstreamConfiguration();
+
+  @NotNull
+  @Valid
+  @JsonProperty("facebook")
+  private UpstreamConfiguration facebook = new UpstreamConfiguration(16);
+
+  @NotNull
+  @Valid
+  @JsonProperty("twitter")
+  private UpstreamConfiguration twitter = new UpstreamConfiguration(16);
+
+  public UpstreamConfiguration getThunder() {
+    return thunder;
+  }
+
+  public UpstreamConfiguration getFacebook() {
+    return facebook;
+  }
+
+  public UpstreamConfiguration getTwitter() {
+    return twitter;
+  }
+}
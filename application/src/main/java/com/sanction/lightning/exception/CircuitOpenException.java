@@ -0,0 +1,27 @@
+package com.sanction.lightning.exception;
+
+/**
+ * Thrown instead of calling an upstream dependency while its circuit breaker is open, or while
+ * too many calls to it are already in flight.
+ */
+public class CircuitOpenException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfterSeconds;
+
+  /**
+   * Constructs a new CircuitOpenException.
+   *
+   * @param message The message for the exception.
+   * @param retryAfterSeconds The number of seconds after which the call may be let through.
+   */
+  public CircuitOpenException(String message, long retryAfterSeconds) {
+    super(message);
+
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
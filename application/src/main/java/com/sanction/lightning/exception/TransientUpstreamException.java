@@ -0,0 +1,19 @@
+package com.sanction.lightning.exception;
+
+/**
+ * Thrown when a call to an upstream failed in a way that may not happen again, such as a
+ * network error or a server error. Idempotent reads that fail with this exception are retried.
+ */
+public class TransientUpstreamException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructs a new TransientUpstreamException.
+   *
+   * @param upstream The name of the upstream that failed.
+   * @param cause The failure.
+   */
+  public TransientUpstreamException(String upstream, Throwable cause) {
+    super("A temporary error occurred while calling " + upstream + ".", cause);
+  }
+}
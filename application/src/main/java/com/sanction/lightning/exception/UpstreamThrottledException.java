@@ -0,0 +1,27 @@
+package com.sanction.lightning.exception;
+
+/**
+ * Thrown instead of calling an upstream provider when the provider is close to, or past, its
+ * rate limit for the application or the user.
+ */
+public class UpstreamThrottledException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfterSeconds;
+
+  /**
+   * Constructs a new UpstreamThrottledException.
+   *
+   * @param upstream The name of the provider that was not called.
+   * @param retryAfterSeconds The number of seconds after which the call may succeed.
+   */
+  public UpstreamThrottledException(String upstream, long retryAfterSeconds) {
+    super("Requests to " + upstream + " are being throttled to stay under its rate limit.");
+
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -1,6 +1,10 @@
 package com.sanction.lightning.facebook;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotEmpty;
 
@@ -14,6 +18,17 @@ public class FacebookConfiguration {
   @JsonProperty("app-secret")
   private final String appSecret = null;
 
+  @NotNull
+  @Valid
+  @JsonProperty("http")
+  private final FacebookHttpConfiguration httpConfiguration = new FacebookHttpConfiguration();
+
+  @NotNull
+  @Valid
+  @JsonProperty("throttle")
+  private final UpstreamThrottleConfiguration throttleConfiguration
+      = new UpstreamThrottleConfiguration();
+
   String getAppId() {
     return appId;
   }
@@ -21,4 +36,12 @@ public class FacebookConfiguration {
   String getAppSecret() {
     return appSecret;
   }
+
+  FacebookHttpConfiguration getHttpConfiguration() {
+    return httpConfiguration;
+  }
+
+  UpstreamThrottleConfiguration getThrottleConfiguration() {
+    return throttleConfiguration;
+  }
 }
@@ -0,0 +1,83 @@
+package com.sanction.lightning.facebook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class FacebookHttpConfiguration {
+
+  // Replaces graph.facebook.com and graph-video.facebook.com, such as with a local stand-in
+  @JsonProperty("endpoint")
+  private String endpoint = null;
+
+  @Min(1)
+  @JsonProperty("max-connections-per-route")
+  private int maxConnectionsPerRoute = 64;
+
+  @Min(0)
+  @JsonProperty("max-idle-connections")
+  private int maxIdleConnections = 16;
+
+  @NotNull
+  @JsonProperty("keep-alive")
+  private Duration keepAlive = Duration.minutes(5);
+
+  @NotNull
+  @JsonProperty("connect-timeout")
+  private Duration connectTimeout = Duration.seconds(10);
+
+  @NotNull
+  @JsonProperty("read-timeout")
+  private Duration readTimeout = Duration.minutes(3);
+
+  @NotNull
+  @JsonProperty("write-timeout")
+  private Duration writeTimeout = Duration.minutes(3);
+
+  @Min(0)
+  @JsonProperty("client-cache-size")
+  private long clientCacheSize = 10_000;
+
+  @NotNull
+  @JsonProperty("client-cache-ttl")
+  private Duration clientCacheTtl = Duration.minutes(10);
+
+  String getEndpoint() {
+    return endpoint;
+  }
+
+  int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  int getMaxIdleConnections() {
+    return maxIdleConnections;
+  }
+
+  Duration getKeepAlive() {
+    return keepAlive;
+  }
+
+  Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  Duration getWriteTimeout() {
+    return writeTimeout;
+  }
+
+  long getClientCacheSize() {
+    return clientCacheSize;
+  }
+
+  Duration getClientCacheTtl() {
+    return clientCacheTtl;
+  }
+}
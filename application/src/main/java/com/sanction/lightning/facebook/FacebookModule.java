@@ -1,10 +1,21 @@
 package com.sanction.lightning.facebook;
 
+import com.codahale.metrics.MetricRegistry;
+import com.restfb.WebRequestor;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+import com.sanction.lightning.tracing.TraceparentInterceptor;
+
 import dagger.Module;
 import dagger.Provides;
 
+import java.util.concurrent.TimeUnit;
 import javax.inject.Singleton;
 
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
 @Module
 public class FacebookModule {
   private final FacebookConfiguration facebookConfiguration;
@@ -13,16 +24,60 @@ public class FacebookModule {
     this.facebookConfiguration = facebookConfiguration;
   }
 
+  /**
+   * Provides the WebRequestor that all FacebookService instances share. Connections to the
+   * Graph API are pooled and kept alive between requests, and requests are throttled based on
+   * the rate limit usage that the Graph API reports. Requests carry the current span as a
+   * {@code traceparent} header.
+   *
+   * @param metrics The metrics registry to report throttled requests to.
+   * @return A new instance of WebRequestor.
+   */
+  @Singleton
+  @Provides
+  WebRequestor provideWebRequestor(MetricRegistry metrics) {
+    FacebookHttpConfiguration httpConfig = facebookConfiguration.getHttpConfiguration();
+    UpstreamThrottleConfiguration throttleConfig = facebookConfiguration.getThrottleConfiguration();
+
+    OkHttpClient client = new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(
+            httpConfig.getMaxIdleConnections(),
+            httpConfig.getKeepAlive().toMilliseconds(),
+            TimeUnit.MILLISECONDS))
+        .connectTimeout(httpConfig.getConnectTimeout().toMilliseconds(), TimeUnit.MILLISECONDS)
+        .readTimeout(httpConfig.getReadTimeout().toMilliseconds(), TimeUnit.MILLISECONDS)
+        .writeTimeout(httpConfig.getWriteTimeout().toMilliseconds(), TimeUnit.MILLISECONDS)
+        .addInterceptor(new TraceparentInterceptor())
+        .build();
+
+    return new OkHttpWebRequestor(
+        client,
+        httpConfig.getMaxConnectionsPerRoute(),
+        httpConfig.getConnectTimeout().toMilliseconds(),
+        new UpstreamThrottle("facebook", throttleConfig, metrics),
+        throttleConfig.getRejectionCooldown().toJavaDuration());
+  }
+
   /**
    * Provides a new FacebookServiceFactory for generating instances of FacebookService objects.
    *
+   * @param webRequestor The shared WebRequestor to send Graph API requests with.
+   * @param instrumentation The instrumentation to time Graph API calls with.
    * @return A new instance of FacebookServiceFactory.
    */
   @Singleton
   @Provides
-  FacebookServiceFactory provideFacebookServiceFactory() {
+  FacebookServiceFactory provideFacebookServiceFactory(WebRequestor webRequestor,
+                                                       Instrumentation instrumentation) {
+    FacebookHttpConfiguration httpConfig = facebookConfiguration.getHttpConfiguration();
+
     return new FacebookServiceFactory(
         facebookConfiguration.getAppId(),
-        facebookConfiguration.getAppSecret());
+        facebookConfiguration.getAppSecret(),
+        webRequestor,
+        GraphEndpoints.of(httpConfig.getEndpoint()),
+        httpConfig.getClientCacheSize(),
+        httpConfig.getClientCacheTtl().toJavaDuration(),
+        instrumentation);
   }
 }
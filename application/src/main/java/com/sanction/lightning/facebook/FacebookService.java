@@ -1,26 +1,44 @@
 package com.sanction.lightning.facebook;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
 import com.restfb.BinaryAttachment;
+import com.restfb.Connection;
 import com.restfb.DefaultFacebookClient;
 import com.restfb.DefaultJsonMapper;
+import com.restfb.DefaultWebRequestor;
 import com.restfb.FacebookClient.AccessToken;
+import com.restfb.FacebookEndpoints;
 import com.restfb.Parameter;
 import com.restfb.Version;
+import com.restfb.WebRequestor;
+import com.restfb.batch.BatchRequest;
+import com.restfb.batch.BatchResponse;
 import com.restfb.exception.FacebookException;
+import com.restfb.exception.FacebookGraphException;
+import com.restfb.exception.FacebookNetworkException;
 import com.restfb.exception.FacebookOAuthException;
+import com.restfb.exception.generator.FacebookExceptionGenerator;
 import com.restfb.json.JsonArray;
 import com.restfb.json.JsonObject;
+import com.restfb.json.JsonValue;
 import com.restfb.scope.FacebookPermissions;
 import com.restfb.scope.ScopeBuilder;
+import com.sanction.lightning.exception.TransientUpstreamException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.metrics.Instrumentation;
 import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.models.facebook.FacebookPage;
 import com.sanction.lightning.models.facebook.FacebookPhoto;
-import com.sanction.lightning.models.facebook.FacebookPhotoDetail;
+import com.sanction.lightning.models.facebook.FacebookProfile;
 import com.sanction.lightning.models.facebook.FacebookUser;
 import com.sanction.lightning.models.facebook.FacebookVideo;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +50,7 @@ public class FacebookService {
   private final DefaultFacebookClient client;
   private final String appId;
   private final String appSecret;
+  private final Instrumentation instrumentation;
 
   /**
    * Constructs a new FacebookService for use with an authenticating user.
@@ -42,10 +61,30 @@ public class FacebookService {
    */
   public FacebookService(String facebookAccessToken, String facebookApplicationId,
                          String facebookApplicationSecret) {
+    this(facebookAccessToken, facebookApplicationId, facebookApplicationSecret,
+        new DefaultWebRequestor(), GraphEndpoints.facebook(), Instrumentation.disabled());
+  }
+
+  /**
+   * Constructs a new FacebookService for use with an authenticating user, sending requests
+   * through the given web requestor and timing each call.
+   *
+   * @param facebookAccessToken The authenticating user's access token.
+   * @param facebookApplicationId The requesting application's ID.
+   * @param facebookApplicationSecret The requesting application's secret.
+   * @param webRequestor The web requestor to send Graph API requests with.
+   * @param endpoints The Graph API endpoints to send requests to.
+   * @param instrumentation The instrumentation to time calls with.
+   */
+  public FacebookService(String facebookAccessToken, String facebookApplicationId,
+                         String facebookApplicationSecret, WebRequestor webRequestor,
+                         FacebookEndpoints endpoints, Instrumentation instrumentation) {
     this.client = new DefaultFacebookClient(facebookAccessToken, facebookApplicationSecret,
-        VERSION);
+        webRequestor, new DefaultJsonMapper(), VERSION);
+    this.client.setFacebookEndpointUrls(endpoints);
     this.appId = facebookApplicationId;
     this.appSecret = facebookApplicationSecret;
+    this.instrumentation = instrumentation;
   }
 
   /**
@@ -55,9 +94,28 @@ public class FacebookService {
    * @param facebookApplicationSecret The requesting application's secret.
    */
   public FacebookService(String facebookApplicationId, String facebookApplicationSecret) {
-    this.client = new DefaultFacebookClient(VERSION);
+    this(facebookApplicationId, facebookApplicationSecret, new DefaultWebRequestor(),
+        GraphEndpoints.facebook(), Instrumentation.disabled());
+  }
+
+  /**
+   * Constructs a new FacebookService for use without an authenticating user, sending requests
+   * through the given web requestor and timing each call.
+   *
+   * @param facebookApplicationId The requesting application's ID.
+   * @param facebookApplicationSecret The requesting application's secret.
+   * @param webRequestor The web requestor to send Graph API requests with.
+   * @param endpoints The Graph API endpoints to send requests to.
+   * @param instrumentation The instrumentation to time calls with.
+   */
+  public FacebookService(String facebookApplicationId, String facebookApplicationSecret,
+                         WebRequestor webRequestor, FacebookEndpoints endpoints,
+                         Instrumentation instrumentation) {
+    this.client = new DefaultFacebookClient(null, webRequestor, new DefaultJsonMapper(), VERSION);
+    this.client.setFacebookEndpointUrls(endpoints);
     this.appId = facebookApplicationId;
     this.appSecret = facebookApplicationSecret;
+    this.instrumentation = instrumentation;
   }
 
   /**
@@ -66,13 +124,17 @@ public class FacebookService {
    * @return A FacebookUser object containing the user's information.
    */
   public FacebookUser getFacebookUser() {
-    try {
-      return client.fetchObject("me", FacebookUser.class,
-          Parameter.with("fields", "first_name, last_name, middle_name, gender, name, verified"));
-    } catch (FacebookOAuthException e) {
-      LOG.error("Facebook OAuth error while getting user details.", e);
-      return null;
-    }
+    return time("getFacebookUser", () -> {
+      try {
+        return client.fetchObject("me", FacebookUser.class,
+            Parameter.with("fields", "first_name, last_name, middle_name, gender, name, verified"));
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user details.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
+    });
   }
 
   /**
@@ -82,37 +144,64 @@ public class FacebookService {
    * @return A list of FacebookPhoto objects representing the user's photos.
    */
   public List<FacebookPhoto> getFacebookUserPhotos() {
-    // Fetch a JSON object containing an array of photos, each with specified properties
-    JsonObject photos;
-
-    try {
-      photos = client.fetchObject("me/photos", JsonObject.class,
-          Parameter.with("type", "uploaded"), Parameter.with("fields", "id, images"));
-    } catch (FacebookOAuthException e) {
-      LOG.error("Facebook OAuth error while getting user photos.", e);
-      return null;
-    }
+    return time("getFacebookUserPhotos", () -> {
+      // Fetch a JSON object containing an array of photos, each with specified properties
+      JsonObject photos;
+
+      try {
+        photos = client.fetchObject("me/photos", JsonObject.class,
+            Parameter.with("type", "uploaded"), Parameter.with("fields", "id, images"));
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user photos.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
 
-    // Get the data from the JsonObject
-    JsonArray photosArray = photos.get("data").asArray();
-    List<FacebookPhoto> photoList = Lists.newArrayList();
+      // Get the data from the JsonObject
+      JsonArray photosArray = photos.get("data").asArray();
+      List<FacebookPhoto> photoList = Lists.newArrayListWithCapacity(photosArray.size());
 
-    // JSON string to FacebookPhotoDetail conversion
-    DefaultJsonMapper mapper = new DefaultJsonMapper();
+      for (int i = 0; i < photosArray.size(); i++) {
+        photoList.add(toFacebookPhoto(photosArray.get(i).asObject()));
+      }
 
-    for (int i = 0; i < photosArray.size(); i++) {
-      JsonObject obj = photosArray.get(i).asObject();
+      return photoList;
+    });
+  }
 
-      List<FacebookPhotoDetail> detailList = mapper.toJavaList(obj.getString("images", "[]"),
-          FacebookPhotoDetail.class);
-      FacebookPhotoDetail detail = detailList.get(0);
+  /**
+   * Retrieves a single page of the authenticating user's Facebook photos.
+   * This method does not download the actual photo bytes.
+   *
+   * @param limit The maximum number of photos to return, or {@code null} for the Graph default.
+   * @param after The cursor of the page to start after, or {@code null} for the first page.
+   * @return A page of FacebookPhoto objects along with the cursor to the next page,
+   *     or {@code null} if the page could not be retrieved.
+   */
+  public FacebookPage<FacebookPhoto> getFacebookUserPhotos(Integer limit, String after) {
+    return time("getFacebookUserPhotosPage", () -> {
+      Connection<JsonObject> photos;
+
+      try {
+        photos = client.fetchConnection("me/photos", JsonObject.class,
+            pageParameters(limit, after,
+                Parameter.with("type", "uploaded"), Parameter.with("fields", "id, images")));
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user photos.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
 
-      FacebookPhoto photo = new FacebookPhoto(obj.getString("id", null), detail.getUri(),
-          detail.getHeight(), detail.getWidth());
-      photoList.add(photo);
-    }
+      List<FacebookPhoto> photoList = Lists.newArrayListWithCapacity(photos.getData().size());
 
-    return photoList;
+      for (JsonObject obj : photos.getData()) {
+        photoList.add(toFacebookPhoto(obj));
+      }
+
+      return new FacebookPage<>(photoList, nextCursor(photos));
+    });
   }
 
   /**
@@ -122,30 +211,137 @@ public class FacebookService {
    * @return A list of FacebookVideo objects representing the user's videos.
    */
   public List<FacebookVideo> getFacebookUserVideos() {
-    JsonObject videos;
-
-    try {
-      videos = client.fetchObject("me/videos", JsonObject.class,
-          Parameter.with("type", "uploaded"),
-          Parameter.with("fields", "id, source"));
-    } catch (FacebookOAuthException e) {
-      LOG.error("Facebook OAuth error while getting user videos.", e);
-      return null;
-    }
+    return time("getFacebookUserVideos", () -> {
+      JsonObject videos;
+
+      try {
+        videos = client.fetchObject("me/videos", JsonObject.class,
+            Parameter.with("type", "uploaded"),
+            Parameter.with("fields", "id, source"));
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user videos.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
 
-    JsonArray videoArray = videos.get("data").asArray();
-    List<FacebookVideo> videoList = Lists.newArrayList();
+      JsonArray videoArray = videos.get("data").asArray();
+      List<FacebookVideo> videoList = Lists.newArrayList();
 
-    for (int i = 0; i < videoArray.size() - 1; i++) {
-      JsonObject obj = videoArray.get(i).asObject();
+      for (int i = 0; i < videoArray.size(); i++) {
+        videoList.add(toFacebookVideo(videoArray.get(i).asObject()));
+      }
 
-      FacebookVideo vid = new FacebookVideo(
-          obj.getString("id", null),
-          obj.getString("source", null));
-      videoList.add(vid);
-    }
+      return videoList;
+    });
+  }
+
+  /**
+   * Retrieves a single page of the authenticating user's Facebook videos.
+   * This method does not download the actual video bytes.
+   *
+   * @param limit The maximum number of videos to return, or {@code null} for the Graph default.
+   * @param after The cursor of the page to start after, or {@code null} for the first page.
+   * @return A page of FacebookVideo objects along with the cursor to the next page,
+   *     or {@code null} if the page could not be retrieved.
+   */
+  public FacebookPage<FacebookVideo> getFacebookUserVideos(Integer limit, String after) {
+    return time("getFacebookUserVideosPage", () -> {
+      Connection<JsonObject> videos;
+
+      try {
+        videos = client.fetchConnection("me/videos", JsonObject.class,
+            pageParameters(limit, after,
+                Parameter.with("type", "uploaded"), Parameter.with("fields", "id, source")));
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user videos.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
+
+      List<FacebookVideo> videoList = Lists.newArrayListWithCapacity(videos.getData().size());
+
+      for (JsonObject obj : videos.getData()) {
+        videoList.add(toFacebookVideo(obj));
+      }
+
+      return new FacebookPage<>(videoList, nextCursor(videos));
+    });
+  }
+
+  /**
+   * Retrieves the authenticating user's information along with the first page of their photos
+   * and the first page of their videos. All three are fetched in a single Graph API batch
+   * request, so this costs one round trip to Facebook instead of three.
+   * This method does not download the actual photo or video bytes.
+   *
+   * @param limit The maximum number of photos and of videos to return, or {@code null} for the
+   *              Graph default.
+   * @return The user's information, photos and videos, or {@code null} if they could not be
+   *     retrieved.
+   */
+  public FacebookProfile getFacebookProfile(Integer limit) {
+    return time("getFacebookProfile", () -> {
+      List<BatchResponse> responses;
+
+      try {
+        responses = client.executeBatch(
+            new BatchRequest.BatchRequestBuilder("me")
+                .parameters(Parameter.with("fields",
+                    "first_name, last_name, middle_name, gender, name, verified"))
+                .build(),
+            new BatchRequest.BatchRequestBuilder("me/photos")
+                .parameters(pageParameters(limit, null,
+                    Parameter.with("type", "uploaded"), Parameter.with("fields", "id, images")))
+                .build(),
+            new BatchRequest.BatchRequestBuilder("me/videos")
+                .parameters(pageParameters(limit, null,
+                    Parameter.with("type", "uploaded"), Parameter.with("fields", "id, source")))
+                .build());
+
+        // Each request in the batch fails on its own, so check them the same way as single calls
+        FacebookExceptionGenerator exceptionGenerator = client.getFacebookExceptionGenerator();
+
+        for (BatchResponse response : responses) {
+          if (response == null) {
+            // Facebook leaves out the responses of requests that did not finish in time
+            throw new TransientUpstreamException("Facebook", null);
+          }
+
+          exceptionGenerator.throwFacebookResponseStatusExceptionIfNecessary(
+              response.getBody(), response.getCode());
+        }
+      } catch (FacebookOAuthException e) {
+        LOG.error("Facebook OAuth error while getting user profile.", e);
+        return null;
+      } catch (FacebookNetworkException | FacebookGraphException e) {
+        throw classify(e);
+      }
+
+      FacebookUser user = client.getJsonMapper()
+          .toJavaObject(responses.get(0).getBody(), FacebookUser.class);
+      Connection<JsonObject> photos
+          = new Connection<>(client, responses.get(1).getBody(), JsonObject.class);
+      Connection<JsonObject> videos
+          = new Connection<>(client, responses.get(2).getBody(), JsonObject.class);
+
+      List<FacebookPhoto> photoList = Lists.newArrayListWithCapacity(photos.getData().size());
 
-    return videoList;
+      for (JsonObject obj : photos.getData()) {
+        photoList.add(toFacebookPhoto(obj));
+      }
+
+      List<FacebookVideo> videoList = Lists.newArrayListWithCapacity(videos.getData().size());
+
+      for (JsonObject obj : videos.getData()) {
+        videoList.add(toFacebookVideo(obj));
+      }
+
+      return new FacebookProfile(user,
+          new FacebookPage<>(photoList, nextCursor(photos)),
+          new FacebookPage<>(videoList, nextCursor(videos)));
+    });
   }
 
   /**
@@ -162,53 +358,91 @@ public class FacebookService {
    */
   public String publish(InputStream inputStream, PublishType type, String message,
                         String fileName, String videoTitle) {
+    return publish(MediaUpload.of(inputStream), type, message, fileName, videoTitle);
+  }
+
+  /**
+   * Publishes a photo or video to Facebook. The media is streamed to Facebook as it is read from
+   * the upload. If the request fails because of a network error before all of the media was
+   * sent and the upload allows retries, the media is replayed from the upload's spill file.
+   *
+   * @param upload The file to upload to Facebook.
+   * @param type The type to upload to perform.
+   * @param message The text to publish.
+   * @param fileName The name to call the file on Facebook.
+   *                 Will be ignored if only publishing text.
+   * @param videoTitle The title of the video if uploading a video.
+   *                   Will be ignored when uploading anything else.
+   * @return A String of JSON with returned information if successful, or {@code null} on failure.
+   * @throws UpstreamThrottledException If Facebook is close to its rate limit.
+   */
+  public String publish(MediaUpload upload, PublishType type, String message,
+                        String fileName, String videoTitle) {
+    return time("publish", () -> {
+      while (true) {
+        try {
+          JsonObject response = publishOnce(upload, type, message, fileName, videoTitle);
+
+          return response != null ? response.toString() : null;
+        } catch (FacebookOAuthException e) {
+          LOG.error("Facebook OAuth error while publishing.", e);
+          return null;
+        } catch (FacebookNetworkException e) {
+          // Retrying would only be throttled again
+          if (e.getCause() instanceof UpstreamThrottledException) {
+            throw (UpstreamThrottledException) e.getCause();
+          }
+
+          if (!upload.retry()) {
+            LOG.error("Network error while publishing to Facebook.", e);
+            return null;
+          }
+
+          LOG.warn("Network error while publishing to Facebook, retrying the upload.", e);
+        } catch (FacebookException e) {
+          LOG.error("Unknown error while publishing to Facebook.", e);
+          return null;
+        } catch (IOException e) {
+          LOG.error("Unable to read the media to publish to Facebook.", e);
+          return null;
+        }
+      }
+    });
+  }
+
+  private JsonObject publishOnce(MediaUpload upload, PublishType type, String message,
+                                 String fileName, String videoTitle) throws IOException {
     List<Parameter> parameters = Lists.newArrayList();
     String endpoint = "me/";
 
-    JsonObject response;
-
-    try {
-      switch (type) {
-        case TEXT:
-          parameters.add(Parameter.with("message", message));
-          endpoint += "feed";
+    switch (type) {
+      case TEXT:
+        endpoint += "feed";
 
-          response = client.publish(endpoint, JsonObject.class,
-              Parameter.with("message", message));
-          break;
+        return client.publish(endpoint, JsonObject.class,
+            Parameter.with("message", message));
 
-        case PHOTO:
-          parameters.add(Parameter.with("message", message));
-          endpoint += "photos";
+      case PHOTO:
+        parameters.add(Parameter.with("message", message));
+        endpoint += "photos";
 
-          response = client.publish(endpoint, JsonObject.class,
-              BinaryAttachment.with(fileName, inputStream),
-              parameters.toArray(new Parameter[0]));
-          break;
+        return client.publish(endpoint, JsonObject.class,
+            BinaryAttachment.with(fileName, upload.openStream()),
+            parameters.toArray(new Parameter[0]));
 
-        case VIDEO:
-          parameters.add(Parameter.with("description", message));
-          parameters.add(Parameter.with("title", videoTitle));
-          endpoint += "videos";
+      case VIDEO:
+        parameters.add(Parameter.with("description", message));
+        parameters.add(Parameter.with("title", videoTitle));
+        endpoint += "videos";
 
-          response = client.publish(endpoint, JsonObject.class,
-              BinaryAttachment.with(fileName, inputStream),
-              parameters.toArray(new Parameter[0]));
-          break;
+        return client.publish(endpoint, JsonObject.class,
+            BinaryAttachment.with(fileName, upload.openStream()),
+            parameters.toArray(new Parameter[0]));
 
-        default:
-          LOG.error("Unknown PublishType {}, unable to publish to Facebook.", type);
-          return null;
-      }
-    } catch (FacebookOAuthException e) {
-      LOG.error("Facebook OAuth error while publishing.", e);
-      return null;
-    } catch (FacebookException e) {
-      LOG.error("Unknown error while publishing to Facebook.", e);
-      return null;
+      default:
+        LOG.error("Unknown PublishType {}, unable to publish to Facebook.", type);
+        return null;
     }
-
-    return response.toString();
   }
 
   /**
@@ -219,19 +453,21 @@ public class FacebookService {
    * @return The URL string for the permissions URL.
    */
   public String getOauthUrl(String redirectUrl) {
-    ScopeBuilder scopeBuilder = new ScopeBuilder()
-        .addPermission(FacebookPermissions.USER_PHOTOS)
-        .addPermission(FacebookPermissions.USER_VIDEOS)
-        .addPermission(FacebookPermissions.USER_POSTS)
-        .addPermission(FacebookPermissions.PUBLISH_VIDEO);
-
-    try {
-      return client.getLoginDialogUrl(appId, redirectUrl, scopeBuilder,
-          Parameter.with("response_type", "token"));
-    } catch (FacebookException e) {
-      LOG.error("An error occurred while getting Oauth URL from Facebook:", e);
-      return null;
-    }
+    return time("getOauthUrl", () -> {
+      ScopeBuilder scopeBuilder = new ScopeBuilder()
+          .addPermission(FacebookPermissions.USER_PHOTOS)
+          .addPermission(FacebookPermissions.USER_VIDEOS)
+          .addPermission(FacebookPermissions.USER_POSTS)
+          .addPermission(FacebookPermissions.PUBLISH_VIDEO);
+
+      try {
+        return client.getLoginDialogUrl(appId, redirectUrl, scopeBuilder,
+            Parameter.with("response_type", "token"));
+      } catch (FacebookException e) {
+        LOG.error("An error occurred while getting Oauth URL from Facebook:", e);
+        return null;
+      }
+    });
   }
 
   /**
@@ -241,8 +477,110 @@ public class FacebookService {
    * @return The extended token.
    */
   public String getFacebookExtendedToken() {
-    AccessToken accessToken = client.obtainExtendedAccessToken(appId, appSecret);
+    return time("getFacebookExtendedToken", () -> {
+      AccessToken accessToken = client.obtainExtendedAccessToken(appId, appSecret);
+
+      return accessToken.getAccessToken();
+    });
+  }
+
+  /**
+   * Times a call to Facebook with a timer named after the method, such as
+   * {@code com.sanction.lightning.facebook.FacebookService.getFacebookUser}.
+   */
+  private <T> T time(String method, Supplier<T> call) {
+    return instrumentation.time(MetricRegistry.name(FacebookService.class, method), call);
+  }
+
+  /**
+   * Converts an error from a Graph API read into a {@link TransientUpstreamException} if the read
+   * may succeed when retried. Network errors, server errors, and errors that Facebook marks as
+   * transient may be retried. Throttled calls may not, since they would only be throttled again.
+   * Anything else, such as a missing permission or a bad parameter, is an error in the caller's
+   * request and is rethrown unchanged, so it does not count against the circuit breaker.
+   */
+  private static RuntimeException classify(FacebookException e) {
+    if (e.getCause() instanceof UpstreamThrottledException) {
+      return (UpstreamThrottledException) e.getCause();
+    }
+
+    boolean transientError;
+
+    if (e instanceof FacebookNetworkException) {
+      Integer status = ((FacebookNetworkException) e).getHttpStatusCode();
+      transientError = status == null || status >= 500;
+    } else {
+      FacebookGraphException graphException = (FacebookGraphException) e;
+      Integer status = graphException.getHttpStatusCode();
+      transientError = Boolean.TRUE.equals(graphException.getIsTransient())
+          || (status != null && status >= 500);
+    }
 
-    return accessToken.getAccessToken();
+    return transientError ? new TransientUpstreamException("Facebook", e) : e;
+  }
+
+  /**
+   * Converts a photo from the Graph API into a FacebookPhoto, using the first (largest) image.
+   * Graph lists every size of the photo, so only the first image is read from the already
+   * parsed response, and the rest are never looked at.
+   */
+  private static FacebookPhoto toFacebookPhoto(JsonObject obj) {
+    String id = obj.getString("id", null);
+    JsonValue images = obj.get("images");
+
+    if (images == null || !images.isArray() || images.asArray().size() == 0) {
+      return new FacebookPhoto(id, null, null, null);
+    }
+
+    JsonObject image = images.asArray().get(0).asObject();
+
+    return new FacebookPhoto(id, text(image, "source"),
+        text(image, "height"), text(image, "width"));
+  }
+
+  /**
+   * Reads a member as a string. Graph returns image sizes as numbers, which FacebookPhoto keeps
+   * in their JSON form.
+   */
+  private static String text(JsonObject obj, String name) {
+    JsonValue value = obj.get(name);
+
+    if (value == null || value.isNull()) {
+      return null;
+    }
+
+    return value.isString() ? value.asString() : value.toString();
+  }
+
+  /**
+   * Converts a video from the Graph API into a FacebookVideo.
+   */
+  private static FacebookVideo toFacebookVideo(JsonObject obj) {
+    return new FacebookVideo(obj.getString("id", null), obj.getString("source", null));
+  }
+
+  /**
+   * Appends the Graph API paging parameters to the given parameters, skipping any that are null.
+   */
+  private static Parameter[] pageParameters(Integer limit, String after, Parameter... others) {
+    List<Parameter> parameters = Lists.newArrayList(others);
+
+    if (limit != null) {
+      parameters.add(Parameter.with("limit", limit));
+    }
+
+    if (after != null) {
+      parameters.add(Parameter.with("after", after));
+    }
+
+    return parameters.toArray(new Parameter[0]);
+  }
+
+  /**
+   * Returns the cursor that points to the page after the given one,
+   * or {@code null} if Facebook reports that there are no more pages.
+   */
+  private static String nextCursor(Connection<?> connection) {
+    return connection.hasNext() ? connection.getAfterCursor() : null;
   }
 }
@@ -1,20 +1,63 @@
 package com.sanction.lightning.facebook;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.restfb.FacebookEndpoints;
+import com.restfb.WebRequestor;
+import com.sanction.lightning.metrics.Instrumentation;
+
+import java.time.Duration;
+
+/**
+ * Creates FacebookService instances that share a single web requestor, and therefore a single
+ * connection pool. Services for authenticated users are cached by access token, so repeated
+ * requests for the same user reuse the same Graph API client.
+ */
 public class FacebookServiceFactory {
 
   private final String applicationId;
   private final String applicationSecret;
+  private final WebRequestor webRequestor;
+  private final FacebookEndpoints endpoints;
+  private final Instrumentation instrumentation;
+  private final Cache<String, FacebookService> services;
+  private final FacebookService applicationService;
 
-  public FacebookServiceFactory(String applicationId, String applicationSecret) {
+  /**
+   * Constructs a new FacebookServiceFactory.
+   *
+   * @param applicationId The Facebook application ID.
+   * @param applicationSecret The Facebook application secret.
+   * @param webRequestor The shared web requestor to send Graph API requests with.
+   * @param endpoints The Graph API endpoints to send requests to.
+   * @param maximumCachedServices The maximum number of per-user services to keep.
+   * @param cachedServiceTtl How long an unused per-user service is kept.
+   * @param instrumentation The instrumentation that services time their calls with.
+   */
+  public FacebookServiceFactory(String applicationId, String applicationSecret,
+                                WebRequestor webRequestor, FacebookEndpoints endpoints,
+                                long maximumCachedServices, Duration cachedServiceTtl,
+                                Instrumentation instrumentation) {
     this.applicationId = applicationId;
     this.applicationSecret = applicationSecret;
+    this.webRequestor = webRequestor;
+    this.endpoints = endpoints;
+    this.instrumentation = instrumentation;
+    this.services = Caffeine.newBuilder()
+        .maximumSize(maximumCachedServices)
+        .expireAfterAccess(cachedServiceTtl)
+        .build();
+    this.applicationService = new FacebookService(
+        applicationId, applicationSecret, webRequestor, endpoints, instrumentation);
   }
 
   public FacebookService newFacebookService(String facebookAccessToken) {
-    return new FacebookService(facebookAccessToken, applicationId, applicationSecret);
+    return services.get(facebookAccessToken, token ->
+        new FacebookService(token, applicationId, applicationSecret, webRequestor, endpoints,
+            instrumentation));
   }
 
   public FacebookService newFacebookService() {
-    return new FacebookService(applicationId, applicationSecret);
+    return applicationService;
   }
 }
@@ -0,0 +1,53 @@
+package com.sanction.lightning.facebook;
+
+import com.restfb.FacebookEndpoints;
+
+/**
+ * The endpoints that Graph API requests are sent to. These are Facebook's own unless an
+ * endpoint is configured, in which case both Graph API and video upload requests go to it.
+ */
+public final class GraphEndpoints implements FacebookEndpoints {
+  private static final GraphEndpoints FACEBOOK = new GraphEndpoints(null);
+
+  private final String endpoint;
+
+  private GraphEndpoints(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * Returns Facebook's own endpoints.
+   *
+   * @return The default endpoints.
+   */
+  public static GraphEndpoints facebook() {
+    return FACEBOOK;
+  }
+
+  /**
+   * Returns endpoints that send Graph API and video upload requests to the given endpoint.
+   *
+   * @param endpoint The base URL to send requests to, or {@code null} for Facebook's own.
+   * @return The endpoints.
+   */
+  public static GraphEndpoints of(String endpoint) {
+    if (endpoint == null) {
+      return FACEBOOK;
+    }
+
+    // RestFB appends the version after a slash
+    return new GraphEndpoints(endpoint.endsWith("/")
+        ? endpoint.substring(0, endpoint.length() - 1)
+        : endpoint);
+  }
+
+  @Override
+  public String getGraphEndpoint() {
+    return endpoint != null ? endpoint : FacebookEndpoints.super.getGraphEndpoint();
+  }
+
+  @Override
+  public String getGraphVideoEndpoint() {
+    return endpoint != null ? endpoint : FacebookEndpoints.super.getGraphVideoEndpoint();
+  }
+}
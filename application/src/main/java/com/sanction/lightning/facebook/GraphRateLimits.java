@@ -0,0 +1,119 @@
+package com.sanction.lightning.facebook;
+
+import com.restfb.json.Json;
+import com.restfb.json.JsonObject;
+import com.restfb.json.JsonValue;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the rate limit usage that the Graph API reports on each response and records it in an
+ * {@link UpstreamThrottle}. Application-wide usage comes from the {@code X-App-Usage} header, and
+ * usage for the user or business behind the access token comes from the
+ * {@code X-Business-Use-Case-Usage} header. Rate limit errors stop further calls for a while.
+ */
+final class GraphRateLimits {
+  private static final Logger LOG = LoggerFactory.getLogger(GraphRateLimits.class);
+
+  static final String APP_USAGE = "X-App-Usage";
+  static final String BUSINESS_USAGE = "X-Business-Use-Case-Usage";
+
+  // https://developers.facebook.com/docs/graph-api/overview/rate-limiting
+  private static final int APPLICATION_LIMIT_CODE = 4;
+  private static final int USER_LIMIT_CODE = 17;
+  private static final int PAGE_LIMIT_CODE = 32;
+  private static final int CALL_LIMIT_CODE = 613;
+  private static final int BUSINESS_LIMIT_CODE_START = 80_000;
+  private static final int BUSINESS_LIMIT_CODE_END = 80_014;
+
+  private GraphRateLimits() {
+  }
+
+  /**
+   * Records the usage reported on a Graph API response.
+   *
+   * @param throttle The throttle to record usage in.
+   * @param scope The access token the request was made with, or {@code null} if none.
+   * @param statusCode The status code of the response.
+   * @param appUsage The value of the {@code X-App-Usage} header, or {@code null}.
+   * @param businessUsage The value of the {@code X-Business-Use-Case-Usage} header, or
+   *     {@code null}.
+   * @param body The body of the response, which is only read if the request failed.
+   * @param cooldown How long to stop calls for after a rate limit error.
+   */
+  static void record(UpstreamThrottle throttle, String scope, int statusCode, String appUsage,
+                     String businessUsage, String body, Duration cooldown) {
+    try {
+      if (appUsage != null) {
+        throttle.recordApplicationUsage(maxUsage(Json.parse(appUsage).asObject()));
+      }
+
+      if (businessUsage != null && scope != null) {
+        recordBusinessUsage(throttle, scope, Json.parse(businessUsage).asObject());
+      }
+
+      if (statusCode >= 400 && body != null) {
+        recordError(throttle, scope, body, cooldown);
+      }
+    } catch (RuntimeException e) {
+      // Usage reporting is best effort and must never fail the request
+      LOG.debug("Unable to read Graph API rate limit usage.", e);
+    }
+  }
+
+  private static void recordBusinessUsage(UpstreamThrottle throttle, String scope,
+                                          JsonObject usage) {
+    double percent = 0;
+    long regainMinutes = 0;
+
+    // Keyed by business ID, each with a list of usages by type
+    for (JsonObject.Member business : usage) {
+      for (JsonValue entry : business.getValue().asArray()) {
+        JsonObject type = entry.asObject();
+
+        percent = Math.max(percent, maxUsage(type));
+        regainMinutes = Math.max(regainMinutes,
+            type.getLong("estimated_time_to_regain_access", 0L));
+      }
+    }
+
+    throttle.recordUsage(scope, percent);
+
+    if (regainMinutes > 0) {
+      throttle.block(scope, Duration.ofMinutes(regainMinutes));
+    }
+  }
+
+  private static void recordError(UpstreamThrottle throttle, String scope, String body,
+                                  Duration cooldown) {
+    JsonValue error = Json.parse(body).asObject().get("error");
+
+    if (error == null || !error.isObject()) {
+      return;
+    }
+
+    int code = error.asObject().getInt("code", 0);
+
+    if (code == APPLICATION_LIMIT_CODE) {
+      LOG.warn("Graph API application rate limit reached.");
+      throttle.blockApplication(cooldown);
+    } else if (scope != null && (code == USER_LIMIT_CODE || code == PAGE_LIMIT_CODE
+        || code == CALL_LIMIT_CODE
+        || (code >= BUSINESS_LIMIT_CODE_START && code <= BUSINESS_LIMIT_CODE_END))) {
+      LOG.warn("Graph API rate limit reached for a user (error code {}).", code);
+      throttle.block(scope, cooldown);
+    }
+  }
+
+  /**
+   * Returns the highest of the call count, CPU time, and total time percentages.
+   */
+  private static double maxUsage(JsonObject usage) {
+    return Math.max(usage.getDouble("call_count", 0),
+        Math.max(usage.getDouble("total_cputime", 0), usage.getDouble("total_time", 0)));
+  }
+}
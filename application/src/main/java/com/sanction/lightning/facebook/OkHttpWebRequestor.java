@@ -0,0 +1,228 @@
+package com.sanction.lightning.facebook;
+
+import com.restfb.BinaryAttachment;
+import com.restfb.DebugHeaderInfo;
+import com.restfb.WebRequestor;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * A RestFB {@link WebRequestor} that sends Graph API requests through a shared, connection-pooled
+ * {@link OkHttpClient}. A single instance is safe to share between every FacebookService, so
+ * connections to graph.facebook.com (and their TLS sessions) are kept alive and reused across
+ * users. The number of in-flight requests to each host is capped; callers beyond the cap wait up
+ * to the configured timeout for a connection before failing. The rate limit usage reported on
+ * each response is recorded, and requests are held back before Facebook would reject them.
+ */
+public class OkHttpWebRequestor implements WebRequestor {
+  private static final MediaType FORM_URLENCODED
+      = MediaType.parse("application/x-www-form-urlencoded");
+
+  private final OkHttpClient client;
+  private final int maxConnectionsPerRoute;
+  private final long acquireTimeoutMillis;
+  private final UpstreamThrottle throttle;
+  private final Duration rejectionCooldown;
+  private final ConcurrentMap<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new OkHttpWebRequestor.
+   *
+   * @param client The shared HTTP client to send requests with.
+   * @param maxConnectionsPerRoute The maximum number of concurrent requests to a single host.
+   * @param acquireTimeoutMillis How long to wait for a free connection before failing.
+   */
+  public OkHttpWebRequestor(OkHttpClient client, int maxConnectionsPerRoute,
+                            long acquireTimeoutMillis) {
+    this(client, maxConnectionsPerRoute, acquireTimeoutMillis,
+        UpstreamThrottle.disabled("facebook"), Duration.ZERO);
+  }
+
+  /**
+   * Constructs a new OkHttpWebRequestor that holds back requests when Facebook reports that its
+   * rate limits are nearly used up.
+   *
+   * @param client The shared HTTP client to send requests with.
+   * @param maxConnectionsPerRoute The maximum number of concurrent requests to a single host.
+   * @param acquireTimeoutMillis How long to wait for a free connection before failing.
+   * @param throttle The throttle to record rate limit usage in.
+   * @param rejectionCooldown How long to stop requests for after a rate limit error.
+   */
+  public OkHttpWebRequestor(OkHttpClient client, int maxConnectionsPerRoute,
+                            long acquireTimeoutMillis, UpstreamThrottle throttle,
+                            Duration rejectionCooldown) {
+    this.client = client;
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.throttle = throttle;
+    this.rejectionCooldown = rejectionCooldown;
+  }
+
+  @Override
+  public Response executeGet(String url, String headerAccessToken) throws IOException {
+    return execute(newRequest(url, headerAccessToken).get().build());
+  }
+
+  @Override
+  public Response executeGet(String url) throws IOException {
+    return executeGet(url, null);
+  }
+
+  @Override
+  public Response executePost(String url, String parameters, String headerAccessToken)
+      throws IOException {
+    return executePost(url, parameters, Collections.emptyList(), headerAccessToken);
+  }
+
+  @Override
+  public Response executePost(String url, String parameters,
+                              List<BinaryAttachment> binaryAttachments,
+                              String headerAccessToken) throws IOException {
+    if (binaryAttachments == null || binaryAttachments.isEmpty()) {
+      return execute(newRequest(url, headerAccessToken)
+          .post(RequestBody.create(FORM_URLENCODED, parameters))
+          .build());
+    }
+
+    // Parameters go in the query string when the body holds the attachments
+    MultipartBody.Builder body = new MultipartBody.Builder().setType(MultipartBody.FORM);
+    for (BinaryAttachment attachment : binaryAttachments) {
+      body.addFormDataPart(
+          formFieldName(attachment),
+          attachment.getFilename(),
+          streamingBody(MediaType.parse(attachment.getContentType()), attachment.getData()));
+    }
+
+    return execute(newRequest(url + "?" + parameters, headerAccessToken)
+        .post(body.build())
+        .build());
+  }
+
+  @Override
+  public Response executeDelete(String url, String headerAccessToken) throws IOException {
+    return execute(newRequest(url, headerAccessToken).delete().build());
+  }
+
+  @Override
+  public DebugHeaderInfo getDebugHeaderInfo() {
+    // Debug headers are per request, and this requestor is shared between requests
+    return null;
+  }
+
+  private Request.Builder newRequest(String url, String headerAccessToken) {
+    Request.Builder builder = new Request.Builder().url(url);
+
+    if (headerAccessToken != null) {
+      builder.header("Authorization", "Bearer " + headerAccessToken);
+    }
+
+    return builder;
+  }
+
+  private Response execute(Request request) throws IOException {
+    String scope = accessToken(request);
+    throttle.acquire(scope);
+
+    Semaphore permits = routes.computeIfAbsent(request.url().host(),
+        host -> new Semaphore(maxConnectionsPerRoute));
+
+    try {
+      if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new IOException("Timed out waiting for a connection to " + request.url().host());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection.");
+    }
+
+    try (okhttp3.Response response = client.newCall(request).execute()) {
+      ResponseBody body = response.body();
+      String content = body != null ? body.string() : null;
+
+      GraphRateLimits.record(throttle, scope, response.code(),
+          response.header(GraphRateLimits.APP_USAGE),
+          response.header(GraphRateLimits.BUSINESS_USAGE),
+          content, rejectionCooldown);
+
+      return new Response(response.code(), content);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Returns the access token a request is made with, which identifies the user the Graph API
+   * counts it against.
+   */
+  private static String accessToken(Request request) {
+    String token = request.url().queryParameter("access_token");
+
+    if (token != null) {
+      return token;
+    }
+
+    String authorization = request.header("Authorization");
+    return authorization != null && authorization.startsWith("Bearer ")
+        ? authorization.substring("Bearer ".length())
+        : null;
+  }
+
+  /**
+   * Determines the multipart field name for an attachment the same way RestFB's
+   * DefaultWebRequestor does.
+   */
+  private static String formFieldName(BinaryAttachment attachment) {
+    if (attachment.getFieldName() != null) {
+      return attachment.getFieldName();
+    }
+
+    String filename = attachment.getFilename();
+    return filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+  }
+
+  /**
+   * Creates a request body that streams the given data instead of buffering it in memory.
+   * The stream can only be read once, so OkHttp must not retry the request.
+   */
+  private static RequestBody streamingBody(MediaType contentType, InputStream data) {
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return contentType;
+      }
+
+      @Override
+      public boolean isOneShot() {
+        return true;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        try (Source source = Okio.source(data)) {
+          sink.writeAll(source);
+        }
+      }
+    };
+  }
+}
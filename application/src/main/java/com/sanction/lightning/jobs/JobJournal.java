@@ -0,0 +1,233 @@
+package com.sanction.lightning.jobs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sanction.lightning.models.jobs.JobState;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only file that records when publish jobs are submitted, when they start calling
+ * Facebook, and when they finish, one JSON entry per line. Every entry is forced to disk before
+ * the journal moves on. A job that was accepted but never started is run again after a crash or
+ * restart. A job that had started but not finished may already have been published, so it is
+ * reported as interrupted instead of being run again.
+ */
+class JobJournal implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(JobJournal.class);
+
+  private final Path file;
+  private final ObjectMapper mapper;
+
+  private FileChannel channel;
+
+  JobJournal(Path file, ObjectMapper mapper) {
+    this.file = file;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Reads the journal to find the jobs that never finished, then rewrites the journal to contain
+   * only the jobs that never started and opens it for appending.
+   *
+   * @return The jobs that never finished.
+   * @throws IOException If the journal could not be read or rewritten.
+   */
+  synchronized Recovery recover() throws IOException {
+    Map<String, PublishJob> pending = new LinkedHashMap<>();
+    Map<String, PublishJob> interrupted = new LinkedHashMap<>();
+
+    if (Files.exists(file)) {
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          Entry entry;
+
+          try {
+            entry = mapper.readValue(line, Entry.class);
+          } catch (IOException e) {
+            // The last line may be incomplete if the process died while writing it
+            LOG.warn("Skipping unreadable entry in the job journal {}.", file, e);
+            continue;
+          }
+
+          if (entry.state == JobState.QUEUED && entry.job != null) {
+            pending.put(entry.id, entry.job);
+            interrupted.remove(entry.id);
+          } else if (entry.state == JobState.RUNNING) {
+            PublishJob job = pending.remove(entry.id);
+
+            if (job != null) {
+              interrupted.put(entry.id, job);
+            }
+          } else if (entry.state != null && entry.state.isDone()) {
+            pending.remove(entry.id);
+            interrupted.remove(entry.id);
+          }
+        }
+      }
+    }
+
+    // Compact the journal so it does not grow forever
+    Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+    try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      restrictToOwner(compacted);
+
+      for (PublishJob job : pending.values()) {
+        out.write(toLine(new Entry(job.getId(), JobState.QUEUED, job, null)));
+      }
+
+      out.force(true);
+    }
+
+    Files.move(compacted, file,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+    return new Recovery(new ArrayList<>(pending.values()),
+        new ArrayList<>(interrupted.values()));
+  }
+
+  /**
+   * Records that a job was accepted, or was put back in the queue without calling Facebook.
+   * Returns only once the entry is on disk.
+   *
+   * @param job The job that was queued.
+   * @throws IOException If the entry could not be written.
+   */
+  synchronized void recordSubmitted(PublishJob job) throws IOException {
+    channel.write(toLine(new Entry(job.getId(), JobState.QUEUED, job, null)));
+    channel.force(false);
+  }
+
+  /**
+   * Records that a job is about to call Facebook, so that it is not run again after a restart.
+   * Returns only once the entry is on disk.
+   *
+   * @param id The ID of the job.
+   * @throws IOException If the entry could not be written.
+   */
+  synchronized void recordRunning(String id) throws IOException {
+    channel.write(toLine(new Entry(id, JobState.RUNNING, null, null)));
+    channel.force(false);
+  }
+
+  /**
+   * Records that a job finished. Returns only once the entry is on disk.
+   *
+   * @param id The ID of the job.
+   * @param state The final state of the job.
+   * @param result The result of the job.
+   * @throws IOException If the entry could not be written.
+   */
+  synchronized void recordFinished(String id, JobState state, String result) throws IOException {
+    channel.write(toLine(new Entry(id, state, null, result)));
+    channel.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.force(false);
+      channel.close();
+    }
+  }
+
+  /**
+   * Makes the file readable only by its owner, since jobs contain user access tokens.
+   */
+  static void restrictToOwner(Path path) throws IOException {
+    PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+
+    if (view != null) {
+      view.setPermissions(PosixFilePermissions.fromString("rw-------"));
+    }
+  }
+
+  private ByteBuffer toLine(Entry entry) throws IOException {
+    return ByteBuffer.wrap((mapper.writeValueAsString(entry) + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * The jobs that had not finished when the journal was last closed.
+   */
+  static class Recovery {
+    private final List<PublishJob> pending;
+    private final List<PublishJob> interrupted;
+
+    Recovery(List<PublishJob> pending, List<PublishJob> interrupted) {
+      this.pending = pending;
+      this.interrupted = interrupted;
+    }
+
+    /**
+     * Returns the jobs that never started, in the order they were queued.
+     *
+     * @return The jobs to run.
+     */
+    List<PublishJob> getPending() {
+      return pending;
+    }
+
+    /**
+     * Returns the jobs that had started calling Facebook but never finished.
+     *
+     * @return The jobs that may or may not have been published.
+     */
+    List<PublishJob> getInterrupted() {
+      return interrupted;
+    }
+  }
+
+  /**
+   * A single line of the journal.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  static class Entry {
+    @JsonProperty
+    private final String id;
+
+    @JsonProperty
+    private final JobState state;
+
+    @JsonProperty
+    private final PublishJob job;
+
+    @JsonProperty
+    private final String result;
+
+    @JsonCreator
+    Entry(@JsonProperty("id") String id,
+          @JsonProperty("state") JobState state,
+          @JsonProperty("job") PublishJob job,
+          @JsonProperty("result") String result) {
+      this.id = id;
+      this.state = state;
+      this.job = job;
+      this.result = result;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.sanction.lightning.jobs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sanction.lightning.models.PublishType;
+
+/**
+ * A request to publish to Facebook that is run in the background. Everything needed to run the
+ * job is kept here so that it can be written to the journal and run again after a restart.
+ */
+class PublishJob {
+  private final String id;
+  private final String owner;
+  private final String email;
+  private final String accessToken;
+  private final PublishType type;
+  private final String message;
+  private final String filename;
+  private final String videoTitle;
+
+  @JsonCreator
+  PublishJob(@JsonProperty("id") String id,
+             @JsonProperty("owner") String owner,
+             @JsonProperty("email") String email,
+             @JsonProperty("accessToken") String accessToken,
+             @JsonProperty("type") PublishType type,
+             @JsonProperty("message") String message,
+             @JsonProperty("filename") String filename,
+             @JsonProperty("videoTitle") String videoTitle) {
+    this.id = id;
+    this.owner = owner;
+    this.email = email;
+    this.accessToken = accessToken;
+    this.type = type;
+    this.message = message;
+    this.filename = filename;
+    this.videoTitle = videoTitle;
+  }
+
+  @JsonProperty
+  String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the name of the application that submitted the job. Only that application can see
+   * the job's status.
+   */
+  @JsonProperty
+  String getOwner() {
+    return owner;
+  }
+
+  @JsonProperty
+  String getEmail() {
+    return email;
+  }
+
+  @JsonProperty
+  String getAccessToken() {
+    return accessToken;
+  }
+
+  @JsonProperty
+  PublishType getType() {
+    return type;
+  }
+
+  @JsonProperty
+  String getMessage() {
+    return message;
+  }
+
+  @JsonProperty
+  String getFilename() {
+    return filename;
+  }
+
+  @JsonProperty
+  String getVideoTitle() {
+    return videoTitle;
+  }
+
+  boolean hasMedia() {
+    return type == PublishType.PHOTO || type == PublishType.VIDEO;
+  }
+}
@@ -0,0 +1,372 @@
+package com.sanction.lightning.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.models.jobs.JobState;
+import com.sanction.lightning.models.jobs.JobStatus;
+
+import io.dropwizard.lifecycle.Managed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs Facebook publishes in the background on a fixed pool of worker threads. Accepted jobs and
+ * their media are written to disk before {@link #submit} returns, and jobs that had not started
+ * when Lightning stopped are run on the next start. A job that was calling Facebook when
+ * Lightning stopped may or may not have been published, so it is marked as failed rather than
+ * being published twice. The number of jobs waiting or running at once is bounded; submissions
+ * beyond the bound are rejected. The status of a job can only be seen by the application that
+ * submitted it.
+ *
+ * <p>Jobs call Facebook through the same {@link ProviderExecutor} as requests do. A job that is
+ * turned away by the circuit breaker, the executor or Facebook's rate limit is put back in the
+ * queue and tried again later.
+ */
+public class PublishJobQueue implements Managed {
+  private static final Logger LOG = LoggerFactory.getLogger(PublishJobQueue.class);
+  private static final long POLL_MILLIS = 500;
+  private static final String INTERRUPTED
+      = "Lightning stopped while publishing. The post may or may not have been published.";
+
+  private final Path mediaDirectory;
+  private final JobJournal journal;
+  private final int workerCount;
+  private final int queueSize;
+  private final FacebookServiceFactory facebookServiceFactory;
+  private final ProviderExecutor facebookExecutor;
+
+  private final BlockingQueue<PublishJob> queue = new LinkedBlockingQueue<>();
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final ConcurrentMap<String, OwnedStatus> active = new ConcurrentHashMap<>();
+  private final Cache<String, OwnedStatus> finished;
+  private final List<Thread> workers = new ArrayList<>();
+
+  private ScheduledExecutorService retryScheduler;
+  private volatile boolean running;
+
+  /**
+   * Constructs a new PublishJobQueue.
+   *
+   * @param directory The directory to keep the journal and the media of queued jobs in.
+   * @param workerCount The number of jobs to run at the same time.
+   * @param queueSize The maximum number of jobs that can be waiting or running at once.
+   * @param maxFinishedJobs The maximum number of finished jobs to remember the status of.
+   * @param finishedJobTtl How long to remember the status of a finished job.
+   * @param facebookServiceFactory A factory to create new instances of FacebookService.
+   * @param facebookExecutor The executor to call Facebook on.
+   * @param mapper The ObjectMapper to write the journal with.
+   */
+  public PublishJobQueue(Path directory, int workerCount, int queueSize, long maxFinishedJobs,
+                         Duration finishedJobTtl, FacebookServiceFactory facebookServiceFactory,
+                         ProviderExecutor facebookExecutor, ObjectMapper mapper) {
+    this.mediaDirectory = directory.resolve("media");
+    this.journal = new JobJournal(directory.resolve("journal.log"), mapper);
+    this.workerCount = workerCount;
+    this.queueSize = queueSize;
+    this.facebookServiceFactory = facebookServiceFactory;
+    this.facebookExecutor = facebookExecutor;
+    this.finished = Caffeine.newBuilder()
+        .maximumSize(maxFinishedJobs)
+        .expireAfterWrite(finishedJobTtl)
+        .build();
+  }
+
+  @Override
+  public void start() throws IOException {
+    Files.createDirectories(mediaDirectory);
+
+    JobJournal.Recovery recovery = journal.recover();
+    List<PublishJob> recovered = recovery.getPending();
+    if (!recovered.isEmpty()) {
+      LOG.info("Resuming {} publish jobs that had not started.", recovered.size());
+    }
+
+    for (PublishJob job : recovery.getInterrupted()) {
+      LOG.warn("Publish job {} for user {} was running when Lightning stopped. It may or may not "
+          + "have been published, so it will not be run again.", job.getId(), job.getEmail());
+
+      finished.put(job.getId(),
+          new OwnedStatus(job, new JobStatus(job.getId(), JobState.FAILED, INTERRUPTED)));
+      Files.deleteIfExists(mediaPath(job));
+    }
+
+    // Recovered jobs were already accepted, so they do not count against the bound
+    for (PublishJob job : recovered) {
+      outstanding.incrementAndGet();
+      setActive(job, JobState.QUEUED);
+      queue.add(job);
+    }
+
+    running = true;
+
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("publish-job-%d")
+        .setDaemon(true)
+        .build();
+
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = threadFactory.newThread(this::work);
+      workers.add(worker);
+      worker.start();
+    }
+
+    retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("publish-job-retry-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Stops taking new jobs off the queue and waits for running jobs to finish. Jobs that are still
+   * queued, or waiting to be tried again, stay in the journal and are run on the next start.
+   */
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    retryScheduler.shutdownNow();
+
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    workers.clear();
+    journal.close();
+  }
+
+  /**
+   * Accepts a publish to Facebook to be run in the background. The media is copied to disk
+   * before this method returns, so the caller does not need to keep it open.
+   *
+   * @param owner The name of the application that is submitting the job.
+   * @param email The email of the PilotUser the job is for.
+   * @param accessToken The user's Facebook access token.
+   * @param type The type of the publish to perform.
+   * @param message The text to publish.
+   * @param filename The name to call the file on Facebook.
+   * @param videoTitle The title of the video if uploading a video.
+   * @param media The file to upload, or {@code null} if only publishing text.
+   * @return The status of the newly queued job.
+   * @throws IOException If the job could not be written to disk.
+   * @throws RejectedExecutionException If the queue is full.
+   */
+  public JobStatus submit(String owner, String email, String accessToken, PublishType type,
+                          String message, String filename, String videoTitle, InputStream media)
+      throws IOException {
+    if (outstanding.incrementAndGet() > queueSize) {
+      outstanding.decrementAndGet();
+      throw new RejectedExecutionException("The publish job queue is full.");
+    }
+
+    PublishJob job = new PublishJob(UUID.randomUUID().toString(), owner, email, accessToken,
+        type, message, filename, videoTitle);
+
+    try {
+      if (job.hasMedia()) {
+        Path mediaFile = mediaPath(job);
+        Files.copy(media, mediaFile);
+        JobJournal.restrictToOwner(mediaFile);
+      }
+
+      journal.recordSubmitted(job);
+    } catch (IOException e) {
+      outstanding.decrementAndGet();
+      Files.deleteIfExists(mediaPath(job));
+      throw e;
+    }
+
+    JobStatus status = setActive(job, JobState.QUEUED);
+    queue.add(job);
+
+    LOG.info("Queued publish job {} for user {}.", job.getId(), email);
+    return status;
+  }
+
+  /**
+   * Looks up the status of a job that the given application submitted.
+   *
+   * @param owner The name of the application that is asking.
+   * @param id The ID of the job.
+   * @return The status of the job, or empty if the job is unknown, was submitted by another
+   *     application, or finished too long ago.
+   */
+  public Optional<JobStatus> getStatus(String owner, String id) {
+    OwnedStatus status = active.get(id);
+    if (status == null) {
+      status = finished.getIfPresent(id);
+    }
+
+    return status != null && Objects.equals(status.owner, owner)
+        ? Optional.of(status.status)
+        : Optional.empty();
+  }
+
+  private void work() {
+    while (running) {
+      PublishJob job;
+
+      try {
+        job = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      if (job != null) {
+        run(job);
+      }
+    }
+  }
+
+  private void run(PublishJob job) {
+    try {
+      journal.recordRunning(job.getId());
+    } catch (IOException e) {
+      // Without the entry a crash during the publish would run the job again, so do not start it
+      LOG.error("Unable to record that publish job {} started.", job.getId(), e);
+      finish(job, new JobStatus(job.getId(), JobState.FAILED, "Error uploading to Facebook."));
+      return;
+    }
+
+    setActive(job, JobState.RUNNING);
+
+    String result;
+    try (InputStream media = job.hasMedia() ? Files.newInputStream(mediaPath(job)) : null) {
+      result = facebookExecutor.upload(() -> facebookServiceFactory
+          .newFacebookService(job.getAccessToken())
+          .publish(MediaUpload.of(media), job.getType(), job.getMessage(), job.getFilename(),
+              job.getVideoTitle()))
+          .join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof CircuitOpenException
+          || cause instanceof RejectedExecutionException
+          || cause instanceof UpstreamThrottledException) {
+        requeue(job, retryAfterSeconds(cause));
+        return;
+      }
+
+      Throwables.throwIfInstanceOf(cause, Error.class);
+      LOG.error("Unable to run publish job {}.", job.getId(), cause);
+      result = null;
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Unable to run publish job {}.", job.getId(), e);
+      result = null;
+    }
+
+    finish(job, result != null
+        ? new JobStatus(job.getId(), JobState.SUCCEEDED, result)
+        : new JobStatus(job.getId(), JobState.FAILED, "Error uploading to Facebook."));
+  }
+
+  private void finish(PublishJob job, JobStatus status) {
+    try {
+      journal.recordFinished(job.getId(), status.getState(), status.getResult());
+      Files.deleteIfExists(mediaPath(job));
+    } catch (IOException e) {
+      LOG.error("Unable to record that publish job {} finished.", job.getId(), e);
+    }
+
+    finished.put(job.getId(), new OwnedStatus(job, status));
+    active.remove(job.getId());
+    outstanding.decrementAndGet();
+
+    LOG.info("Publish job {} for user {} finished: {}.", job.getId(), job.getEmail(),
+        status.getState());
+  }
+
+  /**
+   * Puts a job that never reached Facebook back in the queue once the given time has passed, or
+   * leaves it in the journal for the next start if the queue is stopped first. The worker moves
+   * on to the next job in the meantime.
+   */
+  private void requeue(PublishJob job, long retryAfterSeconds) {
+    LOG.warn("Publish job {} was not sent to Facebook. Trying again in {} seconds.",
+        job.getId(), retryAfterSeconds);
+
+    try {
+      journal.recordSubmitted(job);
+    } catch (IOException e) {
+      LOG.error("Unable to record that publish job {} was queued again.", job.getId(), e);
+      finish(job, new JobStatus(job.getId(), JobState.FAILED, "Error uploading to Facebook."));
+      return;
+    }
+
+    setActive(job, JobState.QUEUED);
+
+    try {
+      retryScheduler.schedule(() -> queue.add(job), retryAfterSeconds, TimeUnit.SECONDS);
+    } catch (RejectedExecutionException e) {
+      // The queue is stopping, and the job is already in the journal for the next start
+      LOG.info("Publish job {} will be tried again on the next start.", job.getId());
+    }
+  }
+
+  private JobStatus setActive(PublishJob job, JobState state) {
+    JobStatus status = new JobStatus(job.getId(), state, null);
+    active.put(job.getId(), new OwnedStatus(job, status));
+
+    return status;
+  }
+
+  private static long retryAfterSeconds(Throwable cause) {
+    long seconds = 1;
+
+    if (cause instanceof CircuitOpenException) {
+      seconds = ((CircuitOpenException) cause).getRetryAfterSeconds();
+    } else if (cause instanceof UpstreamThrottledException) {
+      seconds = ((UpstreamThrottledException) cause).getRetryAfterSeconds();
+    }
+
+    return Math.max(1, seconds);
+  }
+
+  private Path mediaPath(PublishJob job) {
+    return mediaDirectory.resolve(job.getId());
+  }
+
+  /**
+   * The status of a job, along with the application that may see it.
+   */
+  private static class OwnedStatus {
+    private final String owner;
+    private final JobStatus status;
+
+    OwnedStatus(PublishJob job, JobStatus status) {
+      this.owner = job.getOwner();
+      this.status = status;
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package com.sanction.lightning.media;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Media that was uploaded to Lightning and is being published to a social network. The first
+ * call to {@link #openStream()} hands out the incoming request body itself, so the bytes are
+ * piped straight to the provider without being buffered in memory or on disk.
+ *
+ * <p>An upload that allows retries also copies every byte it hands out into a spill file.
+ * If the publish fails and is retried, the rest of the request body is drained into the spill
+ * file and the following stream reads from a memory-mapped view of it instead of the heap.
+ * Publishing is not idempotent, so an upload is only replayed if the failed attempt did not read
+ * all of the media. Once every byte has been handed out, the provider may already have accepted
+ * the post, and a replay could publish it twice.
+ *
+ * <p>Uploads created from {@link SpooledMedia} read from media that has already been spooled to
+ * disk, so every stream they open reads the memory-mapped spool file.
+ */
+public class MediaUpload implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(MediaUpload.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final InputStream source;
+  private final Path spillDirectory;
+  private final MappedByteBuffer spooled;
+
+  private int remainingRetries;
+  private boolean opened;
+  private FileChannel spill;
+
+  // Whether the most recently opened stream was read to the end
+  private volatile boolean sent;
+
+  /**
+   * Constructs a new MediaUpload.
+   *
+   * @param source The uploaded bytes, usually the body of the request.
+   * @param spillDirectory The directory to create the spill file in.
+   *                       Only used if retries are allowed.
+   * @param retries The number of times the upload can be replayed after the first attempt.
+   */
+  public MediaUpload(InputStream source, Path spillDirectory, int retries) {
+    this.source = source;
+    this.spillDirectory = spillDirectory;
+    this.spooled = null;
+    this.remainingRetries = retries;
+  }
+
+  /**
+   * Constructs a new MediaUpload that reads media that was already spooled to disk.
+   * The spool is owned by the caller, and is not closed when this upload is closed.
+   *
+   * @param spooled The memory-mapped spool file.
+   * @param retries The number of times the upload can be replayed after the first attempt.
+   */
+  MediaUpload(MappedByteBuffer spooled, int retries) {
+    this.source = null;
+    this.spillDirectory = null;
+    this.spooled = spooled;
+    this.remainingRetries = retries;
+  }
+
+  /**
+   * Creates a MediaUpload that streams the given bytes once and can not be retried.
+   *
+   * @param source The uploaded bytes.
+   * @return The new MediaUpload.
+   */
+  public static MediaUpload of(InputStream source) {
+    return new MediaUpload(source, null, 0);
+  }
+
+  /**
+   * Opens a stream over the uploaded bytes. The first stream reads the original source. Every
+   * following stream reads the spilled copy, and should only be opened after {@link #retry()}
+   * has returned true.
+   *
+   * @return A stream that reads the uploaded bytes from the beginning.
+   * @throws IOException If the spill file could not be written or mapped.
+   */
+  public synchronized InputStream openStream() throws IOException {
+    sent = false;
+
+    if (spooled != null) {
+      // Each stream gets its own position in the shared mapping
+      return new MappedInputStream(spooled.duplicate());
+    }
+
+    if (!opened) {
+      opened = true;
+
+      if (remainingRetries == 0) {
+        return source;
+      }
+
+      Path spillFile = Files.createTempFile(spillDirectory, "lightning-upload-", ".spill");
+      spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE);
+
+      return new SpillingInputStream(source);
+    }
+
+    if (spill == null) {
+      throw new IllegalStateException("The upload has already been read and can not be replayed.");
+    }
+
+    // The failed attempt may have stopped part of the way through the request body
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = source.read(buffer)) != -1) {
+      spill.write(ByteBuffer.wrap(buffer, 0, read));
+    }
+
+    if (spill.size() > Integer.MAX_VALUE) {
+      throw new IOException("The upload is too large to replay.");
+    }
+
+    return new MappedInputStream(spill.map(FileChannel.MapMode.READ_ONLY, 0, spill.size()));
+  }
+
+  /**
+   * Claims one of the remaining retries for this upload. A retry is only allowed if the failed
+   * attempt stopped before reading all of the media, since otherwise the provider may have
+   * received the whole request and published it.
+   *
+   * @return True if the upload can be opened again, false if no retries remain or the media
+   *     may already have been published.
+   */
+  public synchronized boolean retry() {
+    if ((spill == null && spooled == null) || remainingRetries == 0 || sent) {
+      return false;
+    }
+
+    remainingRetries--;
+    return true;
+  }
+
+  /**
+   * Closes the source stream and deletes the spill file, if there is one.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      if (source != null) {
+        source.close();
+      }
+
+      if (spill != null) {
+        spill.close();
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to clean up the media upload.", e);
+    }
+  }
+
+  /**
+   * Copies every byte read from the source into the spill file. Closing this stream does not
+   * close the source, because a retry needs to drain whatever was not read.
+   */
+  private class SpillingInputStream extends FilterInputStream {
+    private final ByteBuffer single = ByteBuffer.allocate(1);
+
+    SpillingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+
+      if (b == -1) {
+        sent = true;
+      } else {
+        single.clear();
+        single.put((byte) b).flip();
+        spill.write(single);
+      }
+
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+
+      if (read > 0) {
+        spill.write(ByteBuffer.wrap(b, off, read));
+      } else if (read == -1) {
+        sent = true;
+      }
+
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // Skipped bytes still have to reach the spill file
+      byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+      long skipped = 0;
+
+      while (skipped < n) {
+        int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+        if (read == -1) {
+          break;
+        }
+
+        skipped += read;
+      }
+
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Reads a memory-mapped spill file.
+   */
+  private class MappedInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    MappedInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      if (!buffer.hasRemaining()) {
+        sent = true;
+        return -1;
+      }
+
+      return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+
+      if (!buffer.hasRemaining()) {
+        sent = true;
+        return -1;
+      }
+
+      int read = Math.min(len, buffer.remaining());
+      buffer.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.sanction.lightning.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Creates MediaUpload and SpooledMedia instances that share the configured spill directory and
+ * retry count.
+ */
+public class MediaUploadFactory {
+  private final Path spillDirectory;
+  private final int publishRetries;
+
+  /**
+   * Constructs a new MediaUploadFactory.
+   *
+   * @param spillDirectory The directory to create spill files in.
+   * @param publishRetries The number of times a failed publish can be retried.
+   *                       If zero, uploads are never spilled to disk.
+   */
+  public MediaUploadFactory(Path spillDirectory, int publishRetries) {
+    this.spillDirectory = spillDirectory;
+    this.publishRetries = publishRetries;
+  }
+
+  /**
+   * Creates a new MediaUpload that reads from the given source.
+   *
+   * @param source The uploaded bytes, or {@code null} if nothing was uploaded.
+   * @return The new MediaUpload.
+   */
+  public MediaUpload newUpload(InputStream source) {
+    if (source == null) {
+      return MediaUpload.of(null);
+    }
+
+    return new MediaUpload(source, spillDirectory, publishRetries);
+  }
+
+  /**
+   * Reads the given source into a spool file so it can be published more than once.
+   *
+   * @param source The uploaded bytes.
+   * @return The spooled media, which must be closed once every publish has finished.
+   * @throws IOException If the source could not be spooled.
+   */
+  public SpooledMedia spool(InputStream source) throws IOException {
+    return new SpooledMedia(source, spillDirectory, publishRetries);
+  }
+}
@@ -0,0 +1,90 @@
+package com.sanction.lightning.media;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Media that has been read from the request once and spooled to a memory-mapped file, so that
+ * it can be published to several social networks at the same time. Each network gets its own
+ * {@link MediaUpload} with an independent read position over the same mapping.
+ */
+public class SpooledMedia implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(SpooledMedia.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int retries;
+
+  /**
+   * Constructs a new SpooledMedia by reading the entire source into a spool file.
+   *
+   * @param source The uploaded bytes, usually the body of the request.
+   * @param spoolDirectory The directory to create the spool file in.
+   * @param retries The number of times each upload can be replayed after the first attempt.
+   * @throws IOException If the source could not be read or the spool file could not be written.
+   */
+  public SpooledMedia(InputStream source, Path spoolDirectory, int retries) throws IOException {
+    Path spoolFile = Files.createTempFile(spoolDirectory, "lightning-spool-", ".spill");
+    this.channel = FileChannel.open(spoolFile, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    this.retries = retries;
+
+    try {
+      byte[] chunk = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = source.read(chunk)) != -1) {
+        channel.write(ByteBuffer.wrap(chunk, 0, read));
+      }
+
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("The upload is too large to spool.");
+      }
+
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a new MediaUpload that reads this spooled media.
+   *
+   * @return The new MediaUpload.
+   */
+  public MediaUpload newUpload() {
+    return new MediaUpload(buffer, retries);
+  }
+
+  /**
+   * Returns the number of bytes that were spooled.
+   *
+   * @return The size of the spooled media in bytes.
+   */
+  public long size() {
+    return buffer.capacity();
+  }
+
+  /**
+   * Deletes the spool file.
+   */
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("Unable to clean up the spooled media.", e);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.WeightedSnapshot;
+import com.codahale.metrics.WeightedSnapshot.WeightedSample;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Reservoir} that keeps the measurements from a sliding window of time, like
+ * {@code SlidingTimeWindowArrayReservoir}, but in a fixed amount of memory. The window is split
+ * into buckets that each hold up to a fixed number of measurements. While a bucket has room it
+ * keeps every measurement, so percentiles are exact for the window. Once it is full, it keeps a
+ * uniform random sample of its measurements, weighted by how many it has seen, so percentiles
+ * become an estimate instead of growing the reservoir with throughput.
+ *
+ * <p>The window moves forward one bucket at a time, so it covers between {@code window} and
+ * {@code window} plus one bucket's worth of time.
+ */
+class BoundedTimeWindowReservoir implements Reservoir {
+  private static final int BUCKETS = 10;
+
+  private final long bucketNanos;
+  private final Bucket[] buckets = new Bucket[BUCKETS + 1];
+  private final LongSupplier clock;
+
+  /**
+   * Constructs a new BoundedTimeWindowReservoir.
+   *
+   * @param window How far back to keep measurements for.
+   * @param maxSamples The maximum number of measurements to keep at once.
+   */
+  BoundedTimeWindowReservoir(Duration window, int maxSamples) {
+    this(window, maxSamples, System::nanoTime);
+  }
+
+  BoundedTimeWindowReservoir(Duration window, int maxSamples, LongSupplier clock) {
+    this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+    this.clock = clock;
+
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new Bucket(Math.max(1, maxSamples / buckets.length));
+    }
+  }
+
+  @Override
+  public int size() {
+    long current = currentIndex();
+    int size = 0;
+
+    for (Bucket bucket : buckets) {
+      synchronized (bucket) {
+        if (bucket.isLive(current)) {
+          size += bucket.size;
+        }
+      }
+    }
+
+    return size;
+  }
+
+  @Override
+  public void update(long value) {
+    long index = currentIndex();
+    Bucket bucket = buckets[(int) Math.floorMod(index, (long) buckets.length)];
+
+    synchronized (bucket) {
+      if (bucket.index != index) {
+        bucket.reset(index);
+      }
+
+      bucket.add(value);
+    }
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    long current = currentIndex();
+    List<WeightedSample> samples = new ArrayList<>();
+
+    for (Bucket bucket : buckets) {
+      synchronized (bucket) {
+        if (!bucket.isLive(current)) {
+          continue;
+        }
+
+        // Each kept value stands in for the values of the bucket that were not kept
+        double weight = (double) bucket.count / bucket.size;
+        for (int i = 0; i < bucket.size; i++) {
+          samples.add(new WeightedSample(bucket.values[i], weight));
+        }
+      }
+    }
+
+    return new WeightedSnapshot(samples);
+  }
+
+  private long currentIndex() {
+    return Math.floorDiv(clock.getAsLong(), bucketNanos);
+  }
+
+  private static class Bucket {
+    private final long[] values;
+
+    private long index = Long.MIN_VALUE;
+    private long count;
+    private int size;
+
+    Bucket(int capacity) {
+      this.values = new long[capacity];
+    }
+
+    boolean isLive(long current) {
+      return size > 0 && index > current - BUCKETS - 1 && index <= current;
+    }
+
+    void reset(long index) {
+      this.index = index;
+      this.count = 0;
+      this.size = 0;
+    }
+
+    void add(long value) {
+      count++;
+
+      if (size < values.length) {
+        values[size++] = value;
+        return;
+      }
+
+      // Reservoir sampling keeps each of the count values with equal probability
+      long slot = ThreadLocalRandom.current().nextLong(count);
+      if (slot < values.length) {
+        values[(int) slot] = value;
+      }
+    }
+  }
+}
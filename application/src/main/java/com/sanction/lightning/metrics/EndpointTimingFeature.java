@@ -0,0 +1,26 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+
+/**
+ * Adds an {@link EndpointTimingFilter} to every resource method, with a timer named after the
+ * resource class and method, such as {@code ...FacebookResource.getUser}.
+ */
+public class EndpointTimingFeature implements DynamicFeature {
+  private final Instrumentation instrumentation;
+
+  public EndpointTimingFeature(Instrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
+  @Override
+  public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+    context.register(new EndpointTimingFilter(instrumentation, MetricRegistry.name(
+        resourceInfo.getResourceClass(),
+        resourceInfo.getResourceMethod().getName())));
+  }
+}
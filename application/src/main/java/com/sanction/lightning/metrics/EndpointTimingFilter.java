@@ -0,0 +1,53 @@
+package com.sanction.lightning.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+
+/**
+ * Times a resource method from when its request arrives until its response is written, and counts
+ * its responses by status class ({@code 2xx}, {@code 4xx}, ...). The response filter runs once an
+ * asynchronous response is resumed, so the time includes the calls to Thunder and the providers.
+ * Runs before authentication so that rejected requests are timed as well.
+ */
+@Priority(Priorities.AUTHENTICATION - 100)
+public class EndpointTimingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+  private static final String START_PROPERTY = EndpointTimingFilter.class.getName() + ".start";
+
+  private final Instrumentation instrumentation;
+  private final String name;
+  private final LongSupplier clock;
+
+  public EndpointTimingFilter(Instrumentation instrumentation, String name) {
+    this(instrumentation, name, System::nanoTime);
+  }
+
+  EndpointTimingFilter(Instrumentation instrumentation, String name, LongSupplier clock) {
+    this.instrumentation = instrumentation;
+    this.name = name;
+    this.clock = clock;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    requestContext.setProperty(START_PROPERTY, clock.getAsLong());
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext,
+                     ContainerResponseContext responseContext) {
+    Object start = requestContext.getProperty(START_PROPERTY);
+
+    if (start instanceof Long) {
+      instrumentation.timer(name)
+          .update(clock.getAsLong() - (Long) start, TimeUnit.NANOSECONDS);
+    }
+
+    instrumentation.outcome(name, responseContext.getStatus() / 100 + "xx");
+  }
+}
@@ -0,0 +1,128 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Creates the latency timers and outcome counters that Lightning reports on the admin port.
+ *
+ * <p>Timers keep the measurements from a sliding window of time instead of the default decaying
+ * sample, so that their percentiles, and the tail in particular, describe the window. Each timer
+ * keeps up to a fixed number of measurements, so that its memory does not grow with throughput.
+ * Percentiles are exact until a timer sees more calls than that in a window, and are estimated
+ * from a uniform sample after that. Each timed call also increments a counter named after its
+ * outcome, such as {@code <timer>.success} or {@code <timer>.5xx}, so error rates can be read
+ * next to latency.
+ */
+public class Instrumentation {
+  public static final String SUCCESS = "success";
+  public static final String REJECTED = "rejected";
+  public static final String FAILURE = "failure";
+
+  private static final int DEFAULT_MAX_SAMPLES = 4096;
+
+  private final MetricRegistry metrics;
+  private final Duration window;
+  private final int maxSamples;
+
+  public Instrumentation(MetricRegistry metrics, Duration window) {
+    this(metrics, window, DEFAULT_MAX_SAMPLES);
+  }
+
+  /**
+   * Constructs a new Instrumentation.
+   *
+   * @param metrics The metrics registry to report to.
+   * @param window How far back the timers keep measurements for.
+   * @param maxSamples The maximum number of measurements each timer keeps at once.
+   */
+  public Instrumentation(MetricRegistry metrics, Duration window, int maxSamples) {
+    this.metrics = metrics;
+    this.window = window;
+    this.maxSamples = maxSamples;
+  }
+
+  /**
+   * Creates an Instrumentation that reports to a registry of its own, for services that are
+   * created outside of the application and have nowhere to report to.
+   *
+   * @return A new Instrumentation.
+   */
+  public static Instrumentation disabled() {
+    return new Instrumentation(new MetricRegistry(), Duration.ofMinutes(1));
+  }
+
+  /**
+   * Retrieves the timer with the given name, creating it if it does not exist.
+   *
+   * @param name The name of the timer.
+   * @return The timer.
+   */
+  public Timer timer(String name) {
+    return metrics.timer(name, () -> new Timer(
+        new BoundedTimeWindowReservoir(window, maxSamples)));
+  }
+
+  /**
+   * Counts a call with the given outcome.
+   *
+   * @param name The name of the timer that the call was timed with.
+   * @param outcome The outcome of the call.
+   */
+  public void outcome(String name, String outcome) {
+    metrics.counter(MetricRegistry.name(name, outcome)).inc();
+  }
+
+  /**
+   * Times a blocking call. A call that returns {@code null} is counted as rejected, matching the
+   * way the provider services report a rejected access token.
+   *
+   * @param name The name of the timer.
+   * @param call The call to time.
+   * @param <T> The type of the result of the call.
+   * @return The result of the call.
+   */
+  public <T> T time(String name, Supplier<T> call) {
+    Timer.Context context = timer(name).time();
+
+    try {
+      T result = call.get();
+      outcome(name, result != null ? SUCCESS : REJECTED);
+
+      return result;
+    } catch (RuntimeException e) {
+      outcome(name, FAILURE);
+      throw e;
+    } finally {
+      context.stop();
+    }
+  }
+
+  /**
+   * Times an asynchronous call, until the future it returns completes.
+   *
+   * @param name The name of the timer.
+   * @param call The call to time.
+   * @param <T> The type of the result of the call.
+   * @return A future that completes with the result of the call.
+   */
+  public <T> CompletableFuture<T> timeAsync(String name, Supplier<CompletableFuture<T>> call) {
+    Timer.Context context = timer(name).time();
+    CompletableFuture<T> future;
+
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+
+    return future.whenComplete((result, throwable) -> {
+      context.stop();
+      outcome(name, throwable != null ? FAILURE : result != null ? SUCCESS : REJECTED);
+    });
+  }
+}
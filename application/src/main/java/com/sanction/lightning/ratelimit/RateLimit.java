@@ -0,0 +1,73 @@
+package com.sanction.lightning.ratelimit;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The rate at which an application may make requests. An application that has been idle may
+ * make up to {@code burst} requests at once, after which it is held to
+ * {@code requests-per-second}.
+ */
+public class RateLimit {
+  private final double requestsPerSecond;
+  private final int burst;
+
+  /**
+   * Constructs a new RateLimit.
+   *
+   * @param requestsPerSecond The sustained number of requests allowed per second.
+   * @param burst The number of requests allowed at once. Defaults to one second's worth.
+   */
+  @JsonCreator
+  public RateLimit(@JsonProperty("requests-per-second") double requestsPerSecond,
+                   @JsonProperty("burst") Integer burst) {
+    checkArgument(requestsPerSecond > 0, "requests-per-second must be positive");
+    checkArgument(burst == null || burst >= 1, "burst must be at least 1");
+
+    this.requestsPerSecond = requestsPerSecond;
+    this.burst = burst != null ? burst : (int) Math.max(1, Math.ceil(requestsPerSecond));
+  }
+
+  @JsonProperty("requests-per-second")
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  @JsonProperty("burst")
+  public int getBurst() {
+    return burst;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (!(obj instanceof RateLimit)) {
+      return false;
+    }
+
+    RateLimit other = (RateLimit) obj;
+    return this.requestsPerSecond == other.requestsPerSecond
+        && this.burst == other.burst;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(requestsPerSecond, burst);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("requestsPerSecond", requestsPerSecond)
+        .add("burst", burst)
+        .toString();
+  }
+}
@@ -0,0 +1,42 @@
+package com.sanction.lightning.ratelimit;
+
+import com.codahale.metrics.MetricRegistry;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+
+/**
+ * Adds a {@link RateLimitFilter} to every resource method. Applications either share one
+ * allowance across every endpoint, or get a separate allowance for each endpoint.
+ */
+public class RateLimitFeature implements DynamicFeature {
+  private final RateLimit defaultLimit;
+  private final MetricRegistry metrics;
+  private final boolean perEndpoint;
+  private final RateLimiter sharedLimiter;
+
+  /**
+   * Constructs a new RateLimitFeature.
+   *
+   * @param defaultLimit The limit for keys that do not set their own, or {@code null} to not
+   *     limit those keys.
+   * @param perEndpoint Whether to give each endpoint its own allowance.
+   * @param metrics The metrics registry to report rejections to.
+   */
+  public RateLimitFeature(RateLimit defaultLimit, boolean perEndpoint, MetricRegistry metrics) {
+    this.defaultLimit = defaultLimit;
+    this.metrics = metrics;
+    this.perEndpoint = perEndpoint;
+    this.sharedLimiter = new RateLimiter(defaultLimit, metrics);
+  }
+
+  @Override
+  public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+    RateLimiter rateLimiter = perEndpoint
+        ? new RateLimiter(defaultLimit, metrics)
+        : sharedLimiter;
+
+    context.register(new RateLimitFilter(rateLimiter));
+  }
+}
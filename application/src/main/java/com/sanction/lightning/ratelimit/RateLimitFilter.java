@@ -0,0 +1,53 @@
+package com.sanction.lightning.ratelimit;
+
+import com.sanction.lightning.authentication.Key;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rejects requests with 429 Too Many Requests once the authenticated application has used up
+ * its allowance. Runs after authentication so that the application is known.
+ */
+@Priority(Priorities.AUTHORIZATION)
+public class RateLimitFilter implements ContainerRequestFilter {
+  private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private final RateLimiter rateLimiter;
+
+  public RateLimitFilter(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    Principal principal = requestContext.getSecurityContext().getUserPrincipal();
+
+    if (!(principal instanceof Key)) {
+      return;
+    }
+
+    Key key = (Key) principal;
+    long wait = rateLimiter.tryAcquire(key);
+
+    if (wait > 0) {
+      long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999));
+
+      LOG.warn("Rejected a request from {} that was over its rate limit.", key.getName());
+      requestContext.abortWith(Response.status(TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, retryAfter)
+          .entity("Too many requests. Try again in " + retryAfter + " seconds.")
+          .build());
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.sanction.lightning.ratelimit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds a token bucket for each application and decides whether a request from an application
+ * is allowed. Applications use the limit set on their key in {@code approved-keys}, or else the
+ * default limit. If the limit on a key changes when the approved keys are reloaded, the
+ * application starts again with a full bucket at the new limit.
+ */
+public class RateLimiter {
+  private final RateLimit defaultLimit;
+  private final MetricRegistry metrics;
+  private final LongSupplier clock;
+
+  private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Meter> rejections = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new RateLimiter.
+   *
+   * @param defaultLimit The limit for keys that do not set their own, or {@code null} to not
+   *     limit those keys.
+   * @param metrics The metrics registry to report rejections to.
+   */
+  public RateLimiter(RateLimit defaultLimit, MetricRegistry metrics) {
+    this(defaultLimit, metrics, System::nanoTime);
+  }
+
+  RateLimiter(RateLimit defaultLimit, MetricRegistry metrics, LongSupplier clock) {
+    this.defaultLimit = defaultLimit;
+    this.metrics = metrics;
+    this.clock = clock;
+  }
+
+  /**
+   * Takes a request from the given application's allowance.
+   *
+   * @param key The key of the application making the request.
+   * @return 0 if the request is allowed, or else the number of nanoseconds until it would be.
+   */
+  public long tryAcquire(Key key) {
+    RateLimit limit = key.getRateLimit() != null ? key.getRateLimit() : defaultLimit;
+
+    if (limit == null) {
+      return 0;
+    }
+
+    long now = clock.getAsLong();
+    TokenBucket bucket = buckets.get(key.getName());
+
+    if (bucket == null || !bucket.getLimit().equals(limit)) {
+      bucket = buckets.compute(key.getName(), (name, current) ->
+          current != null && current.getLimit().equals(limit)
+              ? current
+              : new TokenBucket(limit, now));
+    }
+
+    long wait = bucket.tryAcquire(now);
+
+    if (wait > 0) {
+      rejections.computeIfAbsent(key.getName(), name -> metrics.meter(
+          MetricRegistry.name(RateLimiter.class, name, "rejected")))
+          .mark();
+    }
+
+    return wait;
+  }
+}
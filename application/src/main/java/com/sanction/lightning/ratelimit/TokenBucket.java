@@ -0,0 +1,51 @@
+package com.sanction.lightning.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket. Rather than counting tokens, the bucket keeps the time at which it
+ * will be full again. Each token taken pushes that time forward by one token's worth, and a
+ * request is allowed if doing so does not push it more than a full burst ahead of now. Keeping
+ * a single value means each request is decided with one compare-and-set.
+ */
+final class TokenBucket {
+  private final RateLimit limit;
+  private final long nanosPerToken;
+  private final long burstNanos;
+  private final AtomicLong fullAt;
+
+  TokenBucket(RateLimit limit, long now) {
+    this.limit = limit;
+    this.nanosPerToken = (long) Math.ceil(1_000_000_000 / limit.getRequestsPerSecond());
+    this.burstNanos = nanosPerToken * limit.getBurst();
+
+    // Start full
+    this.fullAt = new AtomicLong(now);
+  }
+
+  RateLimit getLimit() {
+    return limit;
+  }
+
+  /**
+   * Takes a token from the bucket if one is available.
+   *
+   * @param now The current time, in nanoseconds.
+   * @return 0 if a token was taken, or else the number of nanoseconds until one is available.
+   */
+  long tryAcquire(long now) {
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, now) + nanosPerToken;
+      long wait = next - burstNanos - now;
+
+      if (wait > 0) {
+        return wait;
+      }
+
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package com.sanction.lightning.resilience;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.config.CircuitBreakerConfiguration;
+import com.sanction.lightning.exception.CircuitOpenException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for calls to a single upstream dependency. The outcome of the most recent
+ * calls is kept in a fixed-size window. Calls that fail or take longer than the slow call
+ * duration count as failures. Once enough calls are recorded and the failure rate reaches the
+ * threshold, the breaker opens and rejects calls without making them. After the open duration it
+ * moves to half-open and lets a few probe calls through. If all of them succeed it closes, and if
+ * any of them fail it opens again.
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states a circuit breaker can be in. The ordinal is reported as the state gauge.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String name;
+  private final boolean enabled;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier clock;
+
+  // Ring buffer of the outcomes of the most recent calls, true for a failure
+  private final boolean[] window;
+  private int windowIndex;
+  private int windowCount;
+  private int windowFailures;
+
+  private volatile State state = State.CLOSED;
+  private long openedAt;
+  private int halfOpenPermits;
+  private int halfOpenSuccesses;
+
+  private final Meter rejected;
+
+  /**
+   * Constructs a new CircuitBreaker.
+   *
+   * @param name The name of the upstream, used in metric names and errors.
+   * @param config The thresholds for the circuit breaker.
+   * @param metrics The metrics registry to report state and rejections to.
+   */
+  public CircuitBreaker(String name, CircuitBreakerConfiguration config, MetricRegistry metrics) {
+    this(name, config.isEnabled(), config.getWindowSize(), config.getMinimumCalls(),
+        config.getFailureRateThreshold(), config.getSlowCallDuration().toJavaDuration(),
+        config.getOpenDuration().toJavaDuration(), config.getHalfOpenCalls(), metrics,
+        System::nanoTime);
+  }
+
+  CircuitBreaker(String name, boolean enabled, int windowSize, int minimumCalls,
+                 double failureRateThreshold, Duration slowCallDuration, Duration openDuration,
+                 int halfOpenCalls, MetricRegistry metrics, LongSupplier clock) {
+    this.name = name;
+    this.enabled = enabled;
+    this.window = new boolean[windowSize];
+    this.minimumCalls = Math.min(minimumCalls, windowSize);
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallNanos = slowCallDuration.toNanos();
+    this.openNanos = openDuration.toNanos();
+    this.halfOpenCalls = halfOpenCalls;
+    this.clock = clock;
+
+    this.rejected = metrics.meter(MetricRegistry.name(CircuitBreaker.class, name, "rejected"));
+    metrics.gauge(MetricRegistry.name(CircuitBreaker.class, name, "state"),
+        () -> () -> state.ordinal());
+    metrics.gauge(MetricRegistry.name(CircuitBreaker.class, name, "failure-rate"),
+        () -> this::getFailureRate);
+  }
+
+  /**
+   * Creates a CircuitBreaker that never opens.
+   *
+   * @param name The name of the upstream.
+   * @return A disabled CircuitBreaker.
+   */
+  public static CircuitBreaker disabled(String name) {
+    return new CircuitBreaker(name, false, 1, 1, 100, Duration.ofDays(1), Duration.ZERO, 1,
+        new MetricRegistry(), System::nanoTime);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns the percentage of calls in the window that failed.
+   *
+   * @return The failure rate, from 0 to 100.
+   */
+  public synchronized double getFailureRate() {
+    return windowCount == 0 ? 0 : 100.0 * windowFailures / windowCount;
+  }
+
+  /**
+   * Asks to make a call. Every call that is allowed must be followed by exactly one call to
+   * {@link #onSuccess}, {@link #onFailure}, or {@link #onIgnored}.
+   *
+   * @throws CircuitOpenException If the breaker is open.
+   */
+  public void acquire() {
+    if (!enabled) {
+      return;
+    }
+
+    long retryAfterNanos;
+
+    synchronized (this) {
+      long now = clock.getAsLong();
+
+      if (state == State.OPEN && now - openedAt >= openNanos) {
+        state = State.HALF_OPEN;
+        halfOpenPermits = halfOpenCalls;
+        halfOpenSuccesses = 0;
+      }
+
+      if (state == State.CLOSED) {
+        return;
+      }
+
+      if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+        halfOpenPermits--;
+        return;
+      }
+
+      retryAfterNanos = state == State.OPEN ? openNanos - (now - openedAt) : openNanos;
+    }
+
+    rejected.mark();
+    throw new CircuitOpenException("The circuit breaker for " + name + " is open.",
+        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999)));
+  }
+
+  /**
+   * Records that an allowed call succeeded.
+   *
+   * @param durationNanos How long the call took. Calls slower than the slow call duration are
+   *     recorded as failures.
+   */
+  public void onSuccess(long durationNanos) {
+    record(durationNanos >= slowCallNanos);
+  }
+
+  /**
+   * Records that an allowed call failed.
+   */
+  public void onFailure() {
+    record(true);
+  }
+
+  /**
+   * Records that an allowed call was not made, or that its outcome says nothing about the health
+   * of the upstream.
+   */
+  public synchronized void onIgnored() {
+    if (enabled && state == State.HALF_OPEN) {
+      halfOpenPermits++;
+    }
+  }
+
+  private synchronized void record(boolean failure) {
+    if (!enabled) {
+      return;
+    }
+
+    switch (state) {
+      case CLOSED:
+        if (windowCount == window.length) {
+          windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+          windowCount++;
+        }
+
+        window[windowIndex] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCount >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+          open();
+        }
+        break;
+
+      case HALF_OPEN:
+        if (failure) {
+          open();
+        } else if (++halfOpenSuccesses >= halfOpenCalls) {
+          close();
+        }
+        break;
+
+      default:
+        // Calls that were let through before the breaker opened have nothing left to decide
+        break;
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    windowIndex = 0;
+    windowCount = 0;
+    windowFailures = 0;
+  }
+}
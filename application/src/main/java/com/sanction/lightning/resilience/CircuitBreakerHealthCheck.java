@@ -0,0 +1,27 @@
+package com.sanction.lightning.resilience;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Reports an upstream as unhealthy while its circuit breaker is open.
+ */
+public class CircuitBreakerHealthCheck extends HealthCheck {
+  private final CircuitBreaker circuitBreaker;
+
+  public CircuitBreakerHealthCheck(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  @Override
+  protected Result check() {
+    CircuitBreaker.State state = circuitBreaker.getState();
+
+    if (state == CircuitBreaker.State.OPEN) {
+      return Result.unhealthy("The circuit breaker for %s is open (failure rate %.1f%%).",
+          circuitBreaker.getName(), circuitBreaker.getFailureRate());
+    }
+
+    return Result.healthy("The circuit breaker for %s is %s.",
+        circuitBreaker.getName(), state.name().toLowerCase());
+  }
+}
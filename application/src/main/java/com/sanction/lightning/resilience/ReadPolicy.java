@@ -0,0 +1,270 @@
+package com.sanction.lightning.resilience;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.sanction.lightning.config.HedgeConfiguration;
+import com.sanction.lightning.config.RetryConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries and hedges idempotent reads from a single upstream.
+ *
+ * <p>Reads that fail with a retryable error are retried after an exponential backoff with full
+ * jitter, up to a maximum number of attempts. Retries are paid for out of a budget that each read
+ * adds a fraction of a retry to, so that an upstream that is failing every call is not sent a
+ * multiple of its normal traffic.
+ *
+ * <p>When hedging is enabled, a read that has not completed once the configured percentile of
+ * recent read latencies has passed is sent a second time, and whichever attempt succeeds first
+ * is used. Hedges are paid for out of the same budget.
+ */
+public class ReadPolicy {
+  private static final long BUDGET_SCALE = 1000;
+  private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MINIMUM_HEDGE_SAMPLES = 20;
+
+  private final boolean retryEnabled;
+  private final int maxAttempts;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final long budgetDeposit;
+  private final long budgetCapacity;
+  private final boolean hedgeEnabled;
+  private final double hedgeQuantile;
+  private final long minHedgeDelayNanos;
+  private final LongFunction<Executor> scheduler;
+
+  // Retry budget in thousandths of a retry, so that each read can deposit a fraction of one
+  private final AtomicLong budget;
+
+  private volatile long hedgeDelayNanos;
+  private volatile long hedgeDelayComputedAt;
+
+  private final Timer latency;
+  private final Meter retries;
+  private final Meter budgetExhausted;
+  private final Meter hedges;
+  private final Meter hedgesWon;
+
+  /**
+   * Constructs a new ReadPolicy.
+   *
+   * @param name The name of the upstream, used in metric names.
+   * @param retryConfig The retry settings.
+   * @param hedgeConfig The hedging settings.
+   * @param metrics The metrics registry to report retries and hedges to.
+   */
+  public ReadPolicy(String name, RetryConfiguration retryConfig, HedgeConfiguration hedgeConfig,
+                    MetricRegistry metrics) {
+    this(name, retryConfig.isEnabled(), retryConfig.getMaxAttempts(),
+        retryConfig.getInitialBackoff().toJavaDuration(),
+        retryConfig.getMaxBackoff().toJavaDuration(),
+        retryConfig.getBudgetRatio(), retryConfig.getBudgetCapacity(),
+        hedgeConfig.isEnabled(), hedgeConfig.getDelayPercentile(),
+        hedgeConfig.getMinDelay().toJavaDuration(), metrics,
+        nanos -> CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+  }
+
+  ReadPolicy(String name, boolean retryEnabled, int maxAttempts, Duration initialBackoff,
+             Duration maxBackoff, double budgetRatio, int budgetCapacity, boolean hedgeEnabled,
+             double hedgePercentile, Duration minHedgeDelay, MetricRegistry metrics,
+             LongFunction<Executor> scheduler) {
+    this.retryEnabled = retryEnabled;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffNanos = initialBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+    this.budgetDeposit = Math.round(budgetRatio * BUDGET_SCALE);
+    this.budgetCapacity = budgetCapacity * BUDGET_SCALE;
+    this.hedgeEnabled = hedgeEnabled;
+    this.hedgeQuantile = hedgePercentile / 100;
+    this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+    this.scheduler = scheduler;
+    this.budget = new AtomicLong(this.budgetCapacity);
+    this.hedgeDelayComputedAt = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS;
+
+    this.latency = metrics.timer(MetricRegistry.name(ReadPolicy.class, name, "latency"));
+    this.retries = metrics.meter(MetricRegistry.name(ReadPolicy.class, name, "retries"));
+    this.budgetExhausted = metrics.meter(
+        MetricRegistry.name(ReadPolicy.class, name, "retry-budget-exhausted"));
+    this.hedges = metrics.meter(MetricRegistry.name(ReadPolicy.class, name, "hedges"));
+    this.hedgesWon = metrics.meter(MetricRegistry.name(ReadPolicy.class, name, "hedges-won"));
+  }
+
+  /**
+   * Creates a ReadPolicy that makes every read exactly once.
+   *
+   * @param name The name of the upstream.
+   * @return A disabled ReadPolicy.
+   */
+  public static ReadPolicy disabled(String name) {
+    return new ReadPolicy(name, false, 1, Duration.ZERO, Duration.ZERO, 0, 1, false, 100,
+        Duration.ZERO, new MetricRegistry(), nanos -> Runnable::run);
+  }
+
+  /**
+   * Makes an idempotent read, retrying and hedging it as configured.
+   *
+   * @param read Starts one attempt at the read. It may be called more than once, and more than
+   *     one attempt may be in flight at once.
+   * @param retryable Decides whether an attempt that failed with the given error may be retried.
+   * @param <T> The type of the result of the read.
+   * @return A future that completes with the result of the first attempt to succeed, or with the
+   *     error of the last attempt to fail.
+   */
+  public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> read,
+                                          Predicate<Throwable> retryable) {
+    if (!retryEnabled && !hedgeEnabled) {
+      return attempt(read);
+    }
+
+    deposit();
+
+    CompletableFuture<T> primary = withRetries(read, retryable, 1);
+
+    if (!hedgeEnabled) {
+      return primary;
+    }
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicInteger outstanding = new AtomicInteger(1);
+
+    primary.whenComplete((value, throwable) -> complete(result, outstanding, value, throwable));
+
+    Long delay = hedgeDelayNanos();
+    if (delay != null) {
+      scheduler.apply(delay).execute(() -> {
+        if (result.isDone() || !withdraw()) {
+          return;
+        }
+
+        hedges.mark();
+        outstanding.incrementAndGet();
+
+        attempt(read).whenComplete((value, throwable) -> {
+          if (complete(result, outstanding, value, throwable) && throwable == null) {
+            hedgesWon.mark();
+          }
+        });
+      });
+    }
+
+    return result;
+  }
+
+  /**
+   * Completes the result of a hedged read with the outcome of one of its attempts. The result
+   * takes the first success, or the last failure once no other attempt is in flight.
+   *
+   * @return {@code true} if this outcome completed the result.
+   */
+  private static <T> boolean complete(CompletableFuture<T> result, AtomicInteger outstanding,
+                                      T value, Throwable throwable) {
+    if (throwable == null) {
+      return result.complete(value);
+    }
+
+    return outstanding.decrementAndGet() == 0 && result.completeExceptionally(throwable);
+  }
+
+  private <T> CompletableFuture<T> withRetries(Supplier<CompletableFuture<T>> read,
+                                               Predicate<Throwable> retryable, int attempt) {
+    return attempt(read).exceptionallyCompose(throwable -> {
+      if (!retryEnabled || attempt >= maxAttempts || !retryable.test(unwrap(throwable))) {
+        return CompletableFuture.failedFuture(throwable);
+      }
+
+      if (!withdraw()) {
+        budgetExhausted.mark();
+        return CompletableFuture.failedFuture(throwable);
+      }
+
+      retries.mark();
+
+      return CompletableFuture.runAsync(() -> { }, scheduler.apply(backoffNanos(attempt)))
+          .thenCompose(ignored -> withRetries(read, retryable, attempt + 1));
+    });
+  }
+
+  private <T> CompletableFuture<T> attempt(Supplier<CompletableFuture<T>> read) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+
+    try {
+      future = read.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    if (!hedgeEnabled) {
+      return future;
+    }
+
+    return future.whenComplete((value, throwable) -> {
+      if (throwable == null) {
+        latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    });
+  }
+
+  /**
+   * Returns a random backoff between zero and the exponential backoff for the attempt.
+   */
+  long backoffNanos(int attempt) {
+    long ceiling = initialBackoffNanos << Math.min(attempt - 1, 30);
+
+    if (ceiling <= 0 || ceiling > maxBackoffNanos) {
+      ceiling = maxBackoffNanos;
+    }
+
+    return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+  }
+
+  /**
+   * Returns how long to wait before hedging a read, or {@code null} if too few reads have been
+   * timed to know. The percentile is recomputed at most once a second.
+   */
+  private Long hedgeDelayNanos() {
+    if (latency.getCount() < MINIMUM_HEDGE_SAMPLES) {
+      return null;
+    }
+
+    long now = System.nanoTime();
+
+    if (now - hedgeDelayComputedAt >= HEDGE_DELAY_REFRESH_NANOS) {
+      hedgeDelayNanos = Math.max(minHedgeDelayNanos,
+          (long) latency.getSnapshot().getValue(hedgeQuantile));
+      hedgeDelayComputedAt = now;
+    }
+
+    return hedgeDelayNanos;
+  }
+
+  private void deposit() {
+    budget.updateAndGet(tokens -> Math.min(budgetCapacity, tokens + budgetDeposit));
+  }
+
+  private boolean withdraw() {
+    return budget.getAndUpdate(tokens -> tokens >= BUDGET_SCALE ? tokens - BUDGET_SCALE : tokens)
+        >= BUDGET_SCALE;
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return throwable.getCause();
+    }
+
+    return throwable;
+  }
+}
@@ -2,23 +2,43 @@ package com.sanction.lightning.resources;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.ProviderExecutor;
 import com.sanction.lightning.exception.ThunderConnectionException;
 import com.sanction.lightning.facebook.FacebookService;
 import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
 import com.sanction.lightning.models.PublishType;
 import com.sanction.lightning.models.facebook.FacebookOAuthRequest;
+import com.sanction.lightning.models.facebook.FacebookPage;
 import com.sanction.lightning.models.facebook.FacebookPhoto;
+import com.sanction.lightning.models.facebook.FacebookProfile;
 import com.sanction.lightning.models.facebook.FacebookUser;
 import com.sanction.lightning.models.facebook.FacebookVideo;
+import com.sanction.lightning.models.jobs.JobStatus;
+import com.sanction.lightning.tracing.Span;
 import com.sanctionco.thunder.ThunderClient;
 import com.sanctionco.thunder.models.User;
 
 import io.dropwizard.auth.Auth;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -27,8 +47,12 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
@@ -44,11 +68,18 @@ public class FacebookResource {
 
   private final ThunderClient thunderClient;
   private final FacebookServiceFactory facebookServiceFactory;
+  private final ProviderExecutor providerExecutor;
+  private final ProviderExecutor mediaExecutor;
+  private final ObjectMapper mapper;
+  private final MediaUploadFactory mediaUploadFactory;
+  private final PublishJobQueue publishJobQueue;
+  private final ProfileCache<FacebookUser> profileCache;
 
   // Counts number of requests
   private final Meter usersRequests;
   private final Meter photosRequests;
   private final Meter videosRequests;
+  private final Meter profileRequests;
   private final Meter publishRequests;
   private final Meter tokenRequests;
   private final Meter oauthRequests;
@@ -59,12 +90,30 @@ public class FacebookResource {
    * @param thunderClient Client for connecting to Thunder.
    * @param metrics The metrics object to set up meters with.
    * @param facebookServiceFactory A factory to create new instances of FacebookService.
+   * @param providerExecutor The executor to run blocking Facebook calls on.
+   * @param mediaExecutor The executor to copy the media of background publishes to disk on.
+   * @param mapper The ObjectMapper to serialize streamed responses with.
+   * @param mediaUploadFactory A factory to wrap uploaded media for publishing.
+   * @param publishJobQueue The queue to run background publishes on.
+   * @param profileCache The cache to serve Facebook users from.
    */
   @Inject
   public FacebookResource(ThunderClient thunderClient, MetricRegistry metrics,
-                          FacebookServiceFactory facebookServiceFactory) {
+                          FacebookServiceFactory facebookServiceFactory,
+                          @Named("facebook") ProviderExecutor providerExecutor,
+                          @Named("media") ProviderExecutor mediaExecutor,
+                          ObjectMapper mapper,
+                          MediaUploadFactory mediaUploadFactory,
+                          PublishJobQueue publishJobQueue,
+                          ProfileCache<FacebookUser> profileCache) {
     this.thunderClient = thunderClient;
     this.facebookServiceFactory = facebookServiceFactory;
+    this.providerExecutor = providerExecutor;
+    this.mediaExecutor = mediaExecutor;
+    this.mapper = mapper;
+    this.mediaUploadFactory = mediaUploadFactory;
+    this.publishJobQueue = publishJobQueue;
+    this.profileCache = profileCache;
 
     // Set up metrics
     this.usersRequests = metrics.meter(MetricRegistry.name(
@@ -76,6 +125,9 @@ public class FacebookResource {
     this.videosRequests = metrics.meter(MetricRegistry.name(
         FacebookResource.class,
         "videos-requests"));
+    this.profileRequests = metrics.meter(MetricRegistry.name(
+        FacebookResource.class,
+        "profile-requests"));
     this.publishRequests = metrics.meter(MetricRegistry.name(
         FacebookResource.class,
         "publish-requests"));
@@ -88,108 +140,158 @@ public class FacebookResource {
   }
 
   /**
-   * Retrieves a FacebookUser object for the requested PilotUser.
+   * Retrieves a FacebookUser object for the requested PilotUser. The response is tagged with an
+   * ETag, and if the client sends a matching {@code If-None-Match} header the response is a
+   * {@code 304 Not Modified} instead.
    *
    * @param key The authentication key for the requesting application.
    * @param email The email of the PilotUser to get information for.
    * @param password The password of the PilotUser of get information for.
-   * @return The FacebookUser object corresponding to the given PilotUser.
+   * @param ifNoneMatch The ETags of the FacebookUser that the client already has, if any.
+   * @param asyncResponse The response to resume with the FacebookUser object corresponding to
+   *                      the given PilotUser.
    */
   @GET
   @Path("/users")
-  public Response getUser(@Auth Key key,
-                          @QueryParam("email") String email,
-                          @HeaderParam("password") String password) {
+  public void getUser(@Auth Key key,
+                      @QueryParam("email") String email,
+                      @HeaderParam("password") String password,
+                      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                      @Suspended AsyncResponse asyncResponse) {
     usersRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to get a Facebook user with null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to get a Facebook user.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to get a Facebook user.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to get a Facebook user without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
     LOG.info("Attempting to get Facebook user information for {}.", email);
 
-    User thunderUser;
-    try {
-      thunderUser = getThunderUser(email, password);
-    } catch (ThunderConnectionException e) {
-      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
-      return e.getResponse();
-    }
-
-    FacebookService facebookService = facebookServiceFactory.newFacebookService(
-        thunderUser.getProperties().get("facebook-access-token").toString());
-
-    FacebookUser facebookUser = facebookService.getFacebookUser();
-
-    if (facebookUser == null) {
-      LOG.error("Bad Facebook OAuth token for user {}.", email);
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("The OAuth token for the user was rejected.").build();
-    }
-
-    LOG.info("Successfully retrieved Facebook user information for {}.", email);
-    return Response.ok(facebookUser).build();
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> profileCache.get(
+            accessToken(thunderUser),
+            () -> providerExecutor.read(() -> newFacebookService(thunderUser).getFacebookUser())))
+        .thenApply(cached -> {
+          if (cached == null) {
+            LOG.error("Bad Facebook OAuth token for user {}.", email);
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("The OAuth token for the user was rejected.").build();
+          }
+
+          if (cached.matches(ifNoneMatch)) {
+            return Response.notModified(cached.getEntityTag()).build();
+          }
+
+          LOG.info("Successfully retrieved Facebook user information for {}.", email);
+          return Response.ok(cached.getProfile()).tag(cached.getEntityTag()).build();
+        })
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
-   * Fetches all the photos for the requested PilotUser.
+   * Fetches the photos for the requested PilotUser.
    * This method does not download the actual bytes of the photos.
    *
    * @param key The authentication key for the requesting application.
    * @param email The email of the PilotUser to get photos for.
    * @param password The password of the PilotUser.
-   * @return A list of the photos that the user has on Facebook.
+   * @param all If true, every page of photos is streamed back as it is fetched from Facebook.
+   *            If a page after the first cannot be fetched, the response is cut off before
+   *            the array is closed. Otherwise, only the first page of photos is returned.
+   * @param limit The maximum number of photos to return in a single page.
+   * @param after The paging cursor returned with a previous page of photos.
+   * @param asyncResponse The response to resume with a list of the photos that the user has on
+   *                      Facebook. If a limit or cursor was given, the response is a single
+   *                      page of photos with the cursor for the next page instead.
    */
   @GET
   @Path("/photos")
-  public Response getPhotos(@Auth Key key,
-                            @QueryParam("email") String email,
-                            @HeaderParam("password") String password) {
+  public void getPhotos(@Auth Key key,
+                        @QueryParam("email") String email,
+                        @HeaderParam("password") String password,
+                        @QueryParam("all") @DefaultValue("false") boolean all,
+                        @QueryParam("limit") Integer limit,
+                        @QueryParam("after") String after,
+                        @Suspended AsyncResponse asyncResponse) {
     photosRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to get Facebook photos with null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to get Facebook photos.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to get Facebook photos.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to get Facebook photos without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
-    LOG.info("Attempting to get Facebook photos for user {}.", email);
-
-    User thunderUser;
-    try {
-      thunderUser = getThunderUser(email, password);
-    } catch (ThunderConnectionException e) {
-      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
-      return e.getResponse();
+    if (limit != null && limit < 1) {
+      LOG.warn("Attempted to get Facebook photos with a non-positive limit.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The limit must be a positive number.").build());
+      return;
     }
 
-    FacebookService facebookService = facebookServiceFactory.newFacebookService(
-        thunderUser.getProperties().get("facebook-access-token").toString());
-
-    List<FacebookPhoto> photos = facebookService.getFacebookUserPhotos();
-
-    if (photos == null) {
-      LOG.error("Bad Facebook OAuth token for user {}.", email);
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("The OAuth token for the user was rejected.").build();
-    }
+    LOG.info("Attempting to get Facebook photos for user {}.", email);
 
-    LOG.info("Successfully retrieved Facebook photo information for user {}.", email);
-    return Response.ok(photos).build();
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor.read(() -> {
+          FacebookService facebookService = newFacebookService(thunderUser);
+
+          if (all) {
+            FacebookPage<FacebookPhoto> firstPage
+                = facebookService.getFacebookUserPhotos(null, null);
+
+            if (firstPage == null) {
+              LOG.error("Bad Facebook OAuth token for user {}.", email);
+              return Response.status(Response.Status.NOT_FOUND)
+                  .entity("The OAuth token for the user was rejected.").build();
+            }
+
+            LOG.info("Streaming all Facebook photo information for user {}.", email);
+            return Response.ok(streamPhotos(facebookService, firstPage, email)).build();
+          }
+
+          if (limit != null || after != null) {
+            FacebookPage<FacebookPhoto> page = facebookService.getFacebookUserPhotos(limit, after);
+
+            if (page == null) {
+              LOG.error("Bad Facebook OAuth token for user {}.", email);
+              return Response.status(Response.Status.NOT_FOUND)
+                  .entity("The OAuth token for the user was rejected.").build();
+            }
+
+            LOG.info("Successfully retrieved a page of Facebook photos for user {}.", email);
+            return Response.ok(page).build();
+          }
+
+          List<FacebookPhoto> photos = facebookService.getFacebookUserPhotos();
+
+          if (photos == null) {
+            LOG.error("Bad Facebook OAuth token for user {}.", email);
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("The OAuth token for the user was rejected.").build();
+          }
+
+          LOG.info("Successfully retrieved Facebook photo information for user {}.", email);
+          return Response.ok(photos).build();
+        }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
@@ -199,54 +301,143 @@ public class FacebookResource {
    * @param key The authentication key for the requesting application.
    * @param email The email of the PilotUser to get videos for.
    * @param password The password of the PilotUser.
-   * @return A list of the videos that the user has on Facebook.
+   * @param limit The maximum number of videos to return in a single page.
+   * @param after The paging cursor returned with a previous page of videos.
+   * @param asyncResponse The response to resume with a list of the videos that the user has on
+   *                      Facebook. If a limit or cursor was given, the response is a single
+   *                      page of videos with the cursor for the next page instead.
    */
   @GET
   @Path("/videos")
-  public Response getVideos(@Auth Key key,
-                            @QueryParam("email") String email,
-                            @HeaderParam("password") String password) {
+  public void getVideos(@Auth Key key,
+                        @QueryParam("email") String email,
+                        @HeaderParam("password") String password,
+                        @QueryParam("limit") Integer limit,
+                        @QueryParam("after") String after,
+                        @Suspended AsyncResponse asyncResponse) {
     videosRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to get Facebook videos with null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to get videos.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to get videos.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to get Facebook videos without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
+    }
+
+    if (limit != null && limit < 1) {
+      LOG.warn("Attempted to get Facebook videos with a non-positive limit.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The limit must be a positive number.").build());
+      return;
     }
 
     LOG.info("Attempting to get Facebook video information for user {}.", email);
 
-    User thunderUser;
-    try {
-      thunderUser = getThunderUser(email, password);
-    } catch (ThunderConnectionException e) {
-      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
-      return e.getResponse();
-    }
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor.read(() -> {
+          FacebookService facebookService = newFacebookService(thunderUser);
 
-    FacebookService facebookService = facebookServiceFactory.newFacebookService(
-        thunderUser.getProperties().get("facebook-access-token").toString());
+          if (limit != null || after != null) {
+            FacebookPage<FacebookVideo> page = facebookService.getFacebookUserVideos(limit, after);
 
-    List<FacebookVideo> videos = facebookService.getFacebookUserVideos();
+            if (page == null) {
+              LOG.error("Bad Facebook OAuth token for user {}.", email);
+              return Response.status(Response.Status.NOT_FOUND)
+                  .entity("The OAuth token for the user was rejected.").build();
+            }
 
-    if (videos == null) {
-      LOG.error("Bad Facebook OAuth token for user {}.", email);
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("The OAuth token for the user was rejected.").build();
+            LOG.info("Successfully retrieved a page of Facebook videos for user {}.", email);
+            return Response.ok(page).build();
+          }
+
+          List<FacebookVideo> videos = facebookService.getFacebookUserVideos();
+
+          if (videos == null) {
+            LOG.error("Bad Facebook OAuth token for user {}.", email);
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("The OAuth token for the user was rejected.").build();
+          }
+
+          LOG.info("Successfully retrieved Facebook video information for user {}.", email);
+          return Response.ok(videos).build();
+        }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
+  }
+
+  /**
+   * Fetches the information, first page of photos and first page of videos for the requested
+   * PilotUser, all in a single batched request to Facebook.
+   * This method does not download the actual bytes of the photos or videos.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param email The email of the PilotUser to get the profile for.
+   * @param password The password of the PilotUser.
+   * @param limit The maximum number of photos and of videos to return.
+   * @param asyncResponse The response to resume with the user's information along with a page of
+   *                      their photos and a page of their videos, each with the cursor for the
+   *                      next page.
+   */
+  @GET
+  @Path("/profile")
+  public void getProfile(@Auth Key key,
+                         @QueryParam("email") String email,
+                         @HeaderParam("password") String password,
+                         @QueryParam("limit") Integer limit,
+                         @Suspended AsyncResponse asyncResponse) {
+    profileRequests.mark();
+
+    if (email == null) {
+      LOG.warn("Attempted to get a Facebook profile with null email.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to get a Facebook profile.").build());
+      return;
     }
 
-    LOG.info("Successfully retrieved Facebook video information for user {}.", email);
-    return Response.ok(videos).build();
+    if (password == null || password.equals("")) {
+      LOG.warn("Attempted to get a Facebook profile without a password.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
+    }
+
+    if (limit != null && limit < 1) {
+      LOG.warn("Attempted to get a Facebook profile with a non-positive limit.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The limit must be a positive number.").build());
+      return;
+    }
+
+    LOG.info("Attempting to get the Facebook profile for user {}.", email);
+
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor.read(() -> {
+          FacebookProfile profile = newFacebookService(thunderUser).getFacebookProfile(limit);
+
+          if (profile == null) {
+            LOG.error("Bad Facebook OAuth token for user {}.", email);
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity("The OAuth token for the user was rejected.").build();
+          }
+
+          LOG.info("Successfully retrieved the Facebook profile for user {}.", email);
+          return Response.ok(profile).build();
+        }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
-   * Publishes to a user's Facebook timeline.
+   * Publishes to a user's Facebook timeline. Media sent as multipart form data is buffered by the
+   * multipart reader before it reaches this method; use the
+   * {@link #publishStream streaming variant} to pipe large uploads straight to Facebook.
    *
    * @param key The authentication key for the requesting application.
    * @param email The email of the PilotUser to upload as.
@@ -256,81 +447,152 @@ public class FacebookResource {
    * @param inputStream The inputStream for the file to be upload.
    * @param contentDispositionHeader Additional information about the file to upload.
    * @param videoTitle If publishing a video, the title to attach to the video.
-   * @return The uploaded file information if the request was successful.
+   * @param async If true, the publish is queued to run in the background.
+   * @param asyncResponse The response to resume with the uploaded file information if the
+   *                      request was successful, or with the queued job if async is true.
    */
   @POST
   @Path("/publish")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  public Response publish(@Auth Key key,
-                          @QueryParam("email") String email,
-                          @HeaderParam("password") String password,
-                          @QueryParam("type") PublishType type,
-                          @QueryParam("message") String message,
-                          @FormDataParam("file") InputStream inputStream,
-                          @FormDataParam("file") FormDataContentDisposition
-                              contentDispositionHeader,
-                          @FormDataParam("title") @DefaultValue("") String videoTitle) {
+  public void publish(@Auth Key key,
+                      @QueryParam("email") String email,
+                      @HeaderParam("password") String password,
+                      @QueryParam("type") PublishType type,
+                      @QueryParam("message") String message,
+                      @FormDataParam("file") InputStream inputStream,
+                      @FormDataParam("file") FormDataContentDisposition contentDispositionHeader,
+                      @FormDataParam("title") @DefaultValue("") String videoTitle,
+                      @QueryParam("async") @DefaultValue("false") boolean async,
+                      @Suspended AsyncResponse asyncResponse) {
+    String filename = contentDispositionHeader != null
+        ? contentDispositionHeader.getFileName()
+        : null;
+
+    doPublish(key, email, password, type, message, inputStream, filename, videoTitle, async,
+        asyncResponse);
+  }
+
+  /**
+   * Publishes to a user's Facebook timeline, reading the media from the raw request body.
+   * The body is streamed to Facebook as it arrives, without being buffered to disk first.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param email The email of the PilotUser to upload as.
+   * @param password The password of the PilotUser.
+   * @param type The type of the publish to perform.
+   * @param message The text message to publish.
+   * @param filename The name of the file to upload.
+   * @param videoTitle If publishing a video, the title to attach to the video.
+   * @param async If true, the publish is queued to run in the background.
+   * @param inputStream The request body containing the file to be uploaded.
+   * @param asyncResponse The response to resume with the uploaded file information if the
+   *                      request was successful, or with the queued job if async is true.
+   */
+  @POST
+  @Path("/publish")
+  @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+  public void publishStream(@Auth Key key,
+                            @QueryParam("email") String email,
+                            @HeaderParam("password") String password,
+                            @QueryParam("type") PublishType type,
+                            @QueryParam("message") String message,
+                            @QueryParam("filename") String filename,
+                            @QueryParam("title") @DefaultValue("") String videoTitle,
+                            @QueryParam("async") @DefaultValue("false") boolean async,
+                            InputStream inputStream,
+                            @Suspended AsyncResponse asyncResponse) {
+    doPublish(key, email, password, type, message, inputStream, filename, videoTitle, async,
+        asyncResponse);
+  }
+
+  private void doPublish(Key key, String email, String password, PublishType type,
+                         String message, InputStream inputStream, String filename,
+                         String videoTitle, boolean async, AsyncResponse asyncResponse) {
     publishRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to publish to Facebook with null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to publish to Facebook.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to publish to Facebook.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to publish to Facebook without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
     if (type == null) {
       LOG.warn("Attempted to publish to Facebook without specifying the type.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("A type of text, photo, or video is required to publish to Facebook.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A type of text, photo, or video is required to publish to Facebook.").build());
+      return;
     }
 
-    if ((type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO))
-        && inputStream == null) {
+    boolean media = type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO);
+
+    if (media && inputStream == null) {
       LOG.warn("Attempted to publish media to Facebook without supplying the media.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("A file is required to publish a photo or video.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A file is required to publish a photo or video.").build());
+      return;
+    }
+
+    if (media && filename == null) {
+      LOG.warn("Attempted to publish media to Facebook without a filename.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A filename is required to publish a photo or video.").build());
+      return;
     }
 
     if (type.equals(PublishType.TEXT) && (message == null || message.equals(""))) {
       LOG.warn("Attempted to publish text to Facebook without supplying the text.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("Posting a text message requires the message parameter.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("Posting a text message requires the message parameter.").build());
+      return;
+    }
+
+    if (async) {
+      LOG.info("Queueing a publish of {} to Facebook for user {}.", type, email);
+
+      // Only the copy to disk happens now, so it does not go through the Facebook breaker
+      getThunderUser(email, password)
+          .thenCompose(thunderUser -> mediaExecutor.supply(() -> submitPublishJob(
+              key, thunderUser, type, message, media ? inputStream : null,
+              media ? filename : null, videoTitle)))
+          .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+          .thenAccept(asyncResponse::resume);
+      return;
     }
 
     LOG.info("Attempting to publish {} to Facebook for user {}.", type, email);
 
-    User thunderUser;
-    try {
-      thunderUser = getThunderUser(email, password);
-    } catch (ThunderConnectionException e) {
-      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
-      return e.getResponse();
-    }
+    MediaUpload upload = mediaUploadFactory.newUpload(media ? inputStream : null);
 
-    FacebookService facebookService = facebookServiceFactory.newFacebookService(
-        thunderUser.getProperties().get("facebook-access-token").toString());
+    // The publish runs on a provider thread, so take the request's span with it
+    Span span = Span.current().attribute("publish.type", type);
 
-    // Get the name of the file if publishing media
-    String filename = !type.equals(PublishType.TEXT)
-        ? contentDispositionHeader.getFileName()
-        : null;
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor.upload(() -> {
+          FacebookService facebookService = newFacebookService(thunderUser);
 
-    String uploadedFile = facebookService.publish(inputStream, type, message, filename, videoTitle);
+          String uploadedFile = span.trace("facebook.publish", () -> facebookService.publish(
+              upload, type, message, media ? filename : null, videoTitle));
 
-    if (uploadedFile == null) {
-      LOG.error("Error uploading to Facebook for {}.", email);
-      return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-          .entity("Error uploading to Facebook.").build();
-    }
+          if (uploadedFile == null) {
+            LOG.error("Error uploading to Facebook for {}.", email);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity("Error uploading to Facebook.").build();
+          }
 
-    LOG.info("Successfully published {} to Facebook for user {}.", type, email);
-    return Response.status(Response.Status.CREATED).entity(uploadedFile).build();
+          LOG.info("Successfully published {} to Facebook for user {}.", type, email);
+          return Response.status(Response.Status.CREATED).entity(uploadedFile).build();
+        }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .whenComplete((response, throwable) -> upload.close())
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
@@ -339,65 +601,47 @@ public class FacebookResource {
    * @param key The authentication key for the requesting application.
    * @param email The PilotUser to fetch an extended token for.
    * @param password The password of the PilotUser.
-   * @return The extended Facebook access token.
+   * @param asyncResponse The response to resume with the extended Facebook access token.
    */
   @GET
   @Path("/extendedToken")
-  public Response getExtendedToken(@Auth Key key,
-                                   @QueryParam("email") String email,
-                                   @HeaderParam("password") String password) {
+  public void getExtendedToken(@Auth Key key,
+                               @QueryParam("email") String email,
+                               @HeaderParam("password") String password,
+                               @Suspended AsyncResponse asyncResponse) {
     tokenRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to extend a Facebook OAuth token with a null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to extend a token.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to extend a token.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to extend a Facebook OAuth token without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
     LOG.info("Attempting to extend Facebook OAuth token for user {}.", email);
 
-    User thunderUser;
-    try {
-      thunderUser = getThunderUser(email, password);
-    } catch (ThunderConnectionException e) {
-      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
-      return e.getResponse();
-    }
-
-    FacebookService facebookService = facebookServiceFactory.newFacebookService(
-        thunderUser.getProperties().get("facebook-access-token").toString());
-
-    String extendedToken = facebookService.getFacebookExtendedToken();
-
-    if (extendedToken == null) {
-      LOG.error("Bad Facebook OAuth Token for email {}.", email);
-      return Response.status(Response.Status.NOT_FOUND)
-          .entity("Request rejected due to bad OAuth token.").build();
-    }
-
-    // Set up the updated PilotUser with the extended token
-    thunderUser.getProperties().put("facebook-access-token", extendedToken);
-    thunderUser = new User(
-        thunderUser.getEmail(), thunderUser.getPassword(), thunderUser.getProperties());
-
-    // Update the user in Thunder
-    try {
-      thunderClient.updateUser(thunderUser, thunderUser.getEmail().getAddress(), password);
-    } catch (Exception e) {
-      LOG.error("Unable to update User ({}) through Thunder.", email, e);
-      return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-          .entity(e.getMessage())
-          .build();
-    }
-
-    LOG.info("Successfully extended the Facebook OAuth token for user {}.", email);
-    return Response.ok(extendedToken).build();
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor
+            .supply(() -> newFacebookService(thunderUser).getFacebookExtendedToken())
+            .thenCompose(extendedToken -> {
+              if (extendedToken == null) {
+                LOG.error("Bad Facebook OAuth Token for email {}.", email);
+                return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.NOT_FOUND)
+                        .entity("Request rejected due to bad OAuth token.").build());
+              }
+
+              return updateThunderUser(thunderUser, password, extendedToken);
+            }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
@@ -438,19 +682,132 @@ public class FacebookResource {
     return Response.ok(authRequest).build();
   }
 
-  private User getThunderUser(String email, String password) {
-    User user;
+  private CompletableFuture<User> getThunderUser(String email, String password) {
+    return thunderClient.getUser(email, password).exceptionally(throwable -> {
+      Throwable cause = FailureResponses.unwrap(throwable);
+
+      if (cause instanceof HttpException) {
+        LOG.error("Error accessing Thunder: {}", cause.getMessage());
+        throw new ThunderConnectionException(
+            Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(cause.getMessage())
+                .build());
+      }
+
+      throw new CompletionException(cause);
+    });
+  }
+
+  private CompletableFuture<Response> updateThunderUser(User thunderUser, String password,
+                                                        String extendedToken) {
+    String email = thunderUser.getEmail().getAddress();
+
+    // Set up the updated PilotUser with the extended token
+    Map<String, Object> properties = new HashMap<>(thunderUser.getProperties());
+    properties.put("facebook-access-token", extendedToken);
+
+    User updatedUser = new User(thunderUser.getEmail(), thunderUser.getPassword(), properties);
+
+    // Update the user in Thunder
+    return thunderClient.updateUser(updatedUser, email, password)
+        .thenApply(user -> {
+          LOG.info("Successfully extended the Facebook OAuth token for user {}.", email);
+          return Response.ok(extendedToken).build();
+        })
+        .exceptionally(throwable -> {
+          Throwable cause = FailureResponses.unwrap(throwable);
+
+          LOG.error("Unable to update User ({}) through Thunder.", email, cause);
+          return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+              .entity(cause.getMessage())
+              .build();
+        });
+  }
+
+  /**
+   * Writes every page of photos to the response as a single JSON array, flushing after every page
+   * so that clients start receiving photos before the last page has been fetched. Each following
+   * page is read through the provider executor like any other Graph API call. The status has
+   * already been sent when a following page fails, so the response is aborted before the array is
+   * closed. Clients see truncated JSON rather than a list that looks complete.
+   */
+  private StreamingOutput streamPhotos(FacebookService facebookService,
+                                       FacebookPage<FacebookPhoto> firstPage, String email) {
+    return output -> {
+      try (JsonGenerator generator = mapper.getFactory().createGenerator(output)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+        generator.writeStartArray();
+
+        FacebookPage<FacebookPhoto> page = firstPage;
+        while (page != null) {
+          for (FacebookPhoto photo : page.getData()) {
+            generator.writeObject(photo);
+          }
+
+          generator.flush();
+
+          if (page.getAfter() == null) {
+            break;
+          }
+
+          String after = page.getAfter();
+          Response failure;
+
+          try {
+            page = providerExecutor
+                .read(() -> facebookService.getFacebookUserPhotos(null, after))
+                .join();
+
+            failure = page == null
+                ? Response.status(Response.Status.NOT_FOUND)
+                    .entity("The OAuth token for the user was rejected.").build()
+                : null;
+          } catch (CompletionException | CancellationException e) {
+            page = null;
+            failure = FailureResponses.fromThrowable(e, email);
+          }
+
+          if (failure != null) {
+            LOG.error("Unable to stream every Facebook photo for user {}.", email);
+
+            // Leave the array open, so that clients cannot mistake the photos for all of them
+            throw new IOException("Unable to fetch every page of photos (" + failure.getStatus()
+                + "): " + failure.getEntity());
+          }
+        }
+
+        generator.writeEndArray();
+      }
+    };
+  }
+
+  private Response submitPublishJob(Key key, User thunderUser, PublishType type,
+                                    String message, InputStream inputStream, String filename,
+                                    String videoTitle) {
+    String email = thunderUser.getEmail().getAddress();
 
     try {
-      user = thunderClient.getUser(email, password).join();
-    } catch (HttpException e) {
-      LOG.error("Error accessing Thunder: {}", e.getMessage());
-      throw new ThunderConnectionException(
-          Response.status(Response.Status.SERVICE_UNAVAILABLE)
-              .entity(e.getMessage())
-              .build());
+      JobStatus status = publishJobQueue.submit(key.getName(), email,
+          thunderUser.getProperties().get("facebook-access-token").toString(),
+          type, message, filename, videoTitle, inputStream);
+
+      return Response.accepted(status)
+          .location(URI.create("/jobs/" + status.getId()))
+          .build();
+    } catch (IOException e) {
+      LOG.error("Unable to queue a publish to Facebook for {}.", email, e);
+      return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+          .entity("Unable to queue the publish, please try again later.").build();
     }
+  }
+
+  private FacebookService newFacebookService(User thunderUser) {
+    return facebookServiceFactory.newFacebookService(
+        thunderUser.getProperties().get("facebook-access-token").toString());
+  }
 
-    return user;
+  private static String accessToken(User thunderUser) {
+    return Objects.toString(thunderUser.getProperties().get("facebook-access-token"), null);
   }
 }
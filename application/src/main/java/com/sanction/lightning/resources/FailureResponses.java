@@ -0,0 +1,100 @@
+package com.sanction.lightning.resources;
+
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.exception.ThunderConnectionException;
+import com.sanction.lightning.exception.TransientUpstreamException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts failures from asynchronous Thunder and provider calls into HTTP responses.
+ */
+final class FailureResponses {
+  private static final Logger LOG = LoggerFactory.getLogger(FailureResponses.class);
+
+  private FailureResponses() {
+  }
+
+  /**
+   * Builds the response to resume a request with when its processing failed.
+   *
+   * @param throwable The failure, possibly wrapped in a {@link CompletionException}.
+   * @param email The email of the PilotUser the request was for, or {@code null} if none.
+   * @return The response to send to the client.
+   */
+  static Response fromThrowable(Throwable throwable, String email) {
+    Throwable cause = unwrap(throwable);
+
+    if (cause instanceof ThunderConnectionException) {
+      LOG.error("Unable to retrieve PilotUser ({}) from Thunder.", email);
+      return ((ThunderConnectionException) cause).getResponse();
+    }
+
+    if (cause instanceof RejectedExecutionException) {
+      LOG.error("Provider executor is saturated, rejecting request for {}.", email);
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .entity("Lightning is overloaded, please try again later.").build();
+    }
+
+    if (cause instanceof CircuitOpenException) {
+      LOG.warn("Rejecting request for {}: {}", email, cause.getMessage());
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, ((CircuitOpenException) cause).getRetryAfterSeconds())
+          .entity(cause.getMessage()).build();
+    }
+
+    if (cause instanceof TransientUpstreamException) {
+      LOG.error("Request for {} failed after retries.", email, cause.getCause());
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .entity(cause.getMessage()).build();
+    }
+
+    UpstreamThrottledException throttled = findThrottled(cause);
+    if (throttled != null) {
+      LOG.warn("Request for {} was throttled: {}", email, throttled.getMessage());
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, throttled.getRetryAfterSeconds())
+          .entity(throttled.getMessage()).build();
+    }
+
+    LOG.error("Unexpected error while processing request for {}.", email, cause);
+    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+        .entity("An unexpected error occurred.").build();
+  }
+
+  /**
+   * Removes the {@link CompletionException} wrapper that {@code CompletableFuture} places around
+   * failures of dependent stages.
+   *
+   * @param throwable The throwable to unwrap.
+   * @return The underlying cause of the failure.
+   */
+  static Throwable unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return throwable.getCause();
+    }
+
+    return throwable;
+  }
+
+  /**
+   * Finds an {@link UpstreamThrottledException} in the causes of a failure. Provider clients
+   * such as RestFB wrap the exception in their own.
+   */
+  private static UpstreamThrottledException findThrottled(Throwable throwable) {
+    for (Throwable t = throwable; t != null; t = t.getCause()) {
+      if (t instanceof UpstreamThrottledException) {
+        return (UpstreamThrottledException) t;
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,73 @@
+package com.sanction.lightning.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.models.jobs.JobStatus;
+
+import io.dropwizard.auth.Auth;
+
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@Path("/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+public class JobsResource {
+  private static final Logger LOG = LoggerFactory.getLogger(JobsResource.class);
+
+  private final PublishJobQueue publishJobQueue;
+
+  // Counts number of requests
+  private final Meter statusRequests;
+
+  /**
+   * Constructs a new JobsResource to report on background publish jobs.
+   *
+   * @param publishJobQueue The queue that runs background publish jobs.
+   * @param metrics The metrics object to set up meters with.
+   */
+  @Inject
+  public JobsResource(PublishJobQueue publishJobQueue, MetricRegistry metrics) {
+    this.publishJobQueue = publishJobQueue;
+
+    // Set up metrics
+    this.statusRequests = metrics.meter(MetricRegistry.name(
+        JobsResource.class,
+        "status-requests"));
+  }
+
+  /**
+   * Retrieves the status of a background publish job. Jobs submitted by other applications
+   * are reported as not found.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param id The ID of the job, as returned when the job was accepted.
+   * @return The status of the job.
+   */
+  @GET
+  @Path("/{id}")
+  public Response getStatus(@Auth Key key,
+                            @PathParam("id") String id) {
+    statusRequests.mark();
+
+    Optional<JobStatus> status = publishJobQueue.getStatus(key.getName(), id);
+
+    if (!status.isPresent()) {
+      LOG.warn("Attempted to get the status of unknown job {}.", id);
+      return Response.status(Response.Status.NOT_FOUND)
+          .entity("The job does not exist or finished too long ago.").build();
+    }
+
+    return Response.ok(status.get()).build();
+  }
+}
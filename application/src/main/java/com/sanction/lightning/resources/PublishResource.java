@@ -0,0 +1,324 @@
+package com.sanction.lightning.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.exception.ThunderConnectionException;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
+import com.sanction.lightning.media.SpooledMedia;
+import com.sanction.lightning.models.PublishResult;
+import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.twitter.TwitterServiceFactory;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.User;
+
+import io.dropwizard.auth.Auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import retrofit2.HttpException;
+
+@Path("/publish")
+@Produces(MediaType.APPLICATION_JSON)
+public class PublishResource {
+  private static final Logger LOG = LoggerFactory.getLogger(PublishResource.class);
+  private static final int MULTI_STATUS = 207;
+
+  private final ThunderClient thunderClient;
+  private final FacebookServiceFactory facebookServiceFactory;
+  private final TwitterServiceFactory twitterServiceFactory;
+  private final ProviderExecutor mediaExecutor;
+  private final ProviderExecutor facebookExecutor;
+  private final ProviderExecutor twitterExecutor;
+  private final MediaUploadFactory mediaUploadFactory;
+
+  // Counts number of requests
+  private final Meter publishRequests;
+
+  /**
+   * Constructs a new PublishResource to publish to every supported social network at once.
+   *
+   * @param thunderClient Client used to connect with Thunder.
+   * @param metrics The metrics object to set up meters with.
+   * @param facebookServiceFactory A factory to create new instances of FacebookService.
+   * @param twitterServiceFactory A factory to create new instances of TwitterService.
+   * @param mediaExecutor The executor to spool uploaded media on.
+   * @param facebookExecutor The executor to run blocking Facebook calls on.
+   * @param twitterExecutor The executor to run blocking Twitter calls on.
+   * @param mediaUploadFactory A factory to spool uploaded media for publishing.
+   */
+  @Inject
+  public PublishResource(ThunderClient thunderClient, MetricRegistry metrics,
+                         FacebookServiceFactory facebookServiceFactory,
+                         TwitterServiceFactory twitterServiceFactory,
+                         @Named("media") ProviderExecutor mediaExecutor,
+                         @Named("facebook") ProviderExecutor facebookExecutor,
+                         @Named("twitter") ProviderExecutor twitterExecutor,
+                         MediaUploadFactory mediaUploadFactory) {
+    this.thunderClient = thunderClient;
+    this.facebookServiceFactory = facebookServiceFactory;
+    this.twitterServiceFactory = twitterServiceFactory;
+    this.mediaExecutor = mediaExecutor;
+    this.facebookExecutor = facebookExecutor;
+    this.twitterExecutor = twitterExecutor;
+    this.mediaUploadFactory = mediaUploadFactory;
+
+    // Set up metrics
+    this.publishRequests = metrics.meter(MetricRegistry.name(
+        PublishResource.class,
+        "publish-requests"));
+  }
+
+  /**
+   * Publishes to both Facebook and Twitter for a user. The media is uploaded once, and the
+   * networks are published to concurrently.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param email The email of the PilotUser to upload as.
+   * @param password The password of the PilotUser.
+   * @param type The type of the publish to perform.
+   * @param message The text message to publish.
+   * @param inputStream The inputStream for the file to be upload.
+   * @param contentDispositionHeader Additional information about the file to upload.
+   * @param videoTitle If publishing a video, the title to attach to the video on Facebook.
+   * @param asyncResponse The response to resume with the result from each network.
+   */
+  @POST
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  public void publish(@Auth Key key,
+                      @QueryParam("email") String email,
+                      @HeaderParam("password") String password,
+                      @QueryParam("type") PublishType type,
+                      @QueryParam("message") String message,
+                      @FormDataParam("file") InputStream inputStream,
+                      @FormDataParam("file") FormDataContentDisposition contentDispositionHeader,
+                      @FormDataParam("title") @DefaultValue("") String videoTitle,
+                      @Suspended AsyncResponse asyncResponse) {
+    String filename = contentDispositionHeader != null
+        ? contentDispositionHeader.getFileName()
+        : null;
+
+    doPublish(email, password, type, message, inputStream, filename, videoTitle, asyncResponse);
+  }
+
+  /**
+   * Publishes to both Facebook and Twitter for a user, reading the media from the raw request
+   * body. The media is uploaded once, and the networks are published to concurrently.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param email The email of the PilotUser to upload as.
+   * @param password The password of the PilotUser.
+   * @param type The type of the publish to perform.
+   * @param message The text message to publish.
+   * @param filename The name of the file to upload.
+   * @param videoTitle If publishing a video, the title to attach to the video on Facebook.
+   * @param inputStream The request body containing the file to be uploaded.
+   * @param asyncResponse The response to resume with the result from each network.
+   */
+  @POST
+  @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+  public void publishStream(@Auth Key key,
+                            @QueryParam("email") String email,
+                            @HeaderParam("password") String password,
+                            @QueryParam("type") PublishType type,
+                            @QueryParam("message") String message,
+                            @QueryParam("filename") String filename,
+                            @QueryParam("title") @DefaultValue("") String videoTitle,
+                            InputStream inputStream,
+                            @Suspended AsyncResponse asyncResponse) {
+    doPublish(email, password, type, message, inputStream, filename, videoTitle, asyncResponse);
+  }
+
+  private void doPublish(String email, String password, PublishType type, String message,
+                         InputStream inputStream, String filename, String videoTitle,
+                         AsyncResponse asyncResponse) {
+    publishRequests.mark();
+
+    if (email == null) {
+      LOG.warn("Attempted to publish with a null email.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to publish.").build());
+      return;
+    }
+
+    if (password == null || password.equals("")) {
+      LOG.warn("Attempted to publish without a password.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
+    }
+
+    if (type == null) {
+      LOG.warn("Attempted to publish without specifying the type.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A type of text, photo, or video is required to publish.").build());
+      return;
+    }
+
+    boolean media = type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO);
+
+    if (media && inputStream == null) {
+      LOG.warn("Attempted to publish media without supplying the media.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A file is required to publish a photo or video.").build());
+      return;
+    }
+
+    if (media && filename == null) {
+      LOG.warn("Attempted to publish media without a filename.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A filename is required to publish a photo or video.").build());
+      return;
+    }
+
+    if (type.equals(PublishType.TEXT) && (message == null || message.equals(""))) {
+      LOG.warn("Attempted to publish text without supplying the text.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("Posting a text message requires the message parameter.").build());
+      return;
+    }
+
+    LOG.info("Attempting to publish {} to all networks for user {}.", type, email);
+
+    // Read the upload while Thunder is being called, instead of after
+    CompletableFuture<User> thunderUser = getThunderUser(email, password);
+    CompletableFuture<SpooledMedia> spooled = media
+        ? mediaExecutor.supply(() -> spool(inputStream))
+        : CompletableFuture.completedFuture(null);
+
+    CompletableFuture.allOf(thunderUser, spooled)
+        .thenCompose(ignored -> publishToAll(thunderUser.join(), spooled.join(),
+            type, message, media ? filename : null, videoTitle, email))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .whenComplete((response, throwable) -> spooled.thenAccept(spool -> {
+          if (spool != null) {
+            spool.close();
+          }
+        }))
+        .thenAccept(asyncResponse::resume);
+  }
+
+  private CompletableFuture<Response> publishToAll(User thunderUser, SpooledMedia spooled,
+                                                   PublishType type, String message,
+                                                   String filename, String videoTitle,
+                                                   String email) {
+    CompletableFuture<String> facebook = publishToFacebook(thunderUser, spooled,
+        type, message, filename, videoTitle, email);
+    CompletableFuture<Long> twitter = publishToTwitter(thunderUser, spooled,
+        type, message, filename, email);
+
+    return facebook.thenCombine(twitter, (facebookResult, twitterResult) -> {
+      PublishResult result = new PublishResult(facebookResult, twitterResult);
+
+      if (facebookResult != null && twitterResult != null) {
+        LOG.info("Successfully published {} to all networks for user {}.", type, email);
+        return Response.status(Response.Status.CREATED).entity(result).build();
+      }
+
+      if (facebookResult != null || twitterResult != null) {
+        LOG.warn("Published {} to only some networks for user {}.", type, email);
+        return Response.status(MULTI_STATUS).entity(result).build();
+      }
+
+      LOG.error("Unable to publish {} to any network for user {}.", type, email);
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(result).build();
+    });
+  }
+
+  private CompletableFuture<String> publishToFacebook(User thunderUser, SpooledMedia spooled,
+                                                      PublishType type, String message,
+                                                      String filename, String videoTitle,
+                                                      String email) {
+    Object accessToken = thunderUser.getProperties().get("facebook-access-token");
+
+    if (accessToken == null) {
+      LOG.warn("User {} has not connected a Facebook account.", email);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return facebookExecutor.upload(() -> facebookServiceFactory
+        .newFacebookService(accessToken.toString())
+        .publish(newUpload(spooled), type, message, filename, videoTitle))
+        .exceptionally(throwable -> {
+          LOG.error("Unable to publish {} to Facebook for user {}.", type, email,
+              FailureResponses.unwrap(throwable));
+          return null;
+        });
+  }
+
+  private CompletableFuture<Long> publishToTwitter(User thunderUser, SpooledMedia spooled,
+                                                   PublishType type, String message,
+                                                   String filename, String email) {
+    Map<String, Object> properties = thunderUser.getProperties();
+    Object accessToken = properties.get("twitter-access-token");
+    Object accessSecret = properties.get("twitter-access-secret");
+
+    if (accessToken == null || accessSecret == null) {
+      LOG.warn("User {} has not connected a Twitter account.", email);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return twitterExecutor.upload(() -> twitterServiceFactory
+        .newTwitterService(accessToken.toString(), accessSecret.toString())
+        .publish(type, message, filename, newUpload(spooled)))
+        .exceptionally(throwable -> {
+          LOG.error("Unable to publish {} to Twitter for user {}.", type, email,
+              FailureResponses.unwrap(throwable));
+          return null;
+        });
+  }
+
+  private SpooledMedia spool(InputStream inputStream) {
+    try {
+      return mediaUploadFactory.spool(inputStream);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static MediaUpload newUpload(SpooledMedia spooled) {
+    return spooled != null ? spooled.newUpload() : MediaUpload.of(null);
+  }
+
+  private CompletableFuture<User> getThunderUser(String email, String password) {
+    return thunderClient.getUser(email, password).exceptionally(throwable -> {
+      Throwable cause = FailureResponses.unwrap(throwable);
+
+      if (cause instanceof HttpException) {
+        LOG.error("Error accessing Thunder: {}", cause.getMessage());
+        throw new ThunderConnectionException(
+            Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(cause.getMessage())
+                .build());
+      }
+
+      throw new CompletionException(cause);
+    });
+  }
+}
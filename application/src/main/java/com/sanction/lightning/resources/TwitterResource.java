@@ -3,6 +3,11 @@ package com.sanction.lightning.resources;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.exception.ThunderConnectionException;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
 import com.sanction.lightning.models.PublishType;
 import com.sanction.lightning.models.twitter.TwitterAccessToken;
 import com.sanction.lightning.models.twitter.TwitterOAuthRequest;
@@ -15,7 +20,11 @@ import com.sanctionco.thunder.models.User;
 import io.dropwizard.auth.Auth;
 
 import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -23,6 +32,9 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -31,6 +43,8 @@ import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import retrofit2.HttpException;
+
 @Path("/twitter")
 @Produces(MediaType.APPLICATION_JSON)
 public class TwitterResource {
@@ -38,6 +52,9 @@ public class TwitterResource {
 
   private final ThunderClient thunderClient;
   private final TwitterServiceFactory twitterServiceFactory;
+  private final ProviderExecutor providerExecutor;
+  private final MediaUploadFactory mediaUploadFactory;
+  private final ProfileCache<TwitterUser> profileCache;
 
   // Counts number of requests
   private final Meter usersRequests;
@@ -51,12 +68,21 @@ public class TwitterResource {
    * @param thunderClient Client used to connect with Thunder.
    * @param metrics The metrics object to set up meters with.
    * @param twitterServiceFactory A factory to create new instances of TwitterResource.
+   * @param providerExecutor The executor to run blocking Twitter calls on.
+   * @param mediaUploadFactory A factory to wrap uploaded media for publishing.
+   * @param profileCache The cache to serve Twitter users from.
    */
   @Inject
   public TwitterResource(ThunderClient thunderClient, MetricRegistry metrics,
-                         TwitterServiceFactory twitterServiceFactory) {
+                         TwitterServiceFactory twitterServiceFactory,
+                         @Named("twitter") ProviderExecutor providerExecutor,
+                         MediaUploadFactory mediaUploadFactory,
+                         ProfileCache<TwitterUser> profileCache) {
     this.thunderClient = thunderClient;
     this.twitterServiceFactory = twitterServiceFactory;
+    this.providerExecutor = providerExecutor;
+    this.mediaUploadFactory = mediaUploadFactory;
+    this.profileCache = profileCache;
 
     // Set up metrics
     this.usersRequests = metrics.meter(MetricRegistry.name(
@@ -79,47 +105,61 @@ public class TwitterResource {
    * @param key The authentication credentials of the calling application.
    * @param email The email of the PilotUser to find Twitter information for.
    * @param password The password of the PilotUser.
-   * @return The TwitterUser object, if successful.
+   * @param ifNoneMatch The ETags of the TwitterUser that the client already has, if any.
+   * @param asyncResponse The response to resume with the TwitterUser object, if successful, or
+   *                      with {@code 304 Not Modified} if it matches {@code If-None-Match}.
    */
   @GET
   @Path("/users")
-  public Response getUser(@Auth Key key,
-                          @QueryParam("email") String email,
-                          @HeaderParam("password") String password) {
+  public void getUser(@Auth Key key,
+                      @QueryParam("email") String email,
+                      @HeaderParam("password") String password,
+                      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                      @Suspended AsyncResponse asyncResponse) {
     usersRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to get Twitter user information with a null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to get a Twitter user.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to get a Twitter user.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to get Twitter user information without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
     LOG.info("Attempting to get Twitter user information for user {}.", email);
 
-    User thunderUser = thunderClient.getUser(email, password).join();
-    TwitterService service = twitterServiceFactory.newTwitterService(
-        thunderUser.getProperties().get("twitter-access-token").toString(),
-        thunderUser.getProperties().get("twitter-access-secret").toString());
-
-    TwitterUser user = service.getTwitterUser();
-    if (user == null) {
-      LOG.error("Unable to retrieve user information from Twitter for {}.", email);
-      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
-          .entity("Unable to retrieve information from Twitter.").build();
-    }
-
-    LOG.info("Successfully retrieved Twitter user information for {}.", email);
-    return Response.ok(user).build();
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> profileCache.get(
+            accessToken(thunderUser),
+            () -> providerExecutor.read(() -> newTwitterService(thunderUser).getTwitterUser())))
+        .thenApply(cached -> {
+          if (cached == null) {
+            LOG.error("Unable to retrieve user information from Twitter for {}.", email);
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("Unable to retrieve information from Twitter.").build();
+          }
+
+          if (cached.matches(ifNoneMatch)) {
+            return Response.notModified(cached.getEntityTag()).build();
+          }
+
+          LOG.info("Successfully retrieved Twitter user information for {}.", email);
+          return Response.ok(cached.getProfile()).tag(cached.getEntityTag()).build();
+        })
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
-   * Publishes to a user's Twitter Feed.
+   * Publishes to a user's Twitter Feed. Media sent as multipart form data is buffered by the
+   * multipart reader before it reaches this method; use the
+   * {@link #publishStream streaming variant} to pipe large uploads straight to Twitter.
    *
    * @param key The authentication key for the requesting application.
    * @param email The email of the PilotUser to upload as.
@@ -128,76 +168,123 @@ public class TwitterResource {
    * @param message The text message to publish.
    * @param inputStream The inputStream for the file to be upload.
    * @param contentDispositionHeader Additional information about the file to upload.
-   * @return The ID of the created post if successful.
+   * @param asyncResponse The response to resume with the ID of the created post if successful.
    */
   @POST
   @Path("/publish")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  public Response publish(@Auth Key key,
-                          @QueryParam("email") String email,
-                          @HeaderParam("password") String password,
-                          @QueryParam("type") PublishType type,
-                          @QueryParam("message") String message,
-                          @FormDataParam("file") InputStream inputStream,
-                          @FormDataParam("file") FormDataContentDisposition
-                                contentDispositionHeader) {
+  public void publish(@Auth Key key,
+                      @QueryParam("email") String email,
+                      @HeaderParam("password") String password,
+                      @QueryParam("type") PublishType type,
+                      @QueryParam("message") String message,
+                      @FormDataParam("file") InputStream inputStream,
+                      @FormDataParam("file") FormDataContentDisposition contentDispositionHeader,
+                      @Suspended AsyncResponse asyncResponse) {
+    String filename = contentDispositionHeader != null
+        ? contentDispositionHeader.getFileName()
+        : null;
+
+    doPublish(email, password, type, message, inputStream, filename, asyncResponse);
+  }
+
+  /**
+   * Publishes to a user's Twitter Feed, reading the media from the raw request body.
+   * The body is streamed to Twitter as it arrives, without being buffered to disk first.
+   *
+   * @param key The authentication key for the requesting application.
+   * @param email The email of the PilotUser to upload as.
+   * @param password The password of the PilotUser.
+   * @param type The type of the publish to perform.
+   * @param message The text message to publish.
+   * @param filename The name of the file to upload.
+   * @param inputStream The request body containing the file to be uploaded.
+   * @param asyncResponse The response to resume with the ID of the created post if successful.
+   */
+  @POST
+  @Path("/publish")
+  @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+  public void publishStream(@Auth Key key,
+                            @QueryParam("email") String email,
+                            @HeaderParam("password") String password,
+                            @QueryParam("type") PublishType type,
+                            @QueryParam("message") String message,
+                            @QueryParam("filename") String filename,
+                            InputStream inputStream,
+                            @Suspended AsyncResponse asyncResponse) {
+    doPublish(email, password, type, message, inputStream, filename, asyncResponse);
+  }
+
+  private void doPublish(String email, String password, PublishType type, String message,
+                         InputStream inputStream, String filename,
+                         AsyncResponse asyncResponse) {
     publishRequests.mark();
 
     if (email == null) {
       LOG.warn("Attempted to publish to Twitter with a null email.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An email is required to post a tweet.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An email is required to post a tweet.").build());
+      return;
     }
 
     if (password == null || password.equals("")) {
       LOG.warn("Attempted to publish to Twitter without a password.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The user password is required to exist in the header.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The user password is required to exist in the header.").build());
+      return;
     }
 
     if (type == null) {
       LOG.warn("Attempted to publish to Twitter without specifying the type.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("A type of text, photo, or video is required to publish to Twitter.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A type of text, photo, or video is required to publish to Twitter.").build());
+      return;
     }
 
-    if ((type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO))
-        && inputStream == null) {
+    boolean media = type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO);
+
+    if (media && inputStream == null) {
       LOG.warn("Attempted to publish media to Twitter without supplying media.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("A file is required to publish a photo or video.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A file is required to publish a photo or video.").build());
+      return;
+    }
+
+    if (media && filename == null) {
+      LOG.warn("Attempted to publish media to Twitter without a filename.");
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("A filename is required to publish a photo or video.").build());
+      return;
     }
 
     if (type.equals(PublishType.TEXT) && (message == null || message.equals(""))) {
       LOG.warn("Attempted to publish test to Twitter without supplying the text.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("Posting a text message requires the message parameter.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("Posting a text message requires the message parameter.").build());
+      return;
     }
 
     LOG.info("Attempting to publish {} to Twitter for {}.", type, email);
 
-    User thunderUser = thunderClient.getUser(email, password).join();
-    TwitterService service = twitterServiceFactory.newTwitterService(
-        thunderUser.getProperties().get("twitter-access-token").toString(),
-        thunderUser.getProperties().get("twitter-access-secret").toString());
-
-    // Get the name of the file if publishing media
-    String filename;
-    if (type.equals(PublishType.TEXT)) {
-      filename = null;
-    } else {
-      filename = contentDispositionHeader.getFileName();
-    }
-
-    Long id = service.publish(type, message, filename, inputStream);
-    if (id == null) {
-      LOG.error("Unable to publish {} to Twitter for user {}.", type, email);
-      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
-          .entity("Unable to publish to Twitter.").build();
-    }
-
-    LOG.info("Successfully published {} to Twitter for user {}.", type, email);
-    return Response.status(Response.Status.CREATED).entity(id).build();
+    MediaUpload upload = mediaUploadFactory.newUpload(media ? inputStream : null);
+
+    getThunderUser(email, password)
+        .thenCompose(thunderUser -> providerExecutor.upload(() -> {
+          TwitterService service = newTwitterService(thunderUser);
+
+          Long id = service.publish(type, message, media ? filename : null, upload);
+          if (id == null) {
+            LOG.error("Unable to publish {} to Twitter for user {}.", type, email);
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("Unable to publish to Twitter.").build();
+          }
+
+          LOG.info("Successfully published {} to Twitter for user {}.", type, email);
+          return Response.status(Response.Status.CREATED).entity(id).build();
+        }))
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, email))
+        .whenComplete((response, throwable) -> upload.close())
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
@@ -205,33 +292,41 @@ public class TwitterResource {
    *
    * @param key The authentication credentials of the calling application.
    * @param redirectUrl The URL that Twitter should redirect to after the user authenticates.
-   * @return The application authentication URL, if successful.
+   * @param asyncResponse The response to resume with the application authentication URL, if
+   *                      successful.
    */
   @GET
   @Path("/oauthUrl")
-  public Response getOAuthUrl(@Auth Key key,
-                              @QueryParam("redirect") String redirectUrl) {
+  public void getOAuthUrl(@Auth Key key,
+                          @QueryParam("redirect") String redirectUrl,
+                          @Suspended AsyncResponse asyncResponse) {
     oauthRequests.mark();
 
     if (redirectUrl == null) {
       LOG.warn("Cannot get OAuth URL without a redirect URL specified.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An redirect URL is required to get an OAuth URL.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An redirect URL is required to get an OAuth URL.").build());
+      return;
     }
 
     LOG.info("Attempting to retrieve Twitter OAuth URL.");
 
-    TwitterService service = twitterServiceFactory.newTwitterService();
-    TwitterOAuthRequest oauthRequest = service.getAuthorizationUrl(redirectUrl);
-
-    if (oauthRequest == null) {
-      LOG.error("Unable to build OAuth URL for Twitter.");
-      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
-          .entity("Unable to retrieve OAuth URL from Twitter.").build();
-    }
-
-    LOG.info("Successfully built OAuth URL for Twitter.");
-    return Response.ok(oauthRequest).build();
+    providerExecutor
+        .supply(() -> {
+          TwitterService service = twitterServiceFactory.newTwitterService();
+          TwitterOAuthRequest oauthRequest = service.getAuthorizationUrl(redirectUrl);
+
+          if (oauthRequest == null) {
+            LOG.error("Unable to build OAuth URL for Twitter.");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("Unable to retrieve OAuth URL from Twitter.").build();
+          }
+
+          LOG.info("Successfully built OAuth URL for Twitter.");
+          return Response.ok(oauthRequest).build();
+        })
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, null))
+        .thenAccept(asyncResponse::resume);
   }
 
   /**
@@ -242,47 +337,83 @@ public class TwitterResource {
    * @param requestToken The original request token (from the /oauthUrl endpoint).
    * @param requestSecret The original request token secret (from the /oauthUrl endpoint).
    * @param oauthVerifier The OAuth verifier that was generated when the user authorized.
-   * @return The Twitter access token and access token secret, if successful.
+   * @param asyncResponse The response to resume with the Twitter access token and access token
+   *                      secret, if successful.
    */
   @GET
   @Path("/accessToken")
-  public Response getOAuthAccessToken(@Auth Key key,
-                                      @QueryParam("oauth_request_token") String requestToken,
-                                      @QueryParam("oauth_request_secret") String requestSecret,
-                                      @QueryParam("oauth_verifier") String oauthVerifier) {
+  public void getOAuthAccessToken(@Auth Key key,
+                                  @QueryParam("oauth_request_token") String requestToken,
+                                  @QueryParam("oauth_request_secret") String requestSecret,
+                                  @QueryParam("oauth_verifier") String oauthVerifier,
+                                  @Suspended AsyncResponse asyncResponse) {
     tokenRequests.mark();
 
     if (requestToken == null || requestToken.equals("")) {
       LOG.warn("Cannot get OAuth access token without an original request token.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The original OAuth request token is required.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The original OAuth request token is required.").build());
+      return;
     }
 
     if (requestSecret == null || requestSecret.equals("")) {
       LOG.warn("Cannot get OAuth access token without an original request secret.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("The original OAuth request token secret is required.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("The original OAuth request token secret is required.").build());
+      return;
     }
 
     if (oauthVerifier == null || oauthVerifier.equals("")) {
       LOG.warn("Cannot get OAuth access token without an OAuth verifier.");
-      return Response.status(Response.Status.BAD_REQUEST)
-          .entity("An OAuth verifier is required to get an OAuth access token.").build();
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+          .entity("An OAuth verifier is required to get an OAuth access token.").build());
+      return;
     }
 
     LOG.info("Attempting to get TwitterAccessToken information.");
 
-    TwitterService service = twitterServiceFactory.newTwitterService();
-    TwitterAccessToken accessToken = service.getOAuthAccessToken(
-        requestToken, requestSecret, oauthVerifier);
+    providerExecutor
+        .supply(() -> {
+          TwitterService service = twitterServiceFactory.newTwitterService();
+          TwitterAccessToken accessToken = service.getOAuthAccessToken(
+              requestToken, requestSecret, oauthVerifier);
+
+          if (accessToken == null) {
+            LOG.error("Unable to get Twitter access token.");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("Unable to retrieve access token from Twitter.").build();
+          }
+
+          LOG.info("Successfully exchanged oauth verifier for access token information.");
+          return Response.ok(accessToken).build();
+        })
+        .exceptionally(throwable -> FailureResponses.fromThrowable(throwable, null))
+        .thenAccept(asyncResponse::resume);
+  }
 
-    if (accessToken == null) {
-      LOG.error("Unable to get Twitter access token.");
-      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
-          .entity("Unable to retrieve access token from Twitter.").build();
-    }
+  private CompletableFuture<User> getThunderUser(String email, String password) {
+    return thunderClient.getUser(email, password).exceptionally(throwable -> {
+      Throwable cause = FailureResponses.unwrap(throwable);
+
+      if (cause instanceof HttpException) {
+        LOG.error("Error accessing Thunder: {}", cause.getMessage());
+        throw new ThunderConnectionException(
+            Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(cause.getMessage())
+                .build());
+      }
+
+      throw new CompletionException(cause);
+    });
+  }
+
+  private TwitterService newTwitterService(User thunderUser) {
+    return twitterServiceFactory.newTwitterService(
+        thunderUser.getProperties().get("twitter-access-token").toString(),
+        thunderUser.getProperties().get("twitter-access-secret").toString());
+  }
 
-    LOG.info("Successfully exchanged oauth verifier for access token information.");
-    return Response.ok(accessToken).build();
+  private static String accessToken(User thunderUser) {
+    return Objects.toString(thunderUser.getProperties().get("twitter-access-token"), null);
   }
 }
@@ -0,0 +1,226 @@
+package com.sanction.lightning.throttle;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of how much of an upstream provider's rate limit has been used, as reported by
+ * the provider on its responses, and holds back calls that are likely to be rejected. Usage is
+ * tracked for the application as a whole and for each scope (such as a user, or a user and an
+ * endpoint) separately.
+ *
+ * <p>Once usage passes the delay threshold, calls are slowed down in proportion to how close
+ * usage is to the shed threshold. Past the shed threshold, or while the provider has said to
+ * back off, calls fail with an {@link UpstreamThrottledException} without being made. Usage
+ * reports are only trusted for a short time, so that calls are let through again to find out
+ * whether usage has gone down.
+ */
+public class UpstreamThrottle {
+  private static final long MAXIMUM_SCOPES = 100_000;
+  private static final Budget UNUSED = new Budget(0, Long.MIN_VALUE, Long.MIN_VALUE);
+
+  private final String upstream;
+  private final boolean enabled;
+  private final double delayThreshold;
+  private final double shedThreshold;
+  private final long maxDelayNanos;
+  private final long usageTtlNanos;
+  private final LongSupplier clock;
+
+  private final AtomicReference<Budget> application = new AtomicReference<>(UNUSED);
+  private final Cache<String, Budget> scopes;
+
+  private final Meter delayed;
+  private final Meter shed;
+
+  /**
+   * Constructs a new UpstreamThrottle.
+   *
+   * @param upstream The name of the provider, used in metric names and errors.
+   * @param config The thresholds to throttle at.
+   * @param metrics The metrics registry to report delayed and shed calls to.
+   */
+  public UpstreamThrottle(String upstream, UpstreamThrottleConfiguration config,
+                          MetricRegistry metrics) {
+    this(upstream, config.isEnabled(), config.getDelayThreshold(), config.getShedThreshold(),
+        config.getMaxDelay().toJavaDuration(), config.getUsageTtl().toJavaDuration(),
+        metrics, System::nanoTime);
+  }
+
+  UpstreamThrottle(String upstream, boolean enabled, double delayThreshold, double shedThreshold,
+                   Duration maxDelay, Duration usageTtl, MetricRegistry metrics,
+                   LongSupplier clock) {
+    this.upstream = upstream;
+    this.enabled = enabled;
+    this.delayThreshold = delayThreshold;
+    this.shedThreshold = shedThreshold;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.usageTtlNanos = usageTtl.toNanos();
+    this.clock = clock;
+    this.scopes = Caffeine.newBuilder()
+        .maximumSize(MAXIMUM_SCOPES)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
+
+    this.delayed = metrics.meter(MetricRegistry.name(UpstreamThrottle.class, upstream, "delayed"));
+    this.shed = metrics.meter(MetricRegistry.name(UpstreamThrottle.class, upstream, "shed"));
+    metrics.gauge(MetricRegistry.name(UpstreamThrottle.class, upstream, "application-usage"),
+        () -> () -> application.get().usage(clock.getAsLong(), usageTtlNanos));
+  }
+
+  /**
+   * Creates an UpstreamThrottle that never holds back calls.
+   *
+   * @param upstream The name of the provider.
+   * @return A disabled UpstreamThrottle.
+   */
+  public static UpstreamThrottle disabled(String upstream) {
+    return new UpstreamThrottle(upstream, false, 100, 100, Duration.ZERO, Duration.ZERO,
+        new MetricRegistry(), System::nanoTime);
+  }
+
+  /**
+   * Waits until a call may be made, or fails if it should not be made at all.
+   *
+   * @param scope The scope the call counts against, or {@code null} to only check the
+   *     application's usage.
+   * @throws UpstreamThrottledException If the call should not be made.
+   */
+  public void acquire(String scope) {
+    long delay = delayNanos(scope);
+
+    if (delay > 0) {
+      delayed.mark();
+
+      try {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Decides how long a call must wait before it is made.
+   *
+   * @return The number of nanoseconds to wait, which may be 0.
+   * @throws UpstreamThrottledException If the call should not be made.
+   */
+  long delayNanos(String scope) {
+    if (!enabled) {
+      return 0;
+    }
+
+    long now = clock.getAsLong();
+    Budget applicationBudget = application.get();
+    Budget scopeBudget = scope != null ? scopes.getIfPresent(scope) : null;
+
+    long blockedUntil = Math.max(applicationBudget.blockedUntil,
+        scopeBudget != null ? scopeBudget.blockedUntil : Long.MIN_VALUE);
+
+    if (blockedUntil > now) {
+      shed.mark();
+      throw new UpstreamThrottledException(upstream,
+          Math.max(1, TimeUnit.NANOSECONDS.toSeconds(blockedUntil - now + 999_999_999)));
+    }
+
+    double usage = Math.max(applicationBudget.usage(now, usageTtlNanos),
+        scopeBudget != null ? scopeBudget.usage(now, usageTtlNanos) : 0);
+
+    if (usage >= shedThreshold) {
+      shed.mark();
+      throw new UpstreamThrottledException(upstream,
+          Math.max(1, TimeUnit.NANOSECONDS.toSeconds(usageTtlNanos)));
+    }
+
+    if (usage <= delayThreshold || shedThreshold <= delayThreshold) {
+      return 0;
+    }
+
+    return (long) (maxDelayNanos * (usage - delayThreshold) / (shedThreshold - delayThreshold));
+  }
+
+  /**
+   * Records the percentage of the application's rate limit that the provider reports is used.
+   *
+   * @param percent The percentage used, from 0 to 100.
+   */
+  public void recordApplicationUsage(double percent) {
+    long now = clock.getAsLong();
+
+    application.updateAndGet(budget -> budget.withUsage(percent, now));
+  }
+
+  /**
+   * Records the percentage of a scope's rate limit that the provider reports is used.
+   *
+   * @param scope The scope the usage is for.
+   * @param percent The percentage used, from 0 to 100.
+   */
+  public void recordUsage(String scope, double percent) {
+    long now = clock.getAsLong();
+
+    scopes.asMap().merge(scope, UNUSED.withUsage(percent, now),
+        (current, ignored) -> current.withUsage(percent, now));
+  }
+
+  /**
+   * Stops calls for the whole application until the given time has passed.
+   *
+   * @param duration How long to stop calls for.
+   */
+  public void blockApplication(Duration duration) {
+    long until = clock.getAsLong() + duration.toNanos();
+
+    application.updateAndGet(budget -> budget.blockedUntil(until));
+  }
+
+  /**
+   * Stops calls for a scope until the given time has passed.
+   *
+   * @param scope The scope to stop calls for.
+   * @param duration How long to stop calls for.
+   */
+  public void block(String scope, Duration duration) {
+    long until = clock.getAsLong() + duration.toNanos();
+
+    scopes.asMap().merge(scope, UNUSED.blockedUntil(until),
+        (current, ignored) -> current.blockedUntil(until));
+  }
+
+  /**
+   * The last reported usage of a rate limit, and the time until which calls are stopped.
+   */
+  private static final class Budget {
+    private final double percent;
+    private final long observedAt;
+    private final long blockedUntil;
+
+    Budget(double percent, long observedAt, long blockedUntil) {
+      this.percent = percent;
+      this.observedAt = observedAt;
+      this.blockedUntil = blockedUntil;
+    }
+
+    double usage(long now, long ttl) {
+      return observedAt != Long.MIN_VALUE && now - observedAt < ttl ? percent : 0;
+    }
+
+    Budget withUsage(double percent, long now) {
+      return new Budget(percent, now, blockedUntil);
+    }
+
+    Budget blockedUntil(long until) {
+      return new Budget(percent, observedAt, Math.max(blockedUntil, until));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.sanction.lightning.thunder;
+
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.ResponseType;
+import com.sanctionco.thunder.models.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link ThunderClient} that serves {@code getUser} lookups from a {@link UserCache} and
+ * invalidates cached users whenever they are modified through this client.
+ *
+ * <p>Every modification bumps a generation for the user's email, both before and after the
+ * call. A lookup only caches its result if the generation did not change while it was in
+ * flight, so a lookup that raced with an update can never put the old user back in the cache.
+ */
+public class CachingThunderClient implements ThunderClient {
+  // Generations are striped by email, so that they take a fixed amount of memory. Emails that
+  // share a stripe only cost each other an occasional uncached lookup.
+  private static final int GENERATION_STRIPES = 1024;
+
+  private final ThunderClient delegate;
+  private final UserCache cache;
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+  public CachingThunderClient(ThunderClient delegate, UserCache cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public CompletableFuture<User> postUser(User user) {
+    return delegate.postUser(user);
+  }
+
+  @Override
+  public CompletableFuture<User> updateUser(User user, String existingEmail, String password) {
+    String email = existingEmail != null ? existingEmail : user.getEmail().getAddress();
+    String newEmail = user.getEmail().getAddress();
+
+    invalidate(email);
+    invalidate(newEmail);
+    return delegate.updateUser(user, existingEmail, password)
+        .whenComplete((updated, throwable) -> {
+          invalidate(email);
+          invalidate(newEmail);
+        });
+  }
+
+  @Override
+  public CompletableFuture<User> getUser(String email, String password) {
+    User cached = cache.getIfPresent(email, password);
+
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    long generation = generations.get(stripe(email));
+
+    return delegate.getUser(email, password).thenApply(user -> {
+      if (generations.get(stripe(email)) == generation) {
+        cache.put(email, password, user);
+
+        // The user may have been modified between the check and the put
+        if (generations.get(stripe(email)) != generation) {
+          cache.invalidate(email);
+        }
+      }
+
+      return user;
+    });
+  }
+
+  @Override
+  public CompletableFuture<User> deleteUser(String email, String password) {
+    return invalidating(email, delegate.deleteUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> sendVerificationEmail(String email, String password) {
+    return delegate.sendVerificationEmail(email, password);
+  }
+
+  @Override
+  public CompletableFuture<User> verifyUser(String email, String token) {
+    return invalidating(email, delegate.verifyUser(email, token));
+  }
+
+  @Override
+  public CompletableFuture<String> verifyUser(String email, String token,
+                                              ResponseType responseType) {
+    return invalidating(email, delegate.verifyUser(email, token, responseType));
+  }
+
+  @Override
+  public CompletableFuture<User> resetVerificationStatus(String email, String password) {
+    return invalidating(email, delegate.resetVerificationStatus(email, password));
+  }
+
+  private <T> CompletableFuture<T> invalidating(String email, CompletableFuture<T> future) {
+    invalidate(email);
+    return future.whenComplete((result, throwable) -> invalidate(email));
+  }
+
+  /**
+   * Bumps the generation of the email, so that lookups already in flight are not cached, and
+   * then removes the cached user.
+   */
+  private void invalidate(String email) {
+    generations.incrementAndGet(stripe(email));
+    cache.invalidate(email);
+  }
+
+  private static int stripe(String email) {
+    return Math.floorMod(email.hashCode(), GENERATION_STRIPES);
+  }
+}
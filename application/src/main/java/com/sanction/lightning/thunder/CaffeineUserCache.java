@@ -0,0 +1,85 @@
+package com.sanction.lightning.thunder;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.caffeine.MetricsStatsCounter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.sanctionco.thunder.models.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * A size-bounded, time-expiring {@link UserCache} backed by Caffeine. Passwords are never
+ * stored; each entry holds a salted SHA-256 hash of the password that was used to look up the
+ * user, and a lookup only hits if the hash of the given password matches.
+ */
+public class CaffeineUserCache implements UserCache {
+  private static final int SALT_LENGTH = 16;
+
+  private final Cache<String, Entry> cache;
+  private final byte[] salt;
+
+  /**
+   * Constructs a new CaffeineUserCache.
+   *
+   * @param maximumSize The maximum number of users to hold in the cache.
+   * @param ttl The amount of time after which a cached user expires.
+   * @param metrics The metrics registry to report hits, misses, and evictions to.
+   */
+  public CaffeineUserCache(long maximumSize, Duration ttl, MetricRegistry metrics) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl)
+        .recordStats(() -> new MetricsStatsCounter(
+            metrics, MetricRegistry.name(CaffeineUserCache.class, "users")))
+        .build();
+
+    this.salt = new byte[SALT_LENGTH];
+    new SecureRandom().nextBytes(salt);
+  }
+
+  @Override
+  public User getIfPresent(String email, String password) {
+    Entry entry = cache.getIfPresent(email);
+
+    if (entry == null || !MessageDigest.isEqual(entry.passwordHash, hash(password))) {
+      return null;
+    }
+
+    return entry.user;
+  }
+
+  @Override
+  public void put(String email, String password, User user) {
+    cache.put(email, new Entry(hash(password), user));
+  }
+
+  @Override
+  public void invalidate(String email) {
+    cache.invalidate(email);
+  }
+
+  private byte[] hash(String password) {
+    HashCode hash = Hashing.sha256().newHasher()
+        .putBytes(salt)
+        .putString(password, StandardCharsets.UTF_8)
+        .hash();
+
+    return hash.asBytes();
+  }
+
+  private static class Entry {
+    private final byte[] passwordHash;
+    private final User user;
+
+    Entry(byte[] passwordHash, User user) {
+      this.passwordHash = passwordHash;
+      this.user = user;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.sanction.lightning.thunder;
+
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.resilience.CircuitBreaker;
+import com.sanction.lightning.resilience.ReadPolicy;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.ResponseType;
+import com.sanctionco.thunder.models.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import retrofit2.HttpException;
+
+/**
+ * A {@link ThunderClient} that limits the number of requests in flight to Thunder and guards
+ * them with a {@link CircuitBreaker}. Requests beyond the limit, and requests made while the
+ * breaker is open, fail right away with a {@link CircuitOpenException} instead of piling up
+ * behind a slow Thunder. Client errors such as a wrong password do not count as failures.
+ * User lookups are idempotent, so they are also retried and hedged by a {@link ReadPolicy}.
+ */
+public class CircuitBreakingThunderClient implements ThunderClient {
+  private static final int SERVER_ERROR = 500;
+
+  private final ThunderClient delegate;
+  private final CircuitBreaker circuitBreaker;
+  private final ReadPolicy readPolicy;
+  private final Semaphore permits;
+
+  /**
+   * Constructs a new CircuitBreakingThunderClient.
+   *
+   * @param delegate The client to send requests with.
+   * @param circuitBreaker The circuit breaker to record the outcome of each request in.
+   * @param readPolicy The policy to retry and hedge user lookups with.
+   * @param maxConcurrentCalls The maximum number of requests to have in flight at once.
+   */
+  public CircuitBreakingThunderClient(ThunderClient delegate, CircuitBreaker circuitBreaker,
+                                      ReadPolicy readPolicy, int maxConcurrentCalls) {
+    this.delegate = delegate;
+    this.circuitBreaker = circuitBreaker;
+    this.readPolicy = readPolicy;
+    this.permits = new Semaphore(maxConcurrentCalls);
+  }
+
+  @Override
+  public CompletableFuture<User> postUser(User user) {
+    return guard(() -> delegate.postUser(user));
+  }
+
+  @Override
+  public CompletableFuture<User> updateUser(User user, String existingEmail, String password) {
+    return guard(() -> delegate.updateUser(user, existingEmail, password));
+  }
+
+  @Override
+  public CompletableFuture<User> getUser(String email, String password) {
+    return readPolicy.execute(() -> guard(() -> delegate.getUser(email, password)),
+        CircuitBreakingThunderClient::isRetryable);
+  }
+
+  @Override
+  public CompletableFuture<User> deleteUser(String email, String password) {
+    return guard(() -> delegate.deleteUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> sendVerificationEmail(String email, String password) {
+    return guard(() -> delegate.sendVerificationEmail(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> verifyUser(String email, String token) {
+    return guard(() -> delegate.verifyUser(email, token));
+  }
+
+  @Override
+  public CompletableFuture<String> verifyUser(String email, String token,
+                                              ResponseType responseType) {
+    return guard(() -> delegate.verifyUser(email, token, responseType));
+  }
+
+  @Override
+  public CompletableFuture<User> resetVerificationStatus(String email, String password) {
+    return guard(() -> delegate.resetVerificationStatus(email, password));
+  }
+
+  private <T> CompletableFuture<T> guard(Supplier<CompletableFuture<T>> request) {
+    try {
+      circuitBreaker.acquire();
+    } catch (CircuitOpenException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    if (!permits.tryAcquire()) {
+      circuitBreaker.onIgnored();
+      return CompletableFuture.failedFuture(
+          new CircuitOpenException("Too many requests to Thunder are in flight.", 1));
+    }
+
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+
+    try {
+      future = request.get();
+    } catch (RuntimeException e) {
+      permits.release();
+      circuitBreaker.onFailure();
+      throw e;
+    }
+
+    return future.whenComplete((result, throwable) -> {
+      permits.release();
+
+      if (throwable == null || isClientError(throwable)) {
+        circuitBreaker.onSuccess(System.nanoTime() - start);
+      } else {
+        circuitBreaker.onFailure();
+      }
+    });
+  }
+
+  /**
+   * Client errors would only fail again, and an open breaker or a full bulkhead should not be
+   * made busier. Anything else, such as a server or connection error, may succeed on retry.
+   */
+  private static boolean isRetryable(Throwable cause) {
+    return !(cause instanceof CircuitOpenException) && !isClientError(cause);
+  }
+
+  private static boolean isClientError(Throwable throwable) {
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause()
+        : throwable;
+
+    return cause instanceof HttpException && ((HttpException) cause).code() < SERVER_ERROR;
+  }
+}
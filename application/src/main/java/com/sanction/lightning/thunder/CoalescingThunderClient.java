@@ -0,0 +1,67 @@
+package com.sanction.lightning.thunder;
+
+import com.sanction.lightning.concurrent.SingleFlight;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.ResponseType;
+import com.sanctionco.thunder.models.User;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link ThunderClient} that shares one {@code getUser} request between concurrent lookups
+ * of the same user with the same password. Lookups with a different password are never joined,
+ * so that a wrong password can not be answered with a user that was found with the right one.
+ */
+public class CoalescingThunderClient implements ThunderClient {
+  private final ThunderClient delegate;
+  private final SingleFlight<List<String>, User> lookups;
+
+  public CoalescingThunderClient(ThunderClient delegate, SingleFlight<List<String>, User> lookups) {
+    this.delegate = delegate;
+    this.lookups = lookups;
+  }
+
+  @Override
+  public CompletableFuture<User> postUser(User user) {
+    return delegate.postUser(user);
+  }
+
+  @Override
+  public CompletableFuture<User> updateUser(User user, String existingEmail, String password) {
+    return delegate.updateUser(user, existingEmail, password);
+  }
+
+  @Override
+  public CompletableFuture<User> getUser(String email, String password) {
+    return lookups.execute(Arrays.asList(email, password),
+        () -> delegate.getUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> deleteUser(String email, String password) {
+    return delegate.deleteUser(email, password);
+  }
+
+  @Override
+  public CompletableFuture<User> sendVerificationEmail(String email, String password) {
+    return delegate.sendVerificationEmail(email, password);
+  }
+
+  @Override
+  public CompletableFuture<User> verifyUser(String email, String token) {
+    return delegate.verifyUser(email, token);
+  }
+
+  @Override
+  public CompletableFuture<String> verifyUser(String email, String token,
+                                              ResponseType responseType) {
+    return delegate.verifyUser(email, token, responseType);
+  }
+
+  @Override
+  public CompletableFuture<User> resetVerificationStatus(String email, String password) {
+    return delegate.resetVerificationStatus(email, password);
+  }
+}
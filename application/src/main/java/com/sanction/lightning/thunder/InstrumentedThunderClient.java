@@ -0,0 +1,71 @@
+package com.sanction.lightning.thunder;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.ResponseType;
+import com.sanctionco.thunder.models.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ThunderClient} that times every request to Thunder as seen by the resources, including
+ * requests that are answered from the user cache, with a timer per method such as
+ * {@code com.sanctionco.thunder.ThunderClient.getUser}.
+ */
+public class InstrumentedThunderClient implements ThunderClient {
+  private final ThunderClient delegate;
+  private final Instrumentation instrumentation;
+
+  public InstrumentedThunderClient(ThunderClient delegate, Instrumentation instrumentation) {
+    this.delegate = delegate;
+    this.instrumentation = instrumentation;
+  }
+
+  @Override
+  public CompletableFuture<User> postUser(User user) {
+    return time("postUser", () -> delegate.postUser(user));
+  }
+
+  @Override
+  public CompletableFuture<User> updateUser(User user, String existingEmail, String password) {
+    return time("updateUser", () -> delegate.updateUser(user, existingEmail, password));
+  }
+
+  @Override
+  public CompletableFuture<User> getUser(String email, String password) {
+    return time("getUser", () -> delegate.getUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> deleteUser(String email, String password) {
+    return time("deleteUser", () -> delegate.deleteUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> sendVerificationEmail(String email, String password) {
+    return time("sendVerificationEmail", () -> delegate.sendVerificationEmail(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> verifyUser(String email, String token) {
+    return time("verifyUser", () -> delegate.verifyUser(email, token));
+  }
+
+  @Override
+  public CompletableFuture<String> verifyUser(String email, String token,
+                                              ResponseType responseType) {
+    return time("verifyUser", () -> delegate.verifyUser(email, token, responseType));
+  }
+
+  @Override
+  public CompletableFuture<User> resetVerificationStatus(String email, String password) {
+    return time("resetVerificationStatus",
+        () -> delegate.resetVerificationStatus(email, password));
+  }
+
+  private <T> CompletableFuture<T> time(String method, Supplier<CompletableFuture<T>> request) {
+    return instrumentation.timeAsync(MetricRegistry.name(ThunderClient.class, method), request);
+  }
+}
@@ -0,0 +1,69 @@
+package com.sanction.lightning.thunder;
+
+import com.sanction.lightning.tracing.Span;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.ResponseType;
+import com.sanctionco.thunder.models.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ThunderClient} that traces every request to Thunder in a child span of the current
+ * request's span, such as {@code thunder.getUser}. It must be called while the request's span is
+ * current: on the request thread, or in code that continues from a traced Thunder call or a
+ * provider call.
+ */
+public class TracingThunderClient implements ThunderClient {
+  private final ThunderClient delegate;
+
+  public TracingThunderClient(ThunderClient delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableFuture<User> postUser(User user) {
+    return trace("postUser", () -> delegate.postUser(user));
+  }
+
+  @Override
+  public CompletableFuture<User> updateUser(User user, String existingEmail, String password) {
+    return trace("updateUser", () -> delegate.updateUser(user, existingEmail, password));
+  }
+
+  @Override
+  public CompletableFuture<User> getUser(String email, String password) {
+    return trace("getUser", () -> delegate.getUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> deleteUser(String email, String password) {
+    return trace("deleteUser", () -> delegate.deleteUser(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> sendVerificationEmail(String email, String password) {
+    return trace("sendVerificationEmail", () -> delegate.sendVerificationEmail(email, password));
+  }
+
+  @Override
+  public CompletableFuture<User> verifyUser(String email, String token) {
+    return trace("verifyUser", () -> delegate.verifyUser(email, token));
+  }
+
+  @Override
+  public CompletableFuture<String> verifyUser(String email, String token,
+                                              ResponseType responseType) {
+    return trace("verifyUser", () -> delegate.verifyUser(email, token, responseType));
+  }
+
+  @Override
+  public CompletableFuture<User> resetVerificationStatus(String email, String password) {
+    return trace("resetVerificationStatus",
+        () -> delegate.resetVerificationStatus(email, password));
+  }
+
+  private <T> CompletableFuture<T> trace(String method, Supplier<CompletableFuture<T>> request) {
+    return Span.current().traceAsync("thunder." + method, request);
+  }
+}
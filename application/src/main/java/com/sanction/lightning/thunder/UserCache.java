@@ -0,0 +1,36 @@
+package com.sanction.lightning.thunder;
+
+import com.sanctionco.thunder.models.User;
+
+/**
+ * A cache of Thunder users, keyed by email and the password that was used to look them up.
+ * Implementations must never return a user for a password that does not match the one the
+ * user was cached with.
+ */
+public interface UserCache {
+
+  /**
+   * Retrieves the cached user for the given email and password.
+   *
+   * @param email The email of the user.
+   * @param password The password that is being used to access the user.
+   * @return The cached user, or {@code null} if there is no valid entry.
+   */
+  User getIfPresent(String email, String password);
+
+  /**
+   * Caches a user that was successfully retrieved with the given email and password.
+   *
+   * @param email The email of the user.
+   * @param password The password that was used to retrieve the user.
+   * @param user The user to cache.
+   */
+  void put(String email, String password, User user);
+
+  /**
+   * Removes any cached entry for the given email.
+   *
+   * @param email The email of the user to remove.
+   */
+  void invalidate(String email);
+}
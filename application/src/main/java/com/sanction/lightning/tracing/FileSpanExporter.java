@@ -0,0 +1,63 @@
+package com.sanction.lightning.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends each span to a local file as a line of JSON. Lines are flushed as they are written, so
+ * the file can be followed while Lightning runs.
+ */
+public class FileSpanExporter implements SpanExporter {
+  private static final Logger LOG = LoggerFactory.getLogger(FileSpanExporter.class);
+
+  private final ObjectMapper mapper;
+  private final Writer writer;
+
+  /**
+   * Constructs a new FileSpanExporter, creating the file if it does not exist.
+   *
+   * @param file The file to append spans to.
+   * @param mapper The mapper to serialize spans with.
+   * @throws IOException If the file cannot be opened.
+   */
+  public FileSpanExporter(Path file, ObjectMapper mapper) throws IOException {
+    this.mapper = mapper;
+    this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+  }
+
+  @Override
+  public void export(Span span) {
+    try {
+      String line = mapper.writeValueAsString(span);
+
+      synchronized (writer) {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write span {} to the span file.", span.getName(), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (writer) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        LOG.warn("Unable to close the span file.", e);
+      }
+    }
+  }
+}
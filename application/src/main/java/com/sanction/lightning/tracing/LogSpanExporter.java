@@ -0,0 +1,30 @@
+package com.sanction.lightning.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes each span to the application log as a line of JSON, at INFO level under this class's
+ * logger so that spans can be routed to their own appender.
+ */
+public class LogSpanExporter implements SpanExporter {
+  private static final Logger LOG = LoggerFactory.getLogger(LogSpanExporter.class);
+
+  private final ObjectMapper mapper;
+
+  public LogSpanExporter(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void export(Span span) {
+    try {
+      LOG.info(mapper.writeValueAsString(span));
+    } catch (JsonProcessingException e) {
+      LOG.warn("Unable to serialize span {}.", span.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package com.sanction.lightning.tracing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A timed stage of a traced request. A span is exported once, when it is ended.
+ *
+ * <p>While a resource method runs, the span of its request is the current span of the thread, so
+ * that code called from the resource can start child spans with {@code Span.current().child(..)}
+ * without the span being passed around. Code that runs later on another thread must capture the
+ * current span before leaving the request thread and run under it with {@link #wrap} or
+ * {@link #propagate}, as the provider executors do. While a traced stage runs, its span is the
+ * current span, so outgoing requests made from the stage carry it in their {@code traceparent}
+ * header. When the request is not traced, the current span is a no-op span whose children are
+ * no-ops as well.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class Span implements AutoCloseable {
+  private static final Span NOOP = new Span(null, null, null, null, null, 0, 0);
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+  private final Tracer tracer;
+  private final String traceId;
+  private final String spanId;
+  private final String parentSpanId;
+  private final String name;
+  private final long startMicros;
+  private final long startNanos;
+  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  private final AtomicBoolean ended = new AtomicBoolean();
+
+  private volatile long durationNanos;
+  private volatile String error;
+
+  Span(Tracer tracer, String traceId, String spanId, String parentSpanId, String name,
+       long startMicros, long startNanos) {
+    this.tracer = tracer;
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.parentSpanId = parentSpanId;
+    this.name = name;
+    this.startMicros = startMicros;
+    this.startNanos = startNanos;
+  }
+
+  /**
+   * Returns the span of the request that the current thread is running a resource method for.
+   *
+   * @return The current span, or a no-op span if there is none.
+   */
+  public static Span current() {
+    Span span = CURRENT.get();
+
+    return span != null ? span : NOOP;
+  }
+
+  static Span noop() {
+    return NOOP;
+  }
+
+  static void setCurrent(Span span) {
+    CURRENT.set(span);
+  }
+
+  static void clearCurrent() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Starts a span for a stage of this span.
+   *
+   * @param childName The name of the stage.
+   * @return The new span.
+   */
+  public Span child(String childName) {
+    return isNoop() ? NOOP : tracer.newSpan(traceId, spanId, childName);
+  }
+
+  /**
+   * Runs a blocking stage in a child span of this span.
+   *
+   * @param childName The name of the stage.
+   * @param stage The stage to run.
+   * @param <T> The type of the result of the stage.
+   * @return The result of the stage.
+   */
+  public <T> T trace(String childName, Supplier<T> stage) {
+    if (isNoop()) {
+      return stage.get();
+    }
+
+    try (Span child = child(childName)) {
+      try {
+        return child.wrap(stage).get();
+      } catch (RuntimeException e) {
+        child.error(e);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Runs an asynchronous stage in a child span of this span, which ends when the stage completes.
+   * Code that continues from the returned future runs under this span, even when the stage
+   * completes on another thread.
+   *
+   * @param childName The name of the stage.
+   * @param stage The stage to run.
+   * @param <T> The type of the result of the stage.
+   * @return A future that completes with the result of the stage.
+   */
+  public <T> CompletableFuture<T> traceAsync(String childName,
+                                             Supplier<CompletableFuture<T>> stage) {
+    if (isNoop()) {
+      return stage.get();
+    }
+
+    Span child = child(childName);
+    CompletableFuture<T> future;
+
+    try {
+      future = child.wrap(stage).get();
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+
+    return future.whenCompleteAsync((result, throwable) -> {
+      if (throwable != null) {
+        child.error(throwable);
+      }
+
+      child.end();
+    }, propagate(Runnable::run));
+  }
+
+  /**
+   * Wraps a stage so that this span is the current span of whichever thread runs it. The thread's
+   * own current span is restored when the stage returns.
+   *
+   * @param stage The stage to run under this span.
+   * @param <T> The type of the result of the stage.
+   * @return The wrapped stage.
+   */
+  public <T> Supplier<T> wrap(Supplier<T> stage) {
+    return () -> {
+      Span previous = CURRENT.get();
+      CURRENT.set(this);
+
+      try {
+        return stage.get();
+      } finally {
+        if (previous != null) {
+          CURRENT.set(previous);
+        } else {
+          CURRENT.remove();
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps an executor so that this span is the current span of the tasks it runs, including the
+   * completion of any future that a task completes.
+   *
+   * @param executor The executor to run tasks on.
+   * @return The wrapped executor.
+   */
+  public Executor propagate(Executor executor) {
+    if (isNoop()) {
+      return executor;
+    }
+
+    return task -> executor.execute(() -> wrap(() -> {
+      task.run();
+      return null;
+    }).get());
+  }
+
+  /**
+   * Adds an attribute to this span.
+   *
+   * @param key The name of the attribute.
+   * @param value The value of the attribute, ignored if {@code null}.
+   * @return This span.
+   */
+  public Span attribute(String key, Object value) {
+    if (!isNoop() && value != null) {
+      attributes.put(key, value);
+    }
+
+    return this;
+  }
+
+  /**
+   * Records that the stage failed.
+   *
+   * @param throwable The cause of the failure.
+   */
+  public void error(Throwable throwable) {
+    if (!isNoop()) {
+      error = throwable.getClass().getName() + ": " + throwable.getMessage();
+    }
+  }
+
+  /**
+   * Ends this span and exports it. Spans can be ended more than once, but are only exported the
+   * first time.
+   */
+  public void end() {
+    if (!isNoop() && ended.compareAndSet(false, true)) {
+      durationNanos = tracer.nanoTime() - startNanos;
+      tracer.export(this);
+    }
+  }
+
+  @Override
+  public void close() {
+    end();
+  }
+
+  /**
+   * Formats this span as a W3C {@code traceparent} header, for propagation to the caller or to
+   * another service.
+   *
+   * @return The header value, or {@code null} for a no-op span.
+   */
+  public String traceparent() {
+    return isNoop() ? null : TraceContext.format(traceId, spanId, true);
+  }
+
+  boolean isNoop() {
+    return this == NOOP;
+  }
+
+  @JsonProperty("traceId")
+  public String getTraceId() {
+    return traceId;
+  }
+
+  @JsonProperty("spanId")
+  public String getSpanId() {
+    return spanId;
+  }
+
+  @JsonProperty("parentSpanId")
+  public String getParentSpanId() {
+    return parentSpanId;
+  }
+
+  @JsonProperty("name")
+  public String getName() {
+    return name;
+  }
+
+  @JsonProperty("startTimeMicros")
+  public long getStartMicros() {
+    return startMicros;
+  }
+
+  @JsonProperty("durationMicros")
+  public long getDurationMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(durationNanos);
+  }
+
+  @JsonProperty("attributes")
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  @JsonProperty("error")
+  public String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,16 @@
+package com.sanction.lightning.tracing;
+
+import java.io.Closeable;
+
+/**
+ * Receives every span when it ends. Exporters are called on the thread that ended the span, which
+ * is often a request or provider thread, so they must be thread safe and should return quickly.
+ */
+public interface SpanExporter extends Closeable {
+
+  void export(Span span);
+
+  @Override
+  default void close() {
+  }
+}
@@ -0,0 +1,78 @@
+package com.sanction.lightning.tracing;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The trace context carried in a W3C {@code traceparent} header:
+ * {@code version-traceId-parentId-flags}, such as
+ * {@code 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01}.
+ */
+final class TraceContext {
+  static final String HEADER = "traceparent";
+
+  private static final Pattern TRACEPARENT = Pattern.compile(
+      "([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?");
+  private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+  private static final String INVALID_SPAN_ID = "0000000000000000";
+
+  private final String traceId;
+  private final String parentSpanId;
+  private final boolean sampled;
+
+  private TraceContext(String traceId, String parentSpanId, boolean sampled) {
+    this.traceId = traceId;
+    this.parentSpanId = parentSpanId;
+    this.sampled = sampled;
+  }
+
+  /**
+   * Parses a {@code traceparent} header. Headers from later versions are accepted as long as they
+   * start with the fields of version {@code 00}, as the specification requires.
+   *
+   * @param header The header value, or {@code null} if it was not sent.
+   * @return The trace context, or {@code null} if the header is missing or invalid.
+   */
+  static TraceContext parse(String header) {
+    if (header == null) {
+      return null;
+    }
+
+    Matcher matcher = TRACEPARENT.matcher(header.trim());
+
+    if (!matcher.matches()) {
+      return null;
+    }
+
+    String version = matcher.group(1);
+    String traceId = matcher.group(2);
+    String parentSpanId = matcher.group(3);
+
+    if (version.equals("ff")
+        || (version.equals("00") && matcher.group(5) != null)
+        || traceId.equals(INVALID_TRACE_ID)
+        || parentSpanId.equals(INVALID_SPAN_ID)) {
+      return null;
+    }
+
+    boolean sampled = (Integer.parseInt(matcher.group(4), 16) & 1) == 1;
+
+    return new TraceContext(traceId, parentSpanId, sampled);
+  }
+
+  static String format(String traceId, String spanId, boolean sampled) {
+    return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+  }
+
+  String getTraceId() {
+    return traceId;
+  }
+
+  String getParentSpanId() {
+    return parentSpanId;
+  }
+
+  boolean isSampled() {
+    return sampled;
+  }
+}
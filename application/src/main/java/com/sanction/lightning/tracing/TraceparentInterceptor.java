@@ -0,0 +1,47 @@
+package com.sanction.lightning.tracing;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * An OkHttp interceptor that sends the current span as a W3C {@code traceparent} header, so that
+ * an upstream service can join the request's trace. Requests made while no span is current, or
+ * that already carry the header, are sent unchanged.
+ *
+ * <p>Interceptors run on the thread that executes the call, which for asynchronous calls is an
+ * OkHttp dispatcher thread with no current span. Clients that enqueue their calls should create
+ * them with {@link #callFactory}, which adds the header on the thread that creates the call.
+ */
+public class TraceparentInterceptor implements Interceptor {
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    return chain.proceed(inject(chain.request()));
+  }
+
+  /**
+   * Wraps a client so that every call it creates carries the span that was current when the call
+   * was created.
+   *
+   * @param client The client to send requests with.
+   * @return A call factory that adds the {@code traceparent} header.
+   */
+  public static Call.Factory callFactory(OkHttpClient client) {
+    return request -> client.newCall(inject(request));
+  }
+
+  static Request inject(Request request) {
+    String traceparent = Span.current().traceparent();
+
+    if (traceparent == null || request.header(TraceContext.HEADER) != null) {
+      return request;
+    }
+
+    return request.newBuilder().header(TraceContext.HEADER, traceparent).build();
+  }
+}
@@ -0,0 +1,108 @@
+package com.sanction.lightning.tracing;
+
+import io.dropwizard.lifecycle.Managed;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts traces for incoming requests and hands finished spans to a {@link SpanExporter}.
+ *
+ * <p>A request that carries a valid W3C {@code traceparent} header joins the caller's trace, and
+ * is traced only if the caller sampled it. Other requests start a new trace, and are traced with
+ * the configured sample rate. Requests that are not traced get a no-op span.
+ */
+public class Tracer implements Managed {
+  private static final Logger LOG = LoggerFactory.getLogger(Tracer.class);
+
+  private final SpanExporter exporter;
+  private final double sampleRate;
+  private final LongSupplier nanoClock;
+
+  /**
+   * Constructs a new Tracer.
+   *
+   * @param exporter The exporter to hand finished spans to.
+   * @param sampleRate The fraction of new traces to record, from 0 to 1.
+   */
+  public Tracer(SpanExporter exporter, double sampleRate) {
+    this(exporter, sampleRate, System::nanoTime);
+  }
+
+  Tracer(SpanExporter exporter, double sampleRate, LongSupplier nanoClock) {
+    this.exporter = exporter;
+    this.sampleRate = sampleRate;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Starts the root span of a request.
+   *
+   * @param name The name of the span.
+   * @param traceparent The {@code traceparent} header of the request, or {@code null} if it was
+   *     not sent.
+   * @return The span, or a no-op span if the request is not sampled.
+   */
+  public Span startTrace(String name, String traceparent) {
+    TraceContext parent = TraceContext.parse(traceparent);
+
+    boolean sampled = parent != null
+        ? parent.isSampled()
+        : ThreadLocalRandom.current().nextDouble() < sampleRate;
+
+    if (!sampled) {
+      return Span.noop();
+    }
+
+    return parent != null
+        ? newSpan(parent.getTraceId(), parent.getParentSpanId(), name)
+        : newSpan(randomId() + randomId(), null, name);
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+    exporter.close();
+  }
+
+  Span newSpan(String traceId, String parentSpanId, String name) {
+    Instant now = Instant.now();
+    long startMicros = now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+
+    return new Span(this, traceId, randomId(), parentSpanId, name, startMicros,
+        nanoClock.getAsLong());
+  }
+
+  long nanoTime() {
+    return nanoClock.getAsLong();
+  }
+
+  void export(Span span) {
+    try {
+      exporter.export(span);
+    } catch (RuntimeException e) {
+      // Tracing must never fail a request
+      LOG.warn("Unable to export span {}.", span.getName(), e);
+    }
+  }
+
+  /**
+   * Generates 16 random, non-zero hex digits, the size of a span ID and half of a trace ID.
+   */
+  private static String randomId() {
+    long id;
+
+    do {
+      id = ThreadLocalRandom.current().nextLong();
+    } while (id == 0);
+
+    return String.format("%016x", id);
+  }
+}
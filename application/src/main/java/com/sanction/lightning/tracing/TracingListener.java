@@ -0,0 +1,94 @@
+package com.sanction.lightning.tracing;
+
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+/**
+ * Traces every request, with a span for the whole request and child spans for its stages.
+ *
+ * <ul>
+ *   <li>{@code read-request}, from the end of the request filters until the resource method is
+ *   called, which includes reading and buffering a multipart body.</li>
+ *   <li>Spans that the resource starts itself, such as Thunder and provider calls.</li>
+ *   <li>{@code write-response}, from the end of the response filters until the response has
+ *   been serialized and written.</li>
+ * </ul>
+ *
+ * <p>The request's span is the current span while the resource method runs, and its
+ * {@code traceparent} is returned to the caller in the response headers.
+ */
+public class TracingListener implements ApplicationEventListener {
+  private final Tracer tracer;
+
+  public TracingListener(Tracer tracer) {
+    this.tracer = tracer;
+  }
+
+  @Override
+  public void onEvent(ApplicationEvent event) {
+  }
+
+  @Override
+  public RequestEventListener onRequest(RequestEvent event) {
+    ContainerRequest request = event.getContainerRequest();
+
+    Span span = tracer.startTrace(
+        request.getMethod() + " /" + request.getPath(true),
+        request.getHeaderString(TraceContext.HEADER));
+
+    return span.isNoop() ? null : new RequestTracing(span);
+  }
+
+  private static final class RequestTracing implements RequestEventListener {
+    private final Span span;
+    private volatile Span stage = Span.noop();
+
+    private RequestTracing(Span span) {
+      this.span = span;
+    }
+
+    @Override
+    public void onEvent(RequestEvent event) {
+      switch (event.getType()) {
+        case REQUEST_FILTERED:
+          stage = span.child("read-request");
+          break;
+
+        case RESOURCE_METHOD_START:
+          stage.end();
+          Span.setCurrent(span);
+          break;
+
+        case RESOURCE_METHOD_FINISHED:
+          Span.clearCurrent();
+          break;
+
+        case RESP_FILTERS_START:
+          ContainerResponse response = event.getContainerResponse();
+          response.getHeaders().putSingle(TraceContext.HEADER, span.traceparent());
+          span.attribute("http.status", response.getStatus());
+          break;
+
+        case RESP_FILTERS_FINISHED:
+          stage = span.child("write-response");
+          break;
+
+        case ON_EXCEPTION:
+          span.error(event.getException());
+          break;
+
+        case FINISHED:
+          stage.end();
+          span.end();
+          break;
+
+        default:
+          break;
+      }
+    }
+  }
+}
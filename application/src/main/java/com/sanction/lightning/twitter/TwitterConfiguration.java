@@ -1,6 +1,10 @@
 package com.sanction.lightning.twitter;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotEmpty;
 
@@ -14,6 +18,17 @@ public class TwitterConfiguration {
   @JsonProperty("app-secret")
   private final String appSecret = null;
 
+  @NotNull
+  @Valid
+  @JsonProperty("http")
+  private final TwitterHttpConfiguration httpConfiguration = new TwitterHttpConfiguration();
+
+  @NotNull
+  @Valid
+  @JsonProperty("throttle")
+  private final UpstreamThrottleConfiguration throttleConfiguration
+      = new UpstreamThrottleConfiguration();
+
   String getAppKey() {
     return appKey;
   }
@@ -21,4 +36,23 @@ public class TwitterConfiguration {
   String getAppSecret() {
     return appSecret;
   }
+
+  TwitterHttpConfiguration getHttpConfiguration() {
+    return httpConfiguration;
+  }
+
+  UpstreamThrottleConfiguration getThrottleConfiguration() {
+    return throttleConfiguration;
+  }
+
+  /**
+   * Returns the number of idle connections to keep alive per host. twitter4j connects with
+   * HttpURLConnection, so this is the size of the JVM-wide keep-alive cache, which is set from
+   * the {@code http.maxConnections} system property when Lightning starts.
+   *
+   * @return The maximum number of idle connections to keep alive per host.
+   */
+  public int getMaxKeepAliveConnections() {
+    return httpConfiguration.getMaxKeepAliveConnections();
+  }
 }
@@ -0,0 +1,59 @@
+package com.sanction.lightning.twitter;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class TwitterHttpConfiguration {
+
+  // Replaces api.twitter.com and upload.twitter.com, such as with a local stand-in
+  @JsonProperty("endpoint")
+  private String endpoint = null;
+
+  @Min(1)
+  @JsonProperty("max-keep-alive-connections")
+  private int maxKeepAliveConnections = 64;
+
+  @NotNull
+  @JsonProperty("connect-timeout")
+  private Duration connectTimeout = Duration.seconds(10);
+
+  @NotNull
+  @JsonProperty("read-timeout")
+  private Duration readTimeout = Duration.minutes(2);
+
+  @Min(0)
+  @JsonProperty("client-cache-size")
+  private long clientCacheSize = 10_000;
+
+  @NotNull
+  @JsonProperty("client-cache-ttl")
+  private Duration clientCacheTtl = Duration.minutes(10);
+
+  String getEndpoint() {
+    return endpoint;
+  }
+
+  int getMaxKeepAliveConnections() {
+    return maxKeepAliveConnections;
+  }
+
+  Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  long getClientCacheSize() {
+    return clientCacheSize;
+  }
+
+  Duration getClientCacheTtl() {
+    return clientCacheTtl;
+  }
+}
@@ -1,10 +1,17 @@
 package com.sanction.lightning.twitter;
 
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
 
+import twitter4j.conf.ConfigurationBuilder;
+
 @Module
 public class TwitterModule {
   private final TwitterConfiguration twitterConfiguration;
@@ -16,13 +23,42 @@ public class TwitterModule {
   /**
    * Provides a new TwitterServiceFactory for generating instances of TwitterService objects.
    *
+   * @param metrics The metrics registry to report throttled requests to.
+   * @param instrumentation The instrumentation to time Twitter calls with.
    * @return A new instance of TwitterServiceFactory.
    */
   @Singleton
   @Provides
-  TwitterServiceFactory provideTwitterServiceFactory() {
+  TwitterServiceFactory provideTwitterServiceFactory(MetricRegistry metrics,
+                                                     Instrumentation instrumentation) {
+    TwitterHttpConfiguration httpConfig = twitterConfiguration.getHttpConfiguration();
+    UpstreamThrottleConfiguration throttleConfig = twitterConfiguration.getThrottleConfiguration();
+
+    ConfigurationBuilder configuration = new ConfigurationBuilder()
+        .setOAuthConsumerKey(twitterConfiguration.getAppKey())
+        .setOAuthConsumerSecret(twitterConfiguration.getAppSecret())
+        .setHttpConnectionTimeout((int) httpConfig.getConnectTimeout().toMilliseconds())
+        .setHttpReadTimeout((int) httpConfig.getReadTimeout().toMilliseconds());
+
+    // Send every REST, upload and OAuth request to the configured endpoint instead of Twitter
+    String endpoint = httpConfig.getEndpoint();
+    if (endpoint != null) {
+      String base = endpoint.endsWith("/") ? endpoint : endpoint + "/";
+
+      configuration
+          .setRestBaseURL(base + "1.1/")
+          .setUploadBaseURL(base + "1.1/")
+          .setOAuthRequestTokenURL(base + "oauth/request_token")
+          .setOAuthAuthorizationURL(base + "oauth/authorize")
+          .setOAuthAccessTokenURL(base + "oauth/access_token")
+          .setOAuthAuthenticationURL(base + "oauth/authenticate");
+    }
+
     return new TwitterServiceFactory(
-        twitterConfiguration.getAppKey(),
-        twitterConfiguration.getAppSecret());
+        configuration.build(),
+        httpConfig.getClientCacheSize(),
+        httpConfig.getClientCacheTtl().toJavaDuration(),
+        new UpstreamThrottle("twitter", throttleConfig, metrics),
+        instrumentation);
   }
 }
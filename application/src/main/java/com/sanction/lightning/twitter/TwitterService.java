@@ -1,20 +1,31 @@
 package com.sanction.lightning.twitter;
 
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.exception.TransientUpstreamException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.metrics.Instrumentation;
 import com.sanction.lightning.models.PublishType;
 import com.sanction.lightning.models.twitter.TwitterAccessToken;
 import com.sanction.lightning.models.twitter.TwitterOAuthRequest;
 import com.sanction.lightning.models.twitter.TwitterUser;
+import com.sanction.lightning.throttle.UpstreamThrottle;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import twitter4j.RateLimitStatus;
 import twitter4j.Status;
 import twitter4j.StatusUpdate;
 import twitter4j.Twitter;
 import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
+import twitter4j.TwitterResponse;
 import twitter4j.User;
 import twitter4j.auth.AccessToken;
 import twitter4j.auth.RequestToken;
@@ -24,6 +35,36 @@ public class TwitterService {
   private static final Logger LOG = LoggerFactory.getLogger(TwitterService.class);
 
   private final Twitter twitterClient;
+  private final UpstreamThrottle throttle;
+  private final String scope;
+  private final Instrumentation instrumentation;
+
+  /**
+   * Constructs a new TwitterService that uses the given Twitter client.
+   *
+   * @param twitterClient The Twitter client to make requests with.
+   */
+  public TwitterService(Twitter twitterClient) {
+    this(twitterClient, UpstreamThrottle.disabled("twitter"), null, Instrumentation.disabled());
+  }
+
+  /**
+   * Constructs a new TwitterService that uses the given Twitter client, holds back requests
+   * when Twitter reports that the rate limit for the user is nearly used up, and times each call.
+   *
+   * @param twitterClient The Twitter client to make requests with.
+   * @param throttle The throttle to record rate limit usage in.
+   * @param scope The key that identifies the user to the throttle, or {@code null} if there is
+   *     no authenticating user.
+   * @param instrumentation The instrumentation to time calls with.
+   */
+  public TwitterService(Twitter twitterClient, UpstreamThrottle throttle, String scope,
+                        Instrumentation instrumentation) {
+    this.twitterClient = twitterClient;
+    this.throttle = throttle;
+    this.scope = scope;
+    this.instrumentation = instrumentation;
+  }
 
   /**
    * Constructs a new TwitterService for use with an authenticating user.
@@ -41,6 +82,9 @@ public class TwitterService {
         .setOAuthAccessToken(userKey)
         .setOAuthAccessTokenSecret(userSecret)
         .build()).getInstance();
+    this.throttle = UpstreamThrottle.disabled("twitter");
+    this.scope = userKey;
+    this.instrumentation = Instrumentation.disabled();
   }
 
   /**
@@ -54,34 +98,45 @@ public class TwitterService {
         .setOAuthConsumerKey(applicationKey)
         .setOAuthConsumerSecret(applicationSecret)
         .build()).getInstance();
+    this.throttle = UpstreamThrottle.disabled("twitter");
+    this.scope = null;
+    this.instrumentation = Instrumentation.disabled();
   }
 
   /**
    * Retrieves the TwitterUser information for the current authenticated user.
    *
    * @return The TwitterUser object representing the user's information from Twitter.
+   * @throws UpstreamThrottledException If Twitter is close to its rate limit for the user.
+   * @throws TransientUpstreamException If a network or server error occurred.
    */
   public TwitterUser getTwitterUser() {
-    User twitterUser;
-    try {
-      long userId = twitterClient.getId();
-      twitterUser = twitterClient.showUser(userId);
-    } catch (TwitterException e) {
-      LOG.error("Unable to get user from Twitter. "
-          + "Twitter error code: {}", e.getErrorCode(), e);
-      return null;
-    }
+    return time("getTwitterUser", () -> {
+      User twitterUser;
+      try {
+        long userId = twitterClient.getId();
+        twitterUser = throttled("users/show", () -> twitterClient.showUser(userId));
+      } catch (TwitterException e) {
+        if (e.isCausedByNetworkIssue() || e.getStatusCode() >= 500) {
+          throw new TransientUpstreamException("Twitter", e);
+        }
+
+        LOG.error("Unable to get user from Twitter. "
+            + "Twitter error code: {}", e.getErrorCode(), e);
+        return null;
+      }
 
-    return new TwitterUser(
-        twitterUser.getId(),
-        twitterUser.getFavouritesCount(),
-        twitterUser.getFollowersCount(),
-        twitterUser.getCreatedAt().toString(),
-        twitterUser.getLocation(),
-        twitterUser.getName(),
-        twitterUser.getScreenName(),
-        twitterUser.getProfileImageURL(),
-        twitterUser.isVerified());
+      return new TwitterUser(
+          twitterUser.getId(),
+          twitterUser.getFavouritesCount(),
+          twitterUser.getFollowersCount(),
+          twitterUser.getCreatedAt().toString(),
+          twitterUser.getLocation(),
+          twitterUser.getName(),
+          twitterUser.getScreenName(),
+          twitterUser.getProfileImageURL(),
+          twitterUser.isVerified());
+    });
   }
 
   /**
@@ -95,20 +150,50 @@ public class TwitterService {
    * @return The ID of the post if successful, or {@code null} on failure.
    */
   public Long publish(PublishType type, String message, String filename, InputStream inputStream) {
-    StatusUpdate update = new StatusUpdate(message);
-    if (type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO)) {
-      update.setMedia(filename, inputStream);
-    }
+    return publish(type, message, filename, MediaUpload.of(inputStream));
+  }
 
-    try {
-      Status status = twitterClient.updateStatus(update);
+  /**
+   * Publishes text or media to Twitter. If the request fails because of a network error before
+   * all of the media was sent and the upload allows retries, the media is replayed from the
+   * upload's spill file.
+   *
+   * @param type The type to upload to perform.
+   * @param message The text to publish.
+   * @param filename The name to call the file on Twitter.
+   *                 Will be ignored if only publishing text.
+   * @param upload The file to upload to Twitter.
+   * @return The ID of the post if successful, or {@code null} on failure.
+   * @throws UpstreamThrottledException If Twitter is close to its rate limit for the user.
+   */
+  public Long publish(PublishType type, String message, String filename, MediaUpload upload) {
+    return time("publish", () -> {
+      while (true) {
+        StatusUpdate update = new StatusUpdate(message);
 
-      return status.getId();
-    } catch (TwitterException e) {
-      LOG.error("Unable to publish to Twitter. "
-          + "Twitter error code: {}", e.getErrorCode(), e);
-      return null;
-    }
+        try {
+          if (type.equals(PublishType.PHOTO) || type.equals(PublishType.VIDEO)) {
+            update.setMedia(filename, upload.openStream());
+          }
+
+          Status status = throttled("statuses/update", () -> twitterClient.updateStatus(update));
+
+          return status.getId();
+        } catch (TwitterException e) {
+          if (e.isCausedByNetworkIssue() && upload.retry()) {
+            LOG.warn("Network error while publishing to Twitter, retrying the upload.", e);
+            continue;
+          }
+
+          LOG.error("Unable to publish to Twitter. "
+              + "Twitter error code: {}", e.getErrorCode(), e);
+          return null;
+        } catch (IOException e) {
+          LOG.error("Unable to read the media to publish to Twitter.", e);
+          return null;
+        }
+      }
+    });
   }
 
   /**
@@ -119,18 +204,20 @@ public class TwitterService {
    * @return The URL to redirect to for authentication or {@code null} if unable to fetch the URL.
    */
   public TwitterOAuthRequest getAuthorizationUrl(String redirectUrl) {
-    try {
-      RequestToken requestToken = twitterClient.getOAuthRequestToken(redirectUrl);
+    return time("getAuthorizationUrl", () -> {
+      try {
+        RequestToken requestToken = twitterClient.getOAuthRequestToken(redirectUrl);
 
-      return new TwitterOAuthRequest(
-          requestToken.getToken(),
-          requestToken.getTokenSecret(),
-          requestToken.getAuthorizationURL());
-    } catch (TwitterException e) {
-      LOG.error("Unable to get authorization URL from Twitter. "
-          + "Twitter error code: {}", e.getErrorCode(), e);
-      return null;
-    }
+        return new TwitterOAuthRequest(
+            requestToken.getToken(),
+            requestToken.getTokenSecret(),
+            requestToken.getAuthorizationURL());
+      } catch (TwitterException e) {
+        LOG.error("Unable to get authorization URL from Twitter. "
+            + "Twitter error code: {}", e.getErrorCode(), e);
+        return null;
+      }
+    });
   }
 
   /**
@@ -145,17 +232,75 @@ public class TwitterService {
   public TwitterAccessToken getOAuthAccessToken(String requestToken,
                                                 String requestTokenSecret,
                                                 String oauthVerifier) {
+    return time("getOAuthAccessToken", () -> {
+      try {
+        RequestToken token = new RequestToken(requestToken, requestTokenSecret);
+        AccessToken accessToken = twitterClient.getOAuthAccessToken(token, oauthVerifier);
+
+        return new TwitterAccessToken(
+            accessToken.getToken(),
+            accessToken.getTokenSecret());
+      } catch (TwitterException e) {
+        LOG.error("Unable to get OAuth tokens from Twitter. "
+            + "Twitter error code: {}", e.getErrorCode(), e);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Times a call to Twitter with a timer named after the method, such as
+   * {@code com.sanction.lightning.twitter.TwitterService.getTwitterUser}.
+   */
+  private <T> T time(String method, Supplier<T> call) {
+    return instrumentation.time(MetricRegistry.name(TwitterService.class, method), call);
+  }
+
+  /**
+   * Makes a call to Twitter through the throttle, and records the rate limit usage that Twitter
+   * reports for the endpoint. Twitter limits each endpoint separately, so usage is tracked for
+   * the user and endpoint together.
+   */
+  private <T extends TwitterResponse> T throttled(String endpoint, TwitterCall<T> call)
+      throws TwitterException {
+    String endpointScope = scope != null ? scope + " " + endpoint : endpoint;
+    throttle.acquire(endpointScope);
+
     try {
-      RequestToken token = new RequestToken(requestToken, requestTokenSecret);
-      AccessToken accessToken = twitterClient.getOAuthAccessToken(token, oauthVerifier);
+      T response = call.call();
+      recordRateLimit(endpointScope, response.getRateLimitStatus());
 
-      return new TwitterAccessToken(
-          accessToken.getToken(),
-          accessToken.getTokenSecret());
+      return response;
     } catch (TwitterException e) {
-      LOG.error("Unable to get OAuth tokens from Twitter. "
-          + "Twitter error code: {}", e.getErrorCode(), e);
-      return null;
+      if (e.exceededRateLimitation()) {
+        RateLimitStatus status = e.getRateLimitStatus();
+        int seconds = Math.max(e.getRetryAfter(),
+            status != null ? status.getSecondsUntilReset() : 0);
+
+        throttle.block(endpointScope, Duration.ofSeconds(Math.max(1, seconds)));
+      } else {
+        recordRateLimit(endpointScope, e.getRateLimitStatus());
+      }
+
+      throw e;
     }
   }
+
+  private void recordRateLimit(String endpointScope, RateLimitStatus status) {
+    if (status == null || status.getLimit() <= 0) {
+      return;
+    }
+
+    int used = status.getLimit() - status.getRemaining();
+    throttle.recordUsage(endpointScope, 100.0 * used / status.getLimit());
+
+    if (status.getRemaining() <= 0) {
+      throttle.block(endpointScope, Duration.ofSeconds(Math.max(1, status.getSecondsUntilReset())));
+    }
+  }
+
+  @FunctionalInterface
+  private interface TwitterCall<T> {
+    T call() throws TwitterException;
+  }
 }
@@ -1,20 +1,76 @@
 package com.sanction.lightning.twitter;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+
+import java.time.Duration;
+
+import twitter4j.TwitterFactory;
+import twitter4j.auth.AccessToken;
+import twitter4j.conf.Configuration;
+
+/**
+ * Creates TwitterService instances from a single application-level TwitterFactory, so every
+ * instance shares the same configuration, HTTP client, and rate limit throttle. Services for
+ * authenticated users are cached by access token.
+ */
 public class TwitterServiceFactory {
 
-  private final String applicationKey;
-  private final String applicationSecret;
+  private final TwitterFactory twitterFactory;
+  private final Cache<AccessToken, TwitterService> services;
+  private final UpstreamThrottle throttle;
+  private final Instrumentation instrumentation;
+
+  /**
+   * Constructs a new TwitterServiceFactory.
+   *
+   * @param configuration The application-level twitter4j configuration.
+   * @param maximumCachedServices The maximum number of per-user services to keep.
+   * @param cachedServiceTtl How long an unused per-user service is kept.
+   */
+  public TwitterServiceFactory(Configuration configuration, long maximumCachedServices,
+                               Duration cachedServiceTtl) {
+    this(configuration, maximumCachedServices, cachedServiceTtl,
+        UpstreamThrottle.disabled("twitter"), Instrumentation.disabled());
+  }
 
-  public TwitterServiceFactory(String applicationKey, String applicationSecret) {
-    this.applicationKey = applicationKey;
-    this.applicationSecret = applicationSecret;
+  /**
+   * Constructs a new TwitterServiceFactory whose services hold back requests when Twitter
+   * reports that their rate limits are nearly used up, and time each call.
+   *
+   * @param configuration The application-level twitter4j configuration.
+   * @param maximumCachedServices The maximum number of per-user services to keep.
+   * @param cachedServiceTtl How long an unused per-user service is kept.
+   * @param throttle The throttle to record rate limit usage in.
+   * @param instrumentation The instrumentation that services time their calls with.
+   */
+  public TwitterServiceFactory(Configuration configuration, long maximumCachedServices,
+                               Duration cachedServiceTtl, UpstreamThrottle throttle,
+                               Instrumentation instrumentation) {
+    this.throttle = throttle;
+    this.instrumentation = instrumentation;
+    this.twitterFactory = new TwitterFactory(configuration);
+    this.services = Caffeine.newBuilder()
+        .maximumSize(maximumCachedServices)
+        .expireAfterAccess(cachedServiceTtl)
+        .build();
   }
 
   public TwitterService newTwitterService(String userKey, String userSecret) {
-    return new TwitterService(applicationKey, applicationSecret, userKey, userSecret);
+    return services.get(new AccessToken(userKey, userSecret),
+        token -> new TwitterService(twitterFactory.getInstance(token), throttle,
+            token.getToken(), instrumentation));
   }
 
+  /**
+   * Creates a TwitterService without an authenticating user. A new instance is returned on every
+   * call because twitter4j holds the in-progress OAuth request token on the instance.
+   *
+   * @return A new TwitterService.
+   */
   public TwitterService newTwitterService() {
-    return new TwitterService(applicationKey, applicationSecret);
+    return new TwitterService(twitterFactory.getInstance(), throttle, null, instrumentation);
   }
 }
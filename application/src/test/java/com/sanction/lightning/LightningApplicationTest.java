@@ -2,15 +2,32 @@ package com.sanction.lightning;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.sanction.lightning.config.AuthenticationConfiguration;
+import com.sanction.lightning.config.ExecutorConfiguration;
+import com.sanction.lightning.config.InstrumentationConfiguration;
+import com.sanction.lightning.config.JobsConfiguration;
+import com.sanction.lightning.config.MediaConfiguration;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+import com.sanction.lightning.config.RateLimitConfiguration;
 import com.sanction.lightning.config.ThunderConfiguration;
+import com.sanction.lightning.config.TracingConfiguration;
+import com.sanction.lightning.config.UpstreamsConfiguration;
+import com.sanction.lightning.config.UserCacheConfiguration;
 import com.sanction.lightning.facebook.FacebookConfiguration;
+import com.sanction.lightning.metrics.EndpointTimingFeature;
+import com.sanction.lightning.ratelimit.RateLimitFeature;
+import com.sanction.lightning.resilience.CircuitBreakerHealthCheck;
 import com.sanction.lightning.resources.FacebookResource;
+import com.sanction.lightning.resources.JobsResource;
+import com.sanction.lightning.resources.PublishResource;
 import com.sanction.lightning.resources.TwitterResource;
 import com.sanction.lightning.twitter.TwitterConfiguration;
 
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.forms.MultiPartBundle;
+import io.dropwizard.jackson.Jackson;
 import io.dropwizard.jersey.setup.JerseyEnvironment;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 
@@ -34,11 +51,12 @@ public class LightningApplicationTest {
   private final JerseyEnvironment jersey = mock(JerseyEnvironment.class);
   private final HealthCheckRegistry healthChecks = mock(HealthCheckRegistry.class);
   private final MetricRegistry metrics = mock(MetricRegistry.class);
+  private final LifecycleEnvironment lifecycle = new LifecycleEnvironment(new MetricRegistry());
 
   private final LightningConfiguration config = mock(LightningConfiguration.class);
   private final ThunderConfiguration thunderConfig = mock(ThunderConfiguration.class);
-  private final FacebookConfiguration facebookConfig = mock(FacebookConfiguration.class);
-  private final TwitterConfiguration twitterConfig = mock(TwitterConfiguration.class);
+  private final FacebookConfiguration facebookConfig = new FacebookConfiguration();
+  private final TwitterConfiguration twitterConfig = new TwitterConfiguration();
 
   private final LightningApplication application = new LightningApplication();
 
@@ -47,23 +65,37 @@ public class LightningApplicationTest {
     when(environment.jersey()).thenReturn(jersey);
     when(environment.healthChecks()).thenReturn(healthChecks);
     when(environment.metrics()).thenReturn(metrics);
+    when(environment.lifecycle()).thenReturn(lifecycle);
+    when(environment.getObjectMapper()).thenReturn(Jackson.newObjectMapper());
 
     // LightningConfiguration fields
     when(config.getApprovedKeys()).thenReturn(new ArrayList<>());
     when(config.getThunderConfiguration()).thenReturn(thunderConfig);
     when(config.getFacebookConfiguration()).thenReturn(facebookConfig);
     when(config.getTwitterConfiguration()).thenReturn(twitterConfig);
+    when(config.getProviderExecutorConfiguration()).thenReturn(new ExecutorConfiguration());
+    when(config.getMediaConfiguration()).thenReturn(new MediaConfiguration());
+    when(config.getJobsConfiguration()).thenReturn(new JobsConfiguration());
+    when(config.getAuthenticationConfiguration()).thenReturn(new AuthenticationConfiguration());
+    when(config.getRateLimitConfiguration()).thenReturn(new RateLimitConfiguration());
+    when(config.getUpstreamsConfiguration()).thenReturn(new UpstreamsConfiguration());
+    when(config.getProfileCacheConfiguration()).thenReturn(new ProfileCacheConfiguration());
+    when(config.getInstrumentationConfiguration())
+        .thenReturn(new InstrumentationConfiguration());
+    when(config.getTracingConfiguration()).thenReturn(new TracingConfiguration());
 
     // ThunderConfiguration
     when(thunderConfig.getEndpoint()).thenReturn("https://endpoint");
     when(thunderConfig.getUserKey()).thenReturn("userKey");
     when(thunderConfig.getUserSecret()).thenReturn("userSecret");
+    when(thunderConfig.getUserCacheConfiguration()).thenReturn(new UserCacheConfiguration());
   }
 
   @Test
   @SuppressWarnings("unchecked")
   public void testInitialize() {
     Bootstrap<LightningConfiguration> bootstrap = mock(Bootstrap.class);
+    when(bootstrap.getObjectMapper()).thenReturn(Jackson.newObjectMapper());
 
     application.initialize(bootstrap);
 
@@ -83,7 +115,26 @@ public class LightningApplicationTest {
     List<Object> values = captor.getAllValues();
 
     assertEquals(1, values.stream().filter(v -> v instanceof AuthDynamicFeature).count());
+    assertEquals(1, values.stream().filter(v -> v instanceof EndpointTimingFeature).count());
+    assertEquals(1, values.stream().filter(v -> v instanceof RateLimitFeature).count());
     assertEquals(1, values.stream().filter(v -> v instanceof FacebookResource).count());
     assertEquals(1, values.stream().filter(v -> v instanceof TwitterResource).count());
+    assertEquals(1, values.stream().filter(v -> v instanceof PublishResource).count());
+    assertEquals(1, values.stream().filter(v -> v instanceof JobsResource).count());
+
+    verify(healthChecks, times(3)).register(any(), any(CircuitBreakerHealthCheck.class));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRunFailsWhenProviderLimitsOverlap() throws Exception {
+    when(config.getUpstreamsConfiguration()).thenReturn(Jackson.newObjectMapper().readValue(
+        "{\"facebook\":{\"max-concurrent-calls\":128}}", UpstreamsConfiguration.class));
+
+    application.run(config, environment);
+  }
+
+  @Test
+  public void testProviderLimitsMayFillExecutor() {
+    LightningApplication.checkProviderLimits(new UpstreamsConfiguration(), 32);
   }
 }
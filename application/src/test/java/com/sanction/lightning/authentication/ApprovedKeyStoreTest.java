@@ -0,0 +1,93 @@
+package com.sanction.lightning.authentication;
+
+import com.google.common.collect.Lists;
+import com.sanction.lightning.LightningConfiguration;
+
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ApprovedKeyStoreTest {
+  private final LightningConfiguration config = mock(LightningConfiguration.class);
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private LightningAuthenticator authenticator;
+  private ApprovedKeyStore store;
+  private Path file;
+
+  @Before
+  public void setup() throws Exception {
+    when(config.getApprovedKeys()).thenReturn(Lists.newArrayList(new Key("initial", "secret")));
+    authenticator = new LightningAuthenticator(config);
+
+    file = folder.getRoot().toPath().resolve("approved-keys.yaml");
+    write(file, "- application: application\n  secret: secret\n");
+
+    store = new ApprovedKeyStore(file, authenticator);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    store.stop();
+  }
+
+  @Test
+  public void testStartLoadsKeysFromFile() throws Exception {
+    store.start();
+
+    assertTrue(isApproved("application", "secret"));
+    assertFalse(isApproved("initial", "secret"));
+  }
+
+  @Test
+  public void testReloadsWhenFileIsReplaced() throws Exception {
+    store.start();
+
+    Path replacement = folder.getRoot().toPath().resolve("replacement.yaml");
+    write(replacement, "- application: added\n  secret: addedSecret\n");
+    Files.move(replacement, file,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    // The watcher reloads in the background, so wait for it
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!isApproved("added", "addedSecret") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+
+    assertTrue(isApproved("added", "addedSecret"));
+    assertFalse(isApproved("application", "secret"));
+  }
+
+  @Test
+  public void testUnreadableFileKeepsCurrentKeys() throws Exception {
+    store.start();
+    write(file, "- application: [not, a, name]\n");
+
+    assertFalse(store.reload());
+    assertTrue(isApproved("application", "secret"));
+  }
+
+  private boolean isApproved(String name, String secret) throws Exception {
+    return authenticator.authenticate(new BasicCredentials(name, secret)).isPresent();
+  }
+
+  private static void write(Path path, String contents) throws Exception {
+    Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,62 @@
+package com.sanction.lightning.authentication;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingKeyAuthenticatorTest {
+  private final Key key = new Key("application", "secret");
+  private final BasicCredentials credentials = new BasicCredentials("application", "secret");
+
+  @SuppressWarnings("unchecked")
+  private final Authenticator<BasicCredentials, Key> delegate = mock(Authenticator.class);
+
+  private final CachingKeyAuthenticator authenticator = new CachingKeyAuthenticator(
+      delegate, Caffeine.newBuilder().build());
+
+  @Test
+  public void testApprovedKeyIsCached() throws Exception {
+    when(delegate.authenticate(credentials)).thenReturn(Optional.of(key));
+
+    assertEquals(Optional.of(key), authenticator.authenticate(credentials));
+    assertEquals(Optional.of(key), authenticator.authenticate(credentials));
+
+    verify(delegate, times(1)).authenticate(credentials);
+  }
+
+  @Test
+  public void testRejectedCredentialsAreNotCached() throws Exception {
+    when(delegate.authenticate(credentials)).thenReturn(Optional.empty());
+
+    assertFalse(authenticator.authenticate(credentials).isPresent());
+    assertFalse(authenticator.authenticate(credentials).isPresent());
+
+    verify(delegate, times(2)).authenticate(credentials);
+  }
+
+  @Test
+  public void testLookupThatRacedWithReloadIsNotCached() throws Exception {
+    // The keys are reloaded while the first lookup is checking the old keys
+    when(delegate.authenticate(credentials))
+        .thenAnswer(invocation -> {
+          authenticator.invalidateAll();
+          return Optional.of(key);
+        })
+        .thenReturn(Optional.empty());
+
+    assertEquals(Optional.of(key), authenticator.authenticate(credentials));
+    assertFalse(authenticator.authenticate(credentials).isPresent());
+  }
+}
@@ -8,6 +8,7 @@ import io.dropwizard.auth.basic.BasicCredentials;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -65,4 +66,36 @@ public class LightningAuthenticatorTest {
 
     assertFalse(result.isPresent());
   }
+
+  @Test
+  public void testAuthenticateWithInvalidSecret() throws Exception {
+    assertFalse(authenticator.authenticate(new BasicCredentials("application", "secrex"))
+        .isPresent());
+    assertFalse(authenticator.authenticate(new BasicCredentials("application", "secretsecret"))
+        .isPresent());
+    assertFalse(authenticator.authenticate(new BasicCredentials("application", ""))
+        .isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateApplicationNames() {
+    when(config.getApprovedKeys())
+        .thenReturn(Lists.newArrayList(key, new Key("application", "other")));
+
+    new LightningAuthenticator(config);
+  }
+
+  @Test
+  public void testReload() throws Exception {
+    AtomicInteger reloads = new AtomicInteger();
+    authenticator.addReloadListener(reloads::incrementAndGet);
+
+    authenticator.reload(Lists.newArrayList(new Key("other", "otherSecret")));
+
+    assertEquals(1, reloads.get());
+    assertFalse(authenticator.authenticate(new BasicCredentials("application", "secret"))
+        .isPresent());
+    assertTrue(authenticator.authenticate(new BasicCredentials("other", "otherSecret"))
+        .isPresent());
+  }
 }
@@ -0,0 +1,112 @@
+package com.sanction.lightning.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.models.twitter.TwitterUser;
+
+import io.dropwizard.jackson.Jackson;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileCacheTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final ProfileCache<TwitterUser> cache = new ProfileCache<>("twitter", true, 100,
+      Duration.ofMinutes(5), Duration.ofMinutes(10), Jackson.newObjectMapper(), metrics,
+      clock::get);
+
+  private final Supplier<CompletableFuture<TwitterUser>> loader = () -> {
+    loads.incrementAndGet();
+    return CompletableFuture.completedFuture(newTwitterUser("Name"));
+  };
+
+  @Test
+  public void testServesFreshProfileWithoutLoading() {
+    ProfileCache.Entry<TwitterUser> first = cache.get("token", loader).join();
+    ProfileCache.Entry<TwitterUser> second = cache.get("token", loader).join();
+
+    assertEquals(1, loads.get());
+    assertEquals(first.getEntityTag(), second.getEntityTag());
+  }
+
+  @Test
+  public void testServesStaleProfileWhileRefreshing() {
+    CompletableFuture<TwitterUser> refresh = new CompletableFuture<>();
+
+    cache.get("token", loader).join();
+    clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+    // The stale profile is served right away, and only one refresh is started
+    assertEquals("Name", cache.get("token", () -> refresh).join().getProfile().getName());
+    assertEquals("Name", cache.get("token", loader).join().getProfile().getName());
+    assertEquals(1, loads.get());
+
+    refresh.complete(newTwitterUser("New Name"));
+
+    assertEquals("New Name", cache.get("token", loader).join().getProfile().getName());
+    assertEquals(2, metrics.meter(
+        MetricRegistry.name(ProfileCache.class, "twitter", "stale-hits")).getCount());
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneLoad() {
+    CompletableFuture<TwitterUser> load = new CompletableFuture<>();
+    Supplier<CompletableFuture<TwitterUser>> slowLoader = () -> {
+      loads.incrementAndGet();
+      return load;
+    };
+
+    CompletableFuture<ProfileCache.Entry<TwitterUser>> first = cache.get("token", slowLoader);
+    CompletableFuture<ProfileCache.Entry<TwitterUser>> second = cache.get("token", slowLoader);
+    load.complete(newTwitterUser("Name"));
+
+    assertEquals(1, loads.get());
+    assertEquals(first.join().getEntityTag(), second.join().getEntityTag());
+  }
+
+  @Test
+  public void testExpiresAfterStaleWindow() {
+    cache.get("token", loader).join();
+    clock.addAndGet(Duration.ofMinutes(16).toNanos());
+    cache.get("token", loader).join();
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testRejectedTokenIsNotCached() {
+    assertNull(cache.get("token", () -> CompletableFuture.completedFuture(null)).join());
+
+    cache.get("token", loader).join();
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testMatches() {
+    ProfileCache.Entry<TwitterUser> entry = cache.get("token", loader).join();
+    String tag = "\"" + entry.getEntityTag().getValue() + "\"";
+
+    assertTrue(entry.matches(tag));
+    assertTrue(entry.matches("\"other\", W/" + tag));
+    assertTrue(entry.matches("*"));
+    assertFalse(entry.matches("\"other\""));
+    assertFalse(entry.matches(null));
+  }
+
+  private static TwitterUser newTwitterUser(String name) {
+    return new TwitterUser(1L, 2, 3, "2018-01-01", "Location", name, "screenName",
+        "http://example.com/image.png", false);
+  }
+}
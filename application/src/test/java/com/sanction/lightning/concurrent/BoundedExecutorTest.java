@@ -0,0 +1,67 @@
+package com.sanction.lightning.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoundedExecutorTest {
+  private final List<Runnable> pending = new ArrayList<>();
+  private final BoundedExecutor executor = new BoundedExecutor(pending::add, 2);
+
+  @Test
+  public void testRejectsTasksOverLimit() {
+    executor.execute(() -> { });
+    executor.execute(() -> { });
+
+    try {
+      executor.execute(() -> { });
+      fail();
+    } catch (RejectedExecutionException e) {
+      assertEquals(2, pending.size());
+    }
+  }
+
+  @Test
+  public void testReleasesPermitWhenTaskCompletes() {
+    List<String> completed = new ArrayList<>();
+
+    executor.execute(() -> completed.add("first"));
+    executor.execute(() -> completed.add("second"));
+    pending.remove(0).run();
+
+    executor.execute(() -> completed.add("third"));
+    pending.forEach(Runnable::run);
+
+    assertEquals(3, completed.size());
+    assertTrue(completed.contains("third"));
+  }
+
+  @Test
+  public void testReleasesPermitWhenDelegateRejects() {
+    List<Runnable> accepted = new ArrayList<>();
+    BoundedExecutor rejectFirst = new BoundedExecutor(runnable -> {
+      if (pending.isEmpty()) {
+        pending.add(runnable);
+        throw new RejectedExecutionException();
+      }
+
+      accepted.add(runnable);
+    }, 1);
+
+    try {
+      rejectFirst.execute(() -> { });
+      fail();
+    } catch (RejectedExecutionException e) {
+      // Expected, and the permit must be returned for the next task
+    }
+
+    rejectFirst.execute(() -> { });
+    assertEquals(1, accepted.size());
+  }
+}
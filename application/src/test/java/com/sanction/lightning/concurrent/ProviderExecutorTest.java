@@ -0,0 +1,104 @@
+package com.sanction.lightning.concurrent;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.restfb.exception.FacebookGraphException;
+import com.sanction.lightning.exception.TransientUpstreamException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.resilience.CircuitBreaker;
+import com.sanction.lightning.tracing.Span;
+import com.sanction.lightning.tracing.Tracer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ProviderExecutorTest {
+  private final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+  private final ProviderExecutor executor
+      = new ProviderExecutor(MoreExecutors.directExecutor(), circuitBreaker);
+
+  @Test
+  public void testSuccessIsRecorded() {
+    executor.supply(() -> "result").join();
+
+    verify(circuitBreaker).onSuccess(anyLong());
+    verify(circuitBreaker, never()).onFailure();
+  }
+
+  @Test
+  public void testUploadDurationIsNotRecorded() {
+    executor.upload(() -> "id").join();
+
+    verify(circuitBreaker).onSuccess(0L);
+    verify(circuitBreaker, never()).onFailure();
+  }
+
+  @Test
+  public void testUploadTransientErrorIsFailure() {
+    CompletableFuture<Object> future = executor.upload(() -> {
+      throw new TransientUpstreamException("Facebook", new RuntimeException());
+    });
+
+    assertTrue(future.isCompletedExceptionally());
+    verify(circuitBreaker).onFailure();
+  }
+
+  @Test
+  public void testTransientErrorIsFailure() {
+    CompletableFuture<Object> future = executor.supply(() -> {
+      throw new TransientUpstreamException("Facebook", new RuntimeException());
+    });
+
+    assertTrue(future.isCompletedExceptionally());
+    verify(circuitBreaker).onFailure();
+  }
+
+  @Test
+  public void testClientErrorIsNotFailure() {
+    // A missing permission is the caller's problem, not Facebook's
+    CompletableFuture<Object> future = executor.supply(() -> {
+      throw new FacebookGraphException("OAuthException", "Requires user_photos permission",
+          200, null, 403, null, null, false, null);
+    });
+
+    assertTrue(future.isCompletedExceptionally());
+    verify(circuitBreaker).onSuccess(anyLong());
+    verify(circuitBreaker, never()).onFailure();
+  }
+
+  @Test
+  public void testThrottledCallIsIgnored() {
+    CompletableFuture<Object> future = executor.supply(() -> {
+      throw new UpstreamThrottledException("Facebook", 10);
+    });
+
+    assertTrue(future.isCompletedExceptionally());
+    verify(circuitBreaker).onIgnored();
+    verify(circuitBreaker, never()).onFailure();
+  }
+
+  @Test
+  public void testCallsRunUnderCallersSpan() {
+    Span span = new Tracer(finished -> { }, 1.0).startTrace("GET /facebook/users", null);
+    ExecutorService providerThread = Executors.newSingleThreadExecutor();
+
+    try {
+      ProviderExecutor pooled = new ProviderExecutor(providerThread, circuitBreaker);
+
+      CompletableFuture<Span> current = span.wrap(() -> pooled.supply(Span::current)).get();
+
+      assertSame(span, current.join());
+    } finally {
+      providerThread.shutdown();
+    }
+  }
+}
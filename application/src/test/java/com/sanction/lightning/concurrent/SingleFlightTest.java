@@ -0,0 +1,81 @@
+package com.sanction.lightning.concurrent;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", metrics);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  public void testConcurrentCallsShareOneFlight() {
+    CompletableFuture<String> flight = new CompletableFuture<>();
+
+    CompletableFuture<String> first = singleFlight.execute("key", () -> call(flight));
+    final CompletableFuture<String> second = singleFlight.execute("key", () -> call(flight));
+    flight.complete("value");
+
+    assertEquals(1, calls.get());
+    assertEquals("value", first.join());
+    assertEquals("value", second.join());
+    assertEquals(1, metrics.meter(
+        MetricRegistry.name(SingleFlight.class, "test", "coalesced")).getCount());
+  }
+
+  @Test
+  public void testDifferentKeysAreNotShared() {
+    singleFlight.execute("first", () -> call(new CompletableFuture<>()));
+    singleFlight.execute("second", () -> call(new CompletableFuture<>()));
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testCompletedFlightIsNotReused() {
+    singleFlight.execute("key", () -> call(CompletableFuture.completedFuture("first"))).join();
+
+    assertEquals("second", singleFlight
+        .execute("key", () -> call(CompletableFuture.completedFuture("second"))).join());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testFailureIsSharedAndNotReused() {
+    CompletableFuture<String> flight = new CompletableFuture<>();
+
+    CompletableFuture<String> first = singleFlight.execute("key", () -> call(flight));
+    CompletableFuture<String> second = singleFlight.execute("key", () -> call(flight));
+    flight.completeExceptionally(new IllegalStateException());
+
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertFalse(singleFlight.execute("key", () -> call(new CompletableFuture<>())).isDone());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testCancellingOneCallerDoesNotAffectOthers() {
+    CompletableFuture<String> flight = new CompletableFuture<>();
+
+    CompletableFuture<String> first = singleFlight.execute("key", () -> call(flight));
+    CompletableFuture<String> second = singleFlight.execute("key", () -> call(flight));
+    first.cancel(true);
+    flight.complete("value");
+
+    assertEquals("value", second.join());
+  }
+
+  private CompletableFuture<String> call(CompletableFuture<String> result) {
+    calls.incrementAndGet();
+    return result;
+  }
+}
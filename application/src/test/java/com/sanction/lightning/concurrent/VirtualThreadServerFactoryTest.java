@@ -0,0 +1,131 @@
+package com.sanction.lightning.concurrent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.server.ServerFactory;
+import io.dropwizard.server.SimpleServerFactory;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VirtualThreadServerFactoryTest {
+  private final ObjectMapper mapper = Jackson.newObjectMapper();
+
+  @Test
+  public void testReadsDefaultServerAsVirtualThreadServer() throws Exception {
+    VirtualThreadServerFactory.register(mapper);
+
+    assertTrue(mapper.readValue("{}", ServerFactory.class)
+        instanceof VirtualThreadServerFactory);
+    assertTrue(mapper.readValue("{\"type\":\"default\"}", ServerFactory.class)
+        instanceof VirtualThreadServerFactory);
+    assertTrue(mapper.readValue("{\"type\":\"simple\"}", ServerFactory.class)
+        instanceof SimpleServerFactory);
+  }
+
+  @Test
+  public void testJettyServesRequestsOnThreadPerTaskExecutor() throws Exception {
+    Server server = new Server(new ExecutorServiceThreadPool(Executors.newCachedThreadPool(), 64));
+    ServerConnector connector = new ServerConnector(server);
+    connector.setHost("127.0.0.1");
+    server.addConnector(connector);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        baseRequest.setHandled(true);
+      }
+    });
+
+    server.start();
+    try {
+      HttpURLConnection connection = (HttpURLConnection)
+          new URL("http://127.0.0.1:" + connector.getLocalPort() + "/").openConnection();
+
+      assertEquals(HttpServletResponse.SC_NO_CONTENT, connection.getResponseCode());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testMaxThreadsCanBeChanged() throws Exception {
+    ExecutorServiceThreadPool pool
+        = new ExecutorServiceThreadPool(Executors.newCachedThreadPool(), 2);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable blocked = () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+
+    pool.start();
+    try {
+      assertTrue(pool.tryExecute(blocked));
+      assertTrue(pool.tryExecute(blocked));
+
+      pool.setMaxThreads(1);
+      assertEquals(1, pool.getMaxThreads());
+      assertEquals(2, pool.getThreads());
+      assertTrue(pool.isLowOnThreads());
+
+      pool.setMaxThreads(3);
+      assertTrue(pool.tryExecute(blocked));
+      assertFalse(pool.tryExecute(() -> { }));
+    } finally {
+      release.countDown();
+      pool.stop();
+    }
+  }
+
+  @Test
+  public void testRejectsTasksOverLimit() throws Exception {
+    ExecutorServiceThreadPool pool
+        = new ExecutorServiceThreadPool(Executors.newCachedThreadPool(), 1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    pool.start();
+    try {
+      pool.execute(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      assertTrue(pool.isLowOnThreads());
+      assertFalse(pool.tryExecute(() -> { }));
+
+      try {
+        pool.execute(() -> { });
+        fail();
+      } catch (RejectedExecutionException e) {
+        assertEquals(1, pool.getThreads());
+      }
+    } finally {
+      release.countDown();
+      pool.stop();
+    }
+  }
+}
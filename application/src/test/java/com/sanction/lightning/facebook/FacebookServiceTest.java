@@ -0,0 +1,65 @@
+package com.sanction.lightning.facebook;
+
+import com.restfb.WebRequestor;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.models.facebook.FacebookPhoto;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacebookServiceTest {
+  private static final String PHOTOS = "{\"data\":["
+      + "{\"id\":\"1\",\"images\":["
+      + "{\"height\":1080,\"source\":\"https://scontent.example.com/1_large.jpg\",\"width\":1920},"
+      + "{\"height\":720,\"source\":\"https://scontent.example.com/1_medium.jpg\",\"width\":1280}"
+      + "]},"
+      + "{\"id\":\"2\",\"images\":[]},"
+      + "{\"id\":\"3\"}"
+      + "]}";
+
+  private final WebRequestor webRequestor = mock(WebRequestor.class);
+
+  private FacebookService service;
+
+  @Before
+  public void setup() throws IOException {
+    WebRequestor.Response response = new WebRequestor.Response(200, PHOTOS);
+
+    when(webRequestor.executeGet(anyString())).thenReturn(response);
+    when(webRequestor.executeGet(anyString(), any())).thenReturn(response);
+
+    service = new FacebookService("access-token", "application-id", "application-secret",
+        webRequestor, GraphEndpoints.facebook(), Instrumentation.disabled());
+  }
+
+  @Test
+  public void testGetPhotosUsesFirstImage() {
+    List<FacebookPhoto> photos = service.getFacebookUserPhotos();
+
+    assertEquals(3, photos.size());
+    assertEquals("1", photos.get(0).getId());
+    assertEquals("https://scontent.example.com/1_large.jpg", photos.get(0).getUrl());
+    assertEquals("1080", photos.get(0).getHeight());
+    assertEquals("1920", photos.get(0).getWidth());
+  }
+
+  @Test
+  public void testGetPhotosWithoutImages() {
+    List<FacebookPhoto> photos = service.getFacebookUserPhotos();
+
+    assertEquals("2", photos.get(1).getId());
+    assertNull(photos.get(1).getUrl());
+    assertEquals("3", photos.get(2).getId());
+    assertNull(photos.get(2).getHeight());
+  }
+}
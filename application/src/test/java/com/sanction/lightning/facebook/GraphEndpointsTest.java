@@ -0,0 +1,27 @@
+package com.sanction.lightning.facebook;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class GraphEndpointsTest {
+
+  @Test
+  public void testDefaultsToFacebook() {
+    assertSame(GraphEndpoints.facebook(), GraphEndpoints.of(null));
+    assertEquals("https://graph.facebook.com", GraphEndpoints.facebook().getGraphEndpoint());
+    assertEquals("https://graph-video.facebook.com",
+        GraphEndpoints.facebook().getGraphVideoEndpoint());
+  }
+
+  @Test
+  public void testConfiguredEndpointReplacesGraphAndVideo() {
+    GraphEndpoints endpoints = GraphEndpoints.of("http://127.0.0.1:8088/");
+
+    assertEquals("http://127.0.0.1:8088", endpoints.getGraphEndpoint());
+    assertEquals("http://127.0.0.1:8088", endpoints.getGraphVideoEndpoint());
+    assertEquals(GraphEndpoints.facebook().getFacebookEndpoint(),
+        endpoints.getFacebookEndpoint());
+  }
+}
@@ -0,0 +1,142 @@
+package com.sanction.lightning.facebook;
+
+import com.codahale.metrics.MetricRegistry;
+import com.restfb.BinaryAttachment;
+import com.restfb.WebRequestor;
+import com.sanction.lightning.config.UpstreamThrottleConfiguration;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.throttle.UpstreamThrottle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import okio.Buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OkHttpWebRequestorTest {
+  private static final String URL = "https://graph.facebook.com/v12.0/me";
+
+  private Request lastRequest;
+  private String appUsage;
+  private int code = 200;
+  private String responseBody = "{\"id\":\"1\"}";
+
+  private final OkHttpClient client = new OkHttpClient.Builder()
+      .addInterceptor(chain -> {
+        lastRequest = chain.request();
+
+        Response.Builder response = new Response.Builder()
+            .request(chain.request())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("OK")
+            .body(ResponseBody.create(MediaType.parse("application/json"), responseBody));
+
+        if (appUsage != null) {
+          response.header("X-App-Usage", appUsage);
+        }
+
+        return response.build();
+      })
+      .build();
+
+  private final OkHttpWebRequestor requestor = new OkHttpWebRequestor(client, 1, 1000);
+
+  @Test
+  public void testExecuteGet() throws IOException {
+    WebRequestor.Response response = requestor.executeGet(URL, "token");
+
+    assertEquals(Integer.valueOf(200), response.getStatusCode());
+    assertEquals("{\"id\":\"1\"}", response.getBody());
+    assertEquals("GET", lastRequest.method());
+    assertEquals("Bearer token", lastRequest.header("Authorization"));
+  }
+
+  @Test
+  public void testExecutePostSendsParametersInBody() throws IOException {
+    requestor.executePost(URL, "message=hello", null);
+
+    Buffer body = new Buffer();
+    lastRequest.body().writeTo(body);
+
+    assertEquals("POST", lastRequest.method());
+    assertEquals("message=hello", body.readUtf8());
+    assertEquals(null, lastRequest.url().query());
+  }
+
+  @Test
+  public void testExecutePostWithAttachmentSendsParametersInQuery() throws IOException {
+    BinaryAttachment attachment = BinaryAttachment.with("photo.png",
+        "image".getBytes(StandardCharsets.UTF_8));
+
+    requestor.executePost(URL, "message=hello", Collections.singletonList(attachment), null);
+
+    Buffer body = new Buffer();
+    lastRequest.body().writeTo(body);
+
+    assertEquals("message=hello", lastRequest.url().query());
+    assertTrue(body.readUtf8().contains("name=\"photo\"; filename=\"photo.png\""));
+  }
+
+  @Test
+  public void testPermitIsReleasedAfterEachRequest() throws IOException {
+    // Only one connection is allowed, so a leaked permit would time out the second request
+    requestor.executeGet(URL);
+    requestor.executeGet(URL);
+  }
+
+  @Test
+  public void testShedsRequestsWhenAppUsageIsHigh() throws IOException {
+    OkHttpWebRequestor throttled = new OkHttpWebRequestor(client, 1, 1000,
+        new UpstreamThrottle("facebook", new UpstreamThrottleConfiguration(),
+            new MetricRegistry()),
+        Duration.ofMinutes(1));
+
+    appUsage = "{\"call_count\":99,\"total_cputime\":10,\"total_time\":10}";
+    throttled.executeGet(URL, "token");
+
+    lastRequest = null;
+    try {
+      throttled.executeGet(URL, "token");
+      fail();
+    } catch (UpstreamThrottledException e) {
+      assertEquals(null, lastRequest);
+    }
+  }
+
+  @Test
+  public void testBlocksUserAfterUserRateLimitError() throws IOException {
+    OkHttpWebRequestor throttled = new OkHttpWebRequestor(client, 1, 1000,
+        new UpstreamThrottle("facebook", new UpstreamThrottleConfiguration(),
+            new MetricRegistry()),
+        Duration.ofMinutes(1));
+
+    code = 403;
+    responseBody = "{\"error\":{\"code\":17,\"message\":\"User request limit reached\"}}";
+    throttled.executeGet(URL, "token");
+
+    try {
+      throttled.executeGet(URL, "token");
+      fail();
+    } catch (UpstreamThrottledException e) {
+      assertTrue(e.getRetryAfterSeconds() > 0);
+    }
+
+    // Other users are not affected
+    throttled.executeGet(URL, "otherToken");
+  }
+}
@@ -0,0 +1,246 @@
+package com.sanction.lightning.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.facebook.FacebookService;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.models.jobs.JobState;
+import com.sanction.lightning.models.jobs.JobStatus;
+import com.sanction.lightning.resilience.CircuitBreaker;
+
+import io.dropwizard.jackson.Jackson;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublishJobQueueTest {
+  private final FacebookServiceFactory serviceFactory = mock(FacebookServiceFactory.class);
+  private final FacebookService facebookService = mock(FacebookService.class);
+  private final ObjectMapper mapper = Jackson.newObjectMapper();
+
+  private ProviderExecutor facebookExecutor
+      = new ProviderExecutor(MoreExecutors.directExecutor());
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private PublishJobQueue queue;
+
+  @Before
+  public void setup() {
+    when(serviceFactory.newFacebookService(anyString())).thenReturn(facebookService);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    if (queue != null) {
+      queue.stop();
+    }
+  }
+
+  @Test
+  public void testSubmittedJobRuns() throws Exception {
+    when(facebookService.publish(any(MediaUpload.class), eq(PublishType.PHOTO), eq("message"),
+        eq("photo.png"), eq("")))
+        .thenReturn("{\"id\":\"1\"}");
+
+    queue = newQueue(1, 10);
+    queue.start();
+
+    JobStatus status = queue.submit("application", "test@sanctionco.com", "token",
+        PublishType.PHOTO, "message", "photo.png", "", media());
+
+    assertEquals(JobState.QUEUED, status.getState());
+    assertEquals(new JobStatus(status.getId(), JobState.SUCCEEDED, "{\"id\":\"1\"}"),
+        awaitDone(status.getId()));
+  }
+
+  @Test
+  public void testFullQueueRejectsJobs() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(facebookService.publish(any(MediaUpload.class), any(), any(), any(), any()))
+        .thenAnswer(invocation -> {
+          release.await();
+          return "{}";
+        });
+
+    queue = newQueue(1, 1);
+    queue.start();
+
+    queue.submit("application", "test@sanctionco.com", "token", PublishType.TEXT, "message",
+        null, "", null);
+
+    try {
+      queue.submit("application", "test@sanctionco.com", "token", PublishType.TEXT, "message",
+          null, "", null);
+      fail();
+    } catch (RejectedExecutionException e) {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testUnfinishedJobsAreResumed() throws Exception {
+    // Submit a job without any workers running, as if Lightning stopped before it ran
+    PublishJobQueue stopped = newQueue(0, 10);
+    stopped.start();
+    final JobStatus status = stopped.submit("application", "test@sanctionco.com", "token",
+        PublishType.VIDEO, "message", "video.mp4", "title", media());
+    stopped.stop();
+
+    when(facebookService.publish(any(MediaUpload.class), eq(PublishType.VIDEO), eq("message"),
+        eq("video.mp4"), eq("title")))
+        .thenReturn("{\"id\":\"2\"}");
+
+    queue = newQueue(1, 10);
+    queue.start();
+
+    assertEquals(JobState.SUCCEEDED, awaitDone(status.getId()).getState());
+  }
+
+  @Test
+  public void testInterruptedJobsAreNotRepublished() throws Exception {
+    PublishJobQueue stopped = newQueue(0, 10);
+    stopped.start();
+    final JobStatus status = stopped.submit("application", "test@sanctionco.com", "token",
+        PublishType.PHOTO, "message", "photo.png", "", media());
+    stopped.stop();
+
+    // Lightning stopped after the job started calling Facebook, but before it finished
+    JobJournal journal = new JobJournal(folder.getRoot().toPath().resolve("journal.log"), mapper);
+    journal.recover();
+    journal.recordRunning(status.getId());
+    journal.close();
+
+    queue = newQueue(1, 10);
+    queue.start();
+
+    assertEquals(JobState.FAILED, queue.getStatus("application", status.getId())
+        .orElseThrow(AssertionError::new).getState());
+    assertFalse(folder.getRoot().toPath().resolve("media").resolve(status.getId()).toFile()
+        .exists());
+
+    Thread.sleep(100);
+    verify(facebookService, never()).publish(any(MediaUpload.class), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testJobTurnedAwayByCircuitBreakerRunsLater() throws Exception {
+    CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+    doThrow(new CircuitOpenException("Facebook is unavailable.", 0))
+        .doNothing()
+        .when(circuitBreaker).acquire();
+    facebookExecutor = new ProviderExecutor(MoreExecutors.directExecutor(), circuitBreaker);
+
+    when(facebookService.publish(any(MediaUpload.class), eq(PublishType.TEXT), eq("message"),
+        any(), any()))
+        .thenReturn("{\"id\":\"3\"}");
+
+    queue = newQueue(1, 10);
+    queue.start();
+
+    JobStatus status = queue.submit("application", "test@sanctionco.com", "token",
+        PublishType.TEXT, "message", null, "", null);
+
+    assertEquals(new JobStatus(status.getId(), JobState.SUCCEEDED, "{\"id\":\"3\"}"),
+        awaitDone(status.getId()));
+  }
+
+  @Test
+  public void testJobWaitingToRetryDoesNotHoldWorker() throws Exception {
+    CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+    doThrow(new CircuitOpenException("Facebook is unavailable.", 60))
+        .doNothing()
+        .when(circuitBreaker).acquire();
+    facebookExecutor = new ProviderExecutor(MoreExecutors.directExecutor(), circuitBreaker);
+
+    when(facebookService.publish(any(MediaUpload.class), eq(PublishType.TEXT), any(),
+        any(), any()))
+        .thenReturn("{\"id\":\"4\"}");
+
+    queue = newQueue(1, 10);
+    queue.start();
+
+    JobStatus waiting = queue.submit("application", "test@sanctionco.com", "token",
+        PublishType.TEXT, "first", null, "", null);
+    JobStatus next = queue.submit("application", "test@sanctionco.com", "token",
+        PublishType.TEXT, "second", null, "", null);
+
+    assertEquals(JobState.SUCCEEDED, awaitDone(next.getId()).getState());
+    assertEquals(JobState.QUEUED, queue.getStatus("application", waiting.getId())
+        .orElseThrow(AssertionError::new).getState());
+  }
+
+  @Test
+  public void testJobIsHiddenFromOtherApplications() throws IOException {
+    queue = newQueue(0, 10);
+    queue.start();
+
+    JobStatus status = queue.submit("application", "test@sanctionco.com", "token",
+        PublishType.TEXT, "message", null, "", null);
+
+    assertTrue(queue.getStatus("application", status.getId()).isPresent());
+    assertFalse(queue.getStatus("other", status.getId()).isPresent());
+  }
+
+  @Test
+  public void testUnknownJob() throws IOException {
+    queue = newQueue(1, 10);
+    queue.start();
+
+    assertFalse(queue.getStatus("application", "unknown").isPresent());
+  }
+
+  private PublishJobQueue newQueue(int workers, int queueSize) {
+    return new PublishJobQueue(folder.getRoot().toPath(), workers, queueSize, 100,
+        Duration.ofMinutes(1), serviceFactory, facebookExecutor, mapper);
+  }
+
+  private JobStatus awaitDone(String id) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+    while (System.nanoTime() < deadline) {
+      JobStatus status = queue.getStatus("application", id).orElseThrow(AssertionError::new);
+
+      if (status.getState().isDone()) {
+        return status;
+      }
+
+      Thread.sleep(10);
+    }
+
+    throw new AssertionError("The job did not finish in time.");
+  }
+
+  private static ByteArrayInputStream media() {
+    return new ByteArrayInputStream("media".getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,120 @@
+package com.sanction.lightning.media;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MediaUploadTest {
+  private static final byte[] CONTENT = "lightning media upload".getBytes(StandardCharsets.UTF_8);
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testUploadWithoutRetriesStreamsSource() throws IOException {
+    InputStream source = new ByteArrayInputStream(CONTENT);
+
+    try (MediaUpload upload = new MediaUpload(source, folder.getRoot().toPath(), 0)) {
+      assertSame(source, upload.openStream());
+      assertFalse(upload.retry());
+      assertEquals(0, spillFileCount());
+    }
+  }
+
+  @Test
+  public void testRetryReplaysEntireUpload() throws IOException {
+    try (MediaUpload upload = new MediaUpload(
+        new ByteArrayInputStream(CONTENT), folder.getRoot().toPath(), 1)) {
+      // Simulate a publish that fails part of the way through the upload
+      InputStream first = upload.openStream();
+      byte[] partial = new byte[5];
+      ByteStreams.readFully(first, partial);
+      first.close();
+
+      assertTrue(upload.retry());
+      assertArrayEquals(CONTENT, ByteStreams.toByteArray(upload.openStream()));
+      assertFalse(upload.retry());
+    }
+  }
+
+  @Test
+  public void testUploadThatWasFullySentIsNotRetried() throws IOException {
+    try (MediaUpload upload = new MediaUpload(
+        new ByteArrayInputStream(CONTENT), folder.getRoot().toPath(), 1)) {
+      // The provider read every byte, so it may have published the media before failing
+      ByteStreams.exhaust(upload.openStream());
+
+      assertFalse(upload.retry());
+    }
+  }
+
+  @Test
+  public void testSingleByteReadsAreSpilled() throws IOException {
+    try (MediaUpload upload = new MediaUpload(
+        new ByteArrayInputStream(CONTENT), folder.getRoot().toPath(), 1)) {
+      InputStream first = upload.openStream();
+      first.read();
+      first.read();
+
+      assertTrue(upload.retry());
+      assertArrayEquals(CONTENT, ByteStreams.toByteArray(upload.openStream()));
+    }
+  }
+
+  @Test
+  public void testSpillFileIsNotLeftBehind() throws IOException {
+    MediaUpload upload = new MediaUpload(
+        new ByteArrayInputStream(CONTENT), folder.getRoot().toPath(), 1);
+
+    ByteStreams.exhaust(upload.openStream());
+    upload.retry();
+    ByteStreams.exhaust(upload.openStream());
+    upload.close();
+
+    assertEquals(0, spillFileCount());
+  }
+
+  @Test
+  public void testSpooledUploadsReadIndependently() throws IOException {
+    try (SpooledMedia spooled = new SpooledMedia(
+        new ByteArrayInputStream(CONTENT), folder.getRoot().toPath(), 0)) {
+      InputStream first = spooled.newUpload().openStream();
+      InputStream second = spooled.newUpload().openStream();
+
+      // Reading part of one stream does not move the other
+      ByteStreams.skipFully(first, 5);
+
+      assertEquals(CONTENT.length, spooled.size());
+      assertArrayEquals(CONTENT, ByteStreams.toByteArray(second));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSecondOpenWithoutSpillFails() throws IOException {
+    MediaUpload upload = MediaUpload.of(new ByteArrayInputStream(CONTENT));
+
+    upload.openStream();
+    upload.openStream();
+  }
+
+  private long spillFileCount() throws IOException {
+    try (Stream<?> files = Files.list(folder.getRoot().toPath())) {
+      return files.count();
+    }
+  }
+}
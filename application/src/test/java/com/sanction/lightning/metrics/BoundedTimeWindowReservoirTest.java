@@ -0,0 +1,72 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.Snapshot;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedTimeWindowReservoirTest {
+  private final AtomicLong clock = new AtomicLong();
+  private final BoundedTimeWindowReservoir reservoir
+      = new BoundedTimeWindowReservoir(Duration.ofSeconds(10), 1100, clock::get);
+
+  @Test
+  public void testKeepsEveryMeasurementWhileThereIsRoom() {
+    for (long value = 1; value <= 100; value++) {
+      reservoir.update(value);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+
+    assertEquals(100, reservoir.size());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(100, snapshot.getMax());
+    assertEquals(99, snapshot.get99thPercentile(), 1);
+  }
+
+  @Test
+  public void testMemoryIsBounded() {
+    for (long value = 0; value < 100_000; value++) {
+      reservoir.update(value);
+    }
+
+    assertEquals(100, reservoir.size());
+
+    // The sample is uniform, so its median is close to the median of every measurement
+    assertEquals(50_000, reservoir.getSnapshot().getMedian(), 25_000);
+  }
+
+  @Test
+  public void testMeasurementsLeaveWindow() {
+    reservoir.update(1000);
+    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+    reservoir.update(1);
+
+    assertEquals(2, reservoir.size());
+
+    clock.addAndGet(Duration.ofSeconds(7).toNanos());
+
+    assertEquals(1, reservoir.size());
+    assertEquals(1, reservoir.getSnapshot().getMax());
+  }
+
+  @Test
+  public void testBusierBucketsWeighMore() {
+    // One slow call, then many fast calls in a later bucket that must be sampled
+    reservoir.update(1000);
+    clock.addAndGet(Duration.ofSeconds(2).toNanos());
+    for (int i = 0; i < 10_000; i++) {
+      reservoir.update(1);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+
+    assertEquals(1000, snapshot.getMax());
+    assertTrue(snapshot.get99thPercentile() < 1000);
+  }
+}
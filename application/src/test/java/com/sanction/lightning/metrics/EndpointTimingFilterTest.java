@@ -0,0 +1,65 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EndpointTimingFilterTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final AtomicLong clock = new AtomicLong();
+  private final Map<String, Object> properties = new HashMap<>();
+
+  private final ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+  private final ContainerResponseContext responseContext = mock(ContainerResponseContext.class);
+
+  private final EndpointTimingFilter filter = new EndpointTimingFilter(
+      new Instrumentation(metrics, Duration.ofMinutes(1)), "endpoint", clock::get);
+
+  @Before
+  public void setup() {
+    doAnswer(invocation -> properties.put(invocation.getArgument(0), invocation.getArgument(1)))
+        .when(requestContext).setProperty(anyString(), any());
+    when(requestContext.getProperty(anyString()))
+        .thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+  }
+
+  @Test
+  public void testTimesRequestUntilResponse() {
+    when(responseContext.getStatus()).thenReturn(200);
+
+    filter.filter(requestContext);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(25));
+    filter.filter(requestContext, responseContext);
+
+    assertEquals(1, metrics.timer("endpoint").getCount());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(25),
+        metrics.timer("endpoint").getSnapshot().getMax());
+    assertEquals(1, metrics.counter("endpoint.2xx").getCount());
+  }
+
+  @Test
+  public void testCountsResponsesWithoutStart() {
+    when(responseContext.getStatus()).thenReturn(503);
+
+    filter.filter(requestContext, responseContext);
+
+    assertEquals(0, metrics.timer("endpoint").getCount());
+    assertEquals(1, metrics.counter("endpoint.5xx").getCount());
+  }
+}
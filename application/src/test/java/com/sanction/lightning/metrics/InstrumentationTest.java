@@ -0,0 +1,59 @@
+package com.sanction.lightning.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class InstrumentationTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final Instrumentation instrumentation
+      = new Instrumentation(metrics, Duration.ofMinutes(1));
+
+  @Test
+  public void testTimeCountsOutcomes() {
+    instrumentation.time("call", () -> "result");
+    instrumentation.time("call", () -> null);
+
+    try {
+      instrumentation.time("call", () -> {
+        throw new IllegalStateException();
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals(3, metrics.timer("call").getCount());
+      assertEquals(1, metrics.counter("call.success").getCount());
+      assertEquals(1, metrics.counter("call.rejected").getCount());
+      assertEquals(1, metrics.counter("call.failure").getCount());
+    }
+  }
+
+  @Test
+  public void testTimeAsyncStopsWhenFutureCompletes() {
+    CompletableFuture<String> future = new CompletableFuture<>();
+
+    CompletableFuture<String> result = instrumentation.timeAsync("call", () -> future);
+    assertEquals(0, metrics.timer("call").getCount());
+
+    future.complete("result");
+
+    assertEquals("result", result.join());
+    assertEquals(1, metrics.timer("call").getCount());
+    assertEquals(1, metrics.counter("call.success").getCount());
+  }
+
+  @Test
+  public void testTimeAsyncCountsFailures() {
+    CompletableFuture<String> result = instrumentation.timeAsync("call", () -> {
+      throw new IllegalStateException();
+    });
+
+    assertEquals(true, result.isCompletedExceptionally());
+    assertEquals(1, metrics.counter("call.failure").getCount());
+  }
+}
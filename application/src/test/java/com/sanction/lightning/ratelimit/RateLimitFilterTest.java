@@ -0,0 +1,61 @@
+package com.sanction.lightning.ratelimit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RateLimitFilterTest {
+  private final ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+  private final SecurityContext securityContext = mock(SecurityContext.class);
+
+  private final RateLimitFilter filter = new RateLimitFilter(
+      new RateLimiter(new RateLimit(1, 1), new MetricRegistry()));
+
+  @Before
+  public void setup() {
+    when(requestContext.getSecurityContext()).thenReturn(securityContext);
+  }
+
+  @Test
+  public void testRejectsOverLimit() {
+    when(securityContext.getUserPrincipal()).thenReturn(new Key("application", "secret"));
+
+    filter.filter(requestContext);
+    verify(requestContext, never()).abortWith(any());
+
+    filter.filter(requestContext);
+
+    ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+    verify(requestContext, times(1)).abortWith(captor.capture());
+
+    Response response = captor.getValue();
+    assertEquals(429, response.getStatus());
+    assertEquals("1", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+  }
+
+  @Test
+  public void testIgnoresUnauthenticatedRequests() {
+    when(securityContext.getUserPrincipal()).thenReturn(null);
+
+    filter.filter(requestContext);
+    filter.filter(requestContext);
+
+    verify(requestContext, never()).abortWith(any());
+  }
+}
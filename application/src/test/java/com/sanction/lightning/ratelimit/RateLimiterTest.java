@@ -0,0 +1,69 @@
+package com.sanction.lightning.ratelimit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final AtomicLong clock = new AtomicLong();
+  private final RateLimit limit = new RateLimit(2, 3);
+
+  @Test
+  public void testAllowsBurstThenRejects() {
+    RateLimiter rateLimiter = new RateLimiter(null, metrics, clock::get);
+    Key key = new Key("application", "secret", limit);
+
+    assertEquals(0, rateLimiter.tryAcquire(key));
+    assertEquals(0, rateLimiter.tryAcquire(key));
+    assertEquals(0, rateLimiter.tryAcquire(key));
+
+    long wait = rateLimiter.tryAcquire(key);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait);
+    assertEquals(1, metrics.meter(
+        MetricRegistry.name(RateLimiter.class, "application", "rejected")).getCount());
+
+    // Half a second later one more request is allowed
+    clock.addAndGet(wait);
+    assertEquals(0, rateLimiter.tryAcquire(key));
+    assertTrue(rateLimiter.tryAcquire(key) > 0);
+  }
+
+  @Test
+  public void testKeysHaveSeparateAllowances() {
+    RateLimiter rateLimiter = new RateLimiter(new RateLimit(1, 1), metrics, clock::get);
+    Key first = new Key("first", "secret");
+    Key second = new Key("second", "secret");
+
+    assertEquals(0, rateLimiter.tryAcquire(first));
+    assertTrue(rateLimiter.tryAcquire(first) > 0);
+    assertEquals(0, rateLimiter.tryAcquire(second));
+  }
+
+  @Test
+  public void testNoLimitWithoutDefault() {
+    RateLimiter rateLimiter = new RateLimiter(null, metrics, clock::get);
+    Key key = new Key("application", "secret");
+
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, rateLimiter.tryAcquire(key));
+    }
+  }
+
+  @Test
+  public void testChangedLimitStartsNewBucket() {
+    RateLimiter rateLimiter = new RateLimiter(null, metrics, clock::get);
+
+    assertEquals(0, rateLimiter.tryAcquire(new Key("application", "secret", new RateLimit(1, 1))));
+    assertTrue(rateLimiter.tryAcquire(new Key("application", "secret", new RateLimit(1, 1))) > 0);
+
+    assertEquals(0, rateLimiter.tryAcquire(new Key("application", "secret", limit)));
+  }
+}
@@ -0,0 +1,115 @@
+package com.sanction.lightning.resilience;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.exception.CircuitOpenException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final AtomicLong clock = new AtomicLong();
+
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker("graph", true, 10, 4, 50,
+      Duration.ofSeconds(1), Duration.ofSeconds(30), 2, metrics, clock::get);
+
+  @Test
+  public void testStaysClosedUnderMinimumCalls() {
+    for (int i = 0; i < 3; i++) {
+      circuitBreaker.acquire();
+      circuitBreaker.onFailure();
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testOpensAtFailureRate() {
+    trip();
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+    clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    try {
+      circuitBreaker.acquire();
+      fail();
+    } catch (CircuitOpenException e) {
+      assertEquals(20, e.getRetryAfterSeconds());
+    }
+
+    assertEquals(1, metrics.meter(
+        MetricRegistry.name(CircuitBreaker.class, "graph", "rejected")).getCount());
+  }
+
+  @Test
+  public void testSlowCallsCountAsFailures() {
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.acquire();
+      circuitBreaker.onSuccess(Duration.ofSeconds(2).toNanos());
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testClosesAfterHalfOpenProbesSucceed() {
+    trip();
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+    circuitBreaker.acquire();
+    circuitBreaker.acquire();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    // Only the configured number of probes are let through
+    try {
+      circuitBreaker.acquire();
+      fail();
+    } catch (CircuitOpenException e) {
+      assertEquals(30, e.getRetryAfterSeconds());
+    }
+
+    circuitBreaker.onSuccess(0);
+    circuitBreaker.onSuccess(0);
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    assertEquals(0, circuitBreaker.getFailureRate(), 0);
+  }
+
+  @Test
+  public void testReopensWhenHalfOpenProbeFails() {
+    trip();
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+    circuitBreaker.acquire();
+    circuitBreaker.onFailure();
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testDisabledNeverOpens() {
+    CircuitBreaker disabled = CircuitBreaker.disabled("graph");
+
+    for (int i = 0; i < 100; i++) {
+      disabled.acquire();
+      disabled.onFailure();
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, disabled.getState());
+  }
+
+  private void trip() {
+    for (int i = 0; i < 2; i++) {
+      circuitBreaker.acquire();
+      circuitBreaker.onSuccess(0);
+      circuitBreaker.acquire();
+      circuitBreaker.onFailure();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.sanction.lightning.resilience;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.exception.TransientUpstreamException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReadPolicyTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final List<Runnable> scheduled = new ArrayList<>();
+
+  private ReadPolicy newReadPolicy(int budgetCapacity, boolean hedgeEnabled) {
+    return new ReadPolicy("graph", true, 3, Duration.ZERO, Duration.ZERO, 0.1, budgetCapacity,
+        hedgeEnabled, 95, Duration.ZERO, metrics, nanos -> scheduled::add);
+  }
+
+  private static boolean isTransient(Throwable throwable) {
+    return throwable instanceof TransientUpstreamException;
+  }
+
+  @Test
+  public void testRetriesTransientFailures() {
+    ReadPolicy readPolicy = newReadPolicy(10, false);
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> result = readPolicy.execute(() -> attempts.incrementAndGet() < 3
+        ? CompletableFuture.failedFuture(new TransientUpstreamException("Graph", null))
+        : CompletableFuture.completedFuture("user"), ReadPolicyTest::isTransient);
+
+    runScheduled();
+
+    assertEquals("user", result.join());
+    assertEquals(3, attempts.get());
+    assertEquals(2, meter("retries"));
+  }
+
+  @Test
+  public void testDoesNotRetryOtherFailures() {
+    ReadPolicy readPolicy = newReadPolicy(10, false);
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> result = readPolicy.execute(() -> {
+      attempts.incrementAndGet();
+      return CompletableFuture.failedFuture(new IllegalStateException());
+    }, ReadPolicyTest::isTransient);
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(1, attempts.get());
+    assertTrue(scheduled.isEmpty());
+  }
+
+  @Test
+  public void testRetriesStopWhenBudgetIsSpent() {
+    ReadPolicy readPolicy = newReadPolicy(1, false);
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> result = readPolicy.execute(() -> {
+      attempts.incrementAndGet();
+      return CompletableFuture.failedFuture(new TransientUpstreamException("Graph", null));
+    }, ReadPolicyTest::isTransient);
+
+    runScheduled();
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(2, attempts.get());
+    assertEquals(1, meter("retries"));
+    assertEquals(1, meter("retry-budget-exhausted"));
+  }
+
+  @Test
+  public void testHedgeWinsWhenPrimaryIsSlow() {
+    ReadPolicy readPolicy = newReadPolicy(10, true);
+
+    // Time enough reads to know when to hedge
+    for (int i = 0; i < 20; i++) {
+      readPolicy.execute(() -> CompletableFuture.completedFuture("user"),
+          ReadPolicyTest::isTransient);
+    }
+
+    scheduled.clear();
+
+    CompletableFuture<String> primary = new CompletableFuture<>();
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> hedged = CompletableFuture.completedFuture("hedged");
+
+    final CompletableFuture<String> result = readPolicy.execute(
+        () -> attempts.incrementAndGet() == 1 ? primary : hedged, ReadPolicyTest::isTransient);
+
+    assertEquals(1, scheduled.size());
+    runScheduled();
+    primary.complete("primary");
+
+    assertEquals("hedged", result.join());
+    assertEquals(1, meter("hedges"));
+    assertEquals(1, meter("hedges-won"));
+  }
+
+  @Test
+  public void testBackoffIsBoundedByMaximum() {
+    ReadPolicy readPolicy = new ReadPolicy("graph", true, 10, Duration.ofMillis(100),
+        Duration.ofMillis(250), 0.1, 10, false, 95, Duration.ZERO, metrics,
+        nanos -> Runnable::run);
+
+    for (int attempt = 1; attempt < 10; attempt++) {
+      long backoff = readPolicy.backoffNanos(attempt);
+
+      assertTrue(backoff >= 0 && backoff <= Duration.ofMillis(250).toNanos());
+    }
+  }
+
+  private void runScheduled() {
+    while (!scheduled.isEmpty()) {
+      scheduled.remove(0).run();
+    }
+  }
+
+  private long meter(String name) {
+    return metrics.meter(MetricRegistry.name(ReadPolicy.class, "graph", name)).getCount();
+  }
+}
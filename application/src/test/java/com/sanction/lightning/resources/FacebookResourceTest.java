@@ -1,23 +1,61 @@
 package com.sanction.lightning.resources;
 
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.exception.TransientUpstreamException;
 import com.sanction.lightning.facebook.FacebookService;
 import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
+import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.models.facebook.FacebookPage;
+import com.sanction.lightning.models.facebook.FacebookPhoto;
+import com.sanction.lightning.models.facebook.FacebookProfile;
+import com.sanction.lightning.models.facebook.FacebookUser;
+import com.sanction.lightning.models.facebook.FacebookVideo;
+import com.sanction.lightning.models.jobs.JobState;
+import com.sanction.lightning.models.jobs.JobStatus;
+import com.sanction.lightning.resilience.CircuitBreaker;
 import com.sanctionco.thunder.ThunderClient;
 import com.sanctionco.thunder.models.Email;
 import com.sanctionco.thunder.models.User;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class FacebookResourceTest {
@@ -31,12 +69,20 @@ public class FacebookResourceTest {
 
   private final User user = mock(User.class);
   private final Key key = mock(Key.class);
+  private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final PublishJobQueue publishJobQueue = mock(PublishJobQueue.class);
 
   private final FacebookResource resource = new FacebookResource(thunderClient, metrics,
-      serviceFactory);
+      serviceFactory, new ProviderExecutor(MoreExecutors.directExecutor()),
+      new ProviderExecutor(MoreExecutors.directExecutor()), mapper,
+      new MediaUploadFactory(null, 0), publishJobQueue,
+      new ProfileCache<>("facebook", new ProfileCacheConfiguration(), mapper, metrics));
 
   @Before
   public void setup() {
+    when(key.getName()).thenReturn("application");
+
     // Setup ServiceFactory
     when(serviceFactory.newFacebookService(anyString())).thenReturn(facebookService);
     when(serviceFactory.newFacebookService()).thenReturn(facebookService);
@@ -57,6 +103,211 @@ public class FacebookResourceTest {
     when(contentDisposition.getFileName()).thenReturn("test-filename.png");
   }
 
+  /* Streaming Photo Tests */
+  @Test
+  public void testGetAllPhotosWithBadToken() {
+    when(facebookService.getFacebookUserPhotos(null, null)).thenReturn(null);
+
+    resource.getPhotos(key, "Test", "password", true, null, null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.NOT_FOUND);
+  }
+
+  @Test
+  public void testGetAllPhotosStreamsEveryPage() throws IOException {
+    FacebookPhoto first = new FacebookPhoto("1", "url1", "100", "200");
+    FacebookPhoto second = new FacebookPhoto("2", "url2", "300", "400");
+
+    when(facebookService.getFacebookUserPhotos(null, null))
+        .thenReturn(new FacebookPage<>(Collections.singletonList(first), "cursor"));
+    when(facebookService.getFacebookUserPhotos(null, "cursor"))
+        .thenReturn(new FacebookPage<>(Collections.singletonList(second), null));
+
+    resource.getPhotos(key, "Test", "password", true, null, null, asyncResponse);
+    Response response = captureResponse();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(output);
+
+    assertEquals(response.getStatusInfo(), Response.Status.OK);
+    assertEquals(mapper.writeValueAsString(Arrays.asList(first, second)), output.toString());
+    verify(facebookService, never()).getFacebookUserPhotos();
+  }
+
+  @Test
+  public void testGetAllPhotosIsCutOffWhenLaterPageFails() throws IOException {
+    FacebookPhoto first = new FacebookPhoto("1", "url1", "100", "200");
+
+    when(facebookService.getFacebookUserPhotos(null, null))
+        .thenReturn(new FacebookPage<>(Collections.singletonList(first), "cursor"));
+    when(facebookService.getFacebookUserPhotos(null, "cursor"))
+        .thenThrow(new TransientUpstreamException("Facebook", new IOException("reset")));
+
+    resource.getPhotos(key, "Test", "password", true, null, null, asyncResponse);
+    Response response = captureResponse();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      ((StreamingOutput) response.getEntity()).write(output);
+      fail();
+    } catch (IOException e) {
+      assertEquals(response.getStatusInfo(), Response.Status.OK);
+    }
+
+    // The photos sent so far are not a complete array
+    assertTrue(output.toString().startsWith("[{\"id\":\"1\""));
+    assertFalse(output.toString().endsWith("]"));
+  }
+
+  /* Paged Photo and Video Tests */
+  @Test
+  public void testGetPhotosWithNonPositiveLimit() {
+    resource.getPhotos(key, "Test", "password", false, 0, null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testGetPhotosPage() {
+    FacebookPage<FacebookPhoto> page = new FacebookPage<>(
+        Collections.singletonList(new FacebookPhoto("1", "url1", "100", "200")), "next");
+
+    when(facebookService.getFacebookUserPhotos(5, "cursor")).thenReturn(page);
+
+    resource.getPhotos(key, "Test", "password", false, 5, "cursor", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.OK);
+    assertEquals(page, response.getEntity());
+    verify(facebookService, never()).getFacebookUserPhotos();
+  }
+
+  @Test
+  public void testGetVideosWithNonPositiveLimit() {
+    resource.getVideos(key, "Test", "password", -1, null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testGetVideosPageWithBadToken() {
+    when(facebookService.getFacebookUserVideos(null, "cursor")).thenReturn(null);
+
+    resource.getVideos(key, "Test", "password", null, "cursor", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.NOT_FOUND);
+  }
+
+  @Test
+  public void testGetVideosPage() {
+    FacebookPage<FacebookVideo> page = new FacebookPage<>(
+        Collections.singletonList(new FacebookVideo("1", "url1")), null);
+
+    when(facebookService.getFacebookUserVideos(10, null)).thenReturn(page);
+
+    resource.getVideos(key, "Test", "password", 10, null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.OK);
+    assertEquals(page, response.getEntity());
+    verify(facebookService, never()).getFacebookUserVideos();
+  }
+
+  /* Batched Profile Tests */
+  @Test
+  public void testGetProfileWithNullEmail() {
+    resource.getProfile(key, null, "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testGetProfileWithBadToken() {
+    when(facebookService.getFacebookProfile(null)).thenReturn(null);
+
+    resource.getProfile(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.NOT_FOUND);
+  }
+
+  @Test
+  public void testGetProfile() {
+    FacebookProfile profile = new FacebookProfile(new FacebookUser(),
+        new FacebookPage<>(Collections.singletonList(
+            new FacebookPhoto("1", "url1", "100", "200")), "next"),
+        new FacebookPage<>(Collections.singletonList(new FacebookVideo("1", "url1")), null));
+
+    when(facebookService.getFacebookProfile(5)).thenReturn(profile);
+
+    resource.getProfile(key, "Test", "password", 5, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.OK);
+    assertEquals(profile, response.getEntity());
+    verify(facebookService, never()).getFacebookUser();
+  }
+
+  /* Background Publish Tests */
+  @Test
+  public void testPublishAsync() throws IOException {
+    JobStatus status = new JobStatus("id", JobState.QUEUED, null);
+    when(publishJobQueue.submit("application", "test@sanctionco.com", "fbAccessToken",
+        PublishType.PHOTO, "message", "test-filename.png", "", inputStream))
+        .thenReturn(status);
+
+    resource.publish(key, "Test", "password", PublishType.PHOTO, "message",
+        inputStream, contentDisposition, "", true, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.ACCEPTED);
+    assertEquals(status, response.getEntity());
+    assertEquals("/jobs/id", response.getLocation().toString());
+    verify(facebookService, never()).publish(
+        any(MediaUpload.class), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testPublishAsyncWhileFacebookBreakerIsOpen() throws IOException {
+    CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+    doThrow(new CircuitOpenException("open", 30)).when(circuitBreaker).acquire();
+
+    FacebookResource resource = new FacebookResource(thunderClient, metrics, serviceFactory,
+        new ProviderExecutor(MoreExecutors.directExecutor(), circuitBreaker),
+        new ProviderExecutor(MoreExecutors.directExecutor()), mapper,
+        new MediaUploadFactory(null, 0), publishJobQueue,
+        new ProfileCache<>("facebook", new ProfileCacheConfiguration(), mapper, metrics));
+
+    JobStatus status = new JobStatus("id", JobState.QUEUED, null);
+    when(publishJobQueue.submit(any(), any(), any(), any(), any(), any(), any(), any()))
+        .thenReturn(status);
+
+    resource.publish(key, "Test", "password", PublishType.TEXT, "message",
+        null, null, "", true, asyncResponse);
+    Response response = captureResponse();
+
+    // The job waits in the queue until the breaker closes
+    assertEquals(response.getStatusInfo(), Response.Status.ACCEPTED);
+    verify(circuitBreaker, never()).onSuccess(anyLong());
+  }
+
+  @Test
+  public void testPublishAsyncWithFullQueue() throws IOException {
+    when(publishJobQueue.submit(any(), any(), any(), any(), any(), any(), any(), any()))
+        .thenThrow(new RejectedExecutionException());
+
+    resource.publish(key, "Test", "password", PublishType.TEXT, "message",
+        null, null, "", true, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+  }
+
   /* User Tests */
   //  @Test
   //  public void testGetUserWithNullEmail() {
@@ -552,4 +803,11 @@ public class FacebookResourceTest {
   //    assertEquals(response.getStatusInfo(), Response.Status.OK);
   //    assertEquals(expected, authRequest);
   //  }
+
+  private Response captureResponse() {
+    ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+    verify(asyncResponse).resume(captor.capture());
+
+    return captor.getValue();
+  }
 }
@@ -0,0 +1,43 @@
+package com.sanction.lightning.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.jobs.PublishJobQueue;
+import com.sanction.lightning.models.jobs.JobState;
+import com.sanction.lightning.models.jobs.JobStatus;
+
+import java.util.Optional;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobsResourceTest {
+  private final PublishJobQueue publishJobQueue = mock(PublishJobQueue.class);
+  private final Key key = new Key("application", "secret");
+
+  private final JobsResource resource = new JobsResource(publishJobQueue, new MetricRegistry());
+
+  @Test
+  public void testGetStatusOfUnknownJob() {
+    when(publishJobQueue.getStatus("application", "id")).thenReturn(Optional.empty());
+
+    Response response = resource.getStatus(key, "id");
+
+    assertEquals(response.getStatusInfo(), Response.Status.NOT_FOUND);
+  }
+
+  @Test
+  public void testGetStatus() {
+    JobStatus status = new JobStatus("id", JobState.RUNNING, null);
+    when(publishJobQueue.getStatus("application", "id")).thenReturn(Optional.of(status));
+
+    Response response = resource.getStatus(key, "id");
+
+    assertEquals(response.getStatusInfo(), Response.Status.OK);
+    assertEquals(status, response.getEntity());
+  }
+}
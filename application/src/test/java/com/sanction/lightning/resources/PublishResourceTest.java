@@ -0,0 +1,204 @@
+package com.sanction.lightning.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.facebook.FacebookService;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
+import com.sanction.lightning.models.PublishResult;
+import com.sanction.lightning.models.PublishType;
+import com.sanction.lightning.twitter.TwitterService;
+import com.sanction.lightning.twitter.TwitterServiceFactory;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+import okhttp3.ResponseBody;
+
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import retrofit2.HttpException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublishResourceTest {
+  private final ThunderClient thunderClient = mock(ThunderClient.class);
+  private final FacebookServiceFactory facebookServiceFactory =
+      mock(FacebookServiceFactory.class);
+  private final TwitterServiceFactory twitterServiceFactory = mock(TwitterServiceFactory.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final FacebookService facebookService = mock(FacebookService.class);
+  private final TwitterService twitterService = mock(TwitterService.class);
+  private final InputStream inputStream =
+      new ByteArrayInputStream("media".getBytes(StandardCharsets.UTF_8));
+  private final FormDataContentDisposition contentDisposition =
+      mock(FormDataContentDisposition.class);
+
+  private final User user = mock(User.class);
+  private final Key key = mock(Key.class);
+  private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+  private final Map<String, Object> properties = new HashMap<>();
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private PublishResource resource;
+
+  @Before
+  public void setup() {
+    resource = new PublishResource(thunderClient, metrics, facebookServiceFactory,
+        twitterServiceFactory, new ProviderExecutor(MoreExecutors.directExecutor()),
+        new ProviderExecutor(MoreExecutors.directExecutor()),
+        new ProviderExecutor(MoreExecutors.directExecutor()),
+        new MediaUploadFactory(folder.getRoot().toPath(), 0));
+
+    // Setup ServiceFactories
+    when(facebookServiceFactory.newFacebookService(anyString())).thenReturn(facebookService);
+    when(twitterServiceFactory.newTwitterService(anyString(), anyString()))
+        .thenReturn(twitterService);
+
+    // Setup ThunderClient
+    when(thunderClient.getUser(anyString(), anyString()))
+        .thenReturn(CompletableFuture.completedFuture(user));
+
+    // Setup User
+    properties.put("facebook-access-token", "fbAccessToken");
+    properties.put("twitter-access-token", "twitterAccessToken");
+    properties.put("twitter-access-secret", "twitterAccessSecret");
+
+    when(user.getProperties()).thenReturn(properties);
+
+    // Setup Content
+    when(contentDisposition.getFileName()).thenReturn("test-filename.png");
+  }
+
+  @Test
+  public void testPublishWithNullEmail() {
+    resource.publish(key, null, "password",
+        PublishType.TEXT, "message", inputStream, contentDisposition, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testPublishWithNullType() {
+    resource.publish(key, "Test", "password",
+        null, "message", inputStream, contentDisposition, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testPublishWithNullInputStream() {
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, "message", null, null, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testPublishStreamWithNullFilename() {
+    resource.publishStream(key, "Test", "password",
+        PublishType.PHOTO, "message", null, "", inputStream, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testPublishWithThunderFailure() {
+    HttpException exception = new HttpException(retrofit2.Response.error(404,
+        ResponseBody.create(okhttp3.MediaType.parse("text/plain"), "Not Found")));
+    when(thunderClient.getUser(anyString(), anyString()))
+        .thenReturn(CompletableFuture.failedFuture(exception));
+
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, "message", inputStream, contentDisposition, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+  }
+
+  @Test
+  public void testPublishToAllNetworks() {
+    when(facebookService.publish(any(MediaUpload.class), eq(PublishType.PHOTO), eq("message"),
+        eq("test-filename.png"), eq("")))
+        .thenReturn("{\"id\":\"1\"}");
+    when(twitterService.publish(eq(PublishType.PHOTO), eq("message"),
+        eq("test-filename.png"), any(MediaUpload.class)))
+        .thenReturn(2L);
+
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, "message", inputStream, contentDisposition, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.CREATED);
+    assertEquals(new PublishResult("{\"id\":\"1\"}", 2L), response.getEntity());
+  }
+
+  @Test
+  public void testPublishToSomeNetworks() {
+    when(facebookService.publish(any(MediaUpload.class), any(PublishType.class), anyString(),
+        any(), anyString()))
+        .thenReturn(null);
+    when(twitterService.publish(any(PublishType.class), anyString(), any(),
+        any(MediaUpload.class)))
+        .thenReturn(2L);
+
+    resource.publish(key, "Test", "password",
+        PublishType.TEXT, "message", null, null, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(207, response.getStatus());
+    assertEquals(new PublishResult(null, 2L), response.getEntity());
+  }
+
+  @Test
+  public void testPublishWithoutConnectedTwitterAccount() {
+    properties.remove("twitter-access-token");
+
+    when(facebookService.publish(any(MediaUpload.class), any(PublishType.class), anyString(),
+        any(), anyString()))
+        .thenReturn(null);
+
+    resource.publish(key, "Test", "password",
+        PublishType.TEXT, "message", null, null, "", asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+    verify(twitterServiceFactory, never()).newTwitterService(anyString(), anyString());
+  }
+
+  private Response captureResponse() {
+    ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+    verify(asyncResponse).resume(captor.capture());
+
+    return captor.getValue();
+  }
+}
@@ -1,30 +1,54 @@
 package com.sanction.lightning.resources;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+import com.sanction.lightning.exception.CircuitOpenException;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+import com.sanction.lightning.media.MediaUpload;
+import com.sanction.lightning.media.MediaUploadFactory;
 import com.sanction.lightning.models.PublishType;
 import com.sanction.lightning.models.twitter.TwitterAccessToken;
 import com.sanction.lightning.models.twitter.TwitterOAuthRequest;
 import com.sanction.lightning.models.twitter.TwitterUser;
+import com.sanction.lightning.resilience.CircuitBreaker;
 import com.sanction.lightning.twitter.TwitterService;
 import com.sanction.lightning.twitter.TwitterServiceFactory;
 import com.sanctionco.thunder.ThunderClient;
 import com.sanctionco.thunder.models.User;
 
+import io.dropwizard.jackson.Jackson;
+
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
+import okhttp3.ResponseBody;
+
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import retrofit2.HttpException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TwitterResourceTest {
@@ -38,9 +62,11 @@ public class TwitterResourceTest {
 
   private final User user = mock(User.class);
   private final Key key = mock(Key.class);
+  private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
 
   private final TwitterResource resource = new TwitterResource(thunderClient, metrics,
-      serviceFactory);
+      serviceFactory, new ProviderExecutor(MoreExecutors.directExecutor()),
+      new MediaUploadFactory(null, 0), newProfileCache());
 
   @Before
   public void setup() {
@@ -66,14 +92,16 @@ public class TwitterResourceTest {
   /* User Tests */
   @Test
   public void testGetUserWithNullEmail() {
-    Response response = resource.getUser(key, null, "password");
+    resource.getUser(key, null, "password", null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testGetUserWithNullPassword() {
-    Response response = resource.getUser(key, "Test", null);
+    resource.getUser(key, "Test", null, null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
@@ -82,68 +110,159 @@ public class TwitterResourceTest {
   public void testGetUserWithNullTwitterResponse() {
     when(service.getTwitterUser()).thenReturn(null);
 
-    Response response = resource.getUser(key, "Test", "password");
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
   }
 
+  @Test
+  public void testGetUserWhenThrottled() {
+    when(service.getTwitterUser()).thenThrow(new UpstreamThrottledException("twitter", 30));
+
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+    assertEquals("30", response.getHeaderString("Retry-After"));
+  }
+
   @Test
   public void testGetUserSuccess() {
-    TwitterUser mockUser = mock(TwitterUser.class);
-    when(service.getTwitterUser()).thenReturn(mockUser);
+    TwitterUser twitterUser = newTwitterUser();
+    when(service.getTwitterUser()).thenReturn(twitterUser);
 
-    Response response = resource.getUser(key, "Test", "password");
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
     TwitterUser user = (TwitterUser) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.OK);
-    assertEquals(user, mockUser);
+    assertEquals(user, twitterUser);
+    assertNotNull(response.getEntityTag());
+  }
+
+  @Test
+  public void testGetUserNotModified() {
+    when(service.getTwitterUser()).thenReturn(newTwitterUser());
+
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    String entityTag = "\"" + captureResponse().getEntityTag().getValue() + "\"";
+
+    AsyncResponse revalidateResponse = mock(AsyncResponse.class);
+    resource.getUser(key, "Test", "password", entityTag, revalidateResponse);
+
+    ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+    verify(revalidateResponse).resume(captor.capture());
+
+    assertEquals(captor.getValue().getStatusInfo(), Response.Status.NOT_MODIFIED);
+    verify(service, times(1)).getTwitterUser();
+  }
+
+  @Test
+  public void testGetUserWithThunderFailure() {
+    HttpException exception = new HttpException(retrofit2.Response.error(404,
+        ResponseBody.create(okhttp3.MediaType.parse("text/plain"), "Not Found")));
+    when(thunderClient.getUser(anyString(), anyString()))
+        .thenReturn(CompletableFuture.failedFuture(exception));
+
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+  }
+
+  @Test
+  public void testGetUserWithSaturatedExecutor() {
+    TwitterResource resource = new TwitterResource(thunderClient, metrics, serviceFactory,
+        new ProviderExecutor(runnable -> {
+          throw new RejectedExecutionException();
+        }), new MediaUploadFactory(null, 0), newProfileCache());
+
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+  }
+
+  @Test
+  public void testGetUserWithOpenCircuit() {
+    CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+    doThrow(new CircuitOpenException("The circuit breaker for twitter is open.", 30))
+        .when(circuitBreaker).acquire();
+
+    TwitterResource resource = new TwitterResource(thunderClient, metrics, serviceFactory,
+        new ProviderExecutor(MoreExecutors.directExecutor(), circuitBreaker),
+        new MediaUploadFactory(null, 0), newProfileCache());
+
+    resource.getUser(key, "Test", "password", null, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
+    assertEquals("30", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+    verify(service, never()).getTwitterUser();
+  }
+
+  private TwitterUser newTwitterUser() {
+    return new TwitterUser(1L, 2, 3, "2018-01-01", "Location", "Name", "screenName",
+        "http://example.com/image.png", false);
+  }
+
+  private ProfileCache<TwitterUser> newProfileCache() {
+    return new ProfileCache<>("twitter", new ProfileCacheConfiguration(),
+        Jackson.newObjectMapper(), metrics);
   }
 
   /* Publish Tests */
   @Test
   public void testPublishWithNullEmail() {
-    Response response = resource.publish(key, null, "password",
-        PublishType.TEXT, "message", inputStream, contentDisposition);
+    resource.publish(key, null, "password",
+        PublishType.TEXT, "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testPublishWithNullPassword() {
-    Response response = resource.publish(key, "Test", null,
-        PublishType.TEXT, "message", inputStream, contentDisposition);
+    resource.publish(key, "Test", null,
+        PublishType.TEXT, "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testPublishWithNullType() {
-    Response response = resource.publish(key, "Test", "password",
-        null, "message", inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        null, "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testPublishWithBadTypeValue() {
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.fromString("Fake"), "message", inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        PublishType.fromString("Fake"), "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testPublishTextWithNullMessage() {
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.TEXT, null, inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        PublishType.TEXT, null, inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testPublishWithNullInputStream() {
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.PHOTO, "message", null, null);
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, "message", null, null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
@@ -151,11 +270,12 @@ public class TwitterResourceTest {
   @Test
   public void testPublishWithNullTwitterResponse() {
     when(service.publish(any(PublishType.class), any(String.class),
-        any(), any(InputStream.class)))
+        any(), any(MediaUpload.class)))
         .thenReturn(null);
 
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.TEXT, "message", inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        PublishType.TEXT, "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
   }
@@ -163,11 +283,12 @@ public class TwitterResourceTest {
   @Test
   public void testPublishPhotoWithNullMessage() {
     when(service.publish(any(PublishType.class), any(),
-        any(String.class), any(InputStream.class)))
+        any(String.class), any(MediaUpload.class)))
         .thenReturn(1L);
 
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.PHOTO, null, inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, null, inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
     Long result = (Long) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.CREATED);
@@ -177,11 +298,12 @@ public class TwitterResourceTest {
   @Test
   public void testPublishTextWithNullInputStream() {
     when(service.publish(any(PublishType.class), any(String.class),
-        any(), any()))
+        any(), any(MediaUpload.class)))
         .thenReturn(1L);
 
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.TEXT, "message", null, null);
+    resource.publish(key, "Test", "password",
+        PublishType.TEXT, "message", null, null, asyncResponse);
+    Response response = captureResponse();
     Long result = (Long) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.CREATED);
@@ -191,11 +313,36 @@ public class TwitterResourceTest {
   @Test
   public void testPublish() {
     when(service.publish(any(PublishType.class), any(String.class),
-        any(String.class), any(InputStream.class)))
+        any(String.class), any(MediaUpload.class)))
         .thenReturn(1L);
 
-    Response response = resource.publish(key, "Test", "password",
-        PublishType.PHOTO, "message", inputStream, contentDisposition);
+    resource.publish(key, "Test", "password",
+        PublishType.PHOTO, "message", inputStream, contentDisposition, asyncResponse);
+    Response response = captureResponse();
+    Long result = (Long) response.getEntity();
+
+    assertEquals(response.getStatusInfo(), Response.Status.CREATED);
+    assertEquals(result, Long.valueOf(1));
+  }
+
+  @Test
+  public void testPublishStreamWithNullFilename() {
+    resource.publishStream(key, "Test", "password",
+        PublishType.VIDEO, "message", null, inputStream, asyncResponse);
+    Response response = captureResponse();
+
+    assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
+  }
+
+  @Test
+  public void testPublishStream() {
+    when(service.publish(any(PublishType.class), any(String.class),
+        any(String.class), any(MediaUpload.class)))
+        .thenReturn(1L);
+
+    resource.publishStream(key, "Test", "password",
+        PublishType.VIDEO, "message", "video.mp4", inputStream, asyncResponse);
+    Response response = captureResponse();
     Long result = (Long) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.CREATED);
@@ -205,7 +352,8 @@ public class TwitterResourceTest {
   /* OAuth URL Tests */
   @Test
   public void testGetOAuthUrlWithNullRedirect() {
-    Response response = resource.getOAuthUrl(key, null);
+    resource.getOAuthUrl(key, null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
@@ -214,7 +362,8 @@ public class TwitterResourceTest {
   public void testGetOAuthUrlFailure() {
     when(service.getAuthorizationUrl(anyString())).thenReturn(null);
 
-    Response response = resource.getOAuthUrl(key, "example.com");
+    resource.getOAuthUrl(key, "example.com", asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
   }
@@ -227,7 +376,8 @@ public class TwitterResourceTest {
     when(service.getAuthorizationUrl(anyString()))
         .thenReturn(request);
 
-    Response response = resource.getOAuthUrl(key, "example.com");
+    resource.getOAuthUrl(key, "example.com", asyncResponse);
+    Response response = captureResponse();
     TwitterOAuthRequest result = (TwitterOAuthRequest) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.OK);
@@ -237,21 +387,24 @@ public class TwitterResourceTest {
   /* OAuth Access Token Tests */
   @Test
   public void testGetAccessTokenWithNullRequestToken() {
-    Response response = resource.getOAuthAccessToken(key, null, "secret", "verifier");
+    resource.getOAuthAccessToken(key, null, "secret", "verifier", asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testGetAccessTokenWithNullRequestSecret() {
-    Response response = resource.getOAuthAccessToken(key, "token", null, "verifier");
+    resource.getOAuthAccessToken(key, "token", null, "verifier", asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
 
   @Test
   public void testGetAccessTokenWithNullOAuthVerifier() {
-    Response response = resource.getOAuthAccessToken(key, "token", "secret", null);
+    resource.getOAuthAccessToken(key, "token", "secret", null, asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.BAD_REQUEST);
   }
@@ -260,7 +413,8 @@ public class TwitterResourceTest {
   public void testGetAccessTokenFailure() {
     when(service.getOAuthAccessToken(anyString(), anyString(), anyString())).thenReturn(null);
 
-    Response response = resource.getOAuthAccessToken(key, "token", "secret", "verifier");
+    resource.getOAuthAccessToken(key, "token", "secret", "verifier", asyncResponse);
+    Response response = captureResponse();
 
     assertEquals(response.getStatusInfo(), Response.Status.SERVICE_UNAVAILABLE);
   }
@@ -272,10 +426,18 @@ public class TwitterResourceTest {
     when(service.getOAuthAccessToken(anyString(), anyString(), anyString()))
         .thenReturn(request);
 
-    Response response = resource.getOAuthAccessToken(key, "token", "secret", "verifier");
+    resource.getOAuthAccessToken(key, "token", "secret", "verifier", asyncResponse);
+    Response response = captureResponse();
     TwitterAccessToken result = (TwitterAccessToken) response.getEntity();
 
     assertEquals(response.getStatusInfo(), Response.Status.OK);
     assertEquals(result, request);
   }
+
+  private Response captureResponse() {
+    ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+    verify(asyncResponse).resume(captor.capture());
+
+    return captor.getValue();
+  }
 }
@@ -0,0 +1,84 @@
+package com.sanction.lightning.throttle;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanction.lightning.exception.UpstreamThrottledException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UpstreamThrottleTest {
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final AtomicLong clock = new AtomicLong();
+
+  private final UpstreamThrottle throttle = new UpstreamThrottle("graph", true, 50, 90,
+      Duration.ofMillis(400), Duration.ofSeconds(60), metrics, clock::get);
+
+  @Test
+  public void testNoDelayUnderThreshold() {
+    throttle.recordApplicationUsage(40);
+
+    assertEquals(0, throttle.delayNanos("user"));
+  }
+
+  @Test
+  public void testDelayGrowsWithUsage() {
+    throttle.recordApplicationUsage(70);
+    assertEquals(Duration.ofMillis(200).toNanos(), throttle.delayNanos(null));
+
+    throttle.recordUsage("user", 80);
+    assertEquals(Duration.ofMillis(300).toNanos(), throttle.delayNanos("user"));
+    assertEquals(Duration.ofMillis(200).toNanos(), throttle.delayNanos("otherUser"));
+  }
+
+  @Test
+  public void testShedsOverThreshold() {
+    throttle.recordUsage("user", 95);
+
+    try {
+      throttle.delayNanos("user");
+      fail();
+    } catch (UpstreamThrottledException e) {
+      assertEquals(60, e.getRetryAfterSeconds());
+    }
+
+    assertEquals(1, metrics.meter(
+        MetricRegistry.name(UpstreamThrottle.class, "graph", "shed")).getCount());
+  }
+
+  @Test
+  public void testUsageIsIgnoredOnceStale() {
+    throttle.recordApplicationUsage(95);
+    clock.addAndGet(Duration.ofSeconds(61).toNanos());
+
+    assertEquals(0, throttle.delayNanos("user"));
+  }
+
+  @Test
+  public void testBlockLastsUntilItExpires() {
+    throttle.block("user", Duration.ofSeconds(10));
+    clock.addAndGet(Duration.ofSeconds(4).toNanos());
+
+    try {
+      throttle.delayNanos("user");
+      fail();
+    } catch (UpstreamThrottledException e) {
+      assertEquals(6, e.getRetryAfterSeconds());
+    }
+
+    clock.addAndGet(Duration.ofSeconds(6).toNanos());
+    assertEquals(0, throttle.delayNanos("user"));
+  }
+
+  @Test
+  public void testDisabledNeverThrottles() {
+    UpstreamThrottle disabled = UpstreamThrottle.disabled("graph");
+    disabled.blockApplication(Duration.ofMinutes(1));
+
+    assertEquals(0, disabled.delayNanos("user"));
+  }
+}
@@ -0,0 +1,113 @@
+package com.sanction.lightning.thunder;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.Email;
+import com.sanctionco.thunder.models.User;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingThunderClientTest {
+  private static final String EMAIL = "test@sanctionco.com";
+
+  private final ThunderClient delegate = mock(ThunderClient.class);
+  private final MetricRegistry metrics = new MetricRegistry();
+  private final User user = new User(new Email(EMAIL, true, "token"), "hash", new HashMap<>());
+
+  private CachingThunderClient client;
+
+  @Before
+  public void setup() {
+    when(delegate.getUser(anyString(), anyString()))
+        .thenReturn(CompletableFuture.completedFuture(user));
+    when(delegate.updateUser(user, EMAIL, "password"))
+        .thenReturn(CompletableFuture.completedFuture(user));
+
+    client = new CachingThunderClient(delegate,
+        new CaffeineUserCache(10, Duration.ofMinutes(1), metrics));
+  }
+
+  @Test
+  public void testGetUserIsCached() {
+    assertSame(user, client.getUser(EMAIL, "password").join());
+    assertSame(user, client.getUser(EMAIL, "password").join());
+
+    verify(delegate, times(1)).getUser(EMAIL, "password");
+    assertEquals(1, metrics.counter(MetricRegistry.name(
+        CaffeineUserCache.class, "users", "hits")).getCount());
+    assertEquals(1, metrics.counter(MetricRegistry.name(
+        CaffeineUserCache.class, "users", "misses")).getCount());
+  }
+
+  @Test
+  public void testGetUserWithDifferentPasswordIsNotCached() {
+    client.getUser(EMAIL, "password").join();
+    client.getUser(EMAIL, "otherPassword").join();
+
+    verify(delegate, times(1)).getUser(EMAIL, "password");
+    verify(delegate, times(1)).getUser(EMAIL, "otherPassword");
+  }
+
+  @Test
+  public void testGetUserFailureIsNotCached() {
+    when(delegate.getUser(EMAIL, "password"))
+        .thenReturn(CompletableFuture.failedFuture(new IllegalStateException()))
+        .thenReturn(CompletableFuture.completedFuture(user));
+
+    assertTrue(client.getUser(EMAIL, "password").isCompletedExceptionally());
+    assertSame(user, client.getUser(EMAIL, "password").join());
+
+    verify(delegate, times(2)).getUser(EMAIL, "password");
+  }
+
+  @Test
+  public void testUpdateUserInvalidatesCache() {
+    client.getUser(EMAIL, "password").join();
+    client.updateUser(user, EMAIL, "password").join();
+    client.getUser(EMAIL, "password").join();
+
+    verify(delegate, times(2)).getUser(EMAIL, "password");
+  }
+
+  @Test
+  public void testLookupThatRacesWithUpdateIsNotCached() {
+    User updated = new User(new Email(EMAIL, true, "token"), "hash", new HashMap<>());
+    CompletableFuture<User> slowLookup = new CompletableFuture<>();
+
+    when(delegate.getUser(EMAIL, "password"))
+        .thenReturn(slowLookup)
+        .thenReturn(CompletableFuture.completedFuture(updated));
+
+    // The lookup starts before the update and finishes after it, with the old user
+    CompletableFuture<User> result = client.getUser(EMAIL, "password");
+    client.updateUser(user, EMAIL, "password").join();
+    slowLookup.complete(user);
+
+    assertSame(user, result.join());
+    assertSame(updated, client.getUser(EMAIL, "password").join());
+    verify(delegate, times(2)).getUser(EMAIL, "password");
+  }
+
+  @Test
+  public void testLookupAfterUpdateIsCached() {
+    client.updateUser(user, EMAIL, "password").join();
+    client.getUser(EMAIL, "password").join();
+    client.getUser(EMAIL, "password").join();
+
+    verify(delegate, times(1)).getUser(EMAIL, "password");
+  }
+}
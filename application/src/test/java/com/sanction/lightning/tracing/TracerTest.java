@@ -0,0 +1,130 @@
+package com.sanction.lightning.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest {
+  private static final String TRACEPARENT
+      = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+  private final List<Span> exported = new ArrayList<>();
+  private final AtomicLong clock = new AtomicLong();
+  private final Tracer tracer = new Tracer(exported::add, 1.0, clock::get);
+
+  @Test
+  public void testContinuesCallersTrace() {
+    Span span = tracer.startTrace("GET /facebook/users", TRACEPARENT);
+
+    assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getTraceId());
+    assertEquals("00f067aa0ba902b7", span.getParentSpanId());
+    assertEquals("00-4bf92f3577b34da6a3ce929d0e0e4736-" + span.getSpanId() + "-01",
+        span.traceparent());
+  }
+
+  @Test
+  public void testStartsNewTraceForInvalidHeader() {
+    Span span = tracer.startTrace("GET /facebook/users",
+        "00-00000000000000000000000000000000-00f067aa0ba902b7-01");
+
+    assertEquals(32, span.getTraceId().length());
+    assertNull(span.getParentSpanId());
+  }
+
+  @Test
+  public void testHonorsCallersSamplingDecision() {
+    Span span = new Tracer(exported::add, 0.0).startTrace("GET /facebook/users",
+        "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+
+    assertSame(Span.noop(), span);
+    assertSame(Span.noop(), span.child("thunder.getUser"));
+    assertNull(span.traceparent());
+
+    span.end();
+    assertTrue(exported.isEmpty());
+  }
+
+  @Test
+  public void testChildSpansAreExportedOnce() {
+    Span span = tracer.startTrace("POST /facebook/publish", null);
+
+    clock.set(1_000);
+    String result = span.trace("facebook.publish", () -> {
+      clock.set(6_000);
+      return "published";
+    });
+
+    span.end();
+    span.end();
+
+    assertEquals("published", result);
+    assertEquals(2, exported.size());
+    assertEquals("facebook.publish", exported.get(0).getName());
+    assertEquals(span.getSpanId(), exported.get(0).getParentSpanId());
+    assertEquals(5, exported.get(0).getDurationMicros());
+    assertEquals(span, exported.get(1));
+  }
+
+  @Test
+  public void testTraceAsyncRecordsErrors() {
+    Span span = tracer.startTrace("GET /facebook/users", null);
+    CompletableFuture<String> future = new CompletableFuture<>();
+
+    CompletableFuture<String> result = span.traceAsync("thunder.getUser", () -> future);
+    assertTrue(exported.isEmpty());
+
+    future.completeExceptionally(new IllegalStateException("down"));
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(1, exported.size());
+    assertNotNull(exported.get(0).getError());
+  }
+
+  @Test
+  public void testTraceAsyncContinuesUnderSpan() throws Exception {
+    Span span = tracer.startTrace("GET /facebook/users", null);
+    CompletableFuture<String> future = new CompletableFuture<>();
+
+    CompletableFuture<Span> current = span.traceAsync("thunder.getUser", () -> future)
+        .thenApply(user -> Span.current());
+
+    // Thunder answers on one of its own threads
+    ExecutorService thunderThread = Executors.newSingleThreadExecutor();
+    try {
+      thunderThread.submit(() -> future.complete("user")).get();
+    } finally {
+      thunderThread.shutdown();
+    }
+
+    assertSame(span, current.join());
+  }
+
+  @Test
+  public void testInterceptorSendsCurrentSpan() {
+    Request request = new Request.Builder().url("http://localhost/users").build();
+    Span span = tracer.startTrace("GET /facebook/users", TRACEPARENT);
+
+    assertNull(TraceparentInterceptor.inject(request).header("traceparent"));
+
+    Span.setCurrent(span);
+    try {
+      assertEquals(span.traceparent(),
+          TraceparentInterceptor.inject(request).header("traceparent"));
+    } finally {
+      Span.clearCurrent();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.sanction.lightning.benchmarks;
+
+import com.sanction.lightning.LightningConfiguration;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.authentication.LightningAuthenticator;
+
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.basic.BasicCredentials;
+import io.dropwizard.jackson.Jackson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures authenticating a request against approved key sets of different sizes, for a correct
+ * secret, a wrong secret and an unknown application. All three should take the same time no
+ * matter how many keys are approved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticatorBenchmark {
+
+  @Param({"1", "100", "10000"})
+  private int keyCount;
+
+  private LightningAuthenticator authenticator;
+  private BasicCredentials approved;
+  private BasicCredentials wrongSecret;
+  private BasicCredentials unknown;
+
+  /**
+   * Approves {@code keyCount} keys and picks credentials from the middle of the key set.
+   *
+   * @throws IOException If the configuration cannot be built.
+   */
+  @Setup
+  public void setup() throws IOException {
+    LightningConfiguration config = Jackson.newObjectMapper()
+        .readValue("{\"approved-keys\": []}", LightningConfiguration.class);
+
+    List<Key> keys = new ArrayList<>(keyCount);
+    for (int i = 0; i < keyCount; i++) {
+      keys.add(new Key("application-" + i, secret(i)));
+    }
+
+    authenticator = new LightningAuthenticator(config);
+    authenticator.reload(keys);
+
+    int middle = keyCount / 2;
+    approved = new BasicCredentials("application-" + middle, secret(middle));
+    wrongSecret = new BasicCredentials("application-" + middle, secret(middle + 1));
+    unknown = new BasicCredentials("application-" + keyCount, secret(middle));
+  }
+
+  @Benchmark
+  public Optional<Key> approvedKey() throws AuthenticationException {
+    return authenticator.authenticate(approved);
+  }
+
+  @Benchmark
+  public Optional<Key> wrongSecret() throws AuthenticationException {
+    return authenticator.authenticate(wrongSecret);
+  }
+
+  @Benchmark
+  public Optional<Key> unknownApplication() throws AuthenticationException {
+    return authenticator.authenticate(unknown);
+  }
+
+  private static String secret(int i) {
+    return String.format("%032x", i * 0x9E3779B97F4A7C15L);
+  }
+}
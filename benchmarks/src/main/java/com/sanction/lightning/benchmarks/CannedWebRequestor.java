@@ -0,0 +1,65 @@
+package com.sanction.lightning.benchmarks;
+
+import com.restfb.BinaryAttachment;
+import com.restfb.DebugHeaderInfo;
+import com.restfb.WebRequestor;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A web requestor that answers Graph API requests from memory, so that benchmarks measure
+ * Lightning and RestFB rather than the network. Requests are matched on the Graph API path
+ * after the version, such as {@code me/photos}, and unknown paths get a Graph API error.
+ */
+final class CannedWebRequestor implements WebRequestor {
+  private static final String NOT_FOUND = "{\"error\":{\"message\":\"Unknown path components\","
+      + "\"type\":\"OAuthException\",\"code\":2500}}";
+
+  private final Map<String, String> bodies;
+
+  CannedWebRequestor(Map<String, String> bodies) {
+    this.bodies = bodies;
+  }
+
+  @Override
+  public Response executeGet(String url, String headerAccessToken) {
+    return respond(url);
+  }
+
+  @Override
+  public Response executeGet(String url) {
+    return respond(url);
+  }
+
+  @Override
+  public Response executePost(String url, String parameters, String headerAccessToken) {
+    return respond(url);
+  }
+
+  @Override
+  public Response executePost(String url, String parameters,
+                              List<BinaryAttachment> binaryAttachments,
+                              String headerAccessToken) {
+    return respond(url);
+  }
+
+  @Override
+  public Response executeDelete(String url, String headerAccessToken) {
+    return respond(url);
+  }
+
+  @Override
+  public DebugHeaderInfo getDebugHeaderInfo() {
+    return null;
+  }
+
+  private Response respond(String url) {
+    // Paths look like /v12.0/me/photos
+    String path = URI.create(url).getPath();
+    String body = bodies.get(path.substring(path.indexOf('/', 1) + 1));
+
+    return body != null ? new Response(200, body) : new Response(400, NOT_FOUND);
+  }
+}
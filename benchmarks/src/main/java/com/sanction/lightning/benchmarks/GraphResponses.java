@@ -0,0 +1,87 @@
+package com.sanction.lightning.benchmarks;
+
+/**
+ * Builds Graph API response bodies shaped like the ones Facebook returns for the fields that
+ * Lightning requests.
+ */
+public final class GraphResponses {
+  // Facebook returns several sizes of each photo, largest first
+  private static final int[][] IMAGE_SIZES = {
+      {2048, 1536}, {1280, 960}, {960, 720}, {720, 540}, {600, 450}, {480, 360}, {320, 240}};
+
+  private static final String PAGING
+      = "],\"paging\":{\"cursors\":{\"before\":\"QVFIUmJm\",\"after\":\"QVFIUkxz\"}}}";
+
+  private GraphResponses() {
+  }
+
+  /**
+   * Builds the response to {@code GET /me}.
+   *
+   * @return The response body.
+   */
+  public static String user() {
+    return "{\"id\":\"1234567890\",\"name\":\"Testy McTestface\",\"first_name\":\"Testy\","
+        + "\"middle_name\":\"Q\",\"last_name\":\"McTestface\",\"gender\":\"female\","
+        + "\"verified\":true}";
+  }
+
+  /**
+   * Builds the response to {@code GET /me/photos} with the given number of photos.
+   *
+   * @param count The number of photos in the response.
+   * @return The response body.
+   */
+  public static String photos(int count) {
+    StringBuilder body = new StringBuilder("{\"data\":[");
+
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        body.append(',');
+      }
+
+      String id = String.valueOf(100_000_000_000L + i);
+      body.append("{\"id\":\"").append(id).append("\",\"images\":[");
+
+      for (int j = 0; j < IMAGE_SIZES.length; j++) {
+        if (j > 0) {
+          body.append(',');
+        }
+
+        body.append("{\"height\":").append(IMAGE_SIZES[j][1])
+            .append(",\"source\":\"https://scontent.xx.fbcdn.net/v/t1.0-9/")
+            .append(id).append('_').append(IMAGE_SIZES[j][0]).append("_n.jpg?oh=")
+            .append(Integer.toHexString(id.hashCode() * 31 + j))
+            .append("\",\"width\":").append(IMAGE_SIZES[j][0]).append('}');
+      }
+
+      body.append("]}");
+    }
+
+    return body.append(PAGING).toString();
+  }
+
+  /**
+   * Builds the response to {@code GET /me/videos} with the given number of videos.
+   *
+   * @param count The number of videos in the response.
+   * @return The response body.
+   */
+  public static String videos(int count) {
+    StringBuilder body = new StringBuilder("{\"data\":[");
+
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        body.append(',');
+      }
+
+      String id = String.valueOf(200_000_000_000L + i);
+      body.append("{\"id\":\"").append(id)
+          .append("\",\"source\":\"https://video.xx.fbcdn.net/v/t42.1790-2/")
+          .append(id).append("_n.mp4?oh=").append(Integer.toHexString(id.hashCode()))
+          .append("\"}");
+    }
+
+    return body.append(PAGING).toString();
+  }
+}
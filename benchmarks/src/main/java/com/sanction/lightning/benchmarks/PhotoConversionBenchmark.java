@@ -0,0 +1,65 @@
+package com.sanction.lightning.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.restfb.json.Json;
+import com.restfb.json.JsonObject;
+import com.sanction.lightning.facebook.FacebookService;
+import com.sanction.lightning.facebook.GraphEndpoints;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.models.facebook.FacebookPhoto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link FacebookService#getFacebookUserPhotos()} converting a Graph API photo list into
+ * FacebookPhotos. {@link #parseOnly} parses the same response without converting it, so the
+ * difference between the two is the cost of the conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhotoConversionBenchmark {
+
+  @Param({"10", "100", "1000"})
+  private int photoCount;
+
+  private String response;
+  private FacebookService facebookService;
+
+  /**
+   * Builds a Graph API response with {@code photoCount} photos and a service that receives it.
+   */
+  @Setup
+  public void setup() {
+    response = GraphResponses.photos(photoCount);
+    facebookService = new FacebookService("access-token", "application-id",
+        "application-secret", new CannedWebRequestor(ImmutableMap.of("me/photos", response)),
+        GraphEndpoints.facebook(), Instrumentation.disabled());
+  }
+
+  @Benchmark
+  public List<FacebookPhoto> getFacebookUserPhotos() {
+    return facebookService.getFacebookUserPhotos();
+  }
+
+  @Benchmark
+  public JsonObject parseOnly() {
+    return Json.parse(response).asObject();
+  }
+}
@@ -0,0 +1,165 @@
+package com.sanction.lightning.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sanction.lightning.LightningConfiguration;
+import com.sanction.lightning.authentication.Key;
+import com.sanction.lightning.authentication.LightningAuthenticator;
+import com.sanction.lightning.cache.ProfileCache;
+import com.sanction.lightning.concurrent.ProviderExecutor;
+import com.sanction.lightning.config.ProfileCacheConfiguration;
+import com.sanction.lightning.facebook.FacebookServiceFactory;
+import com.sanction.lightning.facebook.GraphEndpoints;
+import com.sanction.lightning.media.MediaUploadFactory;
+import com.sanction.lightning.metrics.Instrumentation;
+import com.sanction.lightning.resources.FacebookResource;
+import com.sanctionco.thunder.ThunderClient;
+import com.sanctionco.thunder.models.Email;
+import com.sanctionco.thunder.models.User;
+
+import io.dropwizard.auth.AuthDynamicFeature;
+import io.dropwizard.auth.AuthValueFactoryProvider;
+import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.DropwizardResourceConfig;
+import io.dropwizard.jersey.jackson.JacksonFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures dispatching requests through Jersey, from authentication through the resource method
+ * to writing the response body, with Thunder and the Graph API answered from memory. Provider
+ * calls run on the request thread, so each request completes before {@code apply} returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceDispatchBenchmark {
+  private static final URI BASE_URI = URI.create("http://localhost:9000/");
+  private static final String EMAIL = "testy@sanctionco.com";
+  private static final String PASSWORD = "password";
+
+  @Param({"false", "true"})
+  private boolean profileCache;
+
+  private ApplicationHandler handler;
+  private String authorization;
+
+  /**
+   * Builds a Jersey application with Lightning's authentication and Facebook resource.
+   *
+   * @throws IOException If the configuration cannot be built.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    ObjectMapper mapper = Jackson.newObjectMapper();
+    MetricRegistry metrics = new MetricRegistry();
+
+    Key key = new Key("application", "secret");
+    LightningAuthenticator authenticator = new LightningAuthenticator(mapper.readValue(
+        "{\"approved-keys\": []}", LightningConfiguration.class));
+    authenticator.reload(Collections.singletonList(key));
+
+    ThunderClient thunderClient = ThunderClient.fake();
+    thunderClient.postUser(new User(new Email(EMAIL, true, null), PASSWORD,
+        ImmutableMap.of("facebook-access-token", "access-token"))).join();
+
+    FacebookServiceFactory serviceFactory = new FacebookServiceFactory("application-id",
+        "application-secret", new CannedWebRequestor(ImmutableMap.of(
+            "me", GraphResponses.user(),
+            "me/photos", GraphResponses.photos(25))),
+        GraphEndpoints.facebook(), 100, Duration.ofMinutes(5), Instrumentation.disabled());
+
+    ProfileCacheConfiguration cacheConfig = mapper.readValue(
+        "{\"enabled\": " + profileCache + "}", ProfileCacheConfiguration.class);
+
+    FacebookResource resource = new FacebookResource(thunderClient, metrics, serviceFactory,
+        new ProviderExecutor(MoreExecutors.directExecutor()),
+        new ProviderExecutor(MoreExecutors.directExecutor()), mapper,
+        new MediaUploadFactory(null, 0), null,
+        new ProfileCache<>("facebook", cacheConfig, mapper, metrics));
+
+    DropwizardResourceConfig config = DropwizardResourceConfig.forTesting(metrics);
+    config.register(new JacksonFeature(mapper));
+    config.register(MultiPartFeature.class);
+    config.register(new AuthDynamicFeature(new BasicCredentialAuthFilter.Builder<Key>()
+        .setAuthenticator(authenticator)
+        .setRealm("LIGHTNING - AUTHENTICATION")
+        .buildAuthFilter()));
+    config.register(new AuthValueFactoryProvider.Binder<>(Key.class));
+    config.register(resource);
+
+    handler = new ApplicationHandler(config);
+    authorization = "Basic " + Base64.getEncoder()
+        .encodeToString("application:secret".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Benchmark
+  public ContainerResponse getUser() throws InterruptedException, ExecutionException {
+    return dispatch("facebook/users?email=" + EMAIL);
+  }
+
+  @Benchmark
+  public ContainerResponse getPhotos() throws InterruptedException, ExecutionException {
+    return dispatch("facebook/photos?email=" + EMAIL);
+  }
+
+  @Benchmark
+  public ContainerResponse unauthorized() throws InterruptedException, ExecutionException {
+    ContainerRequest request = request("facebook/users?email=" + EMAIL);
+    request.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, "Basic d3Jvbmc6d3Jvbmc=");
+
+    return handler.apply(request).get();
+  }
+
+  private ContainerResponse dispatch(String path)
+      throws InterruptedException, ExecutionException {
+    ContainerResponse response = handler.apply(request(path)).get();
+
+    if (response.getStatus() != 200) {
+      throw new IllegalStateException("Expected 200 but got " + response.getStatus() + ".");
+    }
+
+    return response;
+  }
+
+  private ContainerRequest request(String path) {
+    ContainerRequest request = new ContainerRequest(BASE_URI, BASE_URI.resolve(path), "GET",
+        null, new MapPropertiesDelegate(), handler.getConfiguration());
+    request.header(HttpHeaders.AUTHORIZATION, authorization);
+    request.header("password", PASSWORD);
+
+    return request;
+  }
+}
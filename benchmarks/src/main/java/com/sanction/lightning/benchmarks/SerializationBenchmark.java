@@ -0,0 +1,77 @@
+package com.sanction.lightning.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restfb.DefaultJsonMapper;
+import com.sanction.lightning.models.facebook.FacebookPhoto;
+import com.sanction.lightning.models.facebook.FacebookUser;
+import com.sanction.lightning.models.twitter.TwitterUser;
+
+import io.dropwizard.jackson.Jackson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing the models that Lightning returns, with the same Jackson configuration
+ * that Dropwizard uses to write responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+  private static final int PHOTO_COUNT = 100;
+
+  private final ObjectMapper mapper = Jackson.newObjectMapper();
+
+  private FacebookUser facebookUser;
+  private TwitterUser twitterUser;
+  private List<FacebookPhoto> photos;
+
+  /**
+   * Builds the models to serialize.
+   */
+  @Setup
+  public void setup() {
+    facebookUser = new DefaultJsonMapper().toJavaObject(GraphResponses.user(), FacebookUser.class);
+    twitterUser = new TwitterUser(783214L, 3421, 6_402_115, "Tue Feb 20 14:35:54 +0000 2007",
+        "San Francisco, CA", "Twitter", "Twitter",
+        "https://pbs.twimg.com/profile_images/1354479643882004483/Btnfm47p_normal.jpg", true);
+
+    photos = new ArrayList<>(PHOTO_COUNT);
+    for (int i = 0; i < PHOTO_COUNT; i++) {
+      photos.add(new FacebookPhoto(String.valueOf(100_000_000_000L + i),
+          "https://scontent.xx.fbcdn.net/v/t1.0-9/" + i + "_2048_n.jpg", "1536", "2048"));
+    }
+  }
+
+  @Benchmark
+  public byte[] facebookUser() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(facebookUser);
+  }
+
+  @Benchmark
+  public byte[] twitterUser() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(twitterUser);
+  }
+
+  @Benchmark
+  public byte[] facebookPhotos() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(photos);
+  }
+}
@@ -0,0 +1,118 @@
+package com.sanction.lightning.benchmarks.load;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the outcome and latency of every request of one kind during a stage of a load test.
+ * Every latency is kept, so percentiles are exact rather than estimated from buckets.
+ */
+public final class LatencyRecorder {
+  // Requests that failed without a response, such as on a timeout or a refused connection
+  static final int NO_RESPONSE = 0;
+
+  private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+  private long[] latencies = new long[1024];
+  private int count;
+
+  /**
+   * Records a finished request.
+   *
+   * @param status The status code of the response, or {@link #NO_RESPONSE}.
+   * @param latencyNanos The time from when the request was due to be sent until it finished.
+   */
+  public synchronized void record(int status, long latencyNanos) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+
+    latencies[count++] = latencyNanos;
+    statuses.merge(status, 1, Integer::sum);
+  }
+
+  /**
+   * Adds everything recorded by another recorder to this one.
+   *
+   * @param other The recorder to add.
+   */
+  public synchronized void addAll(LatencyRecorder other) {
+    Snapshot snapshot = other.snapshot();
+
+    for (long latency : snapshot.latencies) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+
+      latencies[count++] = latency;
+    }
+
+    snapshot.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+  }
+
+  /**
+   * Takes a sorted copy of what has been recorded so far.
+   *
+   * @return The snapshot.
+   */
+  public synchronized Snapshot snapshot() {
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+
+    return new Snapshot(sorted, new TreeMap<>(statuses));
+  }
+
+  /**
+   * The latencies and status codes of a recorder at one point in time.
+   */
+  public static final class Snapshot {
+    private final long[] latencies;
+    private final Map<Integer, Integer> statuses;
+
+    private Snapshot(long[] latencies, Map<Integer, Integer> statuses) {
+      this.latencies = latencies;
+      this.statuses = statuses;
+    }
+
+    public int getCount() {
+      return latencies.length;
+    }
+
+    /**
+     * Returns the number of requests that got a 2xx response.
+     *
+     * @return The number of successful requests.
+     */
+    public int getSuccesses() {
+      return statuses.entrySet().stream()
+          .filter(entry -> entry.getKey() >= 200 && entry.getKey() < 300)
+          .mapToInt(Map.Entry::getValue)
+          .sum();
+    }
+
+    /**
+     * Returns the latency that the given fraction of requests finished within, using the
+     * nearest-rank method.
+     *
+     * @param quantile The fraction, from 0 to 1.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getQuantile(double quantile) {
+      if (latencies.length == 0) {
+        return 0;
+      }
+
+      int rank = (int) Math.ceil(quantile * latencies.length);
+      return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))];
+    }
+
+    public long getMax() {
+      return latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+    }
+
+    public Map<Integer, Integer> getStatuses() {
+      return statuses;
+    }
+  }
+}
@@ -0,0 +1,419 @@
+package com.sanction.lightning.benchmarks.load;
+
+import com.sanction.lightning.LightningApplication;
+
+import io.dropwizard.util.DataSize;
+import io.dropwizard.util.Duration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Finds the request rate at which Lightning saturates, without touching Thunder, Facebook, or
+ * Twitter. Lightning runs in-process against {@link Stubs stand-ins} with the given latencies
+ * and error rates, and is sent a weighted mix of reads and publishes at each of a series of
+ * rates.
+ *
+ * <p>Requests are sent on a fixed schedule whether or not earlier requests have finished, and
+ * each latency is measured from when its request was due to be sent. A Lightning that falls
+ * behind therefore shows up in the latencies, rather than lowering the rate it is sent.
+ *
+ * <p>Options are given as {@code --name=value}; run with {@code --help} to list them.
+ */
+public final class LoadTest {
+  private static final String APPLICATION = "load-test";
+  private static final String SECRET = "load-test-secret";
+
+  // A stage is saturated when Lightning finishes less than this fraction of the offered rate
+  private static final double SATURATION_THRESHOLD = 0.95;
+
+  private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+  static {
+    DEFAULTS.put("rates", "50,100,200,400");
+    DEFAULTS.put("stage-duration", "30 seconds");
+    DEFAULTS.put("warmup", "10 seconds");
+    DEFAULTS.put("mix", "facebook-user:30,facebook-photos:15,facebook-videos:10,"
+        + "facebook-profile:5,twitter-user:20,facebook-publish-text:5,facebook-publish-photo:5,"
+        + "facebook-publish-video:3,twitter-publish-text:5,twitter-publish-photo:2");
+    DEFAULTS.put("users", "1000");
+    DEFAULTS.put("thunder", "5ms,50ms,0");
+    DEFAULTS.put("graph", "80ms,800ms,0.005");
+    DEFAULTS.put("twitter", "60ms,600ms,0.005");
+    DEFAULTS.put("page-size", "25");
+    DEFAULTS.put("media-size", "256KB");
+    DEFAULTS.put("timeout", "30 seconds");
+    DEFAULTS.put("max-in-flight", "10000");
+    DEFAULTS.put("config", "");
+  }
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .build();
+
+  private final URI lightning;
+  private final Mix mix;
+  private final int users;
+  private final byte[] media;
+  private final java.time.Duration timeout;
+  private final int maxInFlight;
+  private final String authorization;
+
+  LoadTest(URI lightning, Mix mix, int users, byte[] media, Duration timeout, int maxInFlight) {
+    this.lightning = lightning;
+    this.mix = mix;
+    this.users = users;
+    this.media = media;
+    this.timeout = java.time.Duration.ofNanos(timeout.toNanoseconds());
+    this.maxInFlight = maxInFlight;
+
+    this.authorization = "Basic " + Base64.getEncoder()
+        .encodeToString((APPLICATION + ":" + SECRET).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param args The options, as {@code --name=value}.
+   * @throws Exception If Lightning or a stand-in cannot be started.
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parseOptions(args);
+
+    if (options == null) {
+      System.out.println("Options, with their defaults:");
+      DEFAULTS.forEach((name, value) -> System.out.println("  --" + name + "=" + value));
+      System.out.println("Behaviors are given as median latency, p99 latency, and error rate.");
+      return;
+    }
+
+    List<Double> rates = new ArrayList<>();
+    for (String rate : options.get("rates").split(",")) {
+      rates.add(Double.parseDouble(rate.trim()));
+    }
+
+    Duration stageDuration = Duration.parse(options.get("stage-duration"));
+    Duration warmup = Duration.parse(options.get("warmup"));
+    byte[] media = new byte[(int) DataSize.parse(options.get("media-size")).toBytes()];
+    ThreadLocalRandom.current().nextBytes(media);
+
+    try (StubServer thunder = Stubs.thunder(UpstreamBehavior.parse(options.get("thunder")));
+         StubServer graph = Stubs.graph(UpstreamBehavior.parse(options.get("graph")),
+             Integer.parseInt(options.get("page-size")));
+         StubServer twitter = Stubs.twitter(UpstreamBehavior.parse(options.get("twitter")))) {
+      List<StubServer> stubs = List.of(thunder.start(), graph.start(), twitter.start());
+
+      Path directory = Files.createTempDirectory("lightning-load-test");
+      URI lightning = startLightning(options.get("config"), directory, thunder, graph, twitter);
+
+      LoadTest test = new LoadTest(lightning, Mix.parse(options.get("mix")),
+          Integer.parseInt(options.get("users")), media, Duration.parse(options.get("timeout")),
+          Integer.parseInt(options.get("max-in-flight")));
+
+      PrintStream out = System.out;
+      out.printf("Lightning is running at %s and logging to %s%n", lightning,
+          directory.resolve("lightning.log"));
+      stubs.forEach(stub -> out.printf("  %-8s %s%n", stub.getName(), stub.getBehavior()));
+
+      if (warmup.toNanoseconds() > 0) {
+        out.printf("%nWarming up at %.0f requests/s for %s%n", rates.get(0), warmup);
+        test.runStage(rates.get(0), warmup);
+      }
+
+      for (double rate : rates) {
+        stubs.forEach(StubServer::resetCounts);
+
+        Stage stage = test.runStage(rate, stageDuration);
+        stage.report(out, stubs);
+      }
+    }
+
+    // Lightning's threads are not daemons, so stop it along with the load test
+    System.exit(0);
+  }
+
+  /**
+   * Sends requests at the given rate for the given duration, and waits for them to finish.
+   *
+   * @param rate The number of requests to send per second.
+   * @param duration How long to send requests for.
+   * @return The results of the stage.
+   */
+  Stage runStage(double rate, Duration duration) {
+    Stage stage = new Stage(rate, duration, mix);
+    AtomicInteger inFlight = new AtomicInteger();
+    Random random = ThreadLocalRandom.current();
+
+    long start = System.nanoTime();
+    long end = start + duration.toNanoseconds();
+    stage.endNanos = end;
+    long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+
+    for (long due = start; due < end; due += periodNanos) {
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+
+      stage.offered++;
+
+      if (inFlight.get() >= maxInFlight) {
+        stage.dropped++;
+        continue;
+      }
+
+      Operation operation = mix.next(random);
+      LatencyRecorder recorder = stage.recorders.get(operation);
+      String email = "user-" + random.nextInt(users) + "@loadtest.sanctionco.com";
+
+      HttpRequest request = operation.newRequest(lightning, email, media)
+          .header("Authorization", authorization)
+          .header("password", "password")
+          .timeout(timeout)
+          .build();
+
+      final long dueAt = due;
+      inFlight.incrementAndGet();
+
+      client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, throwable) -> {
+            long now = System.nanoTime();
+            recorder.record(
+                throwable == null ? response.statusCode() : LatencyRecorder.NO_RESPONSE,
+                now - dueAt);
+
+            if (now < end) {
+              stage.finishedWhileSending.increment();
+              stage.firstFinishNanos.accumulate(now);
+            }
+
+            inFlight.decrementAndGet();
+          });
+    }
+
+    // Requests still in flight belong to this stage, so wait for them before reporting
+    long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+    while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    stage.drainNanos = System.nanoTime() - end;
+    return stage;
+  }
+
+  /**
+   * Writes a Lightning configuration pointed at the stand-ins, and starts Lightning with it.
+   *
+   * @return The base URL of the running Lightning.
+   */
+  private static URI startLightning(String template, Path directory, StubServer thunder,
+                                    StubServer graph, StubServer twitter) throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+      port = socket.getLocalPort();
+    }
+
+    String configuration = readTemplate(template)
+        .replace("${thunder-endpoint}", thunder.getEndpoint())
+        .replace("${graph-endpoint}", graph.getEndpoint())
+        .replace("${twitter-endpoint}", twitter.getEndpoint())
+        .replace("${directory}", directory.toString())
+        .replace("${port}", Integer.toString(port));
+
+    Path file = directory.resolve("lightning.yaml");
+    Files.writeString(file, configuration);
+
+    new LightningApplication().run("server", file.toString());
+
+    return URI.create("http://127.0.0.1:" + port + "/");
+  }
+
+  private static String readTemplate(String template) throws IOException {
+    if (!template.isEmpty()) {
+      return Files.readString(Paths.get(template));
+    }
+
+    try (InputStream in = LoadTest.class.getResourceAsStream("/load-test.yaml")) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Parses {@code --name=value} options over the defaults.
+   *
+   * @return The options, or {@code null} if help was asked for.
+   */
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+
+    for (String arg : args) {
+      if (arg.equals("--help")) {
+        return null;
+      }
+
+      int equals = arg.indexOf('=');
+      String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+
+      if (name == null || !DEFAULTS.containsKey(name)) {
+        throw new IllegalArgumentException("Unknown option " + arg + ". Try --help.");
+      }
+
+      options.put(name, arg.substring(equals + 1));
+    }
+
+    return options;
+  }
+
+  /**
+   * A weighted choice of operations.
+   */
+  static final class Mix {
+    private final Operation[] operations;
+    private final double[] cumulativeWeights;
+
+    private Mix(Operation[] operations, double[] cumulativeWeights) {
+      this.operations = operations;
+      this.cumulativeWeights = cumulativeWeights;
+    }
+
+    /**
+     * Parses a mix such as {@code facebook-user:3,twitter-user:1}.
+     *
+     * @param spec The operations and their weights.
+     * @return The mix.
+     */
+    static Mix parse(String spec) {
+      String[] entries = spec.split(",");
+      Operation[] operations = new Operation[entries.length];
+      double[] cumulativeWeights = new double[entries.length];
+      double total = 0;
+
+      for (int i = 0; i < entries.length; i++) {
+        String[] parts = entries[i].trim().split(":");
+        double weight = parts.length > 1 ? Double.parseDouble(parts[1]) : 1;
+
+        if (weight <= 0) {
+          throw new IllegalArgumentException("The weight of " + parts[0] + " must be positive.");
+        }
+
+        operations[i] = Operation.fromName(parts[0]);
+        total += weight;
+        cumulativeWeights[i] = total;
+      }
+
+      return new Mix(operations, cumulativeWeights);
+    }
+
+    Operation next(Random random) {
+      double choice = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+
+      for (int i = 0; i < operations.length; i++) {
+        if (choice < cumulativeWeights[i]) {
+          return operations[i];
+        }
+      }
+
+      return operations[operations.length - 1];
+    }
+
+    Operation[] getOperations() {
+      return operations.clone();
+    }
+  }
+
+  /**
+   * The results of sending requests at one rate.
+   */
+  static final class Stage {
+    private final double rate;
+    private final Duration duration;
+    private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+
+    private final LongAdder finishedWhileSending = new LongAdder();
+    private final LongAccumulator firstFinishNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private long offered;
+    private long dropped;
+    private long endNanos;
+    private long drainNanos;
+
+    Stage(double rate, Duration duration, Mix mix) {
+      this.rate = rate;
+      this.duration = duration;
+
+      for (Operation operation : mix.getOperations()) {
+        recorders.put(operation, new LatencyRecorder());
+      }
+    }
+
+    void report(PrintStream out, List<StubServer> stubs) {
+      LatencyRecorder all = new LatencyRecorder();
+      recorders.values().forEach(all::addAll);
+
+      LatencyRecorder.Snapshot total = all.snapshot();
+
+      // Measured from the first response, so that it is not lowered by the time that the
+      // first requests spend in flight
+      double seconds = (endNanos - firstFinishNanos.get()) / 1e9;
+      double throughput = seconds > 0 ? finishedWhileSending.sum() / seconds : 0;
+
+      out.printf("%n== %.0f requests/s for %s ==%n", rate, duration);
+      out.printf("Sent %d requests and finished %d, %.1fs after sending stopped. "
+          + "Dropped %d over the in-flight limit%n",
+          offered - dropped, total.getCount(), drainNanos / 1e9, dropped);
+      out.printf("Throughput %.1f requests/s while sending%n", throughput);
+
+      out.printf("%-24s %7s %7s %9s %9s %9s %9s %9s  %s%n", "operation", "count", "ok",
+          "p50", "p90", "p99", "p99.9", "max", "statuses");
+      recorders.forEach((operation, recorder) ->
+          printRow(out, operation.toString(), recorder.snapshot()));
+      printRow(out, "all", total);
+
+      stubs.forEach(stub -> out.printf("%s answered %d requests, %d failed on purpose%n",
+          stub.getName(), stub.getRequests(), stub.getInjectedErrors()));
+
+      if (dropped > 0 || throughput < rate * SATURATION_THRESHOLD) {
+        out.printf("SATURATED: Lightning finished %.1f of the %.0f requests/s sent%n",
+            throughput, rate);
+      }
+    }
+
+    private static void printRow(PrintStream out, String name, LatencyRecorder.Snapshot snapshot) {
+      double ok = snapshot.getCount() == 0
+          ? 0 : 100.0 * snapshot.getSuccesses() / snapshot.getCount();
+
+      out.printf("%-24s %7d %6.1f%% %9s %9s %9s %9s %9s  %s%n", name, snapshot.getCount(), ok,
+          millis(snapshot.getQuantile(0.5)), millis(snapshot.getQuantile(0.9)),
+          millis(snapshot.getQuantile(0.99)), millis(snapshot.getQuantile(0.999)),
+          millis(snapshot.getMax()), snapshot.getStatuses());
+    }
+
+    private static String millis(long nanos) {
+      return String.format("%.1fms", nanos / 1e6);
+    }
+  }
+}
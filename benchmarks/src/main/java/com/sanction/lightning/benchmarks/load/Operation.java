@@ -0,0 +1,90 @@
+package com.sanction.lightning.benchmarks.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Lightning request that a load test can send, by the name used to weigh it in a mix.
+ */
+public enum Operation {
+  FACEBOOK_USER("facebook-user", "facebook/users", null),
+  FACEBOOK_PHOTOS("facebook-photos", "facebook/photos", null),
+  FACEBOOK_VIDEOS("facebook-videos", "facebook/videos", null),
+  FACEBOOK_PROFILE("facebook-profile", "facebook/profile", null),
+  TWITTER_USER("twitter-user", "twitter/users", null),
+  FACEBOOK_PUBLISH_TEXT("facebook-publish-text", "facebook/publish", "text"),
+  FACEBOOK_PUBLISH_PHOTO("facebook-publish-photo", "facebook/publish", "photo"),
+  FACEBOOK_PUBLISH_VIDEO("facebook-publish-video", "facebook/publish", "video"),
+  TWITTER_PUBLISH_TEXT("twitter-publish-text", "twitter/publish", "text"),
+  TWITTER_PUBLISH_PHOTO("twitter-publish-photo", "twitter/publish", "photo");
+
+  private final String name;
+  private final String path;
+  private final String publishType;
+
+  Operation(String name, String path, String publishType) {
+    this.name = name;
+    this.path = path;
+    this.publishType = publishType;
+  }
+
+  /**
+   * Finds the operation with the given name.
+   *
+   * @param name The name of the operation, such as {@code facebook-user}.
+   * @return The operation.
+   * @throws IllegalArgumentException If there is no such operation.
+   */
+  public static Operation fromName(String name) {
+    for (Operation operation : values()) {
+      if (operation.name.equals(name)) {
+        return operation;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown operation " + name + ".");
+  }
+
+  /**
+   * Builds the request for this operation. Photos and videos are published with the given media
+   * as the raw request body.
+   *
+   * @param lightning The base URL of Lightning, ending with a slash.
+   * @param email The email of the Thunder user to act as.
+   * @param media The media to publish.
+   * @return A builder for the request, which the caller can add headers to.
+   */
+  public HttpRequest.Builder newRequest(URI lightning, String email, byte[] media) {
+    StringBuilder query = new StringBuilder("?email=").append(encode(email));
+
+    if (publishType == null) {
+      return HttpRequest.newBuilder(lightning.resolve(path + query)).GET();
+    }
+
+    query.append("&type=").append(publishType).append("&message=")
+        .append(encode("Load test " + this));
+
+    if (publishType.equals("text")) {
+      return HttpRequest.newBuilder(lightning.resolve(path + query))
+          .POST(HttpRequest.BodyPublishers.noBody())
+          .header("Content-Type", "application/octet-stream");
+    }
+
+    query.append("&filename=").append(publishType.equals("photo") ? "photo.jpg" : "video.mp4");
+
+    return HttpRequest.newBuilder(lightning.resolve(path + query))
+        .POST(HttpRequest.BodyPublishers.ofByteArray(media))
+        .header("Content-Type", "application/octet-stream");
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,207 @@
+package com.sanction.lightning.benchmarks.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process HTTP server that stands in for an upstream service. Each request waits for a
+ * latency sampled from the server's {@link UpstreamBehavior}, and then either fails with the
+ * upstream's error response or is answered by the route for its method and path. Every request
+ * runs on its own thread, so a slow request never holds up another.
+ */
+public final class StubServer implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(StubServer.class);
+
+  /**
+   * Answers a request that was routed to it.
+   */
+  @FunctionalInterface
+  public interface Route {
+
+    /**
+     * Builds the body of a successful response.
+     *
+     * @param uri The URI of the request, including its query string.
+     * @param body The body of the request.
+     * @return The JSON body of the response.
+     */
+    String respond(URI uri, byte[] body);
+  }
+
+  private final String name;
+  private final UpstreamBehavior behavior;
+  private final int errorStatus;
+  private final String errorBody;
+  private final Map<String, Route> routes = new HashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder injectedErrors = new LongAdder();
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * Constructs a new StubServer. Add routes before calling {@link #start()}.
+   *
+   * @param name The name of the upstream, used in reports.
+   * @param behavior The latency and error rate of the upstream.
+   * @param errorStatus The status code of injected errors.
+   * @param errorBody The body of injected errors, in the upstream's error format.
+   */
+  public StubServer(String name, UpstreamBehavior behavior, int errorStatus, String errorBody) {
+    this.name = name;
+    this.behavior = behavior;
+    this.errorStatus = errorStatus;
+    this.errorBody = errorBody;
+  }
+
+  /**
+   * Adds a route. Requests without a route get a 404.
+   *
+   * @param method The HTTP method to match.
+   * @param path The exact path to match.
+   * @param route The route to answer matching requests with.
+   * @return This server.
+   */
+  public StubServer route(String method, String path, Route route) {
+    routes.put(method + " " + path, route);
+    return this;
+  }
+
+  /**
+   * Starts the server on a free port of the loopback interface.
+   *
+   * @return This server.
+   * @throws IOException If the server cannot be started.
+   */
+  public StubServer start() throws IOException {
+    AtomicInteger threads = new AtomicInteger();
+
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, name + "-stub-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+
+    return this;
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public UpstreamBehavior getBehavior() {
+    return behavior;
+  }
+
+  /**
+   * Returns the base URL of the server, ending with a slash.
+   *
+   * @return The base URL.
+   */
+  public String getEndpoint() {
+    InetSocketAddress address = server.getAddress();
+
+    return "http://" + address.getHostString() + ":" + address.getPort() + "/";
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getInjectedErrors() {
+    return injectedErrors.sum();
+  }
+
+  /**
+   * Resets the request counts, such as at the start of a stage of a load test.
+   */
+  public void resetCounts() {
+    requests.reset();
+    injectedErrors.reset();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.increment();
+
+    try {
+      // Read the whole request before answering, as the upstream would
+      byte[] body;
+      try (InputStream in = exchange.getRequestBody()) {
+        body = in.readAllBytes();
+      }
+
+      Random random = ThreadLocalRandom.current();
+      long latency = behavior.sampleLatencyNanos(random);
+      if (latency > 0) {
+        TimeUnit.NANOSECONDS.sleep(latency);
+      }
+
+      if (behavior.sampleError(random)) {
+        injectedErrors.increment();
+        send(exchange, errorStatus, errorBody);
+        return;
+      }
+
+      URI uri = exchange.getRequestURI();
+      Route route = routes.get(exchange.getRequestMethod() + " " + uri.getPath());
+
+      if (route == null) {
+        send(exchange, 404, errorBody);
+        return;
+      }
+
+      send(exchange, 200, route.respond(uri, body));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      LOG.error("The {} stub failed to answer {}.", name, exchange.getRequestURI(), e);
+      send(exchange, 500, errorBody);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
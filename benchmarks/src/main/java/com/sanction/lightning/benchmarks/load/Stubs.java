@@ -0,0 +1,172 @@
+package com.sanction.lightning.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restfb.Version;
+import com.sanction.lightning.benchmarks.GraphResponses;
+
+import io.dropwizard.jackson.Jackson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds the stand-ins for Thunder, graph.facebook.com and api.twitter.com. Each answers the
+ * requests that Lightning makes with bodies shaped like the real service's, and fails in the
+ * real service's error format.
+ */
+public final class Stubs {
+  private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+
+  // The Graph API version that Lightning's RestFB client asks for
+  private static final String GRAPH = "/" + Version.VERSION_12_0.getUrlElement() + "/";
+
+  private static final String TWITTER_USER = "{\"id\":%d,\"id_str\":\"%d\","
+      + "\"name\":\"Load Test\",\"screen_name\":\"loadtest\",\"location\":\"Austin, TX\","
+      + "\"created_at\":\"Tue Feb 20 14:35:54 +0000 2007\",\"favourites_count\":3421,"
+      + "\"followers_count\":6402115,\"verified\":true,"
+      + "\"profile_image_url\":\"http://pbs.twimg.com/profile_images/1/loadtest_normal.jpg\","
+      + "\"profile_image_url_https\":"
+      + "\"https://pbs.twimg.com/profile_images/1/loadtest_normal.jpg\"}";
+
+  private Stubs() {
+  }
+
+  /**
+   * Builds a stand-in for Thunder that knows every user. Each user has Facebook and Twitter
+   * tokens derived from their email, so that Lightning sees a different user for each email.
+   *
+   * @param behavior The latency and error rate of the stand-in.
+   * @return The stand-in, not yet started.
+   */
+  public static StubServer thunder(UpstreamBehavior behavior) {
+    return new StubServer("thunder", behavior, 503,
+        "{\"code\":503,\"message\":\"Database is unavailable.\"}")
+        .route("GET", "/users", (uri, body) -> {
+          String email = query(uri).getOrDefault("email", "");
+          long userId = Math.floorMod(email.hashCode(), 1_000_000_000L) + 1;
+
+          ObjectNode user = MAPPER.createObjectNode();
+          user.putObject("email")
+              .put("address", email)
+              .put("verified", true);
+          user.put("password", "password");
+          user.putObject("properties")
+              .put("facebook-access-token", "facebook-" + userId)
+              .put("twitter-access-token", userId + "-twitter")
+              .put("twitter-access-secret", "twitter-secret-" + userId);
+
+          return user.toString();
+        });
+  }
+
+  /**
+   * Builds a stand-in for the Graph API, including video uploads and batch requests.
+   *
+   * @param behavior The latency and error rate of the stand-in.
+   * @param pageSize The number of photos and videos in each list.
+   * @return The stand-in, not yet started.
+   */
+  public static StubServer graph(UpstreamBehavior behavior, int pageSize) {
+    Map<String, String> reads = new HashMap<>();
+    reads.put("me", GraphResponses.user());
+    reads.put("me/photos", GraphResponses.photos(pageSize));
+    reads.put("me/videos", GraphResponses.videos(pageSize));
+
+    StubServer server = new StubServer("graph", behavior, 500,
+        "{\"error\":{\"message\":\"An unexpected error has occurred. Please retry your request "
+            + "later.\",\"type\":\"OAuthException\",\"is_transient\":true,\"code\":2}}");
+
+    reads.forEach((path, response) -> server.route("GET", GRAPH + path, (uri, body) -> response));
+
+    return server
+        .route("POST", GRAPH + "me/feed", (uri, body) -> graphId())
+        .route("POST", GRAPH + "me/photos", (uri, body) -> graphId())
+        .route("POST", GRAPH + "me/videos", (uri, body) -> graphId())
+        .route("POST", GRAPH, (uri, body) -> batch(reads, body));
+  }
+
+  /**
+   * Builds a stand-in for the Twitter REST API.
+   *
+   * @param behavior The latency and error rate of the stand-in.
+   * @return The stand-in, not yet started.
+   */
+  public static StubServer twitter(UpstreamBehavior behavior) {
+    return new StubServer("twitter", behavior, 503,
+        "{\"errors\":[{\"code\":130,\"message\":\"Over capacity\"}]}")
+        .route("GET", "/1.1/users/show.json", (uri, body) -> {
+          long userId = Long.parseLong(query(uri).getOrDefault("user_id", "1"));
+
+          return String.format(TWITTER_USER, userId, userId);
+        })
+        .route("GET", "/1.1/account/verify_credentials.json",
+            (uri, body) -> String.format(TWITTER_USER, 1, 1))
+        .route("POST", "/1.1/statuses/update.json", (uri, body) -> tweet())
+        .route("POST", "/1.1/statuses/update_with_media.json", (uri, body) -> tweet());
+  }
+
+  private static String graphId() {
+    return "{\"id\":\"" + ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE) + "\"}";
+  }
+
+  private static String tweet() {
+    long id = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    return "{\"id\":" + id + ",\"id_str\":\"" + id + "\",\"text\":\"Load test\","
+        + "\"created_at\":\"Sat Nov 28 18:30:00 +0000 2020\",\"user\":"
+        + String.format(TWITTER_USER, 1, 1) + "}";
+  }
+
+  /**
+   * Answers each request of a batch from the given read responses.
+   */
+  private static String batch(Map<String, String> reads, byte[] body) {
+    String requests = form(new String(body, StandardCharsets.UTF_8)).get("batch");
+    ArrayNode responses = MAPPER.createArrayNode();
+
+    try {
+      for (JsonNode request : MAPPER.readTree(requests)) {
+        String relativeUrl = request.path("relative_url").asText();
+        int query = relativeUrl.indexOf('?');
+        String response = reads.get(query < 0 ? relativeUrl : relativeUrl.substring(0, query));
+
+        responses.addObject()
+            .put("code", response != null ? 200 : 404)
+            .put("body", response != null ? response : "{\"error\":{\"code\":803}}");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return responses.toString();
+  }
+
+  private static Map<String, String> query(URI uri) {
+    return uri.getRawQuery() != null ? form(uri.getRawQuery()) : new HashMap<>();
+  }
+
+  private static Map<String, String> form(String encoded) {
+    Map<String, String> parameters = new HashMap<>();
+
+    for (String pair : encoded.split("&")) {
+      int equals = pair.indexOf('=');
+
+      if (equals > 0) {
+        parameters.put(
+            URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+
+    return parameters;
+  }
+}
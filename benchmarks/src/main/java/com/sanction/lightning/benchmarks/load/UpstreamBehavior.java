@@ -0,0 +1,92 @@
+package com.sanction.lightning.benchmarks.load;
+
+import io.dropwizard.util.Duration;
+
+import java.util.Random;
+
+/**
+ * How a stand-in upstream behaves: how long it takes to answer and how often it fails.
+ * Latencies follow a log-normal distribution fitted to a median and a 99th percentile, which
+ * gives the long tail that real services have. Failures are injected at random at the given
+ * rate, after the sampled latency.
+ */
+public final class UpstreamBehavior {
+  // The 99th percentile of the standard normal distribution
+  private static final double Z_99 = 2.3263478740408408;
+
+  private final Duration median;
+  private final Duration p99;
+  private final double errorRate;
+  private final double sigma;
+
+  /**
+   * Constructs a new UpstreamBehavior.
+   *
+   * @param median The median latency.
+   * @param p99 The 99th percentile latency, at least the median.
+   * @param errorRate The fraction of requests to fail, from 0 to 1.
+   */
+  public UpstreamBehavior(Duration median, Duration p99, double errorRate) {
+    if (p99.toNanoseconds() < median.toNanoseconds()) {
+      throw new IllegalArgumentException("The p99 latency must be at least the median.");
+    }
+
+    if (errorRate < 0 || errorRate > 1) {
+      throw new IllegalArgumentException("The error rate must be between 0 and 1.");
+    }
+
+    this.median = median;
+    this.p99 = p99;
+    this.errorRate = errorRate;
+    this.sigma = median.toNanoseconds() == 0
+        ? 0
+        : Math.log((double) p99.toNanoseconds() / median.toNanoseconds()) / Z_99;
+  }
+
+  /**
+   * Parses a behavior from {@code median,p99,errorRate}, such as {@code 40ms,400ms,0.01}.
+   *
+   * @param spec The behavior to parse.
+   * @return The behavior.
+   * @throws IllegalArgumentException If the behavior cannot be parsed.
+   */
+  public static UpstreamBehavior parse(String spec) {
+    String[] parts = spec.split(",");
+
+    if (parts.length != 3) {
+      throw new IllegalArgumentException(
+          "Expected median,p99,error-rate such as 40ms,400ms,0.01 but got " + spec + ".");
+    }
+
+    return new UpstreamBehavior(
+        Duration.parse(parts[0].trim()),
+        Duration.parse(parts[1].trim()),
+        Double.parseDouble(parts[2].trim()));
+  }
+
+  /**
+   * Samples how long to take to answer a request.
+   *
+   * @param random The source of randomness.
+   * @return The latency in nanoseconds.
+   */
+  public long sampleLatencyNanos(Random random) {
+    return Math.round(median.toNanoseconds() * Math.exp(sigma * random.nextGaussian()));
+  }
+
+  /**
+   * Samples whether a request should fail.
+   *
+   * @param random The source of randomness.
+   * @return {@code true} if the request should fail.
+   */
+  public boolean sampleError(Random random) {
+    return errorRate > 0 && random.nextDouble() < errorRate;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("median %dms, p99 %dms, %.2f%% errors",
+        median.toMilliseconds(), p99.toMilliseconds(), errorRate * 100);
+  }
+}
@@ -144,6 +144,14 @@ if __name__ == '__main__':
                  headers={'password': password},
                  files={'file': ''},
                  expected=requests.codes.created),
+
+        # All Networks
+        TestCase('POST', '/publish', authentication,
+                 params={'email': args.email, 'type': 'photo', 'message': 'Lightning Logo'},
+                 headers={'password': password},
+                 files={'file': open('application/src/main/resources/logo.png', 'rb')},
+                 data={'title': 'Logo'},
+                 expected=requests.codes.created),
 ]
 
     # Run tests